@@ -0,0 +1,111 @@
+package com.example.orthodox_prm;
+
+import com.example.orthodox_prm.model.CalendarFeed;
+import com.example.orthodox_prm.service.CalendarFeedService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.time.ZoneId;
+import java.util.Optional;
+
+@Controller
+@RequestMapping("/calendar")
+@Slf4j
+public class CalendarFeedController {
+
+    private static final MediaType TEXT_CALENDAR = MediaType.parseMediaType("text/calendar;charset=UTF-8");
+
+    private final CalendarFeedService calendarFeedService;
+
+    public CalendarFeedController(CalendarFeedService calendarFeedService) {
+        this.calendarFeedService = calendarFeedService;
+    }
+
+    /**
+     * Public iCalendar feed for subscribing from calendar clients; the token is the credential.
+     * Answers 304 from the ETag alone when nothing has changed, otherwise streams the feed.
+     */
+    @GetMapping("/feed/{token}.ics")
+    public ResponseEntity<StreamingResponseBody> getFeed(@PathVariable String token, WebRequest webRequest) {
+        Optional<CalendarFeed> found = calendarFeedService.findFeed(token);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        CalendarFeed feed = found.get();
+        ZoneId zone = calendarFeedService.getZone(feed);
+        String etag = calendarFeedService.getEtag(feed, zone);
+
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=calendar.ics")
+                .contentType(TEXT_CALENDAR)
+                .body(out -> calendarFeedService.writeFeed(feed, zone, out));
+    }
+
+    /**
+     * Create (or regenerate, revoking the old URL) the current user's personal or parish feed
+     */
+    @PostMapping("/feeds")
+    @PreAuthorize("hasAnyRole('PRIEST','SECRETARY','VIEWER')")
+    public String createFeed(@RequestParam(defaultValue = "false") boolean parishWide,
+                             RedirectAttributes redirectAttributes) {
+        if (parishWide && !canPublishParishFeed()) {
+            redirectAttributes.addFlashAttribute("error", "Only priests and secretaries can publish the parish calendar.");
+            return "redirect:/settings";
+        }
+        calendarFeedService.createFeed(getCurrentUsername(), parishWide);
+        redirectAttributes.addFlashAttribute("success", "Calendar feed created. Any previous link for it no longer works.");
+        return "redirect:/settings";
+    }
+
+    /**
+     * Revoke the current user's personal or parish feed
+     */
+    @PostMapping("/feeds/revoke")
+    @PreAuthorize("hasAnyRole('PRIEST','SECRETARY','VIEWER')")
+    public String revokeFeed(@RequestParam(defaultValue = "false") boolean parishWide,
+                             RedirectAttributes redirectAttributes) {
+        calendarFeedService.revokeFeed(getCurrentUsername(), parishWide);
+        redirectAttributes.addFlashAttribute("success", "Calendar feed revoked.");
+        return "redirect:/settings";
+    }
+
+    private boolean canPublishParishFeed() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_PRIEST") || a.getAuthority().equals("ROLE_SECRETARY"));
+    }
+
+    /**
+     * Get the current authenticated username
+     */
+    private String getCurrentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+
+        if (auth != null && auth.getPrincipal() instanceof OAuth2User) {
+            OAuth2User oAuth2User = (OAuth2User) auth.getPrincipal();
+            return oAuth2User.getAttribute("email") != null ?
+                    oAuth2User.getAttribute("email") :
+                    oAuth2User.getName();
+        }
+
+        return auth != null ? auth.getName() : "anonymous";
+    }
+}
@@ -3,10 +3,17 @@ package com.example.orthodox_prm.Controllers;
 import com.example.orthodox_prm.model.ParishionerSubmission;
 import com.example.orthodox_prm.model.SubmissionLink;
 import com.example.orthodox_prm.service.QRCodeService;
+import com.example.orthodox_prm.service.QRCodeSheetService;
 import com.example.orthodox_prm.service.SubmissionLinkService;
 import com.example.orthodox_prm.service.SubmissionService;
+import com.example.orthodox_prm.util.TextCompression;
+import com.google.zxing.WriterException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,11 +21,13 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 @RequestMapping("/links")
@@ -34,6 +43,9 @@ public class LinkManagementController {
     @Autowired
     private QRCodeService qrCodeService;
 
+    @Autowired
+    private QRCodeSheetService qrCodeSheetService;
+
     @Value("${server.servlet.context-path:}")
     private String contextPath;
 
@@ -115,19 +127,14 @@ public class LinkManagementController {
         SubmissionLink link = submissionLinkService.createLink(currentUser, expiresAt, description, effectiveMaxSubmissions);
 
         // Generate the full URL for the submission form
-        String submissionUrl = appUrl + "/public/submit/" + link.getToken();
+        String submissionUrl = getSubmissionUrl(link.getToken());
 
-        // Generate QR code
-        String qrCodeBase64;
-        try {
-            qrCodeBase64 = qrCodeService.generateQRCodeBase64(submissionUrl, 300, 300);
-        } catch (Exception e) {
-            qrCodeBase64 = null;
-        }
+        // Render the QR codes now, so the pages showing them are served from the cache
+        qrCodeService.precompute(submissionUrl);
 
         model.addAttribute("link", link);
         model.addAttribute("submissionUrl", submissionUrl);
-        model.addAttribute("qrCodeBase64", qrCodeBase64);
+        model.addAttribute("qrCodeUrl", getQRCodeUrl(link, QRCodeService.PAGE_SIZE, QRCodeService.Format.PNG));
         model.addAttribute("successMessage", "Submission link created successfully!");
 
         return "links/create-link";
@@ -145,23 +152,82 @@ public class LinkManagementController {
         }
 
         SubmissionLink link = linkOpt.get();
-        String submissionUrl = appUrl + "/public/submit/" + link.getToken();
-
-        // Generate QR code
-        String qrCodeBase64;
-        try {
-            qrCodeBase64 = qrCodeService.generateQRCodeBase64(submissionUrl, 400, 400);
-        } catch (Exception e) {
-            qrCodeBase64 = null;
-        }
+        String submissionUrl = getSubmissionUrl(link.getToken());
 
         model.addAttribute("link", link);
         model.addAttribute("submissionUrl", submissionUrl);
-        model.addAttribute("qrCodeBase64", qrCodeBase64);
+        // Vector, so it prints sharp at any size
+        model.addAttribute("qrCodeUrl", getQRCodeUrl(link, QRCodeService.PRINT_SIZE, QRCodeService.Format.SVG));
 
         return "links/qr-code-print";
     }
 
+    /**
+     * QR code image for a link's submission form. An image never changes for its URL, so
+     * browsers may keep it for good; the v parameter changes with app.url, which it encodes.
+     */
+    @GetMapping("/qr/{token}.{extension}")
+    public ResponseEntity<byte[]> getQRCode(@PathVariable String token,
+                                            @PathVariable String extension,
+                                            @RequestParam(defaultValue = "300") int size) {
+        Optional<QRCodeService.Format> format = QRCodeService.Format.fromExtension(extension);
+        if (format.isEmpty() || size < QRCodeService.MIN_SIZE || size > QRCodeService.MAX_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (submissionLinkService.findByToken(token).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        byte[] image;
+        try {
+            image = qrCodeService.getQRCode(getSubmissionUrl(token), size, format.get());
+        } catch (WriterException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable())
+                .contentType(format.get().getMediaType())
+                .body(image);
+    }
+
+    /**
+     * Printable PDF of QR codes for the selected links, six to a page with their descriptions,
+     * or for all of the current user's active links if none are selected
+     */
+    @GetMapping("/qr-sheet")
+    public ResponseEntity<StreamingResponseBody> getQRCodeSheet(@RequestParam(required = false) List<Long> ids) {
+        List<SubmissionLink> links;
+        if (ids == null || ids.isEmpty()) {
+            links = submissionLinkService.getLinksByCreator(getCurrentUserEmail()).stream()
+                    .filter(link -> Boolean.TRUE.equals(link.getIsActive()))
+                    .toList();
+        } else if (ids.size() <= QRCodeSheetService.MAX_ENTRIES) {
+            links = submissionLinkService.getLinksByIds(ids);
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        if (links.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (links.size() > QRCodeSheetService.MAX_ENTRIES) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        DateTimeFormatter expiryFormat = DateTimeFormatter.ofPattern("MMMM dd, yyyy");
+        List<QRCodeSheetService.SheetEntry> entries = links.stream()
+                .map(link -> new QRCodeSheetService.SheetEntry(
+                        link.getDescription() != null && !link.getDescription().isBlank() ? link.getDescription() : "Untitled",
+                        getSubmissionUrl(link.getToken()),
+                        link.getExpiresAt() != null ? "Valid until " + expiryFormat.format(link.getExpiresAt()) : null))
+                .toList();
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=qr-codes.pdf")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(out -> qrCodeSheetService.writeSheet("Parishioner Information Submission", entries, out));
+    }
+
     /**
      * Deactivate a submission link
      */
@@ -190,4 +256,13 @@ public class LinkManagementController {
 
         return "links/view-submissions";
     }
+
+    private String getSubmissionUrl(String token) {
+        return appUrl + "/public/submit/" + token;
+    }
+
+    private String getQRCodeUrl(SubmissionLink link, int size, QRCodeService.Format format) {
+        return "/links/qr/" + link.getToken() + "." + format.getExtension()
+                + "?size=" + size + "&v=" + TextCompression.sha256Hex(appUrl).substring(0, 8);
+    }
 }
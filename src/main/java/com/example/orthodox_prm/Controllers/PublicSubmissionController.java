@@ -9,6 +9,7 @@ import com.example.orthodox_prm.model.SubmissionLink;
 import com.example.orthodox_prm.repository.ParishionerRepository;
 import com.example.orthodox_prm.service.RateLimitingService;
 import com.example.orthodox_prm.service.RecaptchaService;
+import com.example.orthodox_prm.service.SubmissionIntakeService;
 import com.example.orthodox_prm.service.SubmissionLinkService;
 import com.example.orthodox_prm.service.SubmissionService;
 import com.example.orthodox_prm.util.InputSanitizer;
@@ -55,6 +56,9 @@ public class PublicSubmissionController {
     @Autowired
     private InputSanitizer inputSanitizer;
 
+    @Autowired
+    private SubmissionIntakeService submissionIntakeService;
+
     @Value("${recaptcha.site-key:}")
     private String recaptchaSiteKey;
 
@@ -426,16 +430,20 @@ public class PublicSubmissionController {
 
         // ==================== SAVE SUBMISSION ====================
 
+        String receipt = null;
         try {
-            submissionService.saveSubmission(submission);
+            if (submissionIntakeService.isQueued()) {
+                receipt = submissionIntakeService.enqueue(submission);
+            } else {
+                submissionService.saveSubmission(submission);
+            }
 
             // Record successful submission for rate limiting
             rateLimitingService.recordIpSubmission(clientIp);
             rateLimitingService.recordTokenSubmission(token);
 
             // Increment link submission count
-            link.incrementSubmissionCount();
-            submissionLinkService.saveLink(link);
+            submissionLinkService.incrementSubmissionCount(link.getId());
 
             logger.info("Successful submission from IP {} on token {}", clientIp,
                 token.substring(0, Math.min(8, token.length())));
@@ -446,6 +454,9 @@ public class PublicSubmissionController {
             return "public/submit-error";
         }
 
+        if (receipt != null) {
+            return "redirect:/public/submit/success?receipt=" + receipt;
+        }
         return "redirect:/public/submit/success";
     }
 
@@ -453,7 +464,11 @@ public class PublicSubmissionController {
      * Display success confirmation page
      */
     @GetMapping("/success")
-    public String showSuccessPage() {
+    public String showSuccessPage(@RequestParam(required = false) String receipt, Model model) {
+        // Receipts are UUIDs; show the first part as a reference
+        if (receipt != null && receipt.matches("[0-9a-f-]{36}")) {
+            model.addAttribute("receiptReference", receipt.substring(0, 8).toUpperCase());
+        }
         return "public/submit-success";
     }
 
@@ -8,6 +8,7 @@ import com.example.orthodox_prm.model.Parishioner;
 import com.example.orthodox_prm.model.ParishionerSubmission;
 import com.example.orthodox_prm.repository.HouseholdRepository;
 import com.example.orthodox_prm.repository.ParishionerRepository;
+import com.example.orthodox_prm.service.SubmissionIntakeService;
 import com.example.orthodox_prm.service.SubmissionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -31,6 +32,9 @@ public class SubmissionReviewController {
     @Autowired
     private SubmissionService submissionService;
 
+    @Autowired
+    private SubmissionIntakeService submissionIntakeService;
+
     @Autowired
     private ParishionerRepository parishionerRepository;
 
@@ -80,10 +84,30 @@ public class SubmissionReviewController {
         model.addAttribute("submissions", submissions);
         model.addAttribute("pendingCount", pendingCount);
         model.addAttribute("currentStatus", status != null ? status : "PENDING");
+        // Queued submissions the background worker could not save
+        model.addAttribute("failedIntakes", submissionIntakeService.getFailedIntakes());
 
         return "submissions/review-list";
     }
 
+    /**
+     * Queue a failed submission to be saved again
+     */
+    @PostMapping("/intake/{id}/retry")
+    public String retryFailedIntake(@PathVariable Long id) {
+        submissionIntakeService.retryFailedIntake(id);
+        return "redirect:/submissions/review";
+    }
+
+    /**
+     * Delete a failed submission that cannot be saved
+     */
+    @PostMapping("/intake/{id}/discard")
+    public String discardFailedIntake(@PathVariable Long id) {
+        submissionIntakeService.discardFailedIntake(id);
+        return "redirect:/submissions/review";
+    }
+
     /**
      * Display detailed review page for a single submission
      */
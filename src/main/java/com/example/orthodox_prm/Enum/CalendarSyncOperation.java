@@ -0,0 +1,9 @@
+package com.example.orthodox_prm.Enum;
+
+/**
+ * Change to push to a user's Google Calendar
+ */
+public enum CalendarSyncOperation {
+    CREATE, // Insert a scheduled event
+    DELETE  // Remove a previously pushed event
+}
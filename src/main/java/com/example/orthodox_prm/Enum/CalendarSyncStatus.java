@@ -0,0 +1,10 @@
+package com.example.orthodox_prm.Enum;
+
+/**
+ * Progress of a queued Google Calendar push
+ */
+public enum CalendarSyncStatus {
+    PENDING, // Waiting for its first attempt or a retry
+    DONE,    // Applied in Google Calendar
+    FAILED   // Gave up after a permanent error or too many attempts
+}
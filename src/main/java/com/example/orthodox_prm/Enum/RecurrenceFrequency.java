@@ -0,0 +1,10 @@
+package com.example.orthodox_prm.Enum;
+
+/**
+ * How a recurring scheduled event repeats, counted from its first date
+ */
+public enum RecurrenceFrequency {
+    WEEKLY,             // Same weekday, e.g. Saturday Vespers
+    MONTHLY_BY_WEEKDAY, // Same weekday of the month, e.g. the second Tuesday; a fifth weekday means the last
+    YEARLY              // Same month and day, e.g. a feast; February 29 only in leap years
+}
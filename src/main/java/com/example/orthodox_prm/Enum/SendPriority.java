@@ -0,0 +1,10 @@
+package com.example.orthodox_prm.Enum;
+
+/**
+ * Order in which queued email sends are delivered; earlier constants go first
+ */
+public enum SendPriority {
+    URGENT, // Marked urgent by the sender, e.g. funeral notices
+    NORMAL, // Small sends
+    BULK    // Large sends such as newsletters
+}
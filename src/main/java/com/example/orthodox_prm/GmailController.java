@@ -1,21 +1,38 @@
 package com.example.orthodox_prm;
 
 import com.example.orthodox_prm.Enum.MembershipStatus;
+import com.example.orthodox_prm.Enum.SendPriority;
+import com.example.orthodox_prm.dto.EmailAttachmentDTO;
+import com.example.orthodox_prm.dto.EmailHistoryPageDTO;
 import com.example.orthodox_prm.dto.EmailPreviewDTO;
-import com.example.orthodox_prm.dto.RecipientDTO;
-import com.example.orthodox_prm.model.Household;
+import com.example.orthodox_prm.dto.PersonalizedEmail;
+import com.example.orthodox_prm.dto.SentEmailDetailDTO;
+import com.example.orthodox_prm.dto.SendJobStatusDTO;
+import com.example.orthodox_prm.dto.SendQueueStatusDTO;
 import com.example.orthodox_prm.model.Parishioner;
-import com.example.orthodox_prm.model.SentEmail;
 import com.example.orthodox_prm.repository.ParishionerRepository;
+import com.example.orthodox_prm.service.EmailAttachmentService;
 import com.example.orthodox_prm.service.EmailHistoryService;
+import com.example.orthodox_prm.service.EmailSendScheduler;
 import com.example.orthodox_prm.service.GmailService;
+import com.example.orthodox_prm.service.MailMergeService;
+import com.example.orthodox_prm.service.RecipientDirectoryService;
+import com.example.orthodox_prm.util.MailMergeTemplate;
+import com.example.orthodox_prm.util.StreamingMimeMessage;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -28,13 +45,25 @@ public class GmailController {
     private final GmailService gmailService;
     private final EmailHistoryService emailHistoryService;
     private final ParishionerRepository parishionerRepository;
+    private final RecipientDirectoryService recipientDirectoryService;
+    private final MailMergeService mailMergeService;
+    private final EmailAttachmentService emailAttachmentService;
+    private final EmailSendScheduler emailSendScheduler;
 
     public GmailController(GmailService gmailService,
                           EmailHistoryService emailHistoryService,
-                          ParishionerRepository parishionerRepository) {
+                          ParishionerRepository parishionerRepository,
+                          RecipientDirectoryService recipientDirectoryService,
+                          MailMergeService mailMergeService,
+                          EmailAttachmentService emailAttachmentService,
+                          EmailSendScheduler emailSendScheduler) {
         this.gmailService = gmailService;
         this.emailHistoryService = emailHistoryService;
         this.parishionerRepository = parishionerRepository;
+        this.recipientDirectoryService = recipientDirectoryService;
+        this.mailMergeService = mailMergeService;
+        this.emailAttachmentService = emailAttachmentService;
+        this.emailSendScheduler = emailSendScheduler;
     }
 
     /**
@@ -49,47 +78,51 @@ public class GmailController {
         }
 
         model.addAttribute("membershipStatuses", MembershipStatus.values());
+        model.addAttribute("sendQueue", emailSendScheduler.getStatus(gmailService.getPrincipalName()));
         return "gmail";
     }
 
     /**
      * AJAX endpoint to get all non-departed parishioners with emails
-     * Returns JSON for client-side search/filtering
+     * Returns JSON for client-side search/filtering, optionally restricted by ?status=
+     * Served from a cache keyed on the registry version, with ETag/304 and gzip support
      */
     @GetMapping("/recipients")
-    @ResponseBody
-    public List<RecipientDTO> getRecipients() {
-        List<Parishioner> allParishioners = parishionerRepository.findAll();
-
-        return allParishioners.stream()
-                .filter(p -> !isDeparted(p))
-                .map(p -> {
-                    RecipientDTO dto = new RecipientDTO();
-                    dto.setParishionerId(p.getId());
-                    String fullName = p.getFirstName() + " " + p.getLastName();
-                    if (p.getNameSuffix() != null && !p.getNameSuffix().trim().isEmpty()) {
-                        fullName += " " + p.getNameSuffix();
-                    }
-                    dto.setFullName(fullName);
-                    dto.setStatus(p.getStatus() != null ? p.getStatus().toString() : "");
-
-                    // Use individual email first, fall back to household
-                    String email = null;
-                    if (p.getEmail() != null && !p.getEmail().trim().isEmpty()) {
-                        email = p.getEmail();
-                    } else if (p.getHousehold() != null && p.getHousehold().getEmail() != null && !p.getHousehold().getEmail().trim().isEmpty()) {
-                        email = p.getHousehold().getEmail();
-                    }
-                    dto.setEmail(email);
+    public ResponseEntity<byte[]> getRecipients(@RequestParam(required = false) List<String> status,
+                                                WebRequest webRequest) {
+        List<MembershipStatus> statuses = new ArrayList<>();
+        if (status != null) {
+            for (String statusStr : status) {
+                if (statusStr == null || statusStr.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    statuses.add(MembershipStatus.valueOf(statusStr.trim()));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Invalid membership status: {}", statusStr);
+                }
+            }
+        }
 
-                    Household household = p.getHousehold();
-                    if (household != null) {
-                        dto.setHouseholdName(household.getFamilyName());
-                    }
+        RecipientDirectoryService.RecipientPayload payload = recipientDirectoryService.getRecipients(statuses);
 
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? payload.gzipEtag() : payload.etag();
+
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzippedJson());
+        }
+        return response.body(payload.json());
     }
 
     /**
@@ -101,6 +134,7 @@ public class GmailController {
                          @RequestParam(required = false) String individualRecipients,
                          @RequestParam(required = false) List<String> groupStatuses,
                          @RequestParam String sendMode,
+                         @RequestParam(required = false) List<MultipartFile> attachments,
                          Model model,
                          RedirectAttributes redirectAttributes) {
 
@@ -118,6 +152,28 @@ public class GmailController {
         subject = subject.trim();
         body = body.trim();
 
+        // Mail-merge placeholders can only be filled in when each recipient gets their own copy
+        MailMergeTemplate subjectTemplate = MailMergeTemplate.compile(subject);
+        MailMergeTemplate bodyTemplate = MailMergeTemplate.compile(body);
+        boolean personalized = subjectTemplate.isPersonalized() || bodyTemplate.isPersonalized();
+        if (personalized && "GROUP_BCC".equals(sendMode)) {
+            redirectAttributes.addFlashAttribute("error", personalizedBccError());
+            return "redirect:/gmail";
+        }
+
+        // Spool attachments to disk so the send step can stream them
+        List<EmailAttachmentDTO> storedAttachments;
+        try {
+            storedAttachments = emailAttachmentService.store(attachments);
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("error", e.getMessage());
+            return "redirect:/gmail";
+        } catch (IOException e) {
+            log.error("Failed to store email attachments", e);
+            redirectAttributes.addFlashAttribute("error", "Failed to upload attachments: " + e.getMessage());
+            return "redirect:/gmail";
+        }
+
         // Collect recipients
         Set<Parishioner> parishioners = new HashSet<>();
         StringBuilder filterCriteria = new StringBuilder();
@@ -164,6 +220,7 @@ public class GmailController {
 
         // Extract emails and track missing
         Map<String, String> emailToName = new HashMap<>();
+        Map<String, Parishioner> emailToParishioner = new HashMap<>();
         List<String> missingEmails = new ArrayList<>();
 
         for (Parishioner p : parishioners) {
@@ -172,16 +229,11 @@ public class GmailController {
                 fullName += " " + p.getNameSuffix();
             }
 
-            // Check individual email first, then household
-            String email = null;
-            if (p.getEmail() != null && !p.getEmail().trim().isEmpty()) {
-                email = p.getEmail();
-            } else if (p.getHousehold() != null && p.getHousehold().getEmail() != null && !p.getHousehold().getEmail().trim().isEmpty()) {
-                email = p.getHousehold().getEmail();
-            }
+            String email = resolveEmail(p);
 
             if (email != null) {
                 emailToName.put(email, fullName);
+                emailToParishioner.put(email, p);
             } else {
                 missingEmails.add(fullName);
             }
@@ -192,6 +244,9 @@ public class GmailController {
         List<String> recipientNames = recipients.stream()
                 .map(emailToName::get)
                 .collect(Collectors.toList());
+        List<Long> recipientIds = recipients.stream()
+                .map(email -> emailToParishioner.get(email).getId())
+                .collect(Collectors.toList());
 
         // Build preview DTO
         EmailPreviewDTO preview = new EmailPreviewDTO();
@@ -202,6 +257,18 @@ public class GmailController {
         preview.setMissingEmails(missingEmails);
         preview.setSendMode(sendMode);
         preview.setFilterCriteria(filterCriteria.toString());
+        preview.setRecipientIds(recipientIds);
+        preview.setPersonalized(personalized);
+        preview.setAttachments(storedAttachments);
+
+        // Show how the merge renders for the first recipient
+        if (personalized && !recipients.isEmpty()) {
+            String firstRecipient = recipients.get(0);
+            PersonalizedEmail sample = mailMergeService.render(subjectTemplate, bodyTemplate, firstRecipient,
+                    mailMergeService.mergeValues(emailToParishioner.get(firstRecipient)));
+            preview.setSampleSubject(sample.getSubject());
+            preview.setSampleBody(sample.getBody());
+        }
 
         model.addAttribute("preview", preview);
         model.addAttribute("membershipStatuses", MembershipStatus.values());
@@ -217,6 +284,9 @@ public class GmailController {
                       @RequestParam String recipients, // Comma-separated emails
                       @RequestParam String sendMode,
                       @RequestParam(required = false) String filterCriteria,
+                      @RequestParam(required = false) String recipientIds, // Comma-separated parishioner IDs (mail-merge)
+                      @RequestParam(required = false) String attachmentIds, // Comma-separated spooled attachment IDs
+                      @RequestParam(defaultValue = "false") boolean urgent, // Deliver ahead of queued bulk sends
                       RedirectAttributes redirectAttributes) {
 
         List<String> recipientList = Arrays.stream(recipients.split(","))
@@ -225,42 +295,187 @@ public class GmailController {
                 .collect(Collectors.toList());
 
         if (recipientList.isEmpty()) {
+            emailAttachmentService.discard(attachmentIds);
             redirectAttributes.addFlashAttribute("error", "No valid email addresses to send to.");
             return "redirect:/gmail";
         }
 
+        if (!gmailService.isGoogleOAuth2Authenticated()) {
+            emailAttachmentService.discard(attachmentIds);
+            redirectAttributes.addFlashAttribute("error", "You must authenticate with Google to send emails. Please go to Settings.");
+            return "redirect:/gmail";
+        }
+
+        // The form can be resubmitted with a changed send mode, so check the placeholders again
+        MailMergeTemplate subjectTemplate = MailMergeTemplate.compile(subject);
+        MailMergeTemplate bodyTemplate = MailMergeTemplate.compile(body);
+        boolean personalized = subjectTemplate.isPersonalized() || bodyTemplate.isPersonalized();
+        if (personalized && "GROUP_BCC".equals(sendMode)) {
+            emailAttachmentService.discard(attachmentIds);
+            redirectAttributes.addFlashAttribute("error", personalizedBccError());
+            return "redirect:/gmail";
+        }
+
         try {
+            List<StreamingMimeMessage.Attachment> attachments = emailAttachmentService.resolve(attachmentIds);
+            List<EmailSendScheduler.OutgoingEmail> emails = new ArrayList<>();
             if ("GROUP_BCC".equals(sendMode)) {
-                gmailService.sendEmailBCC(subject, body, recipientList);
+                emails.add(new EmailSendScheduler.OutgoingEmail(recipientList,
+                        StreamingMimeMessage.bcc(recipientList, subject, body).attach(attachments)));
+            } else if (personalized) {
+                List<PersonalizedEmail> personalizedEmails = mailMergeService.renderAll(
+                        subjectTemplate, bodyTemplate, recipientList, loadMergeValues(recipientIds));
+                for (PersonalizedEmail email : personalizedEmails) {
+                    emails.add(new EmailSendScheduler.OutgoingEmail(List.of(email.getTo()),
+                            StreamingMimeMessage.to(email.getTo(), email.getSubject(), email.getBody()).attach(attachments)));
+                }
             } else {
-                gmailService.sendIndividualEmails(subject, body, recipientList);
+                for (String recipient : recipientList) {
+                    emails.add(new EmailSendScheduler.OutgoingEmail(List.of(recipient),
+                            StreamingMimeMessage.to(recipient, subject, body).attach(attachments)));
+                }
             }
 
-            // Save to history
-            emailHistoryService.saveSentEmail(subject, body, recipientList, sendMode, filterCriteria);
+            // Delivered in the background; history is saved and attachments removed once the job finishes
+            SendPriority priority = emailSendScheduler.priorityFor(urgent, emails.size());
+            SendJobStatusDTO job = emailSendScheduler.submit(subject, priority, emails, result -> {
+                if (result.isSuccess()) {
+                    emailHistoryService.saveSentEmail(subject, body, recipientList, sendMode, filterCriteria);
+                } else {
+                    emailHistoryService.saveFailedEmail(subject, body, recipientList, sendMode,
+                            result.failures().size() + " of " + emails.size() + " message(s) failed: " +
+                            String.join("; ", result.failures()));
+                }
+                emailAttachmentService.discard(attachmentIds);
+            });
 
             redirectAttributes.addFlashAttribute("success",
-                    "Email sent successfully to " + recipientList.size() + " recipient(s)");
+                    "Email to " + recipientList.size() + " recipient(s) queued (" + emails.size() +
+                    " message(s), " + priority.name().toLowerCase() + " priority). " + describeEta(job.getEtaSeconds()));
 
         } catch (Exception e) {
-            log.error("Failed to send email", e);
+            log.error("Failed to queue email", e);
             emailHistoryService.saveFailedEmail(subject, body, recipientList, sendMode, e.getMessage());
+            emailAttachmentService.discard(attachmentIds);
             redirectAttributes.addFlashAttribute("error", "Failed to send email: " + e.getMessage());
         }
 
         return "redirect:/gmail";
     }
 
+    /**
+     * AJAX endpoint for the send queue: depth, daily quota left and estimated completion per job
+     */
+    @GetMapping("/queue")
+    @ResponseBody
+    public SendQueueStatusDTO queueStatus() {
+        return emailSendScheduler.getStatus(gmailService.getPrincipalName());
+    }
+
     /**
      * View email history
      */
     @GetMapping("/history")
-    public String history(Model model) {
-        List<SentEmail> emailHistory = emailHistoryService.getEmailHistory();
-        model.addAttribute("emailHistory", emailHistory);
+    public String history(@RequestParam(required = false) String before,
+                          @RequestParam(required = false) String recipient,
+                          Model model) {
+        EmailHistoryPageDTO page;
+        try {
+            page = emailHistoryService.getHistoryPage(before, recipient, EmailHistoryService.DEFAULT_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            page = emailHistoryService.getHistoryPage(null, recipient, EmailHistoryService.DEFAULT_PAGE_SIZE);
+        }
+        model.addAttribute("emailHistory", page.getEmails());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("recipient", recipient);
+        model.addAttribute("isFirstPage", before == null || before.isBlank());
         return "gmail-history";
     }
 
+    /**
+     * AJAX endpoint for history pages: keyset-paginated (?before= cursor), optionally searched by recipient
+     */
+    @GetMapping("/history/api")
+    @ResponseBody
+    public ResponseEntity<EmailHistoryPageDTO> historyPage(@RequestParam(required = false) String before,
+                                                           @RequestParam(required = false) String recipient,
+                                                           @RequestParam(defaultValue = "25") int size) {
+        try {
+            return ResponseEntity.ok(emailHistoryService.getHistoryPage(before, recipient, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * AJAX endpoint for one history entry with its body and full recipient list
+     */
+    @GetMapping("/history/{id}")
+    @ResponseBody
+    public ResponseEntity<SentEmailDetailDTO> historyDetail(@PathVariable Long id) {
+        return emailHistoryService.getEmailDetail(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Load mail-merge values for the parishioners chosen at preview time, keyed by their email
+     */
+    private Map<String, String[]> loadMergeValues(String recipientIds) {
+        Map<String, String[]> valuesByEmail = new HashMap<>();
+        if (recipientIds == null || recipientIds.trim().isEmpty()) {
+            return valuesByEmail;
+        }
+
+        List<Long> idList = new ArrayList<>();
+        for (String id : recipientIds.split(",")) {
+            try {
+                idList.add(Long.parseLong(id.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid parishioner ID: {}", id);
+            }
+        }
+
+        for (Parishioner p : parishionerRepository.findAllById(idList)) {
+            String email = resolveEmail(p);
+            if (email != null) {
+                valuesByEmail.put(email, mailMergeService.mergeValues(p));
+            }
+        }
+        return valuesByEmail;
+    }
+
+    /**
+     * Get the email to use for a parishioner: individual email first, then household
+     */
+    private String resolveEmail(Parishioner p) {
+        if (p.getEmail() != null && !p.getEmail().trim().isEmpty()) {
+            return p.getEmail();
+        }
+        if (p.getHousehold() != null && p.getHousehold().getEmail() != null && !p.getHousehold().getEmail().trim().isEmpty()) {
+            return p.getHousehold().getEmail();
+        }
+        return null;
+    }
+
+    private static String personalizedBccError() {
+        return "Personalized placeholders (" + MailMergeTemplate.supportedPlaceholders() +
+                ") require the Individual Emails send mode.";
+    }
+
+    /**
+     * Flash text for a queued job's estimated completion
+     */
+    private static String describeEta(long seconds) {
+        if (seconds < 60) {
+            return "Sending now.";
+        }
+        if (seconds < 3600) {
+            return "Estimated completion in " + ((seconds + 59) / 60) + " minute(s).";
+        }
+        return "Estimated completion in about " + ((seconds + 1799) / 3600) + " hour(s) to stay within Gmail's sending limits.";
+    }
+
     /**
      * Check if parishioner is departed
      */
@@ -6,12 +6,18 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.DefaultOAuth2AuthorizationRequestResolver;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizationRequestRedirectFilter;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizationRequestResolver;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.web.client.RestTemplate;
@@ -48,12 +54,15 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   ClientRegistrationRepository clientRegistrationRepository) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/css/**", "/js/**", "/images/**").permitAll()
                         .requestMatchers("/login", "/login/oauth2/**", "/error", "/access-denied").permitAll()
                         .requestMatchers("/public/submit/**").permitAll()
+                        // Calendar subscription feeds authenticate by the secret token in the URL
+                        .requestMatchers(HttpMethod.GET, "/calendar/feed/**").permitAll()
                         .requestMatchers("/admin/**").hasRole("PRIEST")
                         .anyRequest().authenticated()
                 )
@@ -68,6 +77,10 @@ public class SecurityConfig {
                 .oauth2Login(oauth2 -> oauth2
                         .loginPage("/login")
                         .defaultSuccessUrl("/dashboard", true)
+                        .authorizationEndpoint(authorization -> authorization
+                                .authorizationRequestResolver(new OfflineAccessAuthorizationRequestResolver(
+                                        clientRegistrationRepository))
+                        )
                         .userInfoEndpoint(userInfo -> userInfo
                                 .oidcUserService(customOidcUserService)
                         )
@@ -99,6 +112,48 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Asks Google for offline access, so the stored authorization includes a refresh token and
+     * background sends and calendar sync keep working after the access token expires.
+     * Google only issues a refresh token when the user is shown the consent screen, which it
+     * skips for users who already consented; adding {@code ?consent} to the sign-in URL forces it.
+     */
+    private static class OfflineAccessAuthorizationRequestResolver implements OAuth2AuthorizationRequestResolver {
+
+        private final OAuth2AuthorizationRequestResolver delegate;
+
+        OfflineAccessAuthorizationRequestResolver(ClientRegistrationRepository clientRegistrationRepository) {
+            this.delegate = new DefaultOAuth2AuthorizationRequestResolver(clientRegistrationRepository,
+                    OAuth2AuthorizationRequestRedirectFilter.DEFAULT_AUTHORIZATION_REQUEST_BASE_URI);
+        }
+
+        @Override
+        public OAuth2AuthorizationRequest resolve(HttpServletRequest request) {
+            return withOfflineAccess(request, delegate.resolve(request));
+        }
+
+        @Override
+        public OAuth2AuthorizationRequest resolve(HttpServletRequest request, String clientRegistrationId) {
+            return withOfflineAccess(request, delegate.resolve(request, clientRegistrationId));
+        }
+
+        private static OAuth2AuthorizationRequest withOfflineAccess(HttpServletRequest request,
+                                                                    OAuth2AuthorizationRequest authorizationRequest) {
+            if (authorizationRequest == null) {
+                return null;
+            }
+            boolean consent = request.getParameter("consent") != null;
+            return OAuth2AuthorizationRequest.from(authorizationRequest)
+                    .additionalParameters(parameters -> {
+                        parameters.put("access_type", "offline");
+                        if (consent) {
+                            parameters.put("prompt", "consent");
+                        }
+                    })
+                    .build();
+        }
+    }
+
     /**
      * Custom access denied handler that logs unauthorized access attempts
      * and redirects to a custom error page.
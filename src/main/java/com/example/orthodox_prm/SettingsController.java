@@ -1,8 +1,13 @@
 package com.example.orthodox_prm;
 
+import com.example.orthodox_prm.model.CalendarFeed;
 import com.example.orthodox_prm.model.UserPreferences;
 import com.example.orthodox_prm.repository.UserPreferencesRepository;
+import com.example.orthodox_prm.service.CalendarFeedService;
+import com.example.orthodox_prm.service.GmailService;
+import com.example.orthodox_prm.service.GoogleTokenService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,6 +26,12 @@ import java.util.List;
 public class SettingsController {
 
     private final UserPreferencesRepository userPreferencesRepository;
+    private final CalendarFeedService calendarFeedService;
+    private final GmailService gmailService;
+    private final GoogleTokenService googleTokenService;
+
+    @Value("${app.url:http://localhost:8080}")
+    private String appUrl;
 
     // US Timezones
     private static final List<String> US_TIMEZONES = Arrays.asList(
@@ -54,8 +65,14 @@ public class SettingsController {
             "Pacific/Honolulu"          // Hawaii
     );
 
-    public SettingsController(UserPreferencesRepository userPreferencesRepository) {
+    public SettingsController(UserPreferencesRepository userPreferencesRepository,
+                              CalendarFeedService calendarFeedService,
+                              GmailService gmailService,
+                              GoogleTokenService googleTokenService) {
         this.userPreferencesRepository = userPreferencesRepository;
+        this.calendarFeedService = calendarFeedService;
+        this.gmailService = gmailService;
+        this.googleTokenService = googleTokenService;
     }
 
     /**
@@ -69,6 +86,8 @@ public class SettingsController {
 
         model.addAttribute("userPreferences", prefs);
         model.addAttribute("timezones", getGroupedTimezones());
+        addCalendarFeeds(model, username);
+        addGoogleAccess(model);
 
         return "settings";
     }
@@ -83,6 +102,8 @@ public class SettingsController {
         if (!US_TIMEZONES.contains(timezone)) {
             model.addAttribute("error", "Invalid timezone selected");
             model.addAttribute("timezones", getGroupedTimezones());
+            addCalendarFeeds(model, username);
+            addGoogleAccess(model);
             return "settings";
         }
 
@@ -95,6 +116,8 @@ public class SettingsController {
         model.addAttribute("userPreferences", prefs);
         model.addAttribute("timezones", getGroupedTimezones());
         model.addAttribute("success", "Timezone updated successfully! Events will now use " + timezone);
+        addCalendarFeeds(model, username);
+        addGoogleAccess(model);
 
         return "settings";
     }
@@ -115,6 +138,26 @@ public class SettingsController {
         return auth != null ? auth.getName() : "anonymous";
     }
 
+    /**
+     * Add whether the user granted Google offline access, if they signed in with Google
+     */
+    private void addGoogleAccess(Model model) {
+        String principalName = gmailService.getPrincipalName();
+        if (principalName != null) {
+            model.addAttribute("googleOfflineAccess", googleTokenService.hasOfflineAccess(principalName));
+        }
+    }
+
+    /**
+     * Add the subscription URLs of the user's calendar feeds, if created
+     */
+    private void addCalendarFeeds(Model model, String username) {
+        for (CalendarFeed feed : calendarFeedService.getFeeds(username)) {
+            String url = appUrl + "/calendar/feed/" + feed.getToken() + ".ics";
+            model.addAttribute(feed.isParishWide() ? "parishFeedUrl" : "personalFeedUrl", url);
+        }
+    }
+
     /**
      * Create default preferences for a user
      */
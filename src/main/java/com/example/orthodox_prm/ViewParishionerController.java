@@ -1,10 +1,13 @@
 package com.example.orthodox_prm;
 
+import com.example.orthodox_prm.Enum.RecurrenceFrequency;
 import com.example.orthodox_prm.Enum.SacramentType;
 import com.example.orthodox_prm.dto.ConflictReport;
 import com.example.orthodox_prm.model.*;
 import com.example.orthodox_prm.repository.*;
+import com.example.orthodox_prm.service.CalendarSyncService;
 import com.example.orthodox_prm.service.ConflictDetectionService;
+import com.example.orthodox_prm.service.FreeSlotService;
 import com.example.orthodox_prm.service.GoogleCalendarService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
@@ -13,6 +16,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
@@ -31,6 +35,8 @@ public class ViewParishionerController {
     private final EventParticipantRepository eventParticipantRepository;
     private final GoogleCalendarService googleCalendarService;
     private final ConflictDetectionService conflictDetectionService;
+    private final FreeSlotService freeSlotService;
+    private final CalendarSyncService calendarSyncService;
     private final ObjectMapper objectMapper;
 
     public ViewParishionerController(
@@ -40,6 +46,8 @@ public class ViewParishionerController {
             EventParticipantRepository eventParticipantRepository,
             GoogleCalendarService googleCalendarService,
             ConflictDetectionService conflictDetectionService,
+            FreeSlotService freeSlotService,
+            CalendarSyncService calendarSyncService,
             ObjectMapper objectMapper) {
         this.parishionerRepository = parishionerRepository;
         this.noteRepository = noteRepository;
@@ -47,6 +55,8 @@ public class ViewParishionerController {
         this.eventParticipantRepository = eventParticipantRepository;
         this.googleCalendarService = googleCalendarService;
         this.conflictDetectionService = conflictDetectionService;
+        this.freeSlotService = freeSlotService;
+        this.calendarSyncService = calendarSyncService;
         this.objectMapper = objectMapper;
     }
 
@@ -142,6 +152,9 @@ public class ViewParishionerController {
             @RequestParam(required = false) String startTime,
             @RequestParam(required = false) String endTime,
             @RequestParam(required = false) String additionalParticipants,
+            @RequestParam(required = false) String recurrenceFrequency,
+            @RequestParam(required = false) Integer recurrenceInterval,
+            @RequestParam(required = false) LocalDate recurrenceUntil,
             @RequestParam(required = false) String syncToGoogle) {
 
         if (eventTitle == null || eventTitle.trim().isEmpty()) {
@@ -165,21 +178,7 @@ public class ViewParishionerController {
         }
 
         // Build list of participants
-        List<Long> participantIds = new ArrayList<>();
-        participantIds.add(id); // Primary parishioner
-        if (additionalParticipants != null && !additionalParticipants.isEmpty()) {
-            String[] ids = additionalParticipants.split(",");
-            for (String participantId : ids) {
-                try {
-                    long pId = Long.parseLong(participantId.trim());
-                    if (!participantIds.contains(pId)) {
-                        participantIds.add(pId);
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore invalid IDs
-                }
-            }
-        }
+        List<Long> participantIds = parseParticipantIds(id, additionalParticipants);
 
         // Create event
         ScheduledEvent event = new ScheduledEvent();
@@ -188,6 +187,7 @@ public class ViewParishionerController {
         event.setEventDescription(eventDescription != null ? eventDescription.trim() : null);
         event.setStartTime(parsedStartTime);
         event.setEndTime(parsedEndTime);
+        event.setRecurrence(parseRecurrence(recurrenceFrequency, recurrenceInterval, recurrenceUntil, eventDate));
 
         if (sacramentType != null && !sacramentType.isEmpty() && !sacramentType.equals("NONE")) {
             event.setSacramentType(SacramentType.valueOf(sacramentType));
@@ -204,22 +204,9 @@ public class ViewParishionerController {
 
         scheduledEventRepository.save(event);
 
-        // Sync to Google Calendar if enabled and user is authenticated
+        // Queue the push to Google Calendar if enabled and user is authenticated; it runs after commit
         if (syncToGoogle != null && syncToGoogle.equals("true") && googleCalendarService.isGoogleOAuth2Authenticated()) {
-            List<String> attendeeEmails = new ArrayList<>();
-            for (Parishioner participant : event.getParishioners()) {
-                // Note: Parishioner model doesn't have email yet, so this is placeholder
-                // In future when email field is added, use: attendeeEmails.add(participant.getEmail());
-            }
-            googleCalendarService.createCalendarEvent(
-                    eventTitle.trim(),
-                    eventDate,
-                    parsedStartTime,
-                    parsedEndTime,
-                    eventDescription != null ? eventDescription.trim() : null,
-                    sacramentType,
-                    attendeeEmails
-            );
+            calendarSyncService.enqueueCreate(event);
         }
 
         return "redirect:/parishioners/view/" + id;
@@ -236,7 +223,10 @@ public class ViewParishionerController {
             @RequestParam LocalDate eventDate,
             @RequestParam(required = false) String startTime,
             @RequestParam(required = false) String endTime,
-            @RequestParam(required = false) String additionalParticipants) {
+            @RequestParam(required = false) String additionalParticipants,
+            @RequestParam(required = false) String recurrenceFrequency,
+            @RequestParam(required = false) Integer recurrenceInterval,
+            @RequestParam(required = false) LocalDate recurrenceUntil) {
 
         Map<String, Object> response = new HashMap<>();
 
@@ -252,28 +242,16 @@ public class ViewParishionerController {
             }
 
             // Build list of participant IDs
-            List<Long> participantIds = new ArrayList<>();
-            participantIds.add(id);
-            if (additionalParticipants != null && !additionalParticipants.isEmpty()) {
-                String[] ids = additionalParticipants.split(",");
-                for (String participantId : ids) {
-                    try {
-                        long pId = Long.parseLong(participantId.trim());
-                        if (!participantIds.contains(pId)) {
-                            participantIds.add(pId);
-                        }
-                    } catch (NumberFormatException e) {
-                        // Ignore invalid IDs
-                    }
-                }
-            }
+            List<Long> participantIds = parseParticipantIds(id, additionalParticipants);
 
-            // Check for conflicts
-            ConflictReport report = conflictDetectionService.checkConflicts(participantIds, eventDate, parsedStartTime, parsedEndTime);
+            // Check for conflicts, on every occurrence if the event repeats
+            RecurrenceRule recurrence = parseRecurrence(recurrenceFrequency, recurrenceInterval, recurrenceUntil, eventDate);
+            ConflictReport report = conflictDetectionService.checkConflicts(participantIds, eventDate, parsedStartTime, parsedEndTime, recurrence);
 
             response.put("hasConflicts", report.hasConflicts());
             response.put("conflictCount", report.getTotalConflictCount());
             response.put("databaseConflicts", report.getDatabaseConflicts());
+            response.put("conflictsByParticipant", report.getParticipantConflicts());
             response.put("googleCalendarConflicts", report.getGoogleCalendarConflicts());
 
         } catch (Exception e) {
@@ -283,6 +261,43 @@ public class ViewParishionerController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * AJAX endpoint to find the earliest times all participants are free
+     */
+    @GetMapping("/{id}/free-slots")
+    @ResponseBody
+    @PreAuthorize("hasAnyRole('PRIEST','SECRETARY')")
+    public ResponseEntity<Map<String, Object>> findFreeSlots(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "60") int durationMinutes,
+            @RequestParam(required = false) LocalDate fromDate,
+            @RequestParam(defaultValue = "90") int windowDays,
+            @RequestParam(defaultValue = "09:00") String earliestTime,
+            @RequestParam(defaultValue = "17:00") String latestTime,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "false") boolean includeGoogleCalendar,
+            @RequestParam(required = false) String additionalParticipants) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            LocalDate from = fromDate != null ? fromDate : LocalDate.now();
+            LocalDate to = from.plusDays(Math.max(1, windowDays) - 1L);
+            LocalTime earliest = LocalTime.parse(earliestTime, DateTimeFormatter.ofPattern("HH:mm"));
+            LocalTime latest = LocalTime.parse(latestTime, DateTimeFormatter.ofPattern("HH:mm"));
+
+            List<Long> participantIds = parseParticipantIds(id, additionalParticipants);
+            response.put("slots", freeSlotService.findFreeSlots(participantIds, Duration.ofMinutes(durationMinutes),
+                    from, to, earliest, latest, limit,
+                    includeGoogleCalendar && googleCalendarService.isGoogleOAuth2Authenticated()));
+
+        } catch (Exception e) {
+            response.put("error", e.getMessage());
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/{parishionerId}/delete-note/{noteId}")
     @Transactional
     @PreAuthorize("hasRole('PRIEST')")
@@ -295,7 +310,50 @@ public class ViewParishionerController {
     @Transactional
     @PreAuthorize("hasRole('PRIEST')")
     public String deleteEvent(@PathVariable Long parishionerId, @PathVariable Long eventId) {
-        scheduledEventRepository.deleteById(eventId);
+        scheduledEventRepository.findById(eventId).ifPresent(event -> {
+            calendarSyncService.enqueueDelete(event);
+            scheduledEventRepository.delete(event);
+        });
         return "redirect:/parishioners/view/" + parishionerId;
     }
+
+    /**
+     * The repeat rule chosen on the event form, or null for a one-off event
+     */
+    private RecurrenceRule parseRecurrence(String recurrenceFrequency, Integer recurrenceInterval,
+                                           LocalDate recurrenceUntil, LocalDate eventDate) {
+        if (recurrenceFrequency == null || recurrenceFrequency.isEmpty() || recurrenceFrequency.equals("NONE")) {
+            return null;
+        }
+        int interval = recurrenceInterval != null ? recurrenceInterval : 1;
+        if (interval < 1 || interval > 99) {
+            throw new IllegalArgumentException("Repeat interval must be between 1 and 99");
+        }
+        if (recurrenceUntil != null && recurrenceUntil.isBefore(eventDate)) {
+            throw new IllegalArgumentException("Repeat end date cannot be before the event date");
+        }
+        return new RecurrenceRule(RecurrenceFrequency.valueOf(recurrenceFrequency), interval, recurrenceUntil);
+    }
+
+    /**
+     * The primary parishioner followed by the comma-separated additional participants, without duplicates
+     */
+    private List<Long> parseParticipantIds(Long id, String additionalParticipants) {
+        List<Long> participantIds = new ArrayList<>();
+        participantIds.add(id);
+        if (additionalParticipants != null && !additionalParticipants.isEmpty()) {
+            String[] ids = additionalParticipants.split(",");
+            for (String participantId : ids) {
+                try {
+                    long pId = Long.parseLong(participantId.trim());
+                    if (!participantIds.contains(pId)) {
+                        participantIds.add(pId);
+                    }
+                } catch (NumberFormatException e) {
+                    // Ignore invalid IDs
+                }
+            }
+        }
+        return participantIds;
+    }
 }
@@ -0,0 +1,41 @@
+package com.example.orthodox_prm.dto;
+
+import com.example.orthodox_prm.Enum.RecurrenceFrequency;
+import com.example.orthodox_prm.Enum.SacramentType;
+import com.example.orthodox_prm.model.RecurrenceRule;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * A scheduled event as published in an iCalendar feed, read as a flat row
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarFeedEventDTO {
+    private Long eventId;
+    private LocalDate eventDate; // first date of a recurring event
+    private String eventTitle;
+    private String eventDescription;
+    private SacramentType sacramentType; // null for regular events
+    private LocalTime startTime; // null for all-day events
+    private LocalTime endTime; // null for all-day events
+    private RecurrenceRule recurrence; // null for one-off events
+    private LocalDateTime updatedAt;
+
+    /**
+     * Row of the feed query, which selects the recurrence columns individually
+     */
+    public CalendarFeedEventDTO(Long eventId, LocalDate eventDate, String eventTitle, String eventDescription,
+                                SacramentType sacramentType, LocalTime startTime, LocalTime endTime,
+                                RecurrenceFrequency frequency, Integer repeatInterval, LocalDate until,
+                                LocalDateTime updatedAt) {
+        this(eventId, eventDate, eventTitle, eventDescription, sacramentType, startTime, endTime,
+                frequency != null ? new RecurrenceRule(frequency, repeatInterval, until) : null, updatedAt);
+    }
+}
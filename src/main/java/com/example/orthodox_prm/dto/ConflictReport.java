@@ -15,6 +15,7 @@ import java.util.List;
 public class ConflictReport {
     private List<ConflictInfo> databaseConflicts = new ArrayList<>();
     private List<ConflictInfo> googleCalendarConflicts = new ArrayList<>();
+    private List<ParticipantConflicts> participantConflicts = new ArrayList<>(); // database conflicts grouped by participant
 
     public boolean hasConflicts() {
         return !databaseConflicts.isEmpty() || !googleCalendarConflicts.isEmpty();
@@ -26,6 +27,29 @@ public class ConflictReport {
         }
     }
 
+    /**
+     * Add a database conflict and file it under the participant it belongs to
+     */
+    public void addParticipantConflict(Long parishionerId, ConflictInfo conflict) {
+        if (conflict == null) {
+            return;
+        }
+        databaseConflicts.add(conflict);
+        // Conflicts arrive ordered by participant, so the matching group is normally the last one
+        ParticipantConflicts group = participantConflicts.isEmpty() ? null : participantConflicts.get(participantConflicts.size() - 1);
+        if (group == null || !group.getParishionerId().equals(parishionerId)) {
+            group = participantConflicts.stream()
+                    .filter(existing -> existing.getParishionerId().equals(parishionerId))
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (group == null) {
+            group = new ParticipantConflicts(parishionerId, conflict.getParishionerName(), new ArrayList<>());
+            participantConflicts.add(group);
+        }
+        group.getConflicts().add(conflict);
+    }
+
     public void addGoogleCalendarConflict(ConflictInfo conflict) {
         if (conflict != null) {
             googleCalendarConflicts.add(conflict);
@@ -49,4 +73,16 @@ public class ConflictReport {
         private String eventTime; // "time" for timed events, null for all-day
         private String source; // "database" or "google_calendar"
     }
+
+    /**
+     * The database conflicts of one participant
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ParticipantConflicts {
+        private Long parishionerId;
+        private String parishionerName;
+        private List<ConflictInfo> conflicts = new ArrayList<>();
+    }
 }
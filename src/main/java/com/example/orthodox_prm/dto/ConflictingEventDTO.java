@@ -0,0 +1,49 @@
+package com.example.orthodox_prm.dto;
+
+import com.example.orthodox_prm.Enum.RecurrenceFrequency;
+import com.example.orthodox_prm.model.RecurrenceRule;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One participant's booking of a scheduled event, read as a flat row
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConflictingEventDTO {
+    private Long parishionerId;
+    private String firstName;
+    private String lastName;
+    private Long eventId;
+    private String eventTitle;
+    private LocalDate eventDate; // first date of a recurring event, the occurrence date once expanded
+    private LocalTime startTime; // null for all-day events
+    private LocalTime endTime; // null for all-day events
+    private RecurrenceRule recurrence; // null for one-off events and expanded occurrences
+
+    /**
+     * Row of the booking queries, which select the recurrence columns individually
+     */
+    public ConflictingEventDTO(Long parishionerId, String firstName, String lastName, Long eventId, String eventTitle,
+                               LocalDate eventDate, LocalTime startTime, LocalTime endTime,
+                               RecurrenceFrequency frequency, Integer repeatInterval, LocalDate until) {
+        this(parishionerId, firstName, lastName, eventId, eventTitle, eventDate, startTime, endTime,
+                frequency != null ? new RecurrenceRule(frequency, repeatInterval, until) : null);
+    }
+
+    public boolean isAllDayEvent() {
+        return startTime == null && endTime == null;
+    }
+
+    /**
+     * This booking on one occurrence date of its recurring event
+     */
+    public ConflictingEventDTO occurrenceOn(LocalDate date) {
+        return new ConflictingEventDTO(parishionerId, firstName, lastName, eventId, eventTitle, date, startTime, endTime, null);
+    }
+}
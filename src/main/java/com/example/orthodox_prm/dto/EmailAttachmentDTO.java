@@ -0,0 +1,15 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailAttachmentDTO {
+    private String id; // Key of the spooled file between preview and send
+    private String filename;
+    private String contentType;
+    private long size; // Bytes
+}
@@ -0,0 +1,15 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailHistoryPageDTO {
+    private List<SentEmailSummaryDTO> emails; // Newest first
+    private String nextCursor; // Pass as ?before= to get the next (older) page; null on the last page
+}
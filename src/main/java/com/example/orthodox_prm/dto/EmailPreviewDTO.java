@@ -17,4 +17,9 @@ public class EmailPreviewDTO {
     private List<String> missingEmails; // Parishioner names without emails
     private String sendMode; // "INDIVIDUAL" or "GROUP_BCC"
     private String filterCriteria; // e.g., "MEMBER,CATECHUMEN"
+    private List<Long> recipientIds; // Parishioner behind each recipient email (same order), for mail-merge
+    private boolean personalized; // Subject or body contains mail-merge placeholders
+    private String sampleSubject; // Subject rendered for the first recipient (personalized only)
+    private String sampleBody; // Body rendered for the first recipient (personalized only)
+    private List<EmailAttachmentDTO> attachments; // Files spooled for the send step
 }
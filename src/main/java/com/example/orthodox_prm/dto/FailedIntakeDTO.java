@@ -0,0 +1,24 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A queued public submission the intake worker gave up saving, shown for review
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FailedIntakeDTO {
+    private Long id;
+    private String receipt;
+    private LocalDateTime receivedAt;
+    // From the queued payload; null if it cannot be read
+    private String name;
+    private String email;
+    private int attempts;
+    private String lastError;
+}
@@ -0,0 +1,20 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A time when all requested participants are free
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FreeSlotDTO {
+    private LocalDate date;
+    private LocalTime startTime;
+    private LocalTime endTime;
+}
@@ -0,0 +1,17 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single rendered mail-merge message, ready to send to one recipient
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonalizedEmail {
+    private String to;
+    private String subject;
+    private String body;
+}
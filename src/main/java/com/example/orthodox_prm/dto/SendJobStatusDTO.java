@@ -0,0 +1,21 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SendJobStatusDTO {
+    private long id;
+    private String subject;
+    private String priority; // URGENT, NORMAL or BULK
+    private int totalMessages;
+    private int sentMessages;
+    private int failedMessages;
+    private long etaSeconds; // Estimated seconds until the last message of this job is sent
+    private LocalDateTime submittedAt;
+}
@@ -0,0 +1,18 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SendQueueStatusDTO {
+    private int queuedMessages; // Messages not yet sent, across all jobs
+    private long queuedRecipients;
+    private long dailyRecipientsRemaining; // Recipients that can be sent to right now under the daily cap
+    private long etaSeconds; // Estimated seconds until the queue is empty
+    private List<SendJobStatusDTO> jobs; // In delivery order
+}
@@ -0,0 +1,16 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SentEmailDetailDTO {
+    private SentEmailSummaryDTO summary;
+    private String body;
+    private List<String> recipients;
+}
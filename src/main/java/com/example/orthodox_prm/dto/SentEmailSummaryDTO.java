@@ -0,0 +1,22 @@
+package com.example.orthodox_prm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SentEmailSummaryDTO {
+    private Long id;
+    private String subject;
+    private Integer recipientCount;
+    private String sendMode; // "INDIVIDUAL" or "GROUP_BCC"
+    private LocalDateTime sentAt;
+    private String sentBy;
+    private String filterCriteria;
+    private Boolean success;
+    private String errorMessage;
+}
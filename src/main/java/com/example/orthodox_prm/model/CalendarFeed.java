@@ -0,0 +1,53 @@
+package com.example.orthodox_prm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A secret iCalendar subscription URL. Calendar clients cannot log in, so the
+ * token in the URL is the only credential; regenerating a feed revokes the old URL.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_calendar_feed_token", columnList = "token", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarFeed {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "token", nullable = false, length = 32)
+    private String token;
+
+    // User who created the feed; its events and timezone are this user's
+    @Column(name = "owner_username", nullable = false)
+    private String ownerUsername;
+
+    // True for the whole parish's events, false for only the owner's calendar events
+    @Column(name = "parish_wide", nullable = false)
+    private boolean parishWide;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (token == null) {
+            token = generateToken();
+        }
+    }
+
+    public static String generateToken() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.orthodox_prm.model;
+
+import com.example.orthodox_prm.Enum.CalendarSyncOperation;
+import com.example.orthodox_prm.Enum.CalendarSyncStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A Google Calendar change waiting to be pushed by the background worker.
+ * Tasks outlive the request and the event itself, so a delete can still be applied remotely.
+ */
+@Entity
+@Table(indexes = {
+        // The worker polls pending tasks in due order
+        @Index(name = "idx_calendar_sync_task_due", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarSyncTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "task_id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation", nullable = false)
+    private CalendarSyncOperation operation;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private CalendarSyncStatus status;
+
+    // Local event; not a foreign key, since delete tasks outlive the row
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "google_event_id", nullable = false)
+    private String googleEventId;
+
+    // OAuth2 principal whose calendar receives the change
+    @Column(name = "principal_name", nullable = false)
+    private String principalName;
+
+    // Timezone for timed events, captured from the user's preferences at enqueue time
+    @Column(name = "timezone", length = 64)
+    private String timezone;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.orthodox_prm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Deflate-compressed email body, stored once per distinct text and shared by every
+ * history entry that sent it
+ */
+@Entity
+@Table(name = "email_body", indexes = {
+        @Index(name = "idx_email_body_hash", columnList = "content_hash", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailBody {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "email_body_id")
+    private Long id;
+
+    // SHA-256 of the UTF-8 body, hex encoded
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @ToString.Exclude
+    @Column(name = "compressed_body", nullable = false, length = 64 * 1024 * 1024)
+    private byte[] compressedBody;
+
+    // Length of the uncompressed body in characters
+    @Column(name = "original_length", nullable = false)
+    private Integer originalLength;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
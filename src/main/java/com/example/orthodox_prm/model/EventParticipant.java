@@ -1,5 +1,6 @@
 package com.example.orthodox_prm.model;
 
+import com.example.orthodox_prm.service.ScheduledEventChangeListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(ScheduledEventChangeListener.class)
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = {"event_id", "parishioner_id"}))
 public class EventParticipant {
     @Id
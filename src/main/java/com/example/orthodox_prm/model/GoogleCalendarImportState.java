@@ -0,0 +1,41 @@
+package com.example.orthodox_prm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the Google Calendar import for one user, so each run after the first
+ * fetches only the events changed since the previous one, across restarts too
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GoogleCalendarImportState {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    // OAuth2 principal whose calendar is imported
+    @Column(name = "principal_name", nullable = false, unique = true)
+    private String principalName;
+
+    // Google's nextSyncToken from the last completed run
+    @Column(name = "sync_token", columnDefinition = "TEXT")
+    private String syncToken;
+
+    @Column(name = "last_import_at")
+    private LocalDateTime lastImportAt;
+
+    @Column(name = "last_full_import_at")
+    private LocalDateTime lastFullImportAt;
+
+    // Why the last run failed or was skipped, e.g. the user must sign in with Google again; null after a successful run
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -1,11 +1,13 @@
 package com.example.orthodox_prm.model;
 
+import com.example.orthodox_prm.service.RegistryChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(RegistryChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,63 @@
+package com.example.orthodox_prm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * A user's stored OAuth2 authorization for a client registration such as Google, so
+ * background sends and calendar sync keep working after the user's session and across
+ * restarts. Only used with the database authorization store, which always encrypts the token values.
+ */
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_oauth2_client_authorization", columnNames = {"client_registration_id", "principal_name"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OAuth2ClientAuthorization {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "client_registration_id", nullable = false, length = 100)
+    private String clientRegistrationId;
+
+    @Column(name = "principal_name", nullable = false)
+    private String principalName;
+
+    @Column(name = "access_token", nullable = false, columnDefinition = "TEXT")
+    private String accessToken;
+
+    @Column(name = "access_token_issued_at")
+    private Instant accessTokenIssuedAt;
+
+    @Column(name = "access_token_expires_at")
+    private Instant accessTokenExpiresAt;
+
+    // Space-separated granted scopes
+    @Column(name = "access_token_scopes", length = 1000)
+    private String accessTokenScopes;
+
+    // Null when the user signed in without granting offline access
+    @Column(name = "refresh_token", columnDefinition = "TEXT")
+    private String refreshToken;
+
+    @Column(name = "refresh_token_issued_at")
+    private Instant refreshTokenIssuedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
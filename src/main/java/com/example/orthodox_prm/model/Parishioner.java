@@ -2,6 +2,7 @@ package com.example.orthodox_prm.model;
 
 import com.example.orthodox_prm.Enum.MaritalStatus;
 import com.example.orthodox_prm.Enum.MembershipStatus;
+import com.example.orthodox_prm.service.RegistryChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDate;
@@ -9,6 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(RegistryChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
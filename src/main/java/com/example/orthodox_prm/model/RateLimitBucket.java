@@ -0,0 +1,42 @@
+package com.example.orthodox_prm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Token bucket of one rate-limited key, shared by all instances. Token amounts are fixed
+ * point: a submission costs one window length in milliseconds, and the bucket refills by
+ * the limit's capacity every millisecond, so the bucket is full again one window after it
+ * was emptied. Rows are only changed with conditional UPDATEs.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_rate_limit_bucket_key", columnList = "bucket_key", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    // Limit name and key, e.g. "ip:203.0.113.7"
+    @Column(name = "bucket_key", nullable = false, length = 255)
+    private String bucketKey;
+
+    // Tokens in the bucket at refilledAt, in fixed point units
+    @Column(name = "token_units", nullable = false)
+    private long tokenUnits;
+
+    // Epoch millis the token amount was last brought up to date
+    @Column(name = "refilled_at", nullable = false)
+    private long refilledAt;
+
+    // Epoch millis the key is blocked until; 0 if never blocked
+    @Column(name = "blocked_until", nullable = false)
+    private long blockedUntil;
+}
@@ -0,0 +1,212 @@
+package com.example.orthodox_prm.model;
+
+import com.example.orthodox_prm.Enum.RecurrenceFrequency;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Repeat rule of a scheduled event. Occurrences are never stored: they are computed from the
+ * event's first date on demand, and iteration jumps straight to the first one in the requested
+ * window, so a window far from the start costs no more than one near it.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurrenceRule {
+
+    private static final String[] ORDINALS = {"first", "second", "third", "fourth", "last"};
+    private static final DateTimeFormatter UNTIL_FORMATTER = DateTimeFormatter.ofPattern("MMM d, yyyy");
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "recurrence_frequency")
+    private RecurrenceFrequency frequency;
+
+    // Repeat every this many weeks, months or years
+    @Column(name = "recurrence_interval")
+    private Integer repeatInterval;
+
+    // Last date an occurrence may fall on; null repeats indefinitely
+    @Column(name = "recurrence_until")
+    private LocalDate until;
+
+    /**
+     * Occurrences of a series starting on seriesStart that fall within [from, to], in date order
+     */
+    public Iterator<LocalDate> occurrences(LocalDate seriesStart, LocalDate from, LocalDate to) {
+        return new OccurrenceIterator(seriesStart, from, to);
+    }
+
+    /**
+     * {@link #occurrences} for use in a for-each loop
+     */
+    public Iterable<LocalDate> occurrencesBetween(LocalDate seriesStart, LocalDate from, LocalDate to) {
+        return () -> occurrences(seriesStart, from, to);
+    }
+
+    /**
+     * Human-readable rule, e.g. "Every 2 weeks on Saturday until Jun 1, 2027"
+     */
+    public String describe(LocalDate seriesStart) {
+        int every = step();
+        String text = switch (frequency) {
+            case WEEKLY -> (every == 1 ? "Weekly" : "Every " + every + " weeks")
+                    + " on " + dayName(seriesStart.getDayOfWeek());
+            case MONTHLY_BY_WEEKDAY -> (every == 1 ? "Monthly" : "Every " + every + " months")
+                    + " on the " + ORDINALS[weekOfMonth(seriesStart) - 1] + " " + dayName(seriesStart.getDayOfWeek());
+            case YEARLY -> (every == 1 ? "Yearly" : "Every " + every + " years")
+                    + " on " + seriesStart.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH) + " " + seriesStart.getDayOfMonth();
+        };
+        return until != null ? text + " until " + until.format(UNTIL_FORMATTER) : text;
+    }
+
+    /**
+     * The rule as an RFC 5545 RRULE line for Google Calendar. For timed events UNTIL is
+     * the end of the last day in the event's timezone, expressed in UTC as the RFC requires.
+     */
+    public String toRRule(LocalDate seriesStart, boolean timed, ZoneId zoneId) {
+        StringBuilder rule = new StringBuilder("RRULE:FREQ=");
+        switch (frequency) {
+            case WEEKLY -> rule.append("WEEKLY");
+            case MONTHLY_BY_WEEKDAY -> {
+                int week = weekOfMonth(seriesStart);
+                rule.append("MONTHLY;BYDAY=").append(week == 5 ? -1 : week)
+                        .append(seriesStart.getDayOfWeek().name(), 0, 2);
+            }
+            case YEARLY -> rule.append("YEARLY");
+        }
+        rule.append(";INTERVAL=").append(step());
+        if (until != null) {
+            rule.append(";UNTIL=");
+            if (timed) {
+                rule.append(until.atTime(LocalTime.MAX).atZone(zoneId).withZoneSameInstant(ZoneOffset.UTC)
+                        .format(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")));
+            } else {
+                rule.append(until.format(DateTimeFormatter.BASIC_ISO_DATE));
+            }
+        }
+        return rule.toString();
+    }
+
+    private int step() {
+        return repeatInterval != null && repeatInterval > 0 ? repeatInterval : 1;
+    }
+
+    /**
+     * Which weekday of its month a date is, 1 to 4, or 5 for one in the fifth week (treated as the last)
+     */
+    private static int weekOfMonth(LocalDate date) {
+        return (date.getDayOfMonth() - 1) / 7 + 1;
+    }
+
+    private static String dayName(DayOfWeek day) {
+        return day.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+    }
+
+    /**
+     * Walks the rule's periods (week, month or year blocks) from the one containing the window start
+     */
+    private final class OccurrenceIterator implements Iterator<LocalDate> {
+        private final LocalDate seriesStart;
+        private final LocalDate from;
+        private final LocalDate end;
+        private final int step;
+        private long period;
+        private LocalDate next;
+
+        private OccurrenceIterator(LocalDate seriesStart, LocalDate from, LocalDate to) {
+            this.seriesStart = seriesStart;
+            this.from = from.isBefore(seriesStart) ? seriesStart : from;
+            this.end = until != null && until.isBefore(to) ? until : to;
+            this.step = step();
+            this.period = Math.max(0, Math.floorDiv(unitsBetween(seriesStart, this.from), step));
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public LocalDate next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            LocalDate current = next;
+            advance();
+            return current;
+        }
+
+        private void advance() {
+            next = null;
+            while (!periodStart(period).isAfter(end)) {
+                LocalDate candidate = occurrenceIn(period++);
+                if (candidate != null && !candidate.isBefore(from) && !candidate.isAfter(end)) {
+                    next = candidate;
+                    return;
+                }
+            }
+        }
+
+        private long unitsBetween(LocalDate a, LocalDate b) {
+            return switch (frequency) {
+                case WEEKLY -> ChronoUnit.WEEKS.between(a, b);
+                case MONTHLY_BY_WEEKDAY -> ChronoUnit.MONTHS.between(YearMonth.from(a), YearMonth.from(b));
+                case YEARLY -> b.getYear() - a.getYear();
+            };
+        }
+
+        private LocalDate periodStart(long index) {
+            long units = index * step;
+            return switch (frequency) {
+                case WEEKLY -> seriesStart.plusWeeks(units);
+                case MONTHLY_BY_WEEKDAY -> YearMonth.from(seriesStart).plusMonths(units).atDay(1);
+                case YEARLY -> LocalDate.of(Math.toIntExact(seriesStart.getYear() + units), 1, 1);
+            };
+        }
+
+        /**
+         * The occurrence in a period, or null if the period has none (February 29 in a common year)
+         */
+        private LocalDate occurrenceIn(long index) {
+            long units = index * step;
+            return switch (frequency) {
+                case WEEKLY -> seriesStart.plusWeeks(units);
+                case MONTHLY_BY_WEEKDAY -> {
+                    LocalDate month = YearMonth.from(seriesStart).plusMonths(units).atDay(1);
+                    int week = weekOfMonth(seriesStart);
+                    DayOfWeek day = seriesStart.getDayOfWeek();
+                    yield week == 5
+                            ? month.with(TemporalAdjusters.lastInMonth(day))
+                            : month.with(TemporalAdjusters.dayOfWeekInMonth(week, day));
+                }
+                case YEARLY -> {
+                    int year = Math.toIntExact(seriesStart.getYear() + units);
+                    MonthDay monthDay = MonthDay.from(seriesStart);
+                    yield monthDay.isValidYear(year) ? monthDay.atYear(year) : null;
+                }
+            };
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.orthodox_prm.model;
 
 import com.example.orthodox_prm.Enum.SacramentType;
+import com.example.orthodox_prm.service.ScheduledEventChangeListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,9 +14,17 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 @Entity
+@Table(uniqueConstraints = {
+        // Google events map to one row per calendar owner and Google id
+        @UniqueConstraint(name = "uk_scheduled_event_google", columnNames = {"google_calendar_owner", "google_event_id"})
+}, indexes = {
+        // The import looks up the other days of multi-day events by their Google id
+        @Index(name = "idx_scheduled_event_google_span", columnList = "google_calendar_owner, google_span_event_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(ScheduledEventChangeListener.class)
 public class ScheduledEvent {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -47,6 +56,30 @@ public class ScheduledEvent {
     @Column(name = "end_time")
     private LocalTime endTime;
 
+    // Repeat rule with eventDate as the first occurrence; null for one-off events
+    @Embedded
+    private RecurrenceRule recurrence;
+
+    // Id of the Google Calendar copy: assigned when a push is queued, or the source event's id when imported
+    @Column(name = "google_event_id")
+    private String googleEventId;
+
+    // OAuth2 principal whose Google Calendar holds the copy
+    @Column(name = "google_calendar_owner")
+    private String googleCalendarOwner;
+
+    // True for events created in Google Calendar and imported (null for older rows)
+    @Column(name = "imported_from_google")
+    private Boolean importedFromGoogle;
+
+    // When the import last saw the event in Google Calendar; null until then
+    @Column(name = "google_synced_at")
+    private LocalDateTime googleSyncedAt;
+
+    // For the rows after the first of an imported event spanning several days, the Google id of the event
+    @Column(name = "google_span_event_id")
+    private String googleSpanEventId;
+
     @OneToMany(mappedBy = "event", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     private List<EventParticipant> participants = new ArrayList<>();
 
@@ -83,6 +116,42 @@ public class ScheduledEvent {
         return startTime == null && endTime == null;
     }
 
+    /**
+     * Returns true if this event repeats
+     */
+    public boolean isRecurring() {
+        return recurrence != null && recurrence.getFrequency() != null;
+    }
+
+    /**
+     * Dates this event falls on within [from, to]: its own date, or its occurrences if it repeats
+     */
+    public Iterable<LocalDate> occurrencesBetween(LocalDate from, LocalDate to) {
+        if (isRecurring()) {
+            return recurrence.occurrencesBetween(eventDate, from, to);
+        }
+        boolean inRange = !eventDate.isBefore(from) && !eventDate.isAfter(to);
+        return inRange ? List.of(eventDate) : List.of();
+    }
+
+    /**
+     * Returns true once the event, or every occurrence of a repeating one, is before the given date
+     */
+    public boolean isOverBy(LocalDate date) {
+        if (isRecurring()) {
+            return recurrence.getUntil() != null
+                    && !recurrence.occurrences(eventDate, date, recurrence.getUntil()).hasNext();
+        }
+        return eventDate.isBefore(date);
+    }
+
+    /**
+     * Describes how the event repeats, or null if it does not
+     */
+    public String getRecurrenceDescription() {
+        return isRecurring() ? recurrence.describe(eventDate) : null;
+    }
+
     /**
      * Gets the list of parishioners participating in this event
      */
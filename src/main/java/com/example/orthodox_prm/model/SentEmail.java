@@ -3,10 +3,19 @@ package com.example.orthodox_prm.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
+@Table(indexes = {
+        // Keyset pagination walks history newest first by (sent_at, id)
+        @Index(name = "idx_sent_email_sent_at_id", columnList = "sent_at, sent_email_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,12 +28,32 @@ public class SentEmail {
     @Column(name = "subject", nullable = false)
     private String subject;
 
+    // Shared, compressed body (null only for legacy rows not yet migrated)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "body_id")
+    private EmailBody emailBody;
+
+    // One row per recipient address (lower-cased), searchable by index
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "sent_email_recipient",
+            joinColumns = @JoinColumn(name = "sent_email_id"),
+            indexes = @Index(name = "idx_sent_email_recipient_email", columnList = "email"))
+    @Column(name = "email", nullable = false)
+    private List<String> recipientEmails = new ArrayList<>();
+
+    // Legacy denormalized columns, kept because existing databases declare them NOT NULL.
+    // New rows store empty strings; EmailHistoryMigration moves old contents into the tables above.
+    @ToString.Exclude
     @Column(name = "body", columnDefinition = "TEXT", nullable = false)
-    private String body;
+    private String legacyBody = "";
 
-    // Comma-separated list of recipient emails
+    @ToString.Exclude
     @Column(name = "recipients", columnDefinition = "TEXT", nullable = false)
-    private String recipients;
+    private String legacyRecipients = "";
 
     // How many recipients received the email
     @Column(name = "recipient_count", nullable = false)
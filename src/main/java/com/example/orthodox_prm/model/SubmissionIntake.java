@@ -0,0 +1,47 @@
+package com.example.orthodox_prm.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A public form submission accepted but not yet stored as a {@link ParishionerSubmission}.
+ * Rows are only appended by the form and removed once their submission is saved.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_submission_intake_receipt", columnList = "receipt", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionIntake {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    // Reference shown to the submitter
+    @Column(name = "receipt", nullable = false, length = 36)
+    private String receipt;
+
+    @Column(name = "submission_link_id", nullable = false)
+    private Long submissionLinkId;
+
+    // The sanitized submission as JSON
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    // Failed attempts to save the submission; rows past the limit are left for inspection
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
@@ -0,0 +1,17 @@
+package com.example.orthodox_prm.repository;
+
+import com.example.orthodox_prm.model.CalendarFeed;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CalendarFeedRepository extends JpaRepository<CalendarFeed, Long> {
+    Optional<CalendarFeed> findByToken(String token);
+
+    List<CalendarFeed> findByOwnerUsername(String ownerUsername);
+
+    Optional<CalendarFeed> findByOwnerUsernameAndParishWide(String ownerUsername, boolean parishWide);
+}
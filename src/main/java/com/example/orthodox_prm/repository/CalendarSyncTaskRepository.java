@@ -0,0 +1,28 @@
+package com.example.orthodox_prm.repository;
+
+import com.example.orthodox_prm.Enum.CalendarSyncStatus;
+import com.example.orthodox_prm.model.CalendarSyncTask;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CalendarSyncTaskRepository extends JpaRepository<CalendarSyncTask, Long> {
+
+    // Tasks due for an attempt, oldest due first
+    List<CalendarSyncTask> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAscIdAsc(
+            CalendarSyncStatus status, LocalDateTime now, Limit limit);
+
+    // Purge finished tasks older than the cutoff
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CalendarSyncTask t WHERE t.status = :status AND t.completedAt < :cutoff")
+    int deleteCompletedBefore(@Param("status") CalendarSyncStatus status, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,13 @@
+package com.example.orthodox_prm.repository;
+
+import com.example.orthodox_prm.model.EmailBody;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmailBodyRepository extends JpaRepository<EmailBody, Long> {
+
+    Optional<EmailBody> findByContentHash(String contentHash);
+}
@@ -1,13 +1,13 @@
 package com.example.orthodox_prm.repository;
 
+import com.example.orthodox_prm.dto.ConflictingEventDTO;
 import com.example.orthodox_prm.model.EventParticipant;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,20 +25,22 @@ public interface EventParticipantRepository extends JpaRepository<EventParticipa
     List<EventParticipant> findByEvent_Id(Long eventId);
 
     /**
-     * Find conflicting events for a parishioner on a given date with optional time overlap detection
-     * Returns events on the same date, and if times are specified, only events that overlap
+     * Every participant booking as a flat row, for building the in-memory event index.
+     * Selecting columns of the joined event and parishioner avoids loading their eager relations.
      */
-    @Query("SELECT ep FROM EventParticipant ep WHERE ep.parishioner.id = :parishionerId " +
-           "AND ep.event.eventDate = :eventDate " +
-           "AND (" +
-           "  :startTime IS NULL OR :endTime IS NULL OR " +
-           "  ep.event.startTime IS NULL OR ep.event.endTime IS NULL OR " +
-           "  (ep.event.startTime < :endTime AND ep.event.endTime > :startTime)" +
-           ") " +
-           "ORDER BY ep.event.eventDate ASC, ep.event.startTime ASC")
-    List<EventParticipant> findConflictingEvents(
-            @Param("parishionerId") Long parishionerId,
-            @Param("eventDate") LocalDate eventDate,
-            @Param("startTime") LocalTime startTime,
-            @Param("endTime") LocalTime endTime);
+    @Query("SELECT new com.example.orthodox_prm.dto.ConflictingEventDTO(" +
+           "  p.id, p.firstName, p.lastName, e.id, e.eventTitle, e.eventDate, e.startTime, e.endTime, " +
+           "  e.recurrence.frequency, e.recurrence.repeatInterval, e.recurrence.until) " +
+           "FROM EventParticipant ep JOIN ep.event e JOIN ep.parishioner p")
+    List<ConflictingEventDTO> findAllBookings();
+
+    /**
+     * The participant bookings of the given events, for refreshing them in the event index
+     */
+    @Query("SELECT new com.example.orthodox_prm.dto.ConflictingEventDTO(" +
+           "  p.id, p.firstName, p.lastName, e.id, e.eventTitle, e.eventDate, e.startTime, e.endTime, " +
+           "  e.recurrence.frequency, e.recurrence.repeatInterval, e.recurrence.until) " +
+           "FROM EventParticipant ep JOIN ep.event e JOIN ep.parishioner p " +
+           "WHERE e.id IN :eventIds")
+    List<ConflictingEventDTO> findBookingsForEvents(@Param("eventIds") Collection<Long> eventIds);
 }
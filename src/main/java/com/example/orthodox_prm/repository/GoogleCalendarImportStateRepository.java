@@ -0,0 +1,12 @@
+package com.example.orthodox_prm.repository;
+
+import com.example.orthodox_prm.model.GoogleCalendarImportState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface GoogleCalendarImportStateRepository extends JpaRepository<GoogleCalendarImportState, Long> {
+    Optional<GoogleCalendarImportState> findByPrincipalName(String principalName);
+}
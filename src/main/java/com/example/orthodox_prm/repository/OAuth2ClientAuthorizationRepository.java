@@ -0,0 +1,23 @@
+package com.example.orthodox_prm.repository;
+
+import com.example.orthodox_prm.model.OAuth2ClientAuthorization;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface OAuth2ClientAuthorizationRepository extends JpaRepository<OAuth2ClientAuthorization, Long> {
+    Optional<OAuth2ClientAuthorization> findByClientRegistrationIdAndPrincipalName(String clientRegistrationId,
+                                                                                    String principalName);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OAuth2ClientAuthorization a WHERE a.clientRegistrationId = :registrationId AND a.principalName = :principalName")
+    int deleteAuthorization(@Param("registrationId") String clientRegistrationId,
+                            @Param("principalName") String principalName);
+}
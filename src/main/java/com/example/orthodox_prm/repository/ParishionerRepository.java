@@ -59,4 +59,13 @@ public interface ParishionerRepository extends JpaRepository<Parishioner, Long>,
 
     // Search for parishioner by first and last name (for UPDATE submissions)
     List<Parishioner> findByFirstNameContainingIgnoreCaseAndLastNameContainingIgnoreCase(String firstName, String lastName);
+
+    // Flat rows for the email recipient list (non-departed only), without loading full entities.
+    // Columns: id, firstName, lastName, nameSuffix, status, email, household familyName, household email
+    @Query("SELECT p.id, p.firstName, p.lastName, p.nameSuffix, p.status, p.email, h.familyName, h.email " +
+            "FROM Parishioner p LEFT JOIN p.household h " +
+            "WHERE (p.status IS NULL OR p.status <> com.example.orthodox_prm.Enum.MembershipStatus.DEPARTED) " +
+            "AND p.deathDate IS NULL " +
+            "ORDER BY p.id ASC")
+    List<Object[]> findRecipientRows();
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.orthodox_prm.repository;
+
+import com.example.orthodox_prm.model.RateLimitBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RateLimitBucketRepository extends JpaRepository<RateLimitBucket, Long> {
+
+    Optional<RateLimitBucket> findByBucketKey(String bucketKey);
+
+    List<RateLimitBucket> findByBucketKeyIn(Collection<String> bucketKeys);
+
+    /**
+     * Refill a bucket up to now and take cost units from it, in one statement, only if it holds
+     * enough. A clock behind the one that last refilled the row refills nothing.
+     * @return 1 if the tokens were taken, 0 if the bucket is short or does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RateLimitBucket b SET " +
+           "b.tokenUnits = (CASE WHEN b.tokenUnits + (CASE WHEN :now > b.refilledAt THEN :now - b.refilledAt ELSE 0 END) * :rate >= :full " +
+           "  THEN :full ELSE b.tokenUnits + (CASE WHEN :now > b.refilledAt THEN :now - b.refilledAt ELSE 0 END) * :rate END) - :cost, " +
+           "b.refilledAt = CASE WHEN :now > b.refilledAt THEN :now ELSE b.refilledAt END " +
+           "WHERE b.bucketKey = :bucketKey AND " +
+           "(CASE WHEN b.tokenUnits + (CASE WHEN :now > b.refilledAt THEN :now - b.refilledAt ELSE 0 END) * :rate >= :full " +
+           "  THEN :full ELSE b.tokenUnits + (CASE WHEN :now > b.refilledAt THEN :now - b.refilledAt ELSE 0 END) * :rate END) >= :cost")
+    int tryConsume(@Param("bucketKey") String bucketKey, @Param("now") long now, @Param("rate") long rate,
+                   @Param("full") long full, @Param("cost") long cost);
+
+    /**
+     * Extend a bucket's block; an existing later block is kept
+     * @return 1 if the block was set, 0 if the row does not exist or is blocked for longer
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RateLimitBucket b SET b.blockedUntil = :until WHERE b.bucketKey = :bucketKey AND b.blockedUntil < :until")
+    int extendBlock(@Param("bucketKey") String bucketKey, @Param("until") long until);
+
+    // Purge buckets untouched since the cutoff whose blocks are over; a missing bucket counts as full
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RateLimitBucket b WHERE b.refilledAt < :cutoff AND b.blockedUntil < :now")
+    int deleteIdle(@Param("cutoff") long cutoff, @Param("now") long now);
+}
@@ -1,14 +1,21 @@
 package com.example.orthodox_prm.repository;
 
 import com.example.orthodox_prm.Enum.SacramentType;
+import com.example.orthodox_prm.dto.CalendarFeedEventDTO;
 import com.example.orthodox_prm.model.ScheduledEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ScheduledEventRepository extends JpaRepository<ScheduledEvent, Long> {
@@ -45,6 +52,17 @@ public interface ScheduledEventRepository extends JpaRepository<ScheduledEvent,
     @Query("SELECT e FROM ScheduledEvent e WHERE e.eventDate >= :today ORDER BY e.eventDate ASC")
     List<ScheduledEvent> findUpcomingEvents(@Param("today") LocalDate today);
 
+    /**
+     * Find events with a date in [from, to]: one-off events on a date in the range and
+     * recurring events whose series overlaps it; callers expand the occurrences
+     */
+    @Query("SELECT e FROM ScheduledEvent e WHERE " +
+           "(e.recurrence.frequency IS NULL AND e.eventDate BETWEEN :from AND :to) OR " +
+           "(e.recurrence.frequency IS NOT NULL AND e.eventDate <= :to " +
+           " AND (e.recurrence.until IS NULL OR e.recurrence.until >= :from)) " +
+           "ORDER BY e.eventDate ASC")
+    List<ScheduledEvent> findEventsBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
     /**
      * Find upcoming sacraments from today onwards
      */
@@ -65,4 +83,51 @@ public interface ScheduledEventRepository extends JpaRepository<ScheduledEvent,
             @Param("eventDate") LocalDate eventDate,
             @Param("startTime") LocalTime startTime,
             @Param("endTime") LocalTime endTime);
+
+    /**
+     * Find the rows of a user's Google Calendar events by their Google ids
+     */
+    List<ScheduledEvent> findByGoogleCalendarOwnerAndGoogleEventIdIn(String googleCalendarOwner, Collection<String> googleEventIds);
+
+    /**
+     * Find the rows of a recurring Google event's instances, whose ids extend the series id
+     */
+    List<ScheduledEvent> findByGoogleCalendarOwnerAndGoogleEventIdStartingWith(String googleCalendarOwner, String prefix);
+
+    /**
+     * Find the rows after the first of a user's multi-day Google events, by the events' Google ids
+     */
+    List<ScheduledEvent> findByGoogleCalendarOwnerAndGoogleSpanEventIdIn(String googleCalendarOwner, Collection<String> googleEventIds);
+
+    /**
+     * Find a user's rows imported from Google, dated in [from, to], not seen by the import since the cutoff
+     */
+    List<ScheduledEvent> findByGoogleCalendarOwnerAndGoogleSyncedAtBeforeAndEventDateBetweenAndImportedFromGoogleTrue(
+            String googleCalendarOwner, LocalDateTime cutoff, LocalDate from, LocalDate to);
+
+    /**
+     * Find a user's events pushed from the app to Google, dated in [from, to], not seen by the import since the cutoff
+     */
+    @Query("SELECT e FROM ScheduledEvent e " +
+           "WHERE e.googleCalendarOwner = :owner AND e.googleSyncedAt < :cutoff " +
+           "AND e.eventDate BETWEEN :from AND :to " +
+           "AND (e.importedFromGoogle IS NULL OR e.importedFromGoogle = false)")
+    List<ScheduledEvent> findUnseenPushedEvents(@Param("owner") String googleCalendarOwner,
+                                                @Param("cutoff") LocalDateTime cutoff,
+                                                @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to);
+
+    /**
+     * Stream the events of an iCalendar feed, all owners' when owner is null: one-off events
+     * from the given date on and recurring series still running then. Must be consumed in a transaction.
+     */
+    @Query("SELECT new com.example.orthodox_prm.dto.CalendarFeedEventDTO(e.id, e.eventDate, e.eventTitle, " +
+           "e.eventDescription, e.sacramentType, e.startTime, e.endTime, " +
+           "e.recurrence.frequency, e.recurrence.repeatInterval, e.recurrence.until, e.updatedAt) " +
+           "FROM ScheduledEvent e WHERE (:owner IS NULL OR e.googleCalendarOwner = :owner) AND " +
+           "((e.recurrence.frequency IS NULL AND e.eventDate >= :from) OR " +
+           " (e.recurrence.frequency IS NOT NULL AND (e.recurrence.until IS NULL OR e.recurrence.until >= :from))) " +
+           "ORDER BY e.eventDate ASC, e.id ASC")
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "200"))
+    Stream<CalendarFeedEventDTO> streamFeedEvents(@Param("owner") String owner, @Param("from") LocalDate from);
 }
@@ -1,8 +1,12 @@
 package com.example.orthodox_prm.repository;
 
+import com.example.orthodox_prm.dto.SentEmailSummaryDTO;
 import com.example.orthodox_prm.model.SentEmail;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -22,4 +26,36 @@ public interface SentEmailRepository extends JpaRepository<SentEmail, Long> {
 
     // Find emails by send mode
     List<SentEmail> findBySendMode(String sendMode, Sort sort);
+
+    /**
+     * Keyset page of history summaries older than the cursor (sentAt, id), newest first.
+     * Selects only summary columns, so neither bodies nor recipient rows are loaded.
+     */
+    @Query("SELECT new com.example.orthodox_prm.dto.SentEmailSummaryDTO(" +
+           "e.id, e.subject, e.recipientCount, e.sendMode, e.sentAt, e.sentBy, e.filterCriteria, e.success, e.errorMessage) " +
+           "FROM SentEmail e " +
+           "WHERE e.sentAt < :sentAt OR (e.sentAt = :sentAt AND e.id < :id) " +
+           "ORDER BY e.sentAt DESC, e.id DESC")
+    List<SentEmailSummaryDTO> findSummariesBefore(@Param("sentAt") LocalDateTime sentAt,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
+
+    /**
+     * Same as findSummariesBefore, restricted to emails with a recipient address starting with the prefix
+     * @param recipientPrefix Lower-case LIKE pattern ending in '%', with '\' as escape character
+     */
+    @Query("SELECT new com.example.orthodox_prm.dto.SentEmailSummaryDTO(" +
+           "e.id, e.subject, e.recipientCount, e.sendMode, e.sentAt, e.sentBy, e.filterCriteria, e.success, e.errorMessage) " +
+           "FROM SentEmail e " +
+           "WHERE (e.sentAt < :sentAt OR (e.sentAt = :sentAt AND e.id < :id)) " +
+           "AND EXISTS (SELECT 1 FROM SentEmail s JOIN s.recipientEmails r " +
+           "            WHERE s.id = e.id AND r LIKE :recipientPrefix ESCAPE '\\') " +
+           "ORDER BY e.sentAt DESC, e.id DESC")
+    List<SentEmailSummaryDTO> findSummariesBeforeByRecipient(@Param("sentAt") LocalDateTime sentAt,
+                                                             @Param("id") Long id,
+                                                             @Param("recipientPrefix") String recipientPrefix,
+                                                             Limit limit);
+
+    // Legacy rows whose body and recipients still live in the denormalized columns
+    List<SentEmail> findByEmailBodyIsNullOrderByIdAsc(Limit limit);
 }
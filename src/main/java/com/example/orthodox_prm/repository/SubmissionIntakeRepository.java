@@ -0,0 +1,30 @@
+package com.example.orthodox_prm.repository;
+
+import com.example.orthodox_prm.model.SubmissionIntake;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface SubmissionIntakeRepository extends JpaRepository<SubmissionIntake, Long> {
+    List<SubmissionIntake> findByAttemptsLessThanOrderByIdAsc(int attempts, Pageable pageable);
+
+    List<SubmissionIntake> findByAttemptsGreaterThanEqualOrderByIdAsc(int attempts);
+
+    // Both only touch rows the worker has given up on, so never one it is saving
+    @Modifying
+    @Transactional
+    @Query("UPDATE SubmissionIntake i SET i.attempts = 0 WHERE i.id = :id AND i.attempts >= :maxAttempts")
+    int resetAttempts(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SubmissionIntake i WHERE i.id = :id AND i.attempts >= :maxAttempts")
+    int deleteFailed(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+}
@@ -2,6 +2,9 @@ package com.example.orthodox_prm.repository;
 
 import com.example.orthodox_prm.model.SubmissionLink;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +17,10 @@ public interface SubmissionLinkRepository extends JpaRepository<SubmissionLink,
     List<SubmissionLink> findByCreatedByOrderByCreatedAtDesc(String createdBy);
 
     List<SubmissionLink> findByIsActiveTrueOrderByCreatedAtDesc();
+
+    // Add counted accesses and submissions in place, so concurrent increments are never lost
+    @Modifying
+    @Query("UPDATE SubmissionLink l SET l.accessCount = l.accessCount + :accesses, " +
+           "l.submissionCount = COALESCE(l.submissionCount, 0) + :submissions WHERE l.id = :id")
+    int incrementCounts(@Param("id") Long id, @Param("accesses") int accesses, @Param("submissions") int submissions);
 }
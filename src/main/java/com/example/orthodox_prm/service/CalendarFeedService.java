@@ -0,0 +1,356 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.CalendarFeedEventDTO;
+import com.example.orthodox_prm.dto.UpcomingEvent;
+import com.example.orthodox_prm.model.CalendarFeed;
+import com.example.orthodox_prm.repository.CalendarFeedRepository;
+import com.example.orthodox_prm.repository.ScheduledEventRepository;
+import com.example.orthodox_prm.repository.UserPreferencesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransitionRule;
+import java.time.zone.ZoneRules;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Read-only iCalendar (RFC 5545) subscription feeds of scheduled events and parish anniversaries.
+ * Feeds are written straight to the response as the event rows are read. Their ETag is built
+ * from data versions alone, so the frequent polls of calendar clients are answered with a
+ * 304 without touching the events at all.
+ */
+@Service
+@Slf4j
+public class CalendarFeedService {
+
+    // One-off events further back than this are left out of feeds
+    private static final int PAST_DAYS = 90;
+    private static final String UID_DOMAIN = "@orthodox-prm";
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter LOCAL_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter UTC_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    // Content lines are folded at 75 octets (RFC 5545 section 3.1)
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final CalendarFeedRepository calendarFeedRepository;
+    private final ScheduledEventRepository scheduledEventRepository;
+    private final UserPreferencesRepository userPreferencesRepository;
+    private final DashboardService dashboardService;
+    private final RegistryVersionService registryVersionService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Bumped whenever a scheduled event changes; seeded from the clock so ETags never repeat across restarts
+    private final AtomicLong eventsVersion = new AtomicLong(System.currentTimeMillis());
+
+    public CalendarFeedService(CalendarFeedRepository calendarFeedRepository,
+                               ScheduledEventRepository scheduledEventRepository,
+                               UserPreferencesRepository userPreferencesRepository,
+                               DashboardService dashboardService,
+                               RegistryVersionService registryVersionService,
+                               TransactionTemplate transactionTemplate) {
+        this.calendarFeedRepository = calendarFeedRepository;
+        this.scheduledEventRepository = scheduledEventRepository;
+        this.userPreferencesRepository = userPreferencesRepository;
+        this.dashboardService = dashboardService;
+        this.registryVersionService = registryVersionService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Get the feeds a user has created
+     */
+    public List<CalendarFeed> getFeeds(String username) {
+        return calendarFeedRepository.findByOwnerUsername(username);
+    }
+
+    /**
+     * Create a user's personal or parish-wide feed, replacing (and so revoking) any existing one
+     */
+    @Transactional
+    public CalendarFeed createFeed(String username, boolean parishWide) {
+        calendarFeedRepository.findByOwnerUsernameAndParishWide(username, parishWide)
+                .ifPresent(calendarFeedRepository::delete);
+        calendarFeedRepository.flush();
+
+        CalendarFeed feed = new CalendarFeed();
+        feed.setOwnerUsername(username);
+        feed.setParishWide(parishWide);
+        feed = calendarFeedRepository.save(feed);
+        log.info("Created {} calendar feed for {}", parishWide ? "parish" : "personal", username);
+        return feed;
+    }
+
+    /**
+     * Revoke a user's personal or parish-wide feed
+     */
+    @Transactional
+    public void revokeFeed(String username, boolean parishWide) {
+        calendarFeedRepository.findByOwnerUsernameAndParishWide(username, parishWide).ifPresent(feed -> {
+            calendarFeedRepository.delete(feed);
+            log.info("Revoked {} calendar feed for {}", parishWide ? "parish" : "personal", username);
+        });
+    }
+
+    /**
+     * Find a feed by the token in its URL
+     */
+    public Optional<CalendarFeed> findFeed(String token) {
+        return calendarFeedRepository.findByToken(token);
+    }
+
+    /**
+     * Timezone the feed's times are written in: its owner's preference
+     */
+    public ZoneId getZone(CalendarFeed feed) {
+        return userPreferencesRepository.findByUsername(feed.getOwnerUsername())
+                .map(prefs -> ZoneId.of(prefs.getTimezone()))
+                .orElse(ZoneId.of("America/New_York"));
+    }
+
+    /**
+     * ETag of the feed's current content. It changes when any scheduled event or parishioner
+     * changes, and daily as the published window moves on.
+     */
+    public String getEtag(CalendarFeed feed, ZoneId zone) {
+        return "\"feed-" + Long.toHexString(feed.getId())
+                + "-" + Long.toHexString(eventsVersion.get())
+                + "-" + Long.toHexString(registryVersionService.currentVersion())
+                + "-" + LocalDate.now(zone).format(DATE)
+                + "-" + Integer.toHexString(zone.getId().hashCode()) + "\"";
+    }
+
+    /**
+     * Mark the scheduled events as changed. Inside a transaction the bump is deferred until
+     * after commit, so a feed written in the meantime is not cached under the new ETag.
+     */
+    public void markEventsChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventsVersion.incrementAndGet();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CalendarFeedService.this);
+                if (status == STATUS_COMMITTED) {
+                    eventsVersion.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Write the feed as an iCalendar document. Events are streamed from the database
+     * and written one at a time; anniversaries cover the coming year.
+     */
+    public void writeFeed(CalendarFeed feed, ZoneId zone, OutputStream out) throws IOException {
+        LocalDate today = LocalDate.now(zone);
+        // Anniversaries carry no modification time; stamp them with the day the window starts
+        String anniversaryStamp = today.atStartOfDay(zone).withZoneSameInstant(ZoneOffset.UTC).format(UTC_DATE_TIME);
+        String owner = feed.isParishWide() ? null : feed.getOwnerUsername();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        writeLine(writer, "BEGIN:VCALENDAR");
+        writeLine(writer, "VERSION:2.0");
+        writeLine(writer, "PRODID:-//Orthodox Parish Manager//Calendar Feed//EN");
+        writeLine(writer, "CALSCALE:GREGORIAN");
+        writeLine(writer, "METHOD:PUBLISH");
+        writeProperty(writer, "X-WR-CALNAME", feed.isParishWide() ? "Parish Calendar" : "My Parish Events");
+        writeLine(writer, "X-WR-TIMEZONE:" + zone.getId());
+        writeLine(writer, "REFRESH-INTERVAL;VALUE=DURATION:PT1H");
+        writeLine(writer, "X-PUBLISHED-TTL:PT1H");
+        writeTimezone(writer, zone);
+
+        try {
+            // The row stream needs an open transaction until the last event is written
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<CalendarFeedEventDTO> events =
+                             scheduledEventRepository.streamFeedEvents(owner, today.minusDays(PAST_DAYS))) {
+                    for (CalendarFeedEventDTO event : (Iterable<CalendarFeedEventDTO>) events::iterator) {
+                        writeEvent(writer, event, zone);
+                    }
+                    for (UpcomingEvent anniversary : dashboardService.getAnniversaries(today, today.plusYears(1).minusDays(1))) {
+                        writeAnniversary(writer, anniversary, anniversaryStamp);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client hung up mid-feed
+            throw e.getCause();
+        }
+
+        writeLine(writer, "END:VCALENDAR");
+        writer.flush();
+    }
+
+    private void writeEvent(Writer writer, CalendarFeedEventDTO event, ZoneId zone) throws IOException {
+        boolean timed = event.getStartTime() != null;
+        String summary = event.getSacramentType() != null
+                ? event.getSacramentType() + ": " + event.getEventTitle()
+                : event.getEventTitle();
+
+        writeLine(writer, "BEGIN:VEVENT");
+        writeLine(writer, "UID:event-" + event.getEventId() + UID_DOMAIN);
+        LocalDateTime stamp = event.getUpdatedAt() != null ? event.getUpdatedAt() : event.getEventDate().atStartOfDay();
+        writeLine(writer, "DTSTAMP:" + stamp.atZone(ZoneId.systemDefault())
+                .withZoneSameInstant(ZoneOffset.UTC).format(UTC_DATE_TIME));
+        if (timed) {
+            LocalTime endTime = event.getEndTime() != null && event.getEndTime().isAfter(event.getStartTime())
+                    ? event.getEndTime()
+                    : event.getStartTime();
+            writeLine(writer, "DTSTART;TZID=" + zone.getId() + ":"
+                    + event.getEventDate().atTime(event.getStartTime()).format(LOCAL_DATE_TIME));
+            writeLine(writer, "DTEND;TZID=" + zone.getId() + ":"
+                    + event.getEventDate().atTime(endTime).format(LOCAL_DATE_TIME));
+        } else {
+            writeLine(writer, "DTSTART;VALUE=DATE:" + event.getEventDate().format(DATE));
+            writeLine(writer, "DTEND;VALUE=DATE:" + event.getEventDate().plusDays(1).format(DATE));
+        }
+        if (event.getRecurrence() != null) {
+            writeLine(writer, event.getRecurrence().toRRule(event.getEventDate(), timed, zone));
+        }
+        writeProperty(writer, "SUMMARY", summary);
+        if (event.getEventDescription() != null && !event.getEventDescription().isBlank()) {
+            writeProperty(writer, "DESCRIPTION", event.getEventDescription());
+        }
+        writeLine(writer, "END:VEVENT");
+    }
+
+    private void writeAnniversary(Writer writer, UpcomingEvent anniversary, String stamp) throws IOException {
+        writeLine(writer, "BEGIN:VEVENT");
+        writeLine(writer, "UID:" + anniversary.getType().toLowerCase().replace('_', '-') + "-"
+                + anniversary.getParishionerId() + "-" + anniversary.getDate().getYear() + UID_DOMAIN);
+        writeLine(writer, "DTSTAMP:" + stamp);
+        writeLine(writer, "DTSTART;VALUE=DATE:" + anniversary.getDate().format(DATE));
+        writeLine(writer, "DTEND;VALUE=DATE:" + anniversary.getDate().plusDays(1).format(DATE));
+        writeProperty(writer, "SUMMARY", anniversary.getTitle() + " (" + anniversary.getParishionerName() + ")");
+        if (anniversary.getDescription() != null && !anniversary.getDescription().isBlank()) {
+            writeProperty(writer, "DESCRIPTION", anniversary.getDescription());
+        }
+        // Anniversaries do not block time
+        writeLine(writer, "TRANSP:TRANSPARENT");
+        writeLine(writer, "END:VEVENT");
+    }
+
+    /**
+     * VTIMEZONE for the TZID the timed events use, built from the zone's current yearly rules
+     */
+    private void writeTimezone(Writer writer, ZoneId zone) throws IOException {
+        ZoneRules rules = zone.getRules();
+        writeLine(writer, "BEGIN:VTIMEZONE");
+        writeLine(writer, "TZID:" + zone.getId());
+        List<ZoneOffsetTransitionRule> transitionRules = rules.getTransitionRules();
+        if (transitionRules.isEmpty()) {
+            ZoneOffset offset = rules.getOffset(Instant.now());
+            writeLine(writer, "BEGIN:STANDARD");
+            writeLine(writer, "DTSTART:19700101T000000");
+            writeLine(writer, "TZOFFSETFROM:" + formatOffset(offset));
+            writeLine(writer, "TZOFFSETTO:" + formatOffset(offset));
+            writeLine(writer, "END:STANDARD");
+        } else {
+            for (ZoneOffsetTransitionRule rule : transitionRules) {
+                String component = rule.getOffsetAfter().getTotalSeconds() > rule.getOffsetBefore().getTotalSeconds()
+                        ? "DAYLIGHT" : "STANDARD";
+                writeLine(writer, "BEGIN:" + component);
+                writeLine(writer, "DTSTART:" + rule.createTransition(1970).getDateTimeBefore().format(LOCAL_DATE_TIME));
+                writeLine(writer, "RRULE:FREQ=YEARLY;BYMONTH=" + rule.getMonth().getValue() + ";BYDAY=" + byDay(rule));
+                writeLine(writer, "TZOFFSETFROM:" + formatOffset(rule.getOffsetBefore()));
+                writeLine(writer, "TZOFFSETTO:" + formatOffset(rule.getOffsetAfter()));
+                writeLine(writer, "END:" + component);
+            }
+        }
+        writeLine(writer, "END:VTIMEZONE");
+    }
+
+    /**
+     * BYDAY value of a transition rule such as "second Sunday on or after the 8th": 2SU, or -1SU for the last
+     */
+    private static String byDay(ZoneOffsetTransitionRule rule) {
+        DayOfWeek day = rule.getDayOfWeek() != null ? rule.getDayOfWeek() : DayOfWeek.SUNDAY;
+        int indicator = rule.getDayOfMonthIndicator();
+        int ordinal = indicator < 0 ? -1 : (indicator - 1) / 7 + 1;
+        return ordinal + day.name().substring(0, 2);
+    }
+
+    private static String formatOffset(ZoneOffset offset) {
+        int totalMinutes = offset.getTotalSeconds() / 60;
+        String sign = totalMinutes < 0 ? "-" : "+";
+        totalMinutes = Math.abs(totalMinutes);
+        return String.format("%s%02d%02d", sign, totalMinutes / 60, totalMinutes % 60);
+    }
+
+    /**
+     * Write a property with a TEXT value, escaped as RFC 5545 requires
+     */
+    private static void writeProperty(Writer writer, String name, String value) throws IOException {
+        StringBuilder line = new StringBuilder(name.length() + value.length() + 8).append(name).append(':');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> line.append("\\\\");
+                case ';' -> line.append("\\;");
+                case ',' -> line.append("\\,");
+                case '\n' -> line.append("\\n");
+                case '\r' -> {
+                    // CRLF and lone CR both become a single escaped newline
+                    if (i + 1 >= value.length() || value.charAt(i + 1) != '\n') {
+                        line.append("\\n");
+                    }
+                }
+                default -> line.append(c);
+            }
+        }
+        writeLine(writer, line);
+    }
+
+    /**
+     * Write a content line, folding it so no physical line exceeds 75 octets of UTF-8
+     */
+    private static void writeLine(Writer writer, CharSequence line) throws IOException {
+        int octets = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            boolean pair = Character.isHighSurrogate(c) && i + 1 < line.length();
+            int width = c < 0x80 ? 1 : c < 0x800 ? 2 : pair ? 4 : 3;
+            if (octets + width > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                // The leading space of the continuation line counts towards its length
+                octets = 1;
+            }
+            writer.write(c);
+            if (pair) {
+                writer.write(line.charAt(++i));
+            }
+            octets += width;
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.CalendarSyncOperation;
+import com.example.orthodox_prm.Enum.CalendarSyncStatus;
+import com.example.orthodox_prm.model.CalendarSyncTask;
+import com.example.orthodox_prm.model.ScheduledEvent;
+import com.example.orthodox_prm.repository.CalendarSyncTaskRepository;
+import com.example.orthodox_prm.repository.ScheduledEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes scheduled events to Google Calendar in the background, so saving an event never
+ * waits on the Calendar API. Changes are queued as {@link CalendarSyncTask} rows in the same
+ * transaction as the event, and a worker thread applies them once committed, retrying
+ * transient failures with exponential backoff. Tasks survive restarts.
+ * <p>
+ * Each pushed event gets its Google id when queued, so a retried insert that already went
+ * through is answered with 409 instead of creating a duplicate, and the event can be
+ * deleted remotely later.
+ * <p>
+ * A task rejected with 401 is retried at once with a renewed token. Tasks of users who
+ * must sign in with Google again are parked without using up their attempts.
+ */
+@Service
+@Slf4j
+public class CalendarSyncService {
+
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final CalendarSyncTaskRepository calendarSyncTaskRepository;
+    private final ScheduledEventRepository scheduledEventRepository;
+    private final GoogleCalendarService googleCalendarService;
+    private final Duration pollInterval;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int maxAttempts;
+    private final Duration retention;
+
+    private final AtomicBoolean wakeQueued = new AtomicBoolean();
+    private ScheduledExecutorService worker;
+    private LocalDateTime lastPurge = LocalDateTime.MIN;
+
+    public CalendarSyncService(CalendarSyncTaskRepository calendarSyncTaskRepository,
+                               ScheduledEventRepository scheduledEventRepository,
+                               GoogleCalendarService googleCalendarService,
+                               @Value("${google.calendar.sync.poll-interval:15s}") Duration pollInterval,
+                               @Value("${google.calendar.sync.initial-backoff:30s}") Duration initialBackoff,
+                               @Value("${google.calendar.sync.max-backoff:1h}") Duration maxBackoff,
+                               @Value("${google.calendar.sync.max-attempts:10}") int maxAttempts,
+                               @Value("${google.calendar.sync.retention:7d}") Duration retention) {
+        this.calendarSyncTaskRepository = calendarSyncTaskRepository;
+        this.scheduledEventRepository = scheduledEventRepository;
+        this.googleCalendarService = googleCalendarService;
+        this.pollInterval = pollInterval;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+        this.retention = retention;
+    }
+
+    @PostConstruct
+    void start() {
+        worker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("google-calendar-push").daemon().factory());
+        long period = Math.max(1, pollInterval.toMillis());
+        worker.scheduleWithFixedDelay(this::processDueTasks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Queue a saved event for creation in the current user's Google Calendar
+     * @return false if the user is not signed in with Google
+     */
+    public boolean enqueueCreate(ScheduledEvent event) {
+        String principalName = googleCalendarService.getPrincipalName();
+        if (principalName == null) {
+            return false;
+        }
+
+        // Google accepts ids of base32hex characters (a-v, 0-9); a dashless UUID qualifies
+        event.setGoogleEventId(UUID.randomUUID().toString().replace("-", ""));
+        event.setGoogleCalendarOwner(principalName);
+        scheduledEventRepository.save(event);
+
+        enqueue(CalendarSyncOperation.CREATE, event, principalName, googleCalendarService.getUserTimezone());
+        return true;
+    }
+
+    /**
+     * Queue removal of an event's Google Calendar copy, if it was pushed.
+     * Call before deleting the event; the task does not depend on the row.
+     */
+    public void enqueueDelete(ScheduledEvent event) {
+        if (event.getGoogleEventId() == null || event.getGoogleCalendarOwner() == null) {
+            return;
+        }
+        enqueue(CalendarSyncOperation.DELETE, event, event.getGoogleCalendarOwner(), null);
+    }
+
+    private void enqueue(CalendarSyncOperation operation, ScheduledEvent event, String principalName, String timezone) {
+        CalendarSyncTask task = new CalendarSyncTask();
+        task.setOperation(operation);
+        task.setStatus(CalendarSyncStatus.PENDING);
+        task.setEventId(event.getId());
+        task.setGoogleEventId(event.getGoogleEventId());
+        task.setPrincipalName(principalName);
+        task.setTimezone(timezone);
+        calendarSyncTaskRepository.save(task);
+        wakeAfterCommit();
+    }
+
+    /**
+     * Run the worker as soon as the current transaction commits, rather than at the next poll
+     */
+    private void wakeAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wake();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wake();
+            }
+        });
+    }
+
+    private void wake() {
+        if (wakeQueued.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                wakeQueued.set(false);
+                processDueTasks();
+            });
+        }
+    }
+
+    /**
+     * Apply every task that is due. Runs only on the worker thread, so tasks are never
+     * pushed concurrently by one instance; a second instance pushing the same task is harmless.
+     */
+    private void processDueTasks() {
+        try {
+            List<CalendarSyncTask> due;
+            do {
+                due = calendarSyncTaskRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAscIdAsc(
+                        CalendarSyncStatus.PENDING, LocalDateTime.now(), Limit.of(BATCH_SIZE));
+                due.forEach(this::process);
+            } while (due.size() == BATCH_SIZE);
+
+            purgeCompletedTasks();
+        } catch (RuntimeException e) {
+            // Keep the worker alive; the tasks are still queued for the next poll
+            log.error("Error processing Google Calendar push queue", e);
+        }
+    }
+
+    private void process(CalendarSyncTask task) {
+        task.setAttempts(task.getAttempts() + 1);
+        try {
+            try {
+                apply(task);
+            } catch (HttpClientErrorException.Unauthorized e) {
+                // The rejected token was marked expired, so this attempt runs with a renewed one
+                log.info("Google rejected the token for {} of event {}; retrying with a renewed token",
+                        task.getOperation(), task.getEventId());
+                apply(task);
+            }
+            task.setStatus(CalendarSyncStatus.DONE);
+            task.setCompletedAt(LocalDateTime.now());
+            task.setLastError(null);
+        } catch (GoogleTokenService.AuthorizationRequiredException e) {
+            park(task, e);
+        } catch (HttpClientErrorException e) {
+            if (isRetryable(e)) {
+                scheduleRetry(task, e);
+            } else {
+                giveUp(task, e);
+            }
+        } catch (RuntimeException e) {
+            // Network errors and 5xx responses may clear up later
+            scheduleRetry(task, e);
+        }
+        calendarSyncTaskRepository.save(task);
+    }
+
+    private void apply(CalendarSyncTask task) {
+        switch (task.getOperation()) {
+            case CREATE -> {
+                ScheduledEvent event = scheduledEventRepository.findById(task.getEventId()).orElse(null);
+                if (event == null || !task.getGoogleEventId().equals(event.getGoogleEventId())) {
+                    log.debug("Skipping push of event {}: deleted before it was sent", task.getEventId());
+                } else {
+                    googleCalendarService.insertEvent(task.getPrincipalName(), task.getTimezone(),
+                            task.getGoogleEventId(), event);
+                }
+            }
+            case DELETE -> googleCalendarService.deleteEvent(task.getPrincipalName(), task.getGoogleEventId());
+        }
+    }
+
+    /**
+     * Client errors that can succeed on retry: a 401 even with a renewed token (Google
+     * sometimes rejects a new token briefly), Google's 403 rate limits, timeouts and 429
+     */
+    private boolean isRetryable(HttpClientErrorException e) {
+        int status = e.getStatusCode().value();
+        return status == 401 || status == 403 || status == 408 || status == 429;
+    }
+
+    private void scheduleRetry(CalendarSyncTask task, RuntimeException e) {
+        if (task.getAttempts() >= maxAttempts) {
+            giveUp(task, e);
+            return;
+        }
+        Duration delay = backoff(task.getAttempts());
+        task.setLastError(truncate(e.getMessage()));
+        task.setNextAttemptAt(LocalDateTime.now().plus(delay));
+        log.info("Google Calendar {} of event {} failed (attempt {}), retrying in {}s: {}",
+                task.getOperation(), task.getEventId(), task.getAttempts(), delay.toSeconds(), e.getMessage());
+    }
+
+    /**
+     * Wait for the user to sign in with Google again; retrying sooner cannot succeed, so the
+     * attempt is not counted and the task is checked again after the longest backoff
+     */
+    private void park(CalendarSyncTask task, RuntimeException e) {
+        task.setAttempts(task.getAttempts() - 1);
+        task.setLastError(truncate(e.getMessage()));
+        task.setNextAttemptAt(LocalDateTime.now().plus(maxBackoff));
+        log.info("Google Calendar {} of event {} waits for {} to sign in again: {}",
+                task.getOperation(), task.getEventId(), task.getPrincipalName(), e.getMessage());
+    }
+
+    private void giveUp(CalendarSyncTask task, RuntimeException e) {
+        task.setStatus(CalendarSyncStatus.FAILED);
+        task.setCompletedAt(LocalDateTime.now());
+        task.setLastError(truncate(e.getMessage()));
+        log.warn("Giving up Google Calendar {} of event {} after {} attempts: {}",
+                task.getOperation(), task.getEventId(), task.getAttempts(), e.getMessage());
+    }
+
+    /**
+     * Delay before the next attempt: the initial backoff doubled per failed attempt, capped
+     */
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    /**
+     * Drop finished tasks past the retention period, at most hourly; failed ones are kept for inspection
+     */
+    private void purgeCompletedTasks() {
+        LocalDateTime now = LocalDateTime.now();
+        if (lastPurge.isAfter(now.minusHours(1))) {
+            return;
+        }
+        lastPurge = now;
+        int purged = calendarSyncTaskRepository.deleteCompletedBefore(CalendarSyncStatus.DONE, now.minus(retention));
+        if (purged > 0) {
+            log.debug("Purged {} completed Google Calendar push tasks", purged);
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
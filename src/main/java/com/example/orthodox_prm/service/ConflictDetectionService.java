@@ -1,34 +1,38 @@
 package com.example.orthodox_prm.service;
 
 import com.example.orthodox_prm.dto.ConflictReport;
-import com.example.orthodox_prm.model.EventParticipant;
-import com.example.orthodox_prm.model.ScheduledEvent;
-import com.example.orthodox_prm.repository.EventParticipantRepository;
+import com.example.orthodox_prm.dto.ConflictingEventDTO;
+import com.example.orthodox_prm.model.RecurrenceRule;
 import com.example.orthodox_prm.repository.ScheduledEventRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.Period;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
 
 @Service
 @Slf4j
 public class ConflictDetectionService {
 
-    private final EventParticipantRepository eventParticipantRepository;
+    private final EventIntervalIndex eventIntervalIndex;
     private final ScheduledEventRepository scheduledEventRepository;
     private final GoogleCalendarService googleCalendarService;
 
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+    // How far ahead occurrences of a proposed recurring event are checked
+    private static final Period RECURRENCE_HORIZON = Period.ofYears(1);
+    private static final int MAX_CHECKED_OCCURRENCES = 60;
 
     public ConflictDetectionService(
-            EventParticipantRepository eventParticipantRepository,
+            EventIntervalIndex eventIntervalIndex,
             ScheduledEventRepository scheduledEventRepository,
             GoogleCalendarService googleCalendarService) {
-        this.eventParticipantRepository = eventParticipantRepository;
+        this.eventIntervalIndex = eventIntervalIndex;
         this.scheduledEventRepository = scheduledEventRepository;
         this.googleCalendarService = googleCalendarService;
     }
@@ -48,10 +52,8 @@ public class ConflictDetectionService {
             return report;
         }
 
-        // Check database conflicts for each parishioner
-        for (Long parishionerId : parishionerIds) {
-            checkDatabaseConflicts(report, parishionerId, eventDate, startTime, endTime);
-        }
+        // Check database conflicts for all parishioners at once
+        checkDatabaseConflicts(report, parishionerIds, eventDate, startTime, endTime);
 
         // Check Google Calendar conflicts if user is authenticated
         if (googleCalendarService.isGoogleOAuth2Authenticated()) {
@@ -62,29 +64,59 @@ public class ConflictDetectionService {
     }
 
     /**
-     * Check for conflicts in the application database
+     * Check every occurrence of a proposed recurring event, up to its end date or the
+     * horizon, whichever comes first, and at most {@link #MAX_CHECKED_OCCURRENCES} of them
+     * @param recurrence Repeat rule of the proposed event, or null for a one-off event
+     */
+    public ConflictReport checkConflicts(List<Long> parishionerIds, LocalDate eventDate, LocalTime startTime, LocalTime endTime,
+                                         RecurrenceRule recurrence) {
+        if (recurrence == null || recurrence.getFrequency() == null) {
+            return checkConflicts(parishionerIds, eventDate, startTime, endTime);
+        }
+        ConflictReport report = new ConflictReport();
+        if (parishionerIds == null || parishionerIds.isEmpty()) {
+            return report;
+        }
+
+        boolean checkGoogle = googleCalendarService.isGoogleOAuth2Authenticated();
+        Iterator<LocalDate> occurrences = recurrence.occurrences(eventDate, eventDate, eventDate.plus(RECURRENCE_HORIZON));
+        for (int checked = 0; checked < MAX_CHECKED_OCCURRENCES && occurrences.hasNext(); checked++) {
+            LocalDate date = occurrences.next();
+            checkDatabaseConflicts(report, parishionerIds, date, startTime, endTime);
+            if (checkGoogle) {
+                checkGoogleCalendarConflicts(report, date, startTime, endTime);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Check for conflicts with events in the application database, answered from the in-memory event index
      */
-    private void checkDatabaseConflicts(ConflictReport report, Long parishionerId, LocalDate eventDate, LocalTime startTime, LocalTime endTime) {
+    private void checkDatabaseConflicts(ConflictReport report, List<Long> parishionerIds, LocalDate eventDate, LocalTime startTime, LocalTime endTime) {
         try {
-            List<EventParticipant> conflicts = eventParticipantRepository.findConflictingEvents(parishionerId, eventDate, startTime, endTime);
+            List<ConflictingEventDTO> conflicts = eventIntervalIndex.findConflicts(parishionerIds, eventDate, startTime, endTime);
 
-            for (EventParticipant participant : conflicts) {
-                ScheduledEvent event = participant.getEvent();
+            for (ConflictingEventDTO row : conflicts) {
                 ConflictReport.ConflictInfo conflict = new ConflictReport.ConflictInfo();
-                conflict.setParishionerName(participant.getParishioner().getFirstName() + " " + participant.getParishioner().getLastName());
-                conflict.setEventTitle(event.getEventTitle());
-                conflict.setEventDate(event.getEventDate().format(DATE_FORMATTER));
-                if (!event.isAllDayEvent()) {
-                    conflict.setEventTime(event.getStartTime().format(TIME_FORMATTER) + " - " + event.getEndTime().format(TIME_FORMATTER));
+                conflict.setParishionerName(row.getFirstName() + " " + row.getLastName());
+                conflict.setEventTitle(row.getEventTitle());
+                conflict.setEventDate(row.getEventDate().format(DATE_FORMATTER));
+                if (!row.isAllDayEvent()) {
+                    conflict.setEventTime(formatTime(row.getStartTime()) + " - " + formatTime(row.getEndTime()));
                 }
                 conflict.setSource("database");
-                report.addDatabaseConflict(conflict);
+                report.addParticipantConflict(row.getParishionerId(), conflict);
             }
         } catch (Exception e) {
-            log.error("Error checking database conflicts for parishioner {}", parishionerId, e);
+            log.error("Error checking database conflicts for parishioners {}", parishionerIds, e);
         }
     }
 
+    private static String formatTime(LocalTime time) {
+        return time != null ? time.format(TIME_FORMATTER) : "?";
+    }
+
     /**
      * Check for conflicts in Google Calendar
      */
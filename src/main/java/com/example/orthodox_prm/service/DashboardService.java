@@ -55,23 +55,8 @@ public class DashboardService {
         LocalDate today = LocalDate.now();
         LocalDate sevenDaysFromNow = today.plusDays(7);
 
-        // 1. Get name days (anniversaries) for next 7 days
-        events.addAll(getNameDaysInRange(today, sevenDaysFromNow));
-
-        // 2. Get baptism day anniversaries for next 7 days
-        events.addAll(getBaptismDaysInRange(today, sevenDaysFromNow));
-
-        // 3. Get birthdays for next 7 days
-        events.addAll(getBirthdaysInRange(today, sevenDaysFromNow));
-
-        // 4. Get wedding anniversaries for next 7 days
-        events.addAll(getWeddingAnniversariesInRange(today, sevenDaysFromNow));
-
-        // 5. Get chrismation day anniversaries for next 7 days
-        events.addAll(getChrismationDaysInRange(today, sevenDaysFromNow));
-
-        // 6. Get death anniversaries for next 7 days
-        events.addAll(getDeathAnniversariesInRange(today, sevenDaysFromNow));
+        // 1-6. Name days, baptism, birthday, wedding, chrismation and repose anniversaries
+        events.addAll(getAnniversaries(today, sevenDaysFromNow));
 
         // 7. Get scheduled sacraments (new baptisms and chrismations) for next 7 days
         events.addAll(getScheduledSacraments(today, sevenDaysFromNow));
@@ -85,12 +70,27 @@ public class DashboardService {
         return events;
     }
 
+    /**
+     * Get the anniversaries (name days, birthdays, baptism, chrismation, wedding and
+     * repose anniversaries) falling in a range of at most a year, each on its next date
+     */
+    public List<UpcomingEvent> getAnniversaries(LocalDate startDate, LocalDate endDate) {
+        List<Parishioner> allParishioners = parishionerRepo.findAll();
+        List<UpcomingEvent> events = new ArrayList<>();
+        events.addAll(getNameDaysInRange(allParishioners, startDate, endDate));
+        events.addAll(getBaptismDaysInRange(allParishioners, startDate, endDate));
+        events.addAll(getBirthdaysInRange(allParishioners, startDate, endDate));
+        events.addAll(getWeddingAnniversariesInRange(allParishioners, startDate, endDate));
+        events.addAll(getChrismationDaysInRange(allParishioners, startDate, endDate));
+        events.addAll(getDeathAnniversariesInRange(allParishioners, startDate, endDate));
+        return events;
+    }
+
     /**
      * Get name days (anniversaries) for the specified date range
      */
-    private List<UpcomingEvent> getNameDaysInRange(LocalDate startDate, LocalDate endDate) {
+    private List<UpcomingEvent> getNameDaysInRange(List<Parishioner> allParishioners, LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<Parishioner> allParishioners = parishionerRepo.findAll();
 
         MonthDay startMonthDay = MonthDay.from(startDate);
         MonthDay endMonthDay = MonthDay.from(endDate);
@@ -138,9 +138,8 @@ public class DashboardService {
     /**
      * Get baptism days for the specified date range
      */
-    private List<UpcomingEvent> getBaptismDaysInRange(LocalDate startDate, LocalDate endDate) {
+    private List<UpcomingEvent> getBaptismDaysInRange(List<Parishioner> allParishioners, LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<Parishioner> allParishioners = parishionerRepo.findAll();
 
         MonthDay startMonthDay = MonthDay.from(startDate);
         MonthDay endMonthDay = MonthDay.from(endDate);
@@ -187,9 +186,8 @@ public class DashboardService {
     /**
      * Get birthdays for the specified date range
      */
-    private List<UpcomingEvent> getBirthdaysInRange(LocalDate startDate, LocalDate endDate) {
+    private List<UpcomingEvent> getBirthdaysInRange(List<Parishioner> allParishioners, LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<Parishioner> allParishioners = parishionerRepo.findAll();
 
         MonthDay startMonthDay = MonthDay.from(startDate);
         MonthDay endMonthDay = MonthDay.from(endDate);
@@ -236,9 +234,8 @@ public class DashboardService {
     /**
      * Get wedding anniversaries for the specified date range
      */
-    private List<UpcomingEvent> getWeddingAnniversariesInRange(LocalDate startDate, LocalDate endDate) {
+    private List<UpcomingEvent> getWeddingAnniversariesInRange(List<Parishioner> allParishioners, LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<Parishioner> allParishioners = parishionerRepo.findAll();
 
         MonthDay startMonthDay = MonthDay.from(startDate);
         MonthDay endMonthDay = MonthDay.from(endDate);
@@ -295,9 +292,8 @@ public class DashboardService {
     /**
      * Get chrismation day anniversaries for the specified date range
      */
-    private List<UpcomingEvent> getChrismationDaysInRange(LocalDate startDate, LocalDate endDate) {
+    private List<UpcomingEvent> getChrismationDaysInRange(List<Parishioner> allParishioners, LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<Parishioner> allParishioners = parishionerRepo.findAll();
 
         MonthDay startMonthDay = MonthDay.from(startDate);
         MonthDay endMonthDay = MonthDay.from(endDate);
@@ -344,9 +340,8 @@ public class DashboardService {
     /**
      * Get death anniversaries for the specified date range
      */
-    private List<UpcomingEvent> getDeathAnniversariesInRange(LocalDate startDate, LocalDate endDate) {
+    private List<UpcomingEvent> getDeathAnniversariesInRange(List<Parishioner> allParishioners, LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<Parishioner> allParishioners = parishionerRepo.findAll();
 
         MonthDay startMonthDay = MonthDay.from(startDate);
         MonthDay endMonthDay = MonthDay.from(endDate);
@@ -395,10 +390,10 @@ public class DashboardService {
      */
     private List<UpcomingEvent> getScheduledSacraments(LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<ScheduledEvent> sacraments = scheduledEventRepo.findUpcomingSacraments(startDate);
+        List<ScheduledEvent> sacraments = scheduledEventRepo.findEventsBetween(startDate, endDate);
 
         for (ScheduledEvent sacrament : sacraments) {
-            if (sacrament.getEventDate().isAfter(endDate)) {
+            if (sacrament.getSacramentType() == null) {
                 continue;
             }
 
@@ -410,15 +405,17 @@ public class DashboardService {
                 );
             }
 
-            UpcomingEvent event = new UpcomingEvent();
-            event.setTitle(sacrament.getSacramentType() + ": " + sacrament.getEventTitle());
-            event.setParishionerName(String.join(", ", participantNames));
-            event.setDate(sacrament.getEventDate());
-            event.setTime(sacrament.getStartTime());
-            event.setType("SACRAMENT");
-            event.setDescription(sacrament.getEventDescription());
-            event.setEventId(sacrament.getId());
-            events.add(event);
+            for (LocalDate date : sacrament.occurrencesBetween(startDate, endDate)) {
+                UpcomingEvent event = new UpcomingEvent();
+                event.setTitle(sacrament.getSacramentType() + ": " + sacrament.getEventTitle());
+                event.setParishionerName(String.join(", ", participantNames));
+                event.setDate(date);
+                event.setTime(sacrament.getStartTime());
+                event.setType("SACRAMENT");
+                event.setDescription(sacrament.getEventDescription());
+                event.setEventId(sacrament.getId());
+                events.add(event);
+            }
         }
 
         return events;
@@ -429,11 +426,11 @@ public class DashboardService {
      */
     private List<UpcomingEvent> getScheduledEvents(LocalDate startDate, LocalDate endDate) {
         List<UpcomingEvent> events = new ArrayList<>();
-        List<ScheduledEvent> scheduledEvents = scheduledEventRepo.findUpcomingEvents(startDate);
+        List<ScheduledEvent> scheduledEvents = scheduledEventRepo.findEventsBetween(startDate, endDate);
 
         for (ScheduledEvent scheduledEvent : scheduledEvents) {
-            if (scheduledEvent.getEventDate().isAfter(endDate) || scheduledEvent.getSacramentType() != null) {
-                // Skip sacraments (we get those separately) and events beyond the range
+            if (scheduledEvent.getSacramentType() != null) {
+                // Skip sacraments (we get those separately)
                 continue;
             }
 
@@ -445,15 +442,18 @@ public class DashboardService {
                 );
             }
 
-            UpcomingEvent event = new UpcomingEvent();
-            event.setTitle(scheduledEvent.getEventTitle());
-            event.setParishionerName(String.join(", ", participantNames));
-            event.setDate(scheduledEvent.getEventDate());
-            event.setTime(scheduledEvent.getStartTime());
-            event.setType("EVENT");
-            event.setDescription(scheduledEvent.getEventDescription());
-            event.setEventId(scheduledEvent.getId());
-            events.add(event);
+            // Recurring events appear once per occurrence in the range
+            for (LocalDate date : scheduledEvent.occurrencesBetween(startDate, endDate)) {
+                UpcomingEvent event = new UpcomingEvent();
+                event.setTitle(scheduledEvent.getEventTitle());
+                event.setParishionerName(String.join(", ", participantNames));
+                event.setDate(date);
+                event.setTime(scheduledEvent.getStartTime());
+                event.setType("EVENT");
+                event.setDescription(scheduledEvent.getEventDescription());
+                event.setEventId(scheduledEvent.getId());
+                events.add(event);
+            }
         }
 
         return events;
@@ -0,0 +1,232 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.model.RateLimitBucket;
+import com.example.orthodox_prm.repository.RateLimitBucketRepository;
+import com.example.orthodox_prm.util.ExpiringKeyMap;
+import com.example.orthodox_prm.util.TextCompression;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit state shared by all instances as token buckets in the database.
+ * <p>
+ * Recording a submission takes a token with one conditional UPDATE, so concurrent
+ * submissions on different instances can never take more tokens than a bucket holds.
+ * Checks, which are far more frequent, are answered from a near-cache of bucket states
+ * with the refill projected to now. The keys checked since the last reconcile are
+ * re-read in batches every {@code rate-limit.reconcile-interval}, so tokens taken and
+ * blocks set by other instances show up here within that interval. A key this instance
+ * has not seen yet is treated as full until then.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.store", havingValue = "database")
+@Slf4j
+public class DatabaseRateLimitStore implements RateLimitStore {
+
+    private static final int RECONCILE_BATCH_SIZE = 500;
+    // Longer keys (such as a forged X-Forwarded-For header) are stored as a hash
+    private static final int MAX_PLAIN_KEY_LENGTH = 200;
+
+    private final RateLimitBucketRepository rateLimitBucketRepository;
+    private final Duration reconcileInterval;
+    private final Duration retention;
+
+    // Per limit name
+    private final Map<String, NearCache> nearCaches = new ConcurrentHashMap<>();
+    private ScheduledExecutorService worker;
+    private long lastPurge;
+
+    public DatabaseRateLimitStore(RateLimitBucketRepository rateLimitBucketRepository,
+                                  @Value("${rate-limit.reconcile-interval:15s}") Duration reconcileInterval,
+                                  @Value("${rate-limit.retention:2d}") Duration retention) {
+        this.rateLimitBucketRepository = rateLimitBucketRepository;
+        this.reconcileInterval = reconcileInterval;
+        this.retention = retention;
+    }
+
+    @PostConstruct
+    void start() {
+        worker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("rate-limit-reconcile").daemon().factory());
+        long period = Math.max(1, reconcileInterval.toMillis());
+        worker.scheduleWithFixedDelay(this::reconcile, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.shutdownNow();
+    }
+
+    @Override
+    public int remaining(Limit limit, String key) {
+        long now = System.currentTimeMillis();
+        return nearCache(limit).check(bucketKey(limit, key), now).remaining(limit, now);
+    }
+
+    @Override
+    public int record(Limit limit, String key) {
+        long now = System.currentTimeMillis();
+        String bucketKey = bucketKey(limit, key);
+        long windowMillis = limit.windowMinutes() * 60_000L;
+        long full = limit.capacity() * windowMillis;
+
+        if (rateLimitBucketRepository.tryConsume(bucketKey, now, limit.capacity(), full, windowMillis) == 0
+                && rateLimitBucketRepository.findByBucketKey(bucketKey).isEmpty()) {
+            try {
+                rateLimitBucketRepository.save(new RateLimitBucket(null, bucketKey, full - windowMillis, now, 0));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance created the bucket first
+                rateLimitBucketRepository.tryConsume(bucketKey, now, limit.capacity(), full, windowMillis);
+            }
+        }
+        // An empty bucket means the submission went over the limit; it counts as such either way
+        BucketState state = refresh(limit, bucketKey, now);
+        return state.remaining(limit, now);
+    }
+
+    @Override
+    public void block(Limit limit, String key, long untilMillis) {
+        long now = System.currentTimeMillis();
+        String bucketKey = bucketKey(limit, key);
+        if (rateLimitBucketRepository.extendBlock(bucketKey, untilMillis) == 0
+                && rateLimitBucketRepository.findByBucketKey(bucketKey).isEmpty()) {
+            long full = limit.capacity() * limit.windowMinutes() * 60_000L;
+            try {
+                rateLimitBucketRepository.save(new RateLimitBucket(null, bucketKey, full, now, untilMillis));
+            } catch (DataIntegrityViolationException e) {
+                rateLimitBucketRepository.extendBlock(bucketKey, untilMillis);
+            }
+        }
+        refresh(limit, bucketKey, now);
+    }
+
+    @Override
+    public long blockedUntil(Limit limit, String key) {
+        return nearCache(limit).check(bucketKey(limit, key), System.currentTimeMillis()).blockedUntil();
+    }
+
+    @Override
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        int deleted = rateLimitBucketRepository.deleteIdle(now - retention.toMillis(), now);
+        lastPurge = now;
+        log.debug("Purged {} idle rate limit buckets", deleted);
+    }
+
+    /**
+     * Re-read the buckets of every key checked since the last run into the near-caches
+     */
+    private void reconcile() {
+        try {
+            long now = System.currentTimeMillis();
+            for (NearCache cache : nearCaches.values()) {
+                List<String> batch = new ArrayList<>(RECONCILE_BATCH_SIZE);
+                Iterator<String> touched = cache.touched.iterator();
+                while (touched.hasNext()) {
+                    batch.add(touched.next());
+                    touched.remove();
+                    if (batch.size() == RECONCILE_BATCH_SIZE || !touched.hasNext()) {
+                        for (RateLimitBucket bucket : rateLimitBucketRepository.findByBucketKeyIn(batch)) {
+                            cache.store(bucket.getBucketKey(), BucketState.of(bucket), now);
+                        }
+                        batch.clear();
+                    }
+                }
+            }
+            if (now - lastPurge >= Duration.ofHours(1).toMillis()) {
+                cleanup();
+            }
+        } catch (Exception e) {
+            // Checks keep using the states already cached
+            log.error("Error reconciling rate limit buckets", e);
+        }
+    }
+
+    private BucketState refresh(Limit limit, String bucketKey, long now) {
+        BucketState state = rateLimitBucketRepository.findByBucketKey(bucketKey)
+                .map(BucketState::of)
+                .orElseGet(() -> BucketState.full(limit, now));
+        nearCache(limit).store(bucketKey, state, now);
+        return state;
+    }
+
+    private NearCache nearCache(Limit limit) {
+        return nearCaches.computeIfAbsent(limit.name(), name -> new NearCache(limit));
+    }
+
+    private static String bucketKey(Limit limit, String key) {
+        String bucketKey = limit.name() + ":" + key;
+        return bucketKey.length() <= MAX_PLAIN_KEY_LENGTH ? bucketKey : limit.name() + ":#" + TextCompression.sha256Hex(key);
+    }
+
+    /**
+     * Cached bucket states of one limit, and the keys to re-read at the next reconcile
+     */
+    private static final class NearCache {
+        private final Limit limit;
+        private final ExpiringKeyMap<BucketState> states;
+        private final Set<String> touched = ConcurrentHashMap.newKeySet();
+
+        private NearCache(Limit limit) {
+            this.limit = limit;
+            this.states = new ExpiringKeyMap<>(limit.maxTrackedKeys(), System.currentTimeMillis() / 60_000L);
+        }
+
+        /**
+         * State of a bucket for a check, assumed full if not cached yet
+         */
+        private BucketState check(String bucketKey, long now) {
+            if (touched.size() < limit.maxTrackedKeys()) {
+                touched.add(bucketKey);
+            }
+            BucketState state = states.get(bucketKey, now / 60_000L);
+            return state != null ? state : BucketState.full(limit, now);
+        }
+
+        private void store(String bucketKey, BucketState state, long now) {
+            // Keep the state until the bucket is full again and any block is over
+            long deadline = Math.max(now + limit.windowMinutes() * 60_000L, state.blockedUntil()) / 60_000L + 1;
+            states.put(bucketKey, state, now / 60_000L, deadline);
+        }
+    }
+
+    /**
+     * A bucket as last read from the database
+     */
+    private record BucketState(long tokenUnits, long refilledAt, long blockedUntil) {
+
+        private static BucketState of(RateLimitBucket bucket) {
+            return new BucketState(bucket.getTokenUnits(), bucket.getRefilledAt(), bucket.getBlockedUntil());
+        }
+
+        private static BucketState full(Limit limit, long now) {
+            return new BucketState(limit.capacity() * limit.windowMinutes() * 60_000L, now, 0);
+        }
+
+        /**
+         * Whole tokens in the bucket at the given time, counting the refill since it was read
+         */
+        private int remaining(Limit limit, long now) {
+            long windowMillis = limit.windowMinutes() * 60_000L;
+            long full = limit.capacity() * windowMillis;
+            long units = Math.min(full, tokenUnits + Math.max(0, now - refilledAt) * limit.capacity());
+            return (int) (units / windowMillis);
+        }
+    }
+}
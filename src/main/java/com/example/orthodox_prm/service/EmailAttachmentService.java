@@ -0,0 +1,195 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.EmailAttachmentDTO;
+import com.example.orthodox_prm.util.StreamingMimeMessage;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Spools uploaded email attachments to disk between the preview and send steps.
+ * Files are never held in memory: uploads are moved into the spool directory and sends
+ * stream them back from there. Spooled files are deleted after the send, and any left
+ * behind by abandoned previews are purged once they are older than the retention period.
+ * The index of spooled files is kept in memory, so files left over from before a restart
+ * are deleted at startup.
+ */
+@Service
+@Slf4j
+public class EmailAttachmentService {
+
+    private static final Duration RETENTION = Duration.ofHours(24);
+    private static final Pattern CONTENT_TYPE = Pattern.compile("[\\w.+-]+/[\\w.+-]+");
+
+    private final Path directory;
+    private final long maxTotalSize;
+    private final Map<String, Spooled> spooled = new ConcurrentHashMap<>();
+
+    public EmailAttachmentService(
+            @Value("${app.mail.attachment-dir:${java.io.tmpdir}/orthodox-prm-attachments}") String directory,
+            @Value("${app.mail.max-attachment-size:25MB}") DataSize maxTotalSize) {
+        this.directory = Paths.get(directory);
+        this.maxTotalSize = maxTotalSize.toBytes();
+    }
+
+    /**
+     * Delete spooled files from a previous run; without their index entries they can never be sent
+     */
+    @PostConstruct
+    void sweepSpool() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                // Only files this service named, in case the directory is shared
+                if (isSpoolId(file.getFileName().toString()) && Files.isRegularFile(file)
+                        && !spooled.containsKey(file.getFileName().toString())) {
+                    delete(file);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep attachment spool {}", directory, e);
+        }
+        if (removed > 0) {
+            log.info("Deleted {} spooled attachment(s) left from a previous run", removed);
+        }
+    }
+
+    /**
+     * Spool uploaded files for a later send
+     * @param files Uploaded files (empty file inputs are skipped)
+     * @return Descriptors to carry through the preview form
+     * @throws IllegalArgumentException if the files together exceed the attachment size limit
+     */
+    public List<EmailAttachmentDTO> store(List<MultipartFile> files) throws IOException {
+        List<EmailAttachmentDTO> stored = new ArrayList<>();
+        if (files == null) {
+            return stored;
+        }
+
+        long total = files.stream().mapToLong(MultipartFile::getSize).sum();
+        if (total > maxTotalSize) {
+            throw new IllegalArgumentException("Attachments total " + DataSize.ofBytes(total).toMegabytes() +
+                    " MB; the limit is " + DataSize.ofBytes(maxTotalSize).toMegabytes() + " MB.");
+        }
+
+        purgeExpired();
+        Files.createDirectories(directory);
+
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                continue;
+            }
+            String id = UUID.randomUUID().toString();
+            Path path = directory.resolve(id);
+            // Moves the container's temp file where possible instead of copying through memory
+            file.transferTo(path);
+
+            String filename = StringUtils.getFilename(StringUtils.cleanPath(
+                    file.getOriginalFilename() != null ? file.getOriginalFilename() : "attachment"));
+            String contentType = file.getContentType() != null && CONTENT_TYPE.matcher(file.getContentType()).matches()
+                    ? file.getContentType() : "application/octet-stream";
+
+            EmailAttachmentDTO dto = new EmailAttachmentDTO(id, filename, contentType, Files.size(path));
+            spooled.put(id, new Spooled(dto, path, Instant.now()));
+            stored.add(dto);
+        }
+
+        log.debug("Spooled {} email attachment(s), {} bytes", stored.size(), total);
+        return stored;
+    }
+
+    /**
+     * Look up spooled files for sending
+     * @param ids Comma-separated attachment IDs from the preview form (null or blank = none)
+     * @throws IllegalStateException if an attachment is no longer available
+     */
+    public List<StreamingMimeMessage.Attachment> resolve(String ids) {
+        List<StreamingMimeMessage.Attachment> attachments = new ArrayList<>();
+        for (String id : splitIds(ids)) {
+            Spooled file = spooled.get(id);
+            if (file == null || !Files.exists(file.path)) {
+                throw new IllegalStateException("An attachment has expired. Please attach the file again.");
+            }
+            attachments.add(new StreamingMimeMessage.Attachment(
+                    file.dto.getFilename(), file.dto.getContentType(), file.path, file.dto.getSize()));
+        }
+        return attachments;
+    }
+
+    /**
+     * Delete spooled files once they have been sent
+     */
+    public void discard(String ids) {
+        for (String id : splitIds(ids)) {
+            Spooled file = spooled.remove(id);
+            if (file != null) {
+                delete(file.path);
+            }
+        }
+    }
+
+    private void purgeExpired() {
+        Instant cutoff = Instant.now().minus(RETENTION);
+        spooled.entrySet().removeIf(entry -> {
+            if (entry.getValue().storedAt.isBefore(cutoff)) {
+                delete(entry.getValue().path);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static List<String> splitIds(String ids) {
+        List<String> result = new ArrayList<>();
+        if (ids == null || ids.isBlank()) {
+            return result;
+        }
+        for (String id : ids.split(",")) {
+            if (!id.isBlank()) {
+                result.add(id.trim());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSpoolId(String name) {
+        try {
+            return UUID.fromString(name).toString().equals(name);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled attachment {}", path, e);
+        }
+    }
+
+    private record Spooled(EmailAttachmentDTO dto, Path path, Instant storedAt) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.model.SentEmail;
+import com.example.orthodox_prm.repository.SentEmailRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves history rows written before the normalized schema (full body and comma-joined
+ * recipients on every row) into the shared compressed bodies and the recipient table.
+ * Runs once at startup in small batches; afterwards it finds nothing to do.
+ */
+@Component
+@Slf4j
+public class EmailHistoryMigration {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final SentEmailRepository sentEmailRepository;
+    private final EmailHistoryService emailHistoryService;
+    private final TransactionTemplate transactionTemplate;
+
+    public EmailHistoryMigration(SentEmailRepository sentEmailRepository,
+                                 EmailHistoryService emailHistoryService,
+                                 TransactionTemplate transactionTemplate) {
+        this.sentEmailRepository = sentEmailRepository;
+        this.emailHistoryService = emailHistoryService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyRows() {
+        int migrated = 0;
+        while (true) {
+            Integer batch = transactionTemplate.execute(status -> migrateBatch());
+            if (batch == null || batch == 0) {
+                break;
+            }
+            migrated += batch;
+        }
+        if (migrated > 0) {
+            log.info("Migrated {} sent-email history rows to the normalized schema", migrated);
+        }
+    }
+
+    private int migrateBatch() {
+        List<SentEmail> legacy = sentEmailRepository.findByEmailBodyIsNullOrderByIdAsc(Limit.of(BATCH_SIZE));
+        for (SentEmail email : legacy) {
+            email.setEmailBody(emailHistoryService.findOrCreateBody(email.getLegacyBody()));
+            email.getRecipientEmails().clear();
+            email.getRecipientEmails().addAll(EmailHistoryService.normalizeRecipients(
+                    Arrays.asList(email.getLegacyRecipients().split(","))));
+            email.setLegacyBody("");
+            email.setLegacyRecipients("");
+        }
+        return legacy.size();
+    }
+}
@@ -1,22 +1,45 @@
 package com.example.orthodox_prm.service;
 
+import com.example.orthodox_prm.dto.EmailHistoryPageDTO;
+import com.example.orthodox_prm.dto.SentEmailDetailDTO;
+import com.example.orthodox_prm.dto.SentEmailSummaryDTO;
+import com.example.orthodox_prm.model.EmailBody;
 import com.example.orthodox_prm.model.SentEmail;
+import com.example.orthodox_prm.repository.EmailBodyRepository;
 import com.example.orthodox_prm.repository.SentEmailRepository;
-import org.springframework.data.domain.Sort;
+import com.example.orthodox_prm.util.TextCompression;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class EmailHistoryService {
 
+    public static final int DEFAULT_PAGE_SIZE = 25;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Cursor for the first page: newer than anything actually stored
+    private static final LocalDateTime NEWEST = LocalDateTime.of(9999, 1, 1, 0, 0);
+
     private final SentEmailRepository sentEmailRepository;
+    private final EmailBodyRepository emailBodyRepository;
 
-    public EmailHistoryService(SentEmailRepository sentEmailRepository) {
+    public EmailHistoryService(SentEmailRepository sentEmailRepository, EmailBodyRepository emailBodyRepository) {
         this.sentEmailRepository = sentEmailRepository;
+        this.emailBodyRepository = emailBodyRepository;
     }
 
     /**
@@ -26,8 +49,8 @@ public class EmailHistoryService {
                                    String sendMode, String filterCriteria) {
         SentEmail email = new SentEmail();
         email.setSubject(subject);
-        email.setBody(body);
-        email.setRecipients(String.join(",", recipients));
+        email.setEmailBody(findOrCreateBody(body));
+        email.setRecipientEmails(normalizeRecipients(recipients));
         email.setRecipientCount(recipients.size());
         email.setSendMode(sendMode);
         email.setSentBy(getCurrentUsername());
@@ -44,8 +67,8 @@ public class EmailHistoryService {
                                      String sendMode, String errorMessage) {
         SentEmail email = new SentEmail();
         email.setSubject(subject);
-        email.setBody(body);
-        email.setRecipients(String.join(",", recipients));
+        email.setEmailBody(findOrCreateBody(body));
+        email.setRecipientEmails(normalizeRecipients(recipients));
         email.setRecipientCount(recipients.size());
         email.setSendMode(sendMode);
         email.setSentBy(getCurrentUsername());
@@ -56,10 +79,111 @@ public class EmailHistoryService {
     }
 
     /**
-     * Get email history sorted by most recent
+     * Get one page of email history, newest first, using keyset pagination
+     * @param before Cursor from the previous page's nextCursor (null for the first page)
+     * @param recipient Optional recipient search; matches addresses starting with this text
+     * @param size Page size (capped at 100)
+     */
+    public EmailHistoryPageDTO getHistoryPage(String before, String recipient, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        LocalDateTime cursorSentAt = NEWEST;
+        long cursorId = Long.MAX_VALUE;
+
+        if (before != null && !before.isBlank()) {
+            // Cursor format: <sentAt ISO>_<id>
+            int separator = before.lastIndexOf('_');
+            try {
+                cursorSentAt = LocalDateTime.parse(before.substring(0, separator));
+                cursorId = Long.parseLong(before.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid history cursor: " + before);
+            }
+        }
+
+        // Fetch one extra row to learn whether an older page exists
+        Limit limit = Limit.of(pageSize + 1);
+        List<SentEmailSummaryDTO> rows;
+        if (recipient != null && !recipient.isBlank()) {
+            rows = sentEmailRepository.findSummariesBeforeByRecipient(
+                    cursorSentAt, cursorId, likePrefix(recipient), limit);
+        } else {
+            rows = sentEmailRepository.findSummariesBefore(cursorSentAt, cursorId, limit);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            SentEmailSummaryDTO last = rows.get(pageSize - 1);
+            nextCursor = last.getSentAt() + "_" + last.getId();
+        }
+        return new EmailHistoryPageDTO(rows, nextCursor);
+    }
+
+    /**
+     * Get a single history entry with its decompressed body and recipient list
+     */
+    @Transactional(readOnly = true)
+    public Optional<SentEmailDetailDTO> getEmailDetail(Long id) {
+        return sentEmailRepository.findById(id).map(email -> {
+            SentEmailSummaryDTO summary = new SentEmailSummaryDTO(email.getId(), email.getSubject(),
+                    email.getRecipientCount(), email.getSendMode(), email.getSentAt(), email.getSentBy(),
+                    email.getFilterCriteria(), email.getSuccess(), email.getErrorMessage());
+
+            // Legacy rows not yet migrated still carry the denormalized columns
+            if (email.getEmailBody() == null) {
+                return new SentEmailDetailDTO(summary, email.getLegacyBody(),
+                        normalizeRecipients(List.of(email.getLegacyRecipients().split(","))));
+            }
+            return new SentEmailDetailDTO(summary,
+                    TextCompression.inflate(email.getEmailBody().getCompressedBody()),
+                    new ArrayList<>(email.getRecipientEmails()));
+        });
+    }
+
+    /**
+     * Find the stored body with the same content, or store it compressed.
+     * Repeated sends of the same text (retries, resends, failed-then-sent) share one row.
+     */
+    EmailBody findOrCreateBody(String body) {
+        String text = body != null ? body : "";
+        String hash = TextCompression.sha256Hex(text);
+
+        Optional<EmailBody> existing = emailBodyRepository.findByContentHash(hash);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        EmailBody created = new EmailBody();
+        created.setContentHash(hash);
+        created.setCompressedBody(TextCompression.deflate(text));
+        created.setOriginalLength(text.length());
+        try {
+            return emailBodyRepository.saveAndFlush(created);
+        } catch (DataIntegrityViolationException e) {
+            // Another send stored the same body concurrently
+            return emailBodyRepository.findByContentHash(hash).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Trim, lower-case and de-duplicate addresses for the recipient table
      */
-    public List<SentEmail> getEmailHistory() {
-        return sentEmailRepository.findAll(Sort.by(Sort.Direction.DESC, "sentAt"));
+    static List<String> normalizeRecipients(Collection<String> recipients) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String recipient : recipients) {
+            if (recipient != null && !recipient.isBlank()) {
+                normalized.add(recipient.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return new ArrayList<>(normalized);
+    }
+
+    private static String likePrefix(String search) {
+        String escaped = search.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return escaped + "%";
     }
 
     /**
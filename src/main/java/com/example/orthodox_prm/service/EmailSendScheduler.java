@@ -0,0 +1,479 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.SendPriority;
+import com.example.orthodox_prm.dto.SendJobStatusDTO;
+import com.example.orthodox_prm.dto.SendQueueStatusDTO;
+import com.example.orthodox_prm.util.StreamingMimeMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Paces outgoing Gmail sends to stay inside each sender's sending quotas, which Gmail
+ * applies per account. Two token buckets per sender gate every message: one refills at the
+ * configured messages per second (up to a small burst), the other holds the daily recipient
+ * cap and refills continuously over 24 hours, approximating Gmail's rolling daily limit.
+ * A single worker thread delivers one message at a time, taking each sender's jobs in
+ * priority order, so an urgent notice submitted during a newsletter goes out before the
+ * newsletter's remaining messages, and one sender's exhausted quota never holds up another.
+ * When Gmail reports a rate limit anyway, that sender's sends pause and the message is retried.
+ * <p>
+ * Each message is sent with an access token fetched, and renewed if needed, at delivery
+ * time, so jobs delayed by the daily cap still go out hours later. The queue lives in memory;
+ * jobs still queued when the application stops are lost.
+ */
+@Service
+@Slf4j
+public class EmailSendScheduler {
+
+    private static final long DAY_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_SECONDS = 30;
+    private static final long MAX_BACKOFF_SECONDS = TimeUnit.MINUTES.toSeconds(15);
+
+    private final GmailService gmailService;
+    private final GoogleTokenService googleTokenService;
+    private final double ratePerSecond;
+    private final double burst;
+    private final long dailyRecipientCap;
+    private final int bulkThreshold;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled when a job is submitted, so the worker re-evaluates what to send next
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<SendJob> queue = new PriorityQueue<>(
+            Comparator.comparing((SendJob job) -> job.priority).thenComparingLong(job -> job.id));
+    // Token buckets by sender, guarded by lock
+    private final Map<String, Quota> quotas = new HashMap<>();
+    private long lastJobId;
+
+    private Thread worker;
+
+    public EmailSendScheduler(GmailService gmailService,
+                              GoogleTokenService googleTokenService,
+                              @Value("${gmail.send.rate-per-second:1}") double ratePerSecond,
+                              @Value("${gmail.send.burst:5}") int burst,
+                              @Value("${gmail.send.daily-recipient-cap:500}") long dailyRecipientCap,
+                              @Value("${gmail.send.bulk-threshold:20}") int bulkThreshold) {
+        this.gmailService = gmailService;
+        this.googleTokenService = googleTokenService;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.dailyRecipientCap = dailyRecipientCap;
+        this.bulkThreshold = bulkThreshold;
+    }
+
+    @PostConstruct
+    void start() {
+        worker = Thread.ofPlatform().name("gmail-send-scheduler").daemon().start(this::runWorker);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.interrupt();
+    }
+
+    /**
+     * Default priority for a send: urgent if the sender asked for it, otherwise by size
+     */
+    public SendPriority priorityFor(boolean urgent, int messageCount) {
+        if (urgent) {
+            return SendPriority.URGENT;
+        }
+        return messageCount > bulkThreshold ? SendPriority.BULK : SendPriority.NORMAL;
+    }
+
+    /**
+     * Queue a send from the current user's Gmail account. Messages are delivered in the
+     * background as the user's quotas allow.
+     * @param subject Subject shown in the queue status
+     * @param priority Delivery priority
+     * @param emails Messages to deliver, in order
+     * @param onComplete Called on the worker thread once every message was sent or failed,
+     *                   with the submitting user's security context
+     * @return Status of the queued job, including its estimated completion
+     * @throws IllegalArgumentException if a single message has more recipients than the daily cap allows,
+     *         or if the send would outlast the user's Google access and it cannot be renewed
+     * @throws GoogleTokenService.AuthorizationRequiredException if the user has no usable Google authorization
+     */
+    public SendJobStatusDTO submit(String subject, SendPriority priority, List<OutgoingEmail> emails,
+                                   Consumer<SendResult> onComplete) {
+        if (emails.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to send.");
+        }
+        for (OutgoingEmail email : emails) {
+            if (email.recipients().size() > dailyRecipientCap) {
+                throw new IllegalArgumentException("One message to " + email.recipients().size() +
+                        " recipients exceeds the daily sending limit of " + dailyRecipientCap +
+                        ". Use Individual Emails or split the group.");
+            }
+        }
+
+        String principalName = gmailService.getPrincipalName();
+        if (principalName == null) {
+            throw new IllegalStateException("User is not authenticated with Google");
+        }
+        Instant accessUsableUntil = googleTokenService.getAccessUsableUntil(principalName);
+
+        // The worker sends on the submitting user's Google account and records history as them
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+
+        lock.lock();
+        try {
+            SendJob job = new SendJob(++lastJobId, subject, priority, principalName, List.copyOf(emails), context, onComplete);
+            queue.add(job);
+            SendJobStatusDTO status = estimate(principalName).stream()
+                    .filter(candidate -> candidate.getId() == job.id)
+                    .findFirst()
+                    .orElseThrow();
+            if (Instant.now().plusSeconds(status.getEtaSeconds()).isAfter(accessUsableUntil)) {
+                // Without a refresh token, messages sent after the access token expires would all fail
+                queue.remove(job);
+                throw new IllegalArgumentException("This send would take until after your Google access expires. " +
+                        "Sign out and sign in with Google again, allowing offline access, or send to fewer recipients.");
+            }
+            changed.signalAll();
+            log.info("Queued email job {} for {} ({} message(s), {})", job.id, principalName, emails.size(), priority);
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A user's queued jobs, their remaining daily quota and estimated completion times
+     */
+    public SendQueueStatusDTO getStatus(String principalName) {
+        if (principalName == null) {
+            return new SendQueueStatusDTO(0, 0, dailyRecipientCap, 0, List.of());
+        }
+        lock.lock();
+        try {
+            List<SendJobStatusDTO> jobs = estimate(principalName);
+            int queuedMessages = 0;
+            long queuedRecipients = 0;
+            for (SendJob job : queue) {
+                if (job.principalName.equals(principalName)) {
+                    queuedMessages += job.emails.size() - job.next;
+                    queuedRecipients += job.remainingRecipients();
+                }
+            }
+            Quota quota = quotaOf(principalName);
+            quota.refill(System.nanoTime());
+            long eta = jobs.isEmpty() ? 0 : jobs.get(jobs.size() - 1).getEtaSeconds();
+            return new SendQueueStatusDTO(queuedMessages, queuedRecipients, (long) quota.dailyTokens, eta, jobs);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Estimate when each of a user's jobs finishes if their buckets drain in priority order;
+     * caller holds the lock
+     */
+    private List<SendJobStatusDTO> estimate(String principalName) {
+        long now = System.nanoTime();
+        Quota quota = quotaOf(principalName);
+        quota.refill(now);
+        double pausedSeconds = Math.max(0, (quota.pausedUntilNanos - now) / 1e9);
+
+        List<SendJobStatusDTO> statuses = new ArrayList<>();
+        long messagesAhead = 0;
+        long recipientsAhead = 0;
+        for (SendJob job : inDeliveryOrder()) {
+            if (!job.principalName.equals(principalName)) {
+                continue;
+            }
+            messagesAhead += job.emails.size() - job.next;
+            recipientsAhead += job.remainingRecipients();
+            double seconds = Math.max(pausedSeconds, Math.max(
+                    (messagesAhead - quota.rateTokens) / ratePerSecond,
+                    (recipientsAhead - quota.dailyTokens) * DAY_SECONDS / dailyRecipientCap));
+            statuses.add(new SendJobStatusDTO(job.id, job.subject, job.priority.name(), job.emails.size(),
+                    job.sent, job.failures.size(), (long) Math.ceil(Math.max(0, seconds)), job.submittedAt));
+        }
+        return statuses;
+    }
+
+    private List<SendJob> inDeliveryOrder() {
+        List<SendJob> ordered = new ArrayList<>(queue);
+        ordered.sort(queue.comparator());
+        return ordered;
+    }
+
+    private Quota quotaOf(String principalName) {
+        return quotas.computeIfAbsent(principalName, name -> new Quota());
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            SendJob job;
+            OutgoingEmail email;
+            lock.lock();
+            try {
+                job = awaitSendable();
+                email = job.emails.get(job.next++);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            deliver(job, email);
+        }
+    }
+
+    /**
+     * Wait until some sender's highest-priority job has a next message that fits their buckets,
+     * then take its tokens. Re-checks on every submit so a newly queued urgent job is never
+     * stuck behind a long wait.
+     */
+    private SendJob awaitSendable() throws InterruptedException {
+        while (true) {
+            if (queue.isEmpty()) {
+                changed.await();
+                continue;
+            }
+
+            long now = System.nanoTime();
+            long shortestWait = Long.MAX_VALUE;
+            Set<String> senders = new HashSet<>();
+            for (SendJob job : inDeliveryOrder()) {
+                if (!senders.add(job.principalName)) {
+                    // Only each sender's first job is eligible, so their jobs go out in priority order
+                    continue;
+                }
+                Quota quota = quotaOf(job.principalName);
+                quota.refill(now);
+                int recipients = job.emails.get(job.next).recipients().size();
+                double waitSeconds = Math.max((1 - quota.rateTokens) / ratePerSecond,
+                        (recipients - quota.dailyTokens) * DAY_SECONDS / dailyRecipientCap);
+                long waitNanos = Math.max(quota.pausedUntilNanos - now, (long) Math.ceil(waitSeconds * 1e9));
+                if (waitNanos <= 0) {
+                    quota.rateTokens -= 1;
+                    quota.dailyTokens -= recipients;
+                    return job;
+                }
+                shortestWait = Math.min(shortestWait, waitNanos);
+            }
+            changed.awaitNanos(shortestWait);
+        }
+    }
+
+    private void deliver(SendJob job, OutgoingEmail email) {
+        String failure = null;
+        try {
+            gmailService.sendMessage(job.principalName, email.message());
+        } catch (GoogleTokenService.AuthorizationRequiredException e) {
+            // Every remaining message would fail the same way until the user signs in again
+            failRemaining(job, email, e.getMessage());
+            return;
+        } catch (HttpStatusCodeException e) {
+            if (isRateLimited(e) && job.attempts + 1 < MAX_ATTEMPTS) {
+                retryLater(job, email, e);
+                return;
+            }
+            if (e.getStatusCode().value() == 401 && job.attempts + 1 < MAX_ATTEMPTS) {
+                // GmailService marked the token rejected, so the retry renews it first
+                retry(job, email, 0);
+                return;
+            }
+            failure = e.getMessage();
+        } catch (Exception e) {
+            failure = e.getMessage();
+        }
+
+        boolean complete;
+        lock.lock();
+        try {
+            job.attempts = 0;
+            if (failure == null) {
+                job.sent++;
+            } else {
+                log.warn("Email job {} failed for {}: {}", job.id, email.recipients(), failure);
+                job.failures.add(String.join(",", email.recipients()) + ": " + failure);
+            }
+            complete = job.sent + job.failures.size() == job.emails.size();
+            if (complete) {
+                queue.remove(job);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (complete) {
+            complete(job);
+        }
+    }
+
+    /**
+     * Fail the given message and every message of the job not yet sent, returning their quota
+     */
+    private void failRemaining(SendJob job, OutgoingEmail email, String reason) {
+        log.warn("Email job {} stopped: {}", job.id, reason);
+        lock.lock();
+        try {
+            Quota quota = quotaOf(job.principalName);
+            quota.dailyTokens = Math.min(dailyRecipientCap, quota.dailyTokens + email.recipients().size());
+            job.failures.add(String.join(",", email.recipients()) + ": " + reason);
+            for (; job.next < job.emails.size(); job.next++) {
+                job.failures.add(String.join(",", job.emails.get(job.next).recipients()) + ": " + reason);
+            }
+            queue.remove(job);
+        } finally {
+            lock.unlock();
+        }
+        complete(job);
+    }
+
+    /**
+     * Put the message back at the front of its job and pause the sender's sends for the backoff period
+     */
+    private void retryLater(SendJob job, OutgoingEmail email, HttpStatusCodeException e) {
+        long backoffSeconds = retryAfterSeconds(e);
+        if (backoffSeconds <= 0) {
+            backoffSeconds = Math.min(MAX_BACKOFF_SECONDS, INITIAL_BACKOFF_SECONDS << job.attempts);
+        }
+        retry(job, email, backoffSeconds);
+        log.warn("Gmail rate limit hit on job {}; pausing sends of {} for {} s", job.id, job.principalName, backoffSeconds);
+    }
+
+    private void retry(SendJob job, OutgoingEmail email, long pauseSeconds) {
+        lock.lock();
+        try {
+            job.attempts++;
+            job.next--;
+            Quota quota = quotaOf(job.principalName);
+            // Gmail did not count the rejected message against the quota
+            quota.dailyTokens = Math.min(dailyRecipientCap, quota.dailyTokens + email.recipients().size());
+            quota.pausedUntilNanos = Math.max(quota.pausedUntilNanos,
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(pauseSeconds));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void complete(SendJob job) {
+        log.info("Email job {} finished: {} sent, {} failed", job.id, job.sent, job.failures.size());
+        SecurityContextHolder.setContext(job.securityContext);
+        try {
+            job.onComplete.accept(new SendResult(job.sent, List.copyOf(job.failures)));
+        } catch (Exception e) {
+            log.error("Completion handler for email job {} failed", job.id, e);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static boolean isRateLimited(HttpStatusCodeException e) {
+        int status = e.getStatusCode().value();
+        // Gmail signals quota exhaustion as 429, or as 403 with a rateLimitExceeded/userRateLimitExceeded reason
+        return status == 429 || (status == 403 && e.getResponseBodyAsString().toLowerCase().contains("ratelimitexceeded"));
+    }
+
+    private static long retryAfterSeconds(HttpStatusCodeException e) {
+        String retryAfter = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst("Retry-After") : null;
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.min(MAX_BACKOFF_SECONDS, Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * One message to deliver
+     * @param recipients Every address the message goes to, counted against the daily cap
+     * @param message The message itself; it may be written more than once if a send is retried
+     */
+    public record OutgoingEmail(List<String> recipients, StreamingMimeMessage message) {
+    }
+
+    /**
+     * Outcome of a finished job
+     * @param sentMessages Messages Gmail accepted
+     * @param failures One entry per failed message: its recipients and the error
+     */
+    public record SendResult(int sentMessages, List<String> failures) {
+
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+    }
+
+    /**
+     * One sender's token buckets, guarded by the scheduler lock
+     */
+    private final class Quota {
+        private double rateTokens = burst;
+        private double dailyTokens = dailyRecipientCap;
+        private long lastRefillNanos = System.nanoTime();
+        private long pausedUntilNanos = lastRefillNanos;
+
+        private void refill(long now) {
+            double elapsedSeconds = (now - lastRefillNanos) / 1e9;
+            lastRefillNanos = now;
+            rateTokens = Math.min(burst, rateTokens + elapsedSeconds * ratePerSecond);
+            dailyTokens = Math.min(dailyRecipientCap, dailyTokens + elapsedSeconds * dailyRecipientCap / DAY_SECONDS);
+        }
+    }
+
+    private static final class SendJob {
+        private final long id;
+        private final String subject;
+        private final SendPriority priority;
+        // Sender whose Gmail account and quota the job uses
+        private final String principalName;
+        private final List<OutgoingEmail> emails;
+        private final SecurityContext securityContext;
+        private final Consumer<SendResult> onComplete;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+
+        // Progress, guarded by the scheduler lock
+        private int next;
+        private int sent;
+        private int attempts;
+        private final List<String> failures = new ArrayList<>();
+
+        private SendJob(long id, String subject, SendPriority priority, String principalName,
+                        List<OutgoingEmail> emails, SecurityContext securityContext, Consumer<SendResult> onComplete) {
+            this.id = id;
+            this.subject = subject;
+            this.priority = priority;
+            this.principalName = principalName;
+            this.emails = emails;
+            this.securityContext = securityContext;
+            this.onComplete = onComplete;
+        }
+
+        private long remainingRecipients() {
+            long count = 0;
+            for (int i = next; i < emails.size(); i++) {
+                count += emails.get(i).recipients().size();
+            }
+            return count;
+        }
+    }
+}
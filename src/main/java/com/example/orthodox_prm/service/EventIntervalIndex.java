@@ -0,0 +1,379 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.ConflictingEventDTO;
+import com.example.orthodox_prm.repository.EventParticipantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index of scheduled event times per participant and date, so conflict checks
+ * run without a database round trip. It is loaded in one query, kept current by
+ * {@link ScheduledEventChangeListener} after each committed event change, and reloaded
+ * when the registry version moves on (participant names are part of the results).
+ * <p>
+ * Each participant's days sit in a sorted map, so a date range costs one O(log n) lookup.
+ * Within a day, timed events are sorted by start time with a running maximum of end times:
+ * a binary search finds the last event starting before the query ends, and the scan back
+ * stops as soon as no earlier event can still reach the query start.
+ * <p>
+ * Recurring events are kept once per participant, not per occurrence; a query expands only
+ * the occurrences that fall inside its date range.
+ */
+@Service
+@Slf4j
+public class EventIntervalIndex {
+
+    private static final Comparator<ConflictingEventDTO> RESULT_ORDER = Comparator
+            .comparing(ConflictingEventDTO::getLastName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ConflictingEventDTO::getFirstName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ConflictingEventDTO::getParishionerId)
+            .thenComparing(ConflictingEventDTO::getEventDate);
+
+    private final EventParticipantRepository eventParticipantRepository;
+    private final RegistryVersionService registryVersionService;
+
+    private volatile Snapshot snapshot;
+
+    public EventIntervalIndex(EventParticipantRepository eventParticipantRepository,
+                              RegistryVersionService registryVersionService) {
+        this.eventParticipantRepository = eventParticipantRepository;
+        this.registryVersionService = registryVersionService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        currentSnapshot();
+    }
+
+    /**
+     * Find bookings of the given parishioners that overlap a proposed event on one date.
+     * Matches findEventsOnDateWithTimeOverlap: without a start and end time the whole day
+     * conflicts, and events without times conflict with anything on their date.
+     * @return Conflicting bookings ordered by participant name, then date and start time
+     */
+    public List<ConflictingEventDTO> findConflicts(Collection<Long> parishionerIds, LocalDate date,
+                                                   LocalTime startTime, LocalTime endTime) {
+        return findConflicts(parishionerIds, date, date, startTime, endTime);
+    }
+
+    /**
+     * Find bookings of the given parishioners that overlap the same time window on any date in a range
+     * @param from First date, inclusive
+     * @param to Last date, inclusive
+     */
+    public List<ConflictingEventDTO> findConflicts(Collection<Long> parishionerIds, LocalDate from, LocalDate to,
+                                                   LocalTime startTime, LocalTime endTime) {
+        Snapshot current = currentSnapshot();
+        boolean wholeDay = startTime == null || endTime == null;
+        List<ConflictingEventDTO> result = new ArrayList<>();
+
+        for (Long parishionerId : new LinkedHashSet<>(parishionerIds)) {
+            NavigableMap<LocalDate, DaySchedule> days = current.participants.get(parishionerId);
+            if (days != null) {
+                for (DaySchedule day : days.subMap(from, true, to, true).values()) {
+                    day.collect(wholeDay, startTime, endTime, result);
+                }
+            }
+            for (ConflictingEventDTO series : current.recurring.getOrDefault(parishionerId, List.of())) {
+                if (!wholeDay && !overlaps(series, startTime, endTime)) {
+                    continue;
+                }
+                for (LocalDate date : series.getRecurrence().occurrencesBetween(series.getEventDate(), from, to)) {
+                    result.add(series.occurrenceOn(date));
+                }
+            }
+        }
+        result.sort(RESULT_ORDER);
+        return result;
+    }
+
+    /**
+     * Whether a booking overlaps [startTime, endTime); bookings without times take the whole day
+     */
+    private static boolean overlaps(ConflictingEventDTO booking, LocalTime startTime, LocalTime endTime) {
+        if (booking.getStartTime() == null || booking.getEndTime() == null) {
+            return true;
+        }
+        return booking.getStartTime().isBefore(endTime) && booking.getEndTime().isAfter(startTime);
+    }
+
+    /**
+     * Queue a reindex of an event once the current transaction commits; outside a
+     * transaction it happens immediately. Rolled back changes are never indexed.
+     */
+    public void markChanged(Long eventId) {
+        if (eventId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshEvents(Set.of(eventId));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            pending.add(eventId);
+            return;
+        }
+        Set<Long> eventIds = new HashSet<>();
+        eventIds.add(eventId);
+        TransactionSynchronizationManager.bindResource(this, eventIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(EventIntervalIndex.this);
+                if (status == STATUS_COMMITTED) {
+                    refreshEvents(eventIds);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replace the indexed bookings of the given events with their current rows; deleted events drop out
+     */
+    private synchronized void refreshEvents(Set<Long> eventIds) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Not built yet; the first load will read the change from the database
+            return;
+        }
+        try {
+            List<ConflictingEventDTO> rows = eventParticipantRepository.findBookingsForEvents(eventIds);
+            for (Long eventId : eventIds) {
+                current.remove(eventId);
+            }
+            current.addAll(rows);
+            log.debug("Reindexed {} scheduled events ({} bookings)", eventIds.size(), rows.size());
+        } catch (RuntimeException e) {
+            // A partial update would hide conflicts; force a full reload on next use instead
+            log.error("Error reindexing scheduled events {}", eventIds, e);
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Return the index for the current registry version, loading it at most once per version
+     */
+    private Snapshot currentSnapshot() {
+        // Read the version before querying: a change during the load leaves the index behind
+        // the counter, so the next check reloads instead of serving stale names as current
+        long version = registryVersionService.currentVersion();
+        Snapshot current = snapshot;
+        if (current != null && current.version == version) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.version != version) {
+                current = new Snapshot(version);
+                List<ConflictingEventDTO> rows = eventParticipantRepository.findAllBookings();
+                current.addAll(rows);
+                snapshot = current;
+                log.debug("Indexed {} event bookings at registry version {}", rows.size(), version);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Index state for one registry version. Day schedules are immutable and replaced on change,
+     * so readers never need the lock; writers hold the index monitor.
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final Map<Long, NavigableMap<LocalDate, DaySchedule>> participants = new ConcurrentHashMap<>();
+        // Recurring bookings per participant, unexpanded; lists are immutable and replaced on change
+        private final Map<Long, List<ConflictingEventDTO>> recurring = new ConcurrentHashMap<>();
+        // Where each event is indexed, so an update or delete can find its old bookings
+        private final Map<Long, IndexedEvent> events = new HashMap<>();
+
+        private Snapshot(long version) {
+            this.version = version;
+        }
+
+        void addAll(List<ConflictingEventDTO> rows) {
+            Map<Long, Map<LocalDate, List<ConflictingEventDTO>>> added = new HashMap<>();
+            for (ConflictingEventDTO row : rows) {
+                boolean repeats = row.getRecurrence() != null;
+                if (repeats) {
+                    recurring.merge(row.getParishionerId(), List.of(row), Snapshot::concat);
+                } else {
+                    added.computeIfAbsent(row.getParishionerId(), id -> new HashMap<>())
+                            .computeIfAbsent(row.getEventDate(), date -> new ArrayList<>())
+                            .add(row);
+                }
+                events.computeIfAbsent(row.getEventId(), id -> new IndexedEvent(row.getEventDate(), repeats, new HashSet<>()))
+                        .participantIds().add(row.getParishionerId());
+            }
+            added.forEach((parishionerId, byDate) -> {
+                NavigableMap<LocalDate, DaySchedule> days =
+                        participants.computeIfAbsent(parishionerId, id -> new ConcurrentSkipListMap<>());
+                byDate.forEach((date, bookings) -> {
+                    DaySchedule existing = days.get(date);
+                    days.put(date, existing == null ? DaySchedule.of(bookings) : existing.with(bookings));
+                });
+            });
+        }
+
+        private static List<ConflictingEventDTO> concat(List<ConflictingEventDTO> a, List<ConflictingEventDTO> b) {
+            List<ConflictingEventDTO> all = new ArrayList<>(a.size() + b.size());
+            all.addAll(a);
+            all.addAll(b);
+            return List.copyOf(all);
+        }
+
+        void remove(Long eventId) {
+            IndexedEvent indexed = events.remove(eventId);
+            if (indexed == null) {
+                return;
+            }
+            if (indexed.recurring()) {
+                for (Long parishionerId : indexed.participantIds()) {
+                    recurring.computeIfPresent(parishionerId, (id, series) -> {
+                        List<ConflictingEventDTO> rest = series.stream()
+                                .filter(booking -> !booking.getEventId().equals(eventId))
+                                .toList();
+                        return rest.isEmpty() ? null : rest;
+                    });
+                }
+                return;
+            }
+            for (Long parishionerId : indexed.participantIds()) {
+                NavigableMap<LocalDate, DaySchedule> days = participants.get(parishionerId);
+                DaySchedule day = days != null ? days.get(indexed.date()) : null;
+                if (day == null) {
+                    continue;
+                }
+                DaySchedule remaining = day.without(eventId);
+                if (remaining == null) {
+                    days.remove(indexed.date());
+                } else {
+                    days.put(indexed.date(), remaining);
+                }
+            }
+        }
+    }
+
+    private record IndexedEvent(LocalDate date, boolean recurring, Set<Long> participantIds) {
+    }
+
+    /**
+     * One participant's bookings on one date
+     */
+    private static final class DaySchedule {
+        private static final Comparator<ConflictingEventDTO> BY_START = Comparator
+                .comparing(ConflictingEventDTO::getStartTime)
+                .thenComparing(ConflictingEventDTO::getEventId);
+
+        // Events missing a start or end time, which conflict with anything on the day
+        private final ConflictingEventDTO[] untimed;
+        // Timed events sorted by start
+        private final ConflictingEventDTO[] timed;
+        // reach[i] is the latest end time among timed[0..i]
+        private final LocalTime[] reach;
+
+        private DaySchedule(List<ConflictingEventDTO> bookings) {
+            List<ConflictingEventDTO> untimedList = new ArrayList<>();
+            List<ConflictingEventDTO> timedList = new ArrayList<>();
+            for (ConflictingEventDTO booking : bookings) {
+                if (booking.getStartTime() == null || booking.getEndTime() == null) {
+                    untimedList.add(booking);
+                } else {
+                    timedList.add(booking);
+                }
+            }
+            timedList.sort(BY_START);
+            untimed = untimedList.toArray(new ConflictingEventDTO[0]);
+            timed = timedList.toArray(new ConflictingEventDTO[0]);
+            reach = new LocalTime[timed.length];
+            for (int i = 0; i < timed.length; i++) {
+                LocalTime end = timed[i].getEndTime();
+                reach[i] = i > 0 && reach[i - 1].isAfter(end) ? reach[i - 1] : end;
+            }
+        }
+
+        static DaySchedule of(List<ConflictingEventDTO> bookings) {
+            return new DaySchedule(bookings);
+        }
+
+        DaySchedule with(List<ConflictingEventDTO> added) {
+            List<ConflictingEventDTO> all = new ArrayList<>(Arrays.asList(untimed));
+            all.addAll(Arrays.asList(timed));
+            all.addAll(added);
+            return new DaySchedule(all);
+        }
+
+        /**
+         * This day without the given event, or null if nothing is left
+         */
+        DaySchedule without(Long eventId) {
+            List<ConflictingEventDTO> rest = new ArrayList<>(untimed.length + timed.length);
+            for (ConflictingEventDTO booking : untimed) {
+                if (!booking.getEventId().equals(eventId)) {
+                    rest.add(booking);
+                }
+            }
+            for (ConflictingEventDTO booking : timed) {
+                if (!booking.getEventId().equals(eventId)) {
+                    rest.add(booking);
+                }
+            }
+            return rest.isEmpty() ? null : new DaySchedule(rest);
+        }
+
+        /**
+         * Add the bookings overlapping [startTime, endTime), untimed ones first, then by start time
+         */
+        void collect(boolean wholeDay, LocalTime startTime, LocalTime endTime, List<ConflictingEventDTO> out) {
+            out.addAll(Arrays.asList(untimed));
+            if (wholeDay) {
+                out.addAll(Arrays.asList(timed));
+                return;
+            }
+            int mark = out.size();
+            // Walk back from the last event starting before the window ends while one can still reach into it
+            for (int i = firstStartingAtOrAfter(endTime) - 1; i >= 0 && reach[i].isAfter(startTime); i--) {
+                if (timed[i].getEndTime().isAfter(startTime)) {
+                    out.add(timed[i]);
+                }
+            }
+            Collections.reverse(out.subList(mark, out.size()));
+        }
+
+        private int firstStartingAtOrAfter(LocalTime time) {
+            int low = 0;
+            int high = timed.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timed[mid].getStartTime().isBefore(time)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
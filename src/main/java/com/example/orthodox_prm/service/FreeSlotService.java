@@ -0,0 +1,175 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.ConflictingEventDTO;
+import com.example.orthodox_prm.dto.FreeSlotDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds the earliest times at which a group of participants are all free.
+ * Busy intervals of every participant (from the {@link EventIntervalIndex}) and, optionally,
+ * the user's Google Calendar are laid on one minute timeline, sorted by start, and swept once
+ * alongside the allowed hours of each day, so the cost is a sort of the busy intervals plus
+ * one pass over the window.
+ */
+@Service
+@Slf4j
+public class FreeSlotService {
+
+    public static final int MAX_SLOTS = 50;
+    public static final int MAX_WINDOW_DAYS = 731;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // Slots start on the half hour, matching the event form's time picker
+    private static final int SLOT_STEP_MINUTES = 30;
+
+    private final EventIntervalIndex eventIntervalIndex;
+    private final GoogleCalendarService googleCalendarService;
+
+    public FreeSlotService(EventIntervalIndex eventIntervalIndex, GoogleCalendarService googleCalendarService) {
+        this.eventIntervalIndex = eventIntervalIndex;
+        this.googleCalendarService = googleCalendarService;
+    }
+
+    /**
+     * Find the earliest open slots for all participants, at most one per free gap
+     * @param parishionerIds Participants who must all be free
+     * @param duration Length of the event
+     * @param from First date to search, inclusive
+     * @param to Last date to search, inclusive
+     * @param earliest Earliest allowed start time on each day
+     * @param latest Latest allowed end time on each day
+     * @param limit Maximum number of slots to return
+     * @param includeGoogleCalendar Also treat busy times in the user's Google Calendar as taken
+     * @return Slots in chronological order
+     */
+    public List<FreeSlotDTO> findFreeSlots(Collection<Long> parishionerIds, Duration duration,
+                                           LocalDate from, LocalDate to, LocalTime earliest, LocalTime latest,
+                                           int limit, boolean includeGoogleCalendar) {
+        int durationMinutes = (int) duration.toMinutes();
+        int earliestMinute = earliest.toSecondOfDay() / 60;
+        int latestMinute = latest.toSecondOfDay() / 60;
+
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Search window ends before it starts");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_WINDOW_DAYS) {
+            throw new IllegalArgumentException("Search window cannot exceed " + MAX_WINDOW_DAYS + " days");
+        }
+        if (latestMinute - earliestMinute < durationMinutes) {
+            throw new IllegalArgumentException("Allowed hours are shorter than the event");
+        }
+
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        long[] busy = collectBusyIntervals(parishionerIds, from, to, days, includeGoogleCalendar);
+        Arrays.sort(busy);
+
+        List<FreeSlotDTO> slots = new ArrayList<>();
+        int maxSlots = Math.max(1, Math.min(limit, MAX_SLOTS));
+        int cursor = 0;
+        // Latest end among the busy intervals swept so far
+        int busyUntil = 0;
+
+        for (int day = 0; day < days && slots.size() < maxSlots; day++) {
+            int windowStart = day * MINUTES_PER_DAY + earliestMinute;
+            int windowEnd = day * MINUTES_PER_DAY + latestMinute;
+            int candidate = windowStart;
+
+            while (true) {
+                candidate = roundUpToStep(Math.max(candidate, busyUntil));
+                if (candidate + durationMinutes > windowEnd) {
+                    break;
+                }
+                // A busy interval starting before the slot would end may block it: absorb it and retry
+                if (cursor < busy.length && startOf(busy[cursor]) < candidate + durationMinutes) {
+                    busyUntil = Math.max(busyUntil, endOf(busy[cursor]));
+                    cursor++;
+                    continue;
+                }
+                slots.add(toSlot(from, candidate, durationMinutes));
+                if (slots.size() >= maxSlots) {
+                    break;
+                }
+                // One slot per gap: continue from the next busy interval
+                candidate = cursor < busy.length ? startOf(busy[cursor]) : windowEnd;
+            }
+        }
+
+        log.debug("Found {} free slots for {} participants over {} days ({} busy intervals)",
+                slots.size(), parishionerIds.size(), days, busy.length);
+        return slots;
+    }
+
+    /**
+     * Busy intervals as minutes from the start of the window, packed as (start << 32 | end)
+     * so they sort by start as plain longs
+     */
+    private long[] collectBusyIntervals(Collection<Long> parishionerIds, LocalDate from, LocalDate to,
+                                        int days, boolean includeGoogleCalendar) {
+        List<ConflictingEventDTO> bookings = eventIntervalIndex.findConflicts(parishionerIds, from, to, null, null);
+        List<GoogleCalendarService.BusyPeriod> googleBusy = includeGoogleCalendar
+                ? googleCalendarService.findBusyPeriods(from, to)
+                : List.of();
+
+        long[] busy = new long[bookings.size() + googleBusy.size()];
+        int count = 0;
+        for (ConflictingEventDTO booking : bookings) {
+            int dayStart = (int) ChronoUnit.DAYS.between(from, booking.getEventDate()) * MINUTES_PER_DAY;
+            if (booking.getStartTime() == null || booking.getEndTime() == null) {
+                // Events without times block the whole day, as in conflict checks
+                busy[count++] = pack(dayStart, dayStart + MINUTES_PER_DAY);
+                continue;
+            }
+            int start = dayStart + booking.getStartTime().toSecondOfDay() / 60;
+            int end = dayStart + booking.getEndTime().toSecondOfDay() / 60;
+            // An end at or before the start (e.g. 23:30 - 00:00) runs to midnight
+            busy[count++] = pack(start, end > start ? end : dayStart + MINUTES_PER_DAY);
+        }
+
+        LocalDateTime windowStart = from.atStartOfDay();
+        int windowMinutes = days * MINUTES_PER_DAY;
+        for (GoogleCalendarService.BusyPeriod period : googleBusy) {
+            long start = Math.max(0, ChronoUnit.MINUTES.between(windowStart, period.start()));
+            long end = Math.min(windowMinutes, ChronoUnit.MINUTES.between(windowStart, period.end()));
+            if (end > start) {
+                busy[count++] = pack((int) start, (int) end);
+            }
+        }
+        return count == busy.length ? busy : Arrays.copyOf(busy, count);
+    }
+
+    private static FreeSlotDTO toSlot(LocalDate from, int minute, int durationMinutes) {
+        LocalDate date = from.plusDays(minute / MINUTES_PER_DAY);
+        LocalTime start = LocalTime.ofSecondOfDay((minute % MINUTES_PER_DAY) * 60L);
+        return new FreeSlotDTO(date, start, start.plusMinutes(durationMinutes));
+    }
+
+    private static int roundUpToStep(int minute) {
+        return (minute + SLOT_STEP_MINUTES - 1) / SLOT_STEP_MINUTES * SLOT_STEP_MINUTES;
+    }
+
+    private static long pack(int start, int end) {
+        return ((long) start << 32) | end;
+    }
+
+    private static int startOf(long interval) {
+        return (int) (interval >>> 32);
+    }
+
+    private static int endOf(long interval) {
+        return (int) interval;
+    }
+}
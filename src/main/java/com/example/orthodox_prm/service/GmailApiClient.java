@@ -0,0 +1,280 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.util.StreamingMimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Low-level Gmail send calls. Small messages go to the messages.send endpoint as a
+ * streamed base64url JSON body; messages above the resumable threshold (typically those
+ * with large attachments) use Gmail's resumable media upload, sent in fixed-size chunks
+ * so at most one chunk is held in memory. The base URL is configurable so the client
+ * can be pointed at a local stub server.
+ */
+@Service
+@Slf4j
+public class GmailApiClient {
+
+    private static final String SEND_PATH = "/gmail/v1/users/me/messages/send";
+    private static final String UPLOAD_PATH = "/upload/gmail/v1/users/me/messages/send?uploadType=resumable";
+
+    // Resumable upload chunks must be multiples of 256 KiB (except the last one)
+    private static final int UPLOAD_GRANULARITY = 256 * 1024;
+    private static final int MAX_CHUNK_ATTEMPTS = 4;
+    private static final long RETRY_BACKOFF_MILLIS = 500;
+    private static final int RESUME_INCOMPLETE = 308;
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final long resumableThreshold;
+    private final int chunkSize;
+
+    public GmailApiClient(RestTemplate restTemplate,
+                          @Value("${gmail.api.base-url:https://gmail.googleapis.com}") String baseUrl,
+                          @Value("${gmail.upload.resumable-threshold:5MB}") DataSize resumableThreshold,
+                          @Value("${gmail.upload.chunk-size:1MB}") DataSize chunkSize) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.resumableThreshold = resumableThreshold.toBytes();
+        long granules = Math.max(1, (chunkSize.toBytes() + UPLOAD_GRANULARITY - 1) / UPLOAD_GRANULARITY);
+        this.chunkSize = (int) Math.min(granules * UPLOAD_GRANULARITY, 64L * 1024 * 1024);
+    }
+
+    /**
+     * Send a message, choosing the simple or resumable upload by its encoded size
+     */
+    public void send(String accessToken, StreamingMimeMessage message) throws IOException {
+        long rawLength = message.rawLength();
+        if (rawLength > resumableThreshold) {
+            sendResumable(accessToken, message, rawLength);
+        } else {
+            sendSimple(accessToken, message);
+        }
+        log.info("Email sent successfully via Gmail API");
+    }
+
+    /**
+     * Send to Gmail API.
+     * The JSON payload is streamed into the request body with a precomputed Content-Length,
+     * so the message is never materialized as a string, byte array or base64 copy.
+     */
+    private void sendSimple(String accessToken, StreamingMimeMessage message) {
+        restTemplate.execute(baseUrl + SEND_PATH, HttpMethod.POST, request -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setBearerAuth(accessToken);
+            headers.setContentLength(message.gmailJsonLength());
+            writeBody(request, message::writeGmailJson);
+        }, response -> null);
+    }
+
+    /**
+     * Upload the raw message through a resumable session, one chunk at a time
+     */
+    private void sendResumable(String accessToken, StreamingMimeMessage message, long rawLength) throws IOException {
+        URI session = startUploadSession(accessToken, rawLength);
+        log.debug("Started resumable Gmail upload of {} bytes in {} byte chunks", rawLength, chunkSize);
+
+        ResumableUploadStream upload = new ResumableUploadStream(session, rawLength);
+        message.writeRaw(upload);
+        // Not close(): if writing failed part-way the session is simply abandoned
+        upload.finish();
+    }
+
+    private URI startUploadSession(String accessToken, long rawLength) {
+        byte[] metadata = "{}".getBytes(StandardCharsets.UTF_8);
+        URI session = restTemplate.execute(baseUrl + UPLOAD_PATH, HttpMethod.POST, request -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setBearerAuth(accessToken);
+            headers.set("X-Upload-Content-Type", "message/rfc822");
+            headers.set("X-Upload-Content-Length", Long.toString(rawLength));
+            headers.setContentLength(metadata.length);
+            writeBody(request, out -> out.write(metadata));
+        }, response -> response.getHeaders().getLocation());
+
+        if (session == null) {
+            throw new RestClientException("Gmail did not return a resumable upload session");
+        }
+        return session;
+    }
+
+    private static void writeBody(ClientHttpRequest request, StreamingHttpOutputMessage.Body body) throws IOException {
+        // Streaming requests write straight to the connection instead of buffering the body first
+        if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+            streamingRequest.setBody(body);
+        } else {
+            body.writeTo(request.getBody());
+        }
+    }
+
+    /**
+     * Collects the message into one chunk-sized buffer and PUTs each full buffer to the
+     * upload session with its Content-Range. A failed chunk is retried after asking the
+     * session how many bytes it already has, which is always within the buffered chunk.
+     * The upload fails if the session accepts none of the buffered bytes several rounds running.
+     */
+    private final class ResumableUploadStream extends OutputStream {
+
+        private final URI session;
+        private final long total;
+        private final byte[] buffer = new byte[chunkSize];
+        private int buffered;
+        // Offset in the message of buffer[0]
+        private long offset;
+        // Consecutive rounds in which the session kept none of the buffered bytes
+        private int stalledRounds;
+
+        private ResumableUploadStream(URI session, long total) {
+            this.session = session;
+            this.total = total;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (buffered == buffer.length) {
+                uploadBuffer();
+            }
+            buffer[buffered++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buffered == buffer.length) {
+                    uploadBuffer();
+                }
+                int n = Math.min(len, buffer.length - buffered);
+                System.arraycopy(b, off, buffer, buffered, n);
+                buffered += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * Upload the remaining bytes as the final chunk
+         */
+        void finish() throws IOException {
+            if (offset + buffered != total) {
+                throw new IOException("Message length " + (offset + buffered) + " does not match declared " + total);
+            }
+            // The server may keep only part of a chunk, so loop until it has everything
+            while (buffered > 0) {
+                uploadBuffer();
+            }
+        }
+
+        private void uploadBuffer() {
+            long before = offset;
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    if (attempt > 1) {
+                        advanceTo(queryCommitted());
+                    }
+                    if (buffered > 0) {
+                        advanceTo(putChunk());
+                    }
+                    break;
+                } catch (HttpServerErrorException | ResourceAccessException e) {
+                    if (attempt >= MAX_CHUNK_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.warn("Gmail upload chunk at offset {} failed (attempt {}): {}", offset, attempt, e.getMessage());
+                    backOff(attempt);
+                }
+            }
+
+            // Callers loop until the buffer drains, so a session that never moves on must end the upload
+            if (offset > before || buffered == 0) {
+                stalledRounds = 0;
+                return;
+            }
+            stalledRounds++;
+            if (stalledRounds >= MAX_CHUNK_ATTEMPTS) {
+                throw new RestClientException("Gmail upload session made no progress at byte " + offset +
+                        " after " + stalledRounds + " attempts");
+            }
+            log.warn("Gmail upload session kept none of the chunk at offset {} (attempt {})", offset, stalledRounds);
+            backOff(stalledRounds);
+        }
+
+        /**
+         * PUT the buffered bytes and return how many bytes of the message the server now has
+         */
+        private long putChunk() {
+            long end = offset + buffered - 1;
+            return restTemplate.execute(session, HttpMethod.PUT, request -> {
+                HttpHeaders headers = request.getHeaders();
+                headers.setContentLength(buffered);
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + end + "/" + total);
+                writeBody(request, out -> out.write(buffer, 0, buffered));
+            }, response -> response.getStatusCode().value() == RESUME_INCOMPLETE
+                    ? committedBytes(response.getHeaders())
+                    : total);
+        }
+
+        /**
+         * Ask the session how many bytes of the message it has received so far
+         */
+        private long queryCommitted() {
+            return restTemplate.execute(session, HttpMethod.PUT, request -> {
+                request.getHeaders().setContentLength(0);
+                request.getHeaders().set(HttpHeaders.CONTENT_RANGE, "bytes */" + total);
+            }, response -> response.getStatusCode().value() == RESUME_INCOMPLETE
+                    ? committedBytes(response.getHeaders())
+                    : total);
+        }
+
+        /**
+         * Drop the bytes the server has confirmed and move the rest to the front of the buffer
+         */
+        private void advanceTo(long committed) {
+            if (committed < offset || committed > offset + buffered) {
+                throw new RestClientException("Gmail upload session is at byte " + committed +
+                        ", outside the buffered chunk at " + offset);
+            }
+            int accepted = (int) (committed - offset);
+            System.arraycopy(buffer, accepted, buffer, 0, buffered - accepted);
+            buffered -= accepted;
+            offset = committed;
+        }
+
+        private void backOff(int attempt) {
+            try {
+                Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RestClientException("Interrupted while retrying Gmail upload", e);
+            }
+        }
+    }
+
+    /**
+     * Parse the Range header of a 308 response ("bytes=0-N"); no header means nothing was stored
+     */
+    private static long committedBytes(HttpHeaders headers) {
+        String range = headers.getFirst(HttpHeaders.RANGE);
+        if (range == null) {
+            return 0;
+        }
+        int dash = range.lastIndexOf('-');
+        return Long.parseLong(range.substring(dash + 1).trim()) + 1;
+    }
+}
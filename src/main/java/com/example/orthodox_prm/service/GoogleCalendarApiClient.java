@@ -0,0 +1,288 @@
+package com.example.orthodox_prm.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+/**
+ * Low-level Google Calendar events.list calls, shared by the calendar cache and the importer.
+ * Listing uses singleEvents=true, so recurring events arrive as their individual instances,
+ * and showDeleted=true, so incremental listings report cancellations. Responses are read
+ * with a streaming parser that keeps only the fields the app uses, so a long calendar is
+ * never built up as a JSON tree. The base URL is configurable so the client can be pointed
+ * at a local stub server.
+ */
+@Service
+@Slf4j
+public class GoogleCalendarApiClient {
+
+    private static final String EVENTS_PATH = "/calendar/v3/calendars/primary/events";
+    private static final int PAGE_SIZE = 2500;
+
+    private final RestTemplate restTemplate;
+    private final JsonFactory jsonFactory;
+    private final String baseUrl;
+
+    public GoogleCalendarApiClient(RestTemplate restTemplate,
+                                   ObjectMapper objectMapper,
+                                   @Value("${google.calendar.api.base-url:https://www.googleapis.com}") String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.jsonFactory = objectMapper.getFactory();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * Page through the user's primary calendar, handing every event item to the consumer.
+     * A full listing is bounded by the time window, so a recurring event without an end
+     * yields only the instances inside it; Google rejects a window on incremental listings,
+     * which report changes to any event.
+     * @param syncToken Token from the previous listing, or null to list the calendar
+     * @param timeMin Events ending after this are listed; ignored with a sync token
+     * @param timeMax Events starting before this are listed; ignored with a sync token
+     * @return The sync token for the next incremental listing
+     * @throws org.springframework.web.client.HttpClientErrorException with status 410 when Google
+     *         expired the sync token; the caller must list the whole calendar again
+     */
+    public String listEvents(String accessToken, String syncToken, Instant timeMin, Instant timeMax,
+                             Consumer<CalendarItem> onItem) {
+        String pageToken = null;
+        while (true) {
+            UriComponentsBuilder uri = UriComponentsBuilder.fromUriString(baseUrl + EVENTS_PATH)
+                    .queryParam("singleEvents", "true")
+                    .queryParam("showDeleted", "true")
+                    .queryParam("maxResults", PAGE_SIZE);
+            if (syncToken != null) {
+                uri.queryParam("syncToken", syncToken);
+            } else {
+                // UTC with "Z", so no "+" offset needs encoding in the query
+                if (timeMin != null) {
+                    uri.queryParam("timeMin", timeMin.toString());
+                }
+                if (timeMax != null) {
+                    uri.queryParam("timeMax", timeMax.toString());
+                }
+            }
+            if (pageToken != null) {
+                uri.queryParam("pageToken", pageToken);
+            }
+
+            // Items are parsed straight off the response stream; the page is never held whole
+            Page page = restTemplate.execute(uri.encode().build().toUri(), HttpMethod.GET,
+                    request -> request.getHeaders().setBearerAuth(accessToken),
+                    response -> {
+                        try (JsonParser parser = jsonFactory.createParser(response.getBody())) {
+                            return readPage(parser, onItem);
+                        }
+                    });
+            if (page == null) {
+                throw new IllegalStateException("Empty Google Calendar response");
+            }
+
+            pageToken = page.nextPageToken();
+            if (pageToken == null) {
+                return page.nextSyncToken();
+            }
+        }
+    }
+
+    /**
+     * Read one events.list page, keeping only the fields the app uses
+     */
+    static Page readPage(JsonParser parser, Consumer<CalendarItem> onItem) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected an events.list object");
+        }
+        String nextPageToken = null;
+        String nextSyncToken = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "items" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            CalendarItem item = readItem(parser);
+                            if (item.id() != null) {
+                                onItem.accept(item);
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "nextPageToken" -> nextPageToken = textOrNull(parser);
+                case "nextSyncToken" -> nextSyncToken = textOrNull(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new Page(nextPageToken, nextSyncToken);
+    }
+
+    private static CalendarItem readItem(JsonParser parser) throws IOException {
+        String id = null;
+        String status = null;
+        String summary = null;
+        String description = null;
+        boolean transparent = false;
+        ItemTime start = null;
+        ItemTime end = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = textOrNull(parser);
+                case "status" -> status = textOrNull(parser);
+                case "summary" -> summary = textOrNull(parser);
+                case "description" -> description = textOrNull(parser);
+                case "transparency" -> transparent = "transparent".equals(textOrNull(parser));
+                case "start" -> start = readTime(parser);
+                case "end" -> end = readTime(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new CalendarItem(id, "cancelled".equals(status), summary, description, !transparent, start, end);
+    }
+
+    private static ItemTime readTime(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        OffsetDateTime dateTime = null;
+        LocalDate date = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "dateTime" -> dateTime = readDateTime(parser);
+                case "date" -> date = readDate(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return dateTime == null && date == null ? null : new ItemTime(dateTime, date);
+    }
+
+    /**
+     * Parse an RFC 3339 timestamp ("2026-10-19T10:00:00-04:00", optionally with fractional
+     * seconds or "Z") from the parser's buffer without creating a string. Anything else
+     * goes through the full ISO parser.
+     */
+    private static OffsetDateTime readDateTime(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        char[] c = parser.getTextCharacters();
+        int o = parser.getTextOffset();
+        int len = parser.getTextLength();
+        if (len >= 20 && c[o + 4] == '-' && c[o + 7] == '-' && c[o + 10] == 'T' && c[o + 13] == ':' && c[o + 16] == ':') {
+            int i = o + 19;
+            int end = o + len;
+            int nanos = 0;
+            if (c[i] == '.') {
+                int scale = 100_000_000;
+                for (i++; i < end && c[i] >= '0' && c[i] <= '9'; i++) {
+                    nanos += (c[i] - '0') * scale;
+                    scale /= 10;
+                }
+            }
+            ZoneOffset offset = null;
+            if (i == end - 1 && (c[i] == 'Z' || c[i] == 'z')) {
+                offset = ZoneOffset.UTC;
+            } else if (i == end - 6 && (c[i] == '+' || c[i] == '-') && c[i + 3] == ':') {
+                int hours = digits(c, i + 1, 2);
+                int minutes = digits(c, i + 4, 2);
+                if (hours >= 0 && minutes >= 0) {
+                    offset = c[i] == '-' ? ZoneOffset.ofHoursMinutes(-hours, -minutes) : ZoneOffset.ofHoursMinutes(hours, minutes);
+                }
+            }
+            int year = digits(c, o, 4);
+            int month = digits(c, o + 5, 2);
+            int day = digits(c, o + 8, 2);
+            int hour = digits(c, o + 11, 2);
+            int minute = digits(c, o + 14, 2);
+            int second = digits(c, o + 17, 2);
+            if (offset != null && year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                return OffsetDateTime.of(year, month, day, hour, minute, second, nanos, offset);
+            }
+        }
+        return OffsetDateTime.parse(parser.getText());
+    }
+
+    /**
+     * Parse an ISO date ("2026-10-19") from the parser's buffer
+     */
+    private static LocalDate readDate(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        char[] c = parser.getTextCharacters();
+        int o = parser.getTextOffset();
+        if (parser.getTextLength() == 10 && c[o + 4] == '-' && c[o + 7] == '-') {
+            int year = digits(c, o, 4);
+            int month = digits(c, o + 5, 2);
+            int day = digits(c, o + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(parser.getText());
+    }
+
+    /**
+     * The decimal value of count digits, or -1 if any is not a digit
+     */
+    private static int digits(char[] c, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            if (c[i] < '0' || c[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (c[i] - '0');
+        }
+        return value;
+    }
+
+    private static String textOrNull(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * The fields of an events.list item the app uses
+     * @param cancelled True for deleted events, which incremental listings report by id only
+     * @param busy False for events marked "free" (transparent)
+     */
+    public record CalendarItem(String id, boolean cancelled, String summary, String description, boolean busy,
+                               ItemTime start, ItemTime end) {
+    }
+
+    /**
+     * Start or end of an item: a dateTime for timed events, a date for all-day events
+     */
+    public record ItemTime(OffsetDateTime dateTime, LocalDate date) {
+    }
+
+    record Page(String nextPageToken, String nextSyncToken) {
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.orthodox_prm.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local copy of each signed-in user's primary Google Calendar, bucketed by day in the
+ * user's timezone. The first read does a full listing; after that the calendar is kept
+ * current by incremental sync (Google's nextSyncToken), which returns only events that
+ * changed or were deleted since the last sync. A background thread refreshes every
+ * active user's calendar, so conflict checks and free-slot searches read from memory.
+ * Users who stop using the calendar features are dropped after the idle timeout, and
+ * users whose Google authorization expired and cannot be renewed are dropped at once, so
+ * a stale copy is never served as current.
+ */
+@Service
+@Slf4j
+public class GoogleCalendarCache {
+
+    // Events are kept from a month back to two years ahead; a multi-day event is listed on at most this many days
+    private static final int PAST_DAYS = 31;
+    private static final int FUTURE_DAYS = 731;
+    private static final int MAX_EVENT_DAYS = 31;
+
+    private final GoogleCalendarApiClient googleCalendarApiClient;
+    private final GoogleTokenService googleTokenService;
+    private final Duration refreshInterval;
+    private final Duration fullResyncInterval;
+    private final Duration idleTimeout;
+
+    private final Map<String, UserCalendar> calendars = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refresher;
+
+    public GoogleCalendarCache(GoogleCalendarApiClient googleCalendarApiClient,
+                               GoogleTokenService googleTokenService,
+                               @Value("${google.calendar.refresh-interval:2m}") Duration refreshInterval,
+                               @Value("${google.calendar.full-resync-interval:24h}") Duration fullResyncInterval,
+                               @Value("${google.calendar.idle-timeout:30m}") Duration idleTimeout) {
+        this.googleCalendarApiClient = googleCalendarApiClient;
+        this.googleTokenService = googleTokenService;
+        this.refreshInterval = refreshInterval;
+        this.fullResyncInterval = fullResyncInterval;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @PostConstruct
+    void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("google-calendar-sync").daemon().factory());
+        long period = Math.max(1, refreshInterval.toSeconds());
+        refresher.scheduleWithFixedDelay(this::refreshAll, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Events of a user's calendar that touch any day in a range. The first call for a user
+     * lists the calendar synchronously; later calls are answered from memory.
+     * @param principalName OAuth2 principal name the Google authorization is stored under
+     * @param zoneId The user's timezone, used to place events on days
+     * @param from First date, inclusive
+     * @param to Last date, inclusive
+     * @return Events in start order; empty if the calendar cannot be read, e.g. the user must sign in with Google again
+     */
+    public List<CalendarEntry> eventsBetween(String principalName, ZoneId zoneId, LocalDate from, LocalDate to) {
+        UserCalendar calendar = calendars.computeIfAbsent(principalName, UserCalendar::new);
+        calendar.lastUsedMillis = System.currentTimeMillis();
+
+        if (!zoneId.equals(calendar.zoneId) || calendar.data == null) {
+            synchronized (calendar) {
+                if (!zoneId.equals(calendar.zoneId)) {
+                    calendar.zoneId = zoneId;
+                    if (calendar.data != null) {
+                        calendar.data = calendar.data.inZone(zoneId);
+                    }
+                }
+                if (calendar.data == null) {
+                    sync(calendar);
+                }
+            }
+        }
+
+        CalendarData data = calendar.data;
+        if (data == null) {
+            return List.of();
+        }
+        Map<String, CalendarEntry> unique = new LinkedHashMap<>();
+        for (Map<String, CalendarEntry> day : data.days.subMap(from, true, to, true).values()) {
+            day.values().forEach(entry -> unique.putIfAbsent(entry.id(), entry));
+        }
+        List<CalendarEntry> entries = new ArrayList<>(unique.values());
+        entries.sort((a, b) -> a.start().compareTo(b.start()));
+        return entries;
+    }
+
+    /**
+     * Fetch a user's changes in the background soon, e.g. after the app created an event
+     */
+    public void requestRefresh(String principalName) {
+        UserCalendar calendar = calendars.get(principalName);
+        if (calendar != null) {
+            refresher.execute(() -> refresh(calendar));
+        }
+    }
+
+    private void refreshAll() {
+        long now = System.currentTimeMillis();
+        calendars.values().removeIf(calendar -> now - calendar.lastUsedMillis > idleTimeout.toMillis());
+        for (UserCalendar calendar : calendars.values()) {
+            refresh(calendar);
+        }
+    }
+
+    private void refresh(UserCalendar calendar) {
+        try {
+            synchronized (calendar) {
+                if (calendar.zoneId != null) {
+                    sync(calendar);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Background Google Calendar sync failed for {}: {}", calendar.principalName, e.getMessage());
+        }
+    }
+
+    /**
+     * Bring a calendar up to date: incrementally when there is a sync token, otherwise (or
+     * when Google expired the token, or the periodic full resync is due) by listing everything.
+     * Caller holds the calendar's monitor.
+     */
+    private void sync(UserCalendar calendar) {
+        String accessToken;
+        try {
+            accessToken = googleTokenService.getAccessToken(calendar.principalName);
+        } catch (GoogleTokenService.AuthorizationRequiredException e) {
+            // The copy can no longer be kept current; drop it rather than answer from it
+            calendars.remove(calendar.principalName, calendar);
+            calendar.data = null;
+            calendar.syncToken = null;
+            log.info("Dropped cached Google Calendar of {}: {}", calendar.principalName, e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean full = calendar.data == null || calendar.syncToken == null
+                || now - calendar.lastFullSyncMillis > fullResyncInterval.toMillis();
+        try {
+            if (!full) {
+                calendar.syncToken = fetchChanges(calendar.principalName, accessToken, calendar.syncToken, calendar.data);
+                return;
+            }
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.GONE) {
+                throw e;
+            }
+            log.info("Google Calendar sync token expired for {}; listing the calendar again", calendar.principalName);
+        }
+
+        CalendarData fresh = new CalendarData(calendar.zoneId, LocalDate.now(calendar.zoneId));
+        String syncToken = fetchChanges(calendar.principalName, accessToken, null, fresh);
+        calendar.data = fresh;
+        calendar.syncToken = syncToken;
+        calendar.lastFullSyncMillis = now;
+        log.debug("Listed {} Google Calendar events for {}", fresh.events.size(), calendar.principalName);
+    }
+
+    /**
+     * Apply every listed item to the data
+     * @param syncToken Token from the previous sync, or null to list the whole calendar
+     * @return The sync token for the next incremental sync
+     */
+    private String fetchChanges(String principalName, String accessToken, String syncToken, CalendarData data) {
+        int[] changed = {0};
+        String nextSyncToken;
+        try {
+            nextSyncToken = googleCalendarApiClient.listEvents(accessToken, syncToken,
+                    data.firstDay.atStartOfDay(data.zoneId).toInstant(),
+                    data.lastDay.plusDays(1).atStartOfDay(data.zoneId).toInstant(),
+                    item -> {
+                        data.apply(item);
+                        changed[0]++;
+                    });
+        } catch (HttpClientErrorException.Unauthorized e) {
+            // Renewed on the next sync instead of being reused
+            googleTokenService.rejectAccessToken(principalName, accessToken);
+            throw e;
+        }
+        if (syncToken != null && changed[0] > 0) {
+            log.debug("Applied {} changed Google Calendar events", changed[0]);
+        }
+        return nextSyncToken;
+    }
+
+    /**
+     * An event as it appears in the user's timezone
+     * @param allDay True for date-only events; start and end are then midnights, end exclusive
+     * @param busy False for events marked "free" (transparent) in Google Calendar
+     */
+    public record CalendarEntry(String id, String summary, LocalDateTime start, LocalDateTime end,
+                                boolean allDay, boolean busy) {
+    }
+
+    private static final class UserCalendar {
+        private final String principalName;
+        private volatile ZoneId zoneId;
+        private volatile CalendarData data;
+        private String syncToken;
+        private long lastFullSyncMillis;
+        private volatile long lastUsedMillis;
+
+        private UserCalendar(String principalName) {
+            this.principalName = principalName;
+        }
+    }
+
+    /**
+     * Events by id plus a per-day listing. Updates run under the owning calendar's monitor;
+     * readers use the concurrent maps without locking.
+     */
+    private static final class CalendarData {
+        private final ZoneId zoneId;
+        private final LocalDate firstDay;
+        private final LocalDate lastDay;
+        private final Map<String, StoredEvent> events = new ConcurrentHashMap<>();
+        private final NavigableMap<LocalDate, Map<String, CalendarEntry>> days = new ConcurrentSkipListMap<>();
+
+        private CalendarData(ZoneId zoneId, LocalDate today) {
+            this.zoneId = zoneId;
+            this.firstDay = today.minusDays(PAST_DAYS);
+            this.lastDay = today.plusDays(FUTURE_DAYS);
+        }
+
+        /**
+         * Apply one item from events.list: cancelled events are removed, others inserted or replaced
+         */
+        void apply(GoogleCalendarApiClient.CalendarItem item) {
+            remove(item.id());
+            if (item.cancelled()) {
+                return;
+            }
+            StoredEvent event = StoredEvent.parse(item);
+            if (event != null) {
+                add(event);
+            }
+        }
+
+        /**
+         * The same events placed on days of another timezone
+         */
+        CalendarData inZone(ZoneId newZone) {
+            CalendarData moved = new CalendarData(newZone, LocalDate.now(newZone));
+            events.values().forEach(moved::add);
+            return moved;
+        }
+
+        private void add(StoredEvent event) {
+            CalendarEntry entry = event.toEntry(zoneId);
+            List<LocalDate> listedOn = daysOf(entry);
+            if (listedOn.isEmpty()) {
+                return;
+            }
+            events.put(event.id(), event);
+            for (LocalDate day : listedOn) {
+                days.computeIfAbsent(day, d -> new ConcurrentHashMap<>()).put(event.id(), entry);
+            }
+        }
+
+        private void remove(String id) {
+            StoredEvent old = events.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (LocalDate day : daysOf(old.toEntry(zoneId))) {
+                Map<String, CalendarEntry> listing = days.get(day);
+                if (listing != null) {
+                    listing.remove(id);
+                    if (listing.isEmpty()) {
+                        days.remove(day);
+                    }
+                }
+            }
+        }
+
+        /**
+         * The days inside the cached range that an event is listed on
+         */
+        private List<LocalDate> daysOf(CalendarEntry entry) {
+            LocalDate first = entry.start().toLocalDate();
+            // The end is exclusive: an event ending at midnight does not touch the next day
+            LocalDate last = entry.end().minusNanos(1).toLocalDate();
+            if (last.isBefore(first)) {
+                last = first;
+            }
+            List<LocalDate> listedOn = new ArrayList<>();
+            LocalDate day = first.isBefore(firstDay) ? firstDay : first;
+            while (listedOn.size() < MAX_EVENT_DAYS && !day.isAfter(last) && !day.isAfter(lastDay)) {
+                listedOn.add(day);
+                day = day.plusDays(1);
+            }
+            return listedOn;
+        }
+    }
+
+    /**
+     * Timezone-independent form of an event: timed events as offsets, all-day events as dates
+     */
+    private record StoredEvent(String id, String summary, OffsetDateTime start, OffsetDateTime end,
+                               LocalDate startDate, LocalDate endDate, boolean busy) {
+
+        static StoredEvent parse(GoogleCalendarApiClient.CalendarItem item) {
+            GoogleCalendarApiClient.ItemTime start = item.start();
+            GoogleCalendarApiClient.ItemTime end = item.end();
+            String summary = item.summary() != null ? item.summary() : "(No title)";
+            if (start == null) {
+                return null;
+            }
+
+            if (start.dateTime() != null && end != null && end.dateTime() != null) {
+                return new StoredEvent(item.id(), summary, start.dateTime(), end.dateTime(), null, null, item.busy());
+            }
+            if (start.date() != null) {
+                LocalDate endDate = end != null && end.date() != null ? end.date() : start.date().plusDays(1);
+                return new StoredEvent(item.id(), summary, null, null, start.date(), endDate, item.busy());
+            }
+            return null;
+        }
+
+        CalendarEntry toEntry(ZoneId zoneId) {
+            if (startDate != null) {
+                return new CalendarEntry(id, summary, startDate.atStartOfDay(), endDate.atStartOfDay(), true, busy);
+            }
+            return new CalendarEntry(id, summary, start.atZoneSameInstant(zoneId).toLocalDateTime(),
+                    end.atZoneSameInstant(zoneId).toLocalDateTime(), false, busy);
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.Role;
+import com.example.orthodox_prm.model.GoogleCalendarImportState;
+import com.example.orthodox_prm.model.ScheduledEvent;
+import com.example.orthodox_prm.model.User;
+import com.example.orthodox_prm.model.UserPreferences;
+import com.example.orthodox_prm.repository.GoogleCalendarImportStateRepository;
+import com.example.orthodox_prm.repository.ScheduledEventRepository;
+import com.example.orthodox_prm.repository.UserPreferencesRepository;
+import com.example.orthodox_prm.repository.UserRepository;
+import com.example.orthodox_prm.service.GoogleCalendarApiClient.CalendarItem;
+import com.example.orthodox_prm.service.GoogleCalendarApiClient.ItemTime;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports events the clergy schedule directly in Google Calendar into {@link ScheduledEvent},
+ * so the dashboard and event lists include them. Each priest's calendar is read on a schedule
+ * with Google's sync tokens: the first run lists the calendar from a month back to two years
+ * ahead, later runs fetch only events changed since the previous one. The token is stored,
+ * so a restart does not list again.
+ * <p>
+ * Runs use the priest's stored Google authorization, renewed with the refresh token granted
+ * at sign-in. Priests who signed in without granting background access, or whose access was
+ * revoked, are skipped until they sign in again, and the reason is recorded on their import state.
+ * <p>
+ * Rows are matched by calendar owner and Google event id, so events pushed from the app are
+ * updated in place rather than imported twice. An event that spans several days, or crosses
+ * midnight, is stored as one row per day it covers. Changes are upserted in batches, two
+ * lookup queries per batch. When Google expires the token the calendar is listed again.
+ * <p>
+ * Imported events that are cancelled in Google, or missing from a full listing, are deleted.
+ * Events created in the app are never deleted by the import, since they carry participants
+ * and sacrament records: when their Google copy goes away they only lose the link to it.
+ */
+@Service
+@Slf4j
+public class GoogleCalendarImportService {
+
+    private static final int BATCH_SIZE = 200;
+    // Events are imported from this many days back to this many days ahead; a full listing asks for no more
+    private static final int PAST_DAYS = 31;
+    private static final int FUTURE_DAYS = 731;
+    // A multi-day event is stored on at most this many days
+    private static final int MAX_EVENT_DAYS = 31;
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String DEFAULT_TIMEZONE = "America/New_York";
+
+    private final GoogleCalendarApiClient googleCalendarApiClient;
+    private final GoogleTokenService googleTokenService;
+    private final ScheduledEventRepository scheduledEventRepository;
+    private final GoogleCalendarImportStateRepository importStateRepository;
+    private final UserRepository userRepository;
+    private final UserPreferencesRepository userPreferencesRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration interval;
+
+    private ScheduledExecutorService importer;
+
+    public GoogleCalendarImportService(GoogleCalendarApiClient googleCalendarApiClient,
+                                       GoogleTokenService googleTokenService,
+                                       ScheduledEventRepository scheduledEventRepository,
+                                       GoogleCalendarImportStateRepository importStateRepository,
+                                       UserRepository userRepository,
+                                       UserPreferencesRepository userPreferencesRepository,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${google.calendar.import.interval:5m}") Duration interval) {
+        this.googleCalendarApiClient = googleCalendarApiClient;
+        this.googleTokenService = googleTokenService;
+        this.scheduledEventRepository = scheduledEventRepository;
+        this.importStateRepository = importStateRepository;
+        this.userRepository = userRepository;
+        this.userPreferencesRepository = userPreferencesRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    void start() {
+        importer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("google-calendar-import").daemon().factory());
+        long period = Math.max(1, interval.toMillis());
+        importer.scheduleWithFixedDelay(this::importAll, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        importer.shutdownNow();
+    }
+
+    /**
+     * Import the calendars of all enabled priests who have signed in with Google
+     */
+    private void importAll() {
+        List<User> clergy;
+        try {
+            clergy = userRepository.findByEnabledTrue().stream()
+                    .filter(user -> user.getRole() == Role.PRIEST)
+                    .toList();
+        } catch (RuntimeException e) {
+            log.error("Error loading users for Google Calendar import", e);
+            return;
+        }
+        for (User user : clergy) {
+            String principalName = user.getEmail();
+            if (!googleTokenService.hasStoredAuthorization(principalName)) {
+                // Never signed in with Google, or signed out of it; nothing to record
+                continue;
+            }
+            try {
+                importCalendar(principalName);
+            } catch (GoogleTokenService.AuthorizationRequiredException e) {
+                log.info("Skipped Google Calendar import for {}: {}", principalName, e.getMessage());
+                recordError(principalName, e.getMessage());
+            } catch (RuntimeException e) {
+                // The stored token is unchanged, so the next run picks up where this one failed
+                log.warn("Google Calendar import failed for {}: {}", principalName, e.getMessage());
+                recordError(principalName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Bring one user's imported events up to date
+     * @throws GoogleTokenService.AuthorizationRequiredException if the user must sign in with Google again
+     */
+    void importCalendar(String principalName) {
+        String accessToken = googleTokenService.getAccessToken(principalName);
+        GoogleCalendarImportState state = loadState(principalName);
+        ZoneId zoneId = ZoneId.of(userPreferencesRepository.findByUsername(principalName)
+                .map(UserPreferences::getTimezone)
+                .orElse(DEFAULT_TIMEZONE));
+
+        LocalDateTime started = LocalDateTime.now();
+        boolean full = state.getSyncToken() == null;
+        ImportBatch batch = new ImportBatch(principalName, zoneId, full);
+        String nextSyncToken = null;
+        try {
+            if (!full) {
+                try {
+                    nextSyncToken = googleCalendarApiClient.listEvents(accessToken, state.getSyncToken(),
+                            null, null, batch::add);
+                } catch (HttpClientErrorException e) {
+                    if (e.getStatusCode() != HttpStatus.GONE) {
+                        throw e;
+                    }
+                    log.info("Google Calendar sync token expired for {}; importing the calendar again", principalName);
+                    full = true;
+                }
+            }
+            if (full) {
+                batch = new ImportBatch(principalName, zoneId, true);
+                nextSyncToken = googleCalendarApiClient.listEvents(accessToken, null,
+                        batch.oldestImported.atStartOfDay(zoneId).toInstant(),
+                        batch.newestImported.plusDays(1).atStartOfDay(zoneId).toInstant(), batch::add);
+            }
+        } catch (HttpClientErrorException.Unauthorized e) {
+            // Renewed on the next run instead of being reused
+            googleTokenService.rejectAccessToken(principalName, accessToken);
+            throw e;
+        }
+        batch.flush();
+
+        if (full) {
+            removeUnseen(principalName, started, batch.oldestImported, batch.newestImported);
+            state.setLastFullImportAt(started);
+        }
+        state.setSyncToken(nextSyncToken);
+        state.setLastImportAt(started);
+        state.setLastError(null);
+        importStateRepository.save(state);
+
+        if (batch.upserted > 0 || batch.deleted > 0 || batch.unlinked > 0) {
+            log.info("Imported Google Calendar for {}: {} events saved, {} removed, {} unlinked",
+                    principalName, batch.upserted, batch.deleted, batch.unlinked);
+        }
+    }
+
+    private GoogleCalendarImportState loadState(String principalName) {
+        return importStateRepository.findByPrincipalName(principalName)
+                .orElseGet(() -> {
+                    GoogleCalendarImportState created = new GoogleCalendarImportState();
+                    created.setPrincipalName(principalName);
+                    return created;
+                });
+    }
+
+    private void recordError(String principalName, String message) {
+        try {
+            GoogleCalendarImportState state = loadState(principalName);
+            state.setLastError(message != null && message.length() > MAX_ERROR_LENGTH
+                    ? message.substring(0, MAX_ERROR_LENGTH) : message);
+            importStateRepository.save(state);
+        } catch (RuntimeException e) {
+            log.warn("Could not record the Google Calendar import error of {}: {}", principalName, e.getMessage());
+        }
+    }
+
+    /**
+     * After a full listing, handle the user's rows in the listed range that the listing did not contain:
+     * imported rows are deleted, events pushed from the app are unlinked from their Google copy.
+     * Rows never seen by the import, such as events whose push is still queued, are kept.
+     */
+    private void removeUnseen(String principalName, LocalDateTime listingStarted, LocalDate from, LocalDate to) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ScheduledEvent> stale = scheduledEventRepository
+                    .findByGoogleCalendarOwnerAndGoogleSyncedAtBeforeAndEventDateBetweenAndImportedFromGoogleTrue(
+                            principalName, listingStarted, from, to);
+            scheduledEventRepository.deleteAll(stale);
+            List<ScheduledEvent> pushed = scheduledEventRepository.findUnseenPushedEvents(
+                    principalName, listingStarted, from, to);
+            pushed.forEach(GoogleCalendarImportService::unlink);
+            scheduledEventRepository.saveAll(pushed);
+            if (!stale.isEmpty() || !pushed.isEmpty()) {
+                log.info("Removed {} events and unlinked {} app events no longer in the Google Calendar of {}",
+                        stale.size(), pushed.size(), principalName);
+            }
+        });
+    }
+
+    /**
+     * Forget the Google copy of an event created in the app, keeping the event itself
+     */
+    private static void unlink(ScheduledEvent event) {
+        event.setGoogleEventId(null);
+        event.setGoogleSyncedAt(null);
+    }
+
+    /**
+     * Listed items of one run, applied to the database in batches of {@link #BATCH_SIZE}
+     */
+    private final class ImportBatch {
+        private final String principalName;
+        private final ZoneId zoneId;
+        private final boolean fullListing;
+        private final LocalDate oldestImported;
+        private final LocalDate newestImported;
+        // Latest item per Google id; a later page may repeat an id
+        private final Map<String, CalendarItem> pending = new LinkedHashMap<>();
+        private int upserted;
+        private int deleted;
+        private int unlinked;
+
+        private ImportBatch(String principalName, ZoneId zoneId, boolean fullListing) {
+            this.principalName = principalName;
+            this.zoneId = zoneId;
+            this.fullListing = fullListing;
+            LocalDate today = LocalDate.now(zoneId);
+            this.oldestImported = today.minusDays(PAST_DAYS);
+            this.newestImported = today.plusDays(FUTURE_DAYS);
+        }
+
+        void add(CalendarItem item) {
+            pending.put(item.id(), item);
+            if (pending.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<CalendarItem> items = new ArrayList<>(pending.values());
+            pending.clear();
+            transactionTemplate.executeWithoutResult(status -> apply(items));
+        }
+
+        private void apply(List<CalendarItem> items) {
+            LocalDateTime now = LocalDateTime.now();
+            // Look up the items and, for instances of recurring events, their series in one query
+            Set<String> ids = new HashSet<>();
+            Set<String> itemIds = new HashSet<>();
+            for (CalendarItem item : items) {
+                ids.add(item.id());
+                itemIds.add(item.id());
+                String seriesId = seriesIdOf(item.id());
+                if (seriesId != null) {
+                    ids.add(seriesId);
+                }
+            }
+            Map<String, ScheduledEvent> existing = scheduledEventRepository
+                    .findByGoogleCalendarOwnerAndGoogleEventIdIn(principalName, ids)
+                    .stream()
+                    .collect(Collectors.toMap(ScheduledEvent::getGoogleEventId, Function.identity()));
+            // And the further days of multi-day events in another
+            Map<String, Map<String, ScheduledEvent>> spans = scheduledEventRepository
+                    .findByGoogleCalendarOwnerAndGoogleSpanEventIdIn(principalName, itemIds)
+                    .stream()
+                    .collect(Collectors.groupingBy(ScheduledEvent::getGoogleSpanEventId,
+                            Collectors.toMap(ScheduledEvent::getGoogleEventId, Function.identity())));
+
+            List<ScheduledEvent> toSave = new ArrayList<>();
+            List<ScheduledEvent> toDelete = new ArrayList<>();
+            for (CalendarItem item : items) {
+                String id = item.id();
+                ScheduledEvent event = existing.get(id);
+                Map<String, ScheduledEvent> otherDays = spans.getOrDefault(id, Map.of());
+                String seriesId = seriesIdOf(id);
+                ScheduledEvent series = seriesId != null ? existing.get(seriesId) : null;
+                if (series != null && series.isRecurring()) {
+                    // An occurrence of a recurring event pushed from the app, which expands it itself
+                    continue;
+                }
+
+                if (item.cancelled()) {
+                    if (event != null) {
+                        toDelete.add(event);
+                    }
+                    toDelete.addAll(otherDays.values());
+                    if (!id.contains("_")) {
+                        // A cancelled series may be reported once rather than per instance
+                        toDelete.addAll(scheduledEventRepository
+                                .findByGoogleCalendarOwnerAndGoogleEventIdStartingWith(principalName, id + "_"));
+                    }
+                    continue;
+                }
+
+                List<EventDay> days = EventDay.parse(item, zoneId);
+                if (days.isEmpty()) {
+                    continue;
+                }
+                if (event == null) {
+                    LocalDate firstDate = days.get(0).date();
+                    LocalDate lastDate = days.get(days.size() - 1).date();
+                    if ((fullListing && lastDate.isBefore(oldestImported)) || firstDate.isAfter(newestImported)) {
+                        continue;
+                    }
+                    event = importedRow(id);
+                }
+
+                String summary = item.summary() != null ? item.summary().trim() : "";
+                String description = item.description() != null ? item.description().trim() : "";
+                Set<String> coveredDayIds = new HashSet<>();
+                for (int i = 0; i < days.size(); i++) {
+                    EventDay day = days.get(i);
+                    ScheduledEvent row = event;
+                    if (i > 0) {
+                        // Further days get ids of their own, tied to the event by the span id
+                        String dayId = id + "@" + day.date();
+                        coveredDayIds.add(dayId);
+                        row = otherDays.get(dayId);
+                        if (row == null) {
+                            row = importedRow(dayId);
+                            row.setGoogleSpanEventId(id);
+                        }
+                    }
+                    row.setEventTitle(summary.isEmpty() ? "(No title)" : summary);
+                    row.setEventDate(day.date());
+                    row.setStartTime(day.startTime());
+                    row.setEndTime(day.endTime());
+                    if (Boolean.TRUE.equals(row.getImportedFromGoogle())) {
+                        // Events pushed from the app keep their own description
+                        row.setEventDescription(description.isEmpty() ? null : description);
+                    }
+                    row.setGoogleSyncedAt(now);
+                    toSave.add(row);
+                }
+                // Days the event no longer covers after it was shortened or moved
+                otherDays.forEach((dayId, row) -> {
+                    if (!coveredDayIds.contains(dayId)) {
+                        toDelete.add(row);
+                    }
+                });
+            }
+
+            // Only imported rows are deleted; events created in the app keep their participants
+            List<ScheduledEvent> removed = new ArrayList<>();
+            List<ScheduledEvent> kept = new ArrayList<>();
+            for (ScheduledEvent row : toDelete.stream().distinct().toList()) {
+                if (Boolean.TRUE.equals(row.getImportedFromGoogle())) {
+                    removed.add(row);
+                } else {
+                    unlink(row);
+                    kept.add(row);
+                }
+            }
+            scheduledEventRepository.saveAll(toSave);
+            scheduledEventRepository.saveAll(kept);
+            scheduledEventRepository.deleteAll(removed);
+            upserted += toSave.size();
+            deleted += removed.size();
+            unlinked += kept.size();
+        }
+
+        private ScheduledEvent importedRow(String googleEventId) {
+            ScheduledEvent event = new ScheduledEvent();
+            event.setGoogleEventId(googleEventId);
+            event.setGoogleCalendarOwner(principalName);
+            event.setImportedFromGoogle(true);
+            return event;
+        }
+    }
+
+    /**
+     * The id of the recurring event an instance id belongs to ("series_20261019T100000Z"), or null
+     */
+    private static String seriesIdOf(String googleEventId) {
+        int separator = googleEventId.indexOf('_');
+        return separator > 0 ? googleEventId.substring(0, separator) : null;
+    }
+
+    /**
+     * One day of an event in the owner's timezone. ScheduledEvent holds one date, so an event
+     * that spans several days or crosses midnight becomes one row per day it covers: the first
+     * and last days keep their times, while days in between and all-day events have none,
+     * which blocks the whole day.
+     */
+    private record EventDay(LocalDate date, LocalTime startTime, LocalTime endTime) {
+
+        // Stands in for midnight at the end of a day, which a start and end on one date cannot hold
+        private static final LocalTime END_OF_DAY = LocalTime.of(23, 59);
+
+        /**
+         * The days an item covers, at most {@link #MAX_EVENT_DAYS}; empty if it has no usable times
+         */
+        static List<EventDay> parse(CalendarItem item, ZoneId zoneId) {
+            ItemTime start = item.start();
+            ItemTime end = item.end();
+            if (start == null) {
+                return List.of();
+            }
+            List<EventDay> days = new ArrayList<>();
+            if (start.dateTime() != null && end != null && end.dateTime() != null) {
+                LocalDateTime startAt = start.dateTime().atZoneSameInstant(zoneId).toLocalDateTime();
+                LocalDateTime endAt = end.dateTime().atZoneSameInstant(zoneId).toLocalDateTime();
+                if (endAt.isBefore(startAt)) {
+                    endAt = startAt;
+                }
+                LocalDate firstDate = startAt.toLocalDate();
+                // The end is exclusive: an event ending at midnight does not cover the next day
+                LocalDate lastDate = endAt.minusNanos(1).toLocalDate();
+                if (lastDate.isBefore(firstDate)) {
+                    lastDate = firstDate;
+                }
+                for (LocalDate date = firstDate; !date.isAfter(lastDate) && days.size() < MAX_EVENT_DAYS;
+                     date = date.plusDays(1)) {
+                    boolean first = date.equals(firstDate);
+                    boolean last = date.equals(lastDate);
+                    if (!first && !last) {
+                        days.add(new EventDay(date, null, null));
+                        continue;
+                    }
+                    LocalTime from = first ? startAt.toLocalTime() : LocalTime.MIDNIGHT;
+                    LocalTime to = last && endAt.toLocalDate().equals(date) ? endAt.toLocalTime() : END_OF_DAY;
+                    days.add(new EventDay(date, from, to));
+                }
+                return days;
+            }
+            if (start.date() != null) {
+                LocalDate startDate = start.date();
+                // All-day end dates are exclusive
+                LocalDate endDate = end != null && end.date() != null ? end.date() : startDate.plusDays(1);
+                for (LocalDate date = startDate; date.isBefore(endDate) && days.size() < MAX_EVENT_DAYS;
+                     date = date.plusDays(1)) {
+                    days.add(new EventDay(date, null, null));
+                }
+                if (days.isEmpty()) {
+                    days.add(new EventDay(startDate, null, null));
+                }
+            }
+            return days;
+        }
+    }
+}
@@ -2,18 +2,23 @@ package com.example.orthodox_prm.service;
 
 import com.example.orthodox_prm.dto.ConflictReport;
 import com.example.orthodox_prm.dto.GoogleCalendarEvent;
+import com.example.orthodox_prm.Enum.SacramentType;
+import com.example.orthodox_prm.model.RecurrenceRule;
+import com.example.orthodox_prm.model.ScheduledEvent;
 import com.example.orthodox_prm.repository.UserPreferencesRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 
 import java.time.LocalDate;
@@ -32,93 +37,108 @@ import java.util.Map;
 @Slf4j
 public class GoogleCalendarService {
 
-    private final OAuth2AuthorizedClientService authorizedClientService;
+    private final GoogleTokenService googleTokenService;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final UserPreferencesRepository userPreferencesRepository;
+    private final GoogleCalendarCache googleCalendarCache;
+    private final String eventsUrl;
 
-    private static final String GOOGLE_CALENDAR_API_URL = "https://www.googleapis.com/calendar/v3/calendars/primary/events";
+    private static final String EVENTS_PATH = "/calendar/v3/calendars/primary/events";
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
     public GoogleCalendarService(
-            OAuth2AuthorizedClientService authorizedClientService,
+            GoogleTokenService googleTokenService,
             RestTemplate restTemplate,
             ObjectMapper objectMapper,
-            UserPreferencesRepository userPreferencesRepository) {
-        this.authorizedClientService = authorizedClientService;
+            UserPreferencesRepository userPreferencesRepository,
+            GoogleCalendarCache googleCalendarCache,
+            @Value("${google.calendar.api.base-url:https://www.googleapis.com}") String baseUrl) {
+        this.googleTokenService = googleTokenService;
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
         this.userPreferencesRepository = userPreferencesRepository;
+        this.googleCalendarCache = googleCalendarCache;
+        this.eventsUrl = (baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl) + EVENTS_PATH;
     }
 
     /**
-     * Creates an event in the user's Google Calendar
-     * Only works if the user authenticated via Google OAuth2
-     * @param eventTitle Title of the event
-     * @param eventDate Date of the event
-     * @param startTime Optional start time (null = all-day event)
-     * @param endTime Optional end time (null = all-day event)
-     * @param description Optional event description
-     * @param sacramentType Optional sacrament type
-     * @param attendeeEmails Optional list of attendee email addresses
+     * Creates an event in a user's Google Calendar under a client-assigned id. Inserting an id
+     * that already exists is treated as success, so a retried push never creates a duplicate.
+     * Runs without a request context: the user's stored authorization is looked up by principal name
+     * and renewed if expired. A token Google answers with 401 is marked rejected, so calling again renews it.
+     * @param principalName OAuth2 principal name of the calendar owner
+     * @param timezone Timezone for timed events
+     * @param googleEventId Event id to create, base32hex as Google requires
+     * @param event The event to push
+     * @throws GoogleTokenService.AuthorizationRequiredException if the user must sign in with Google again
+     * @throws RestClientException if the Calendar API call fails
      */
-    public void createCalendarEvent(String eventTitle, LocalDate eventDate, LocalTime startTime, LocalTime endTime,
-                                    String description, String sacramentType, List<String> attendeeEmails) {
-        try {
-            String accessToken = getAccessToken();
-            if (accessToken == null) {
-                log.warn("User is not authenticated with Google. Calendar sync skipped.");
-                return;
-            }
-
-            String eventJson = buildEventJson(eventTitle, eventDate, startTime, endTime, description, sacramentType, attendeeEmails);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(accessToken);
+    public void insertEvent(String principalName, String timezone, String googleEventId, ScheduledEvent event) {
+        String accessToken = googleTokenService.getAccessToken(principalName);
 
-            HttpEntity<String> entity = new HttpEntity<>(eventJson, headers);
+        SacramentType sacramentType = event.getSacramentType();
+        String eventJson = buildEventJson(googleEventId, event.getEventTitle(), event.getEventDate(),
+                event.getStartTime(), event.getEndTime(), event.getEventDescription(),
+                sacramentType != null ? sacramentType.name() : null, new ArrayList<>(), timezone,
+                event.isRecurring() ? event.getRecurrence() : null);
 
-            restTemplate.postForObject(GOOGLE_CALENDAR_API_URL, entity, String.class);
-            log.info("Event created in Google Calendar: {}", eventTitle);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(accessToken);
 
-        } catch (Exception e) {
-            log.error("Failed to create event in Google Calendar", e);
+        try {
+            restTemplate.postForObject(eventsUrl, new HttpEntity<>(eventJson, headers), String.class);
+            log.info("Event created in Google Calendar: {}", event.getEventTitle());
+        } catch (HttpClientErrorException.Conflict e) {
+            log.info("Google Calendar event {} already exists", googleEventId);
+        } catch (HttpClientErrorException.Unauthorized e) {
+            googleTokenService.rejectAccessToken(principalName, accessToken);
+            throw e;
         }
+        // Pull the new event into the local calendar copy
+        googleCalendarCache.requestRefresh(principalName);
     }
 
     /**
-     * Overload for backward compatibility - creates all-day events
+     * Deletes an event from a user's Google Calendar; an event that is already gone counts as deleted
+     * @throws GoogleTokenService.AuthorizationRequiredException if the user must sign in with Google again
+     * @throws RestClientException if the Calendar API call fails
      */
-    public void createCalendarEvent(String eventTitle, LocalDate eventDate, String description, String sacramentType) {
-        createCalendarEvent(eventTitle, eventDate, null, null, description, sacramentType, new ArrayList<>());
+    public void deleteEvent(String principalName, String googleEventId) {
+        String accessToken = googleTokenService.getAccessToken(principalName);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+
+        try {
+            restTemplate.exchange(eventsUrl + "/{eventId}", HttpMethod.DELETE,
+                    new HttpEntity<>(headers), Void.class, googleEventId);
+            log.info("Event {} deleted from Google Calendar", googleEventId);
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.Gone e) {
+            log.info("Google Calendar event {} was already deleted", googleEventId);
+        } catch (HttpClientErrorException.Unauthorized e) {
+            googleTokenService.rejectAccessToken(principalName, accessToken);
+            throw e;
+        }
+        googleCalendarCache.requestRefresh(principalName);
     }
 
     /**
-     * Check if current user has Google OAuth2 token
+     * Check if current user has a current or renewable Google authorization
      */
     public boolean isGoogleOAuth2Authenticated() {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-            if (!(authentication.getPrincipal() instanceof OAuth2User)) {
-                return false;
-            }
-
-            OAuth2User oAuth2User = (OAuth2User) authentication.getPrincipal();
-            OAuth2AuthorizedClient authorizedClient = authorizedClientService.loadAuthorizedClient(
-                    "google",
-                    oAuth2User.getName()
-            );
-
-            return authorizedClient != null && authorizedClient.getAccessToken() != null;
-
+            String principalName = getPrincipalName();
+            return principalName != null && googleTokenService.hasAuthorization(principalName);
         } catch (Exception e) {
             return false;
         }
     }
 
     /**
-     * Find conflicting events in Google Calendar for a given date and time range
+     * Find conflicting events in Google Calendar for a given date and time range.
+     * Answered from the synced local copy of the calendar, not a live API call.
      * @param eventDate The date to check
      * @param startTime Optional start time (null = all-day check)
      * @param endTime Optional end time (null = all-day check)
@@ -127,23 +147,26 @@ public class GoogleCalendarService {
     public List<ConflictReport.ConflictInfo> findConflictsForDate(LocalDate eventDate, LocalTime startTime, LocalTime endTime) {
         List<ConflictReport.ConflictInfo> conflicts = new ArrayList<>();
         try {
-            String accessToken = getAccessToken();
-            if (accessToken == null) {
+            String principalName = getPrincipalName();
+            if (principalName == null || !googleTokenService.hasAuthorization(principalName)) {
                 log.debug("User is not authenticated with Google. Skipping Google Calendar conflict check.");
                 return conflicts;
             }
 
-            // Build query for events on the given date
-            String query = buildCalendarQuery(eventDate, startTime, endTime);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-
-            String url = GOOGLE_CALENDAR_API_URL + "?q=" + query + "&maxResults=100";
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            String response = restTemplate.getForObject(url, String.class);
-            parseCalendarResponse(response, conflicts, eventDate, startTime, endTime);
+            List<GoogleCalendarCache.CalendarEntry> entries = googleCalendarCache.eventsBetween(
+                    principalName, ZoneId.of(getUserTimezone()), eventDate, eventDate);
+            for (GoogleCalendarCache.CalendarEntry entry : entries) {
+                if (doesEventOverlap(entry, eventDate, startTime, endTime)) {
+                    ConflictReport.ConflictInfo conflict = new ConflictReport.ConflictInfo();
+                    conflict.setEventTitle(entry.summary());
+                    conflict.setEventDate(eventDate.format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
+                    if (!entry.allDay()) {
+                        conflict.setEventTime(entry.start().format(TIME_FORMATTER) + " - " + entry.end().format(TIME_FORMATTER));
+                    }
+                    conflict.setSource("google_calendar");
+                    conflicts.add(conflict);
+                }
+            }
 
         } catch (Exception e) {
             log.error("Error checking Google Calendar conflicts", e);
@@ -152,41 +175,36 @@ public class GoogleCalendarService {
     }
 
     /**
-     * Gets the access token for the currently authenticated Google OAuth2 user
+     * Find the busy periods of the user's primary Google Calendar between two dates,
+     * from the synced local copy of the calendar. Events marked as free are skipped.
+     * @param from First date, inclusive
+     * @param to Last date, inclusive
+     * @return Busy periods in the user's timezone; empty if not authenticated or on error
      */
-    private String getAccessToken() {
+    public List<BusyPeriod> findBusyPeriods(LocalDate from, LocalDate to) {
+        List<BusyPeriod> periods = new ArrayList<>();
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-            // Check if user is authenticated via Google OAuth2
-            if (!(authentication.getPrincipal() instanceof OAuth2User)) {
-                return null;
+            String principalName = getPrincipalName();
+            if (principalName == null || !googleTokenService.hasAuthorization(principalName)) {
+                log.debug("User is not authenticated with Google. Skipping Google Calendar busy times.");
+                return periods;
             }
 
-            OAuth2User oAuth2User = (OAuth2User) authentication.getPrincipal();
-            String clientRegistrationId = "google";
-
-            // Get the OAuth2 authorized client (contains the access token)
-            OAuth2AuthorizedClient authorizedClient = authorizedClientService.loadAuthorizedClient(
-                    clientRegistrationId,
-                    oAuth2User.getName()
-            );
-
-            if (authorizedClient == null || authorizedClient.getAccessToken() == null) {
-                log.warn("No Google OAuth2 token found for user: {}", oAuth2User.getName());
-                return null;
+            for (GoogleCalendarCache.CalendarEntry entry : googleCalendarCache.eventsBetween(
+                    principalName, ZoneId.of(getUserTimezone()), from, to)) {
+                if (entry.busy()) {
+                    periods.add(new BusyPeriod(entry.start(), entry.end()));
+                }
             }
-
-            return authorizedClient.getAccessToken().getTokenValue();
-
         } catch (Exception e) {
-            log.error("Error getting Google Calendar access token", e);
-            return null;
+            log.error("Error reading Google Calendar busy times", e);
         }
+        return periods;
     }
 
     /**
      * Builds the event JSON payload for Google Calendar API
+     * @param googleEventId Client-assigned event id
      * @param title Event title
      * @param date Event date
      * @param startTime Optional start time (null = all-day event)
@@ -194,17 +212,18 @@ public class GoogleCalendarService {
      * @param description Optional description
      * @param sacramentType Optional sacrament type
      * @param attendeeEmails Optional list of attendee emails
+     * @param userTimezone Timezone for timed events
+     * @param recurrence Repeat rule, or null for a one-off event
      */
-    private String buildEventJson(String title, LocalDate date, LocalTime startTime, LocalTime endTime,
-                                   String description, String sacramentType, List<String> attendeeEmails) {
+    private String buildEventJson(String googleEventId, String title, LocalDate date, LocalTime startTime, LocalTime endTime,
+                                   String description, String sacramentType, List<String> attendeeEmails,
+                                   String userTimezone, RecurrenceRule recurrence) {
         Map<String, Object> event = new HashMap<>();
 
+        event.put("id", googleEventId);
         event.put("summary", title);
         event.put("description", buildDescription(description, sacramentType));
 
-        // Get user's timezone preference
-        String userTimezone = getUserTimezone();
-
         Map<String, Object> start = new HashMap<>();
         Map<String, Object> end = new HashMap<>();
 
@@ -231,6 +250,12 @@ public class GoogleCalendarService {
         event.put("start", start);
         event.put("end", end);
 
+        // Google expands the series itself from the RRULE
+        if (recurrence != null) {
+            boolean timed = startTime != null && endTime != null;
+            event.put("recurrence", List.of(recurrence.toRRule(date, timed, ZoneId.of(userTimezone))));
+        }
+
         // Add attendees if provided
         if (attendeeEmails != null && !attendeeEmails.isEmpty()) {
             List<Map<String, String>> attendees = new ArrayList<>();
@@ -254,11 +279,22 @@ public class GoogleCalendarService {
         }
     }
 
+    /**
+     * OAuth2 principal name of the current user, which their Google authorization is stored under
+     */
+    public String getPrincipalName() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof OAuth2User oAuth2User) {
+            return oAuth2User.getName();
+        }
+        return null;
+    }
+
     /**
      * Get the current user's timezone preference
      * Defaults to America/New_York if not set
      */
-    private String getUserTimezone() {
+    public String getUserTimezone() {
         try {
             String username = getCurrentUsername();
             return userPreferencesRepository.findByUsername(username)
@@ -307,71 +343,21 @@ public class GoogleCalendarService {
     }
 
     /**
-     * Build a calendar query for finding events on a specific date
-     */
-    private String buildCalendarQuery(LocalDate eventDate, LocalTime startTime, LocalTime endTime) {
-        // Simple query - just check events on the same date
-        // Google Calendar API doesn't have a direct time range query, so we'll check date
-        return eventDate.format(DateTimeFormatter.ISO_LOCAL_DATE);
-    }
-
-    /**
-     * Parse Google Calendar API response and extract conflicts
+     * Check if a Google Calendar event overlaps with the proposed time on the given date
      */
-    private void parseCalendarResponse(String response, List<ConflictReport.ConflictInfo> conflicts,
-                                      LocalDate eventDate, LocalTime startTime, LocalTime endTime) {
-        try {
-            // Parse the response as JSON to extract events
-            Map<String, Object> responseMap = objectMapper.readValue(response, Map.class);
-            Object items = responseMap.get("items");
-
-            if (items instanceof List) {
-                List<?> eventList = (List<?>) items;
-                for (Object item : eventList) {
-                    if (item instanceof Map) {
-                        @SuppressWarnings("unchecked")
-                        Map<String, Object> eventMap = (Map<String, Object>) item;
-
-                        // Extract event details
-                        String summary = (String) eventMap.get("summary");
-                        Map<String, Object> startMap = (Map<String, Object>) eventMap.get("start");
-                        Map<String, Object> endMap = (Map<String, Object>) eventMap.get("end");
-
-                        // Check if this event overlaps with the proposed time
-                        if (summary != null && doesEventOverlap(startMap, endMap, eventDate, startTime, endTime)) {
-                            ConflictReport.ConflictInfo conflict = new ConflictReport.ConflictInfo();
-                            conflict.setEventTitle(summary);
-                            conflict.setEventDate(eventDate.format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
-                            if (startMap != null && startMap.containsKey("dateTime")) {
-                                conflict.setEventTime((String) startMap.get("dateTime"));
-                            }
-                            conflict.setSource("google_calendar");
-                            conflicts.add(conflict);
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error parsing Google Calendar response", e);
+    private boolean doesEventOverlap(GoogleCalendarCache.CalendarEntry entry, LocalDate eventDate,
+                                     LocalTime startTime, LocalTime endTime) {
+        // If times are null (all-day event), any event on that date is a conflict
+        if (startTime == null || endTime == null || entry.allDay()) {
+            return true;
         }
+        return entry.start().isBefore(LocalDateTime.of(eventDate, endTime))
+                && entry.end().isAfter(LocalDateTime.of(eventDate, startTime));
     }
 
     /**
-     * Check if a Google Calendar event overlaps with the proposed time
+     * A time range during which the user's Google Calendar is busy
      */
-    private boolean doesEventOverlap(Map<String, Object> startMap, Map<String, Object> endMap,
-                                    LocalDate eventDate, LocalTime startTime, LocalTime endTime) {
-        // If times are null (all-day event), any event on that date is a conflict
-        if (startTime == null || endTime == null) {
-            return true;
-        }
-
-        // Extract time from startMap and endMap if they contain dateTime
-        // This is a simplified check - in production, you'd parse the dateTime properly
-        if (startMap == null || endMap == null) {
-            return true; // Assume conflict if we can't determine time
-        }
-
-        return true; // Conservative approach: flag as conflict to warn user
+    public record BusyPeriod(LocalDateTime start, LocalDateTime end) {
     }
 }
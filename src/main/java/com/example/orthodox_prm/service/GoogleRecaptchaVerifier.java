@@ -0,0 +1,61 @@
+package com.example.orthodox_prm.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Verifies reCAPTCHA tokens with Google's siteverify API
+ */
+@Component
+@ConditionalOnProperty(name = "recaptcha.verifier", havingValue = "google", matchIfMissing = true)
+public class GoogleRecaptchaVerifier implements RecaptchaVerifier {
+
+    private static final String RECAPTCHA_VERIFY_URL = "https://www.google.com/recaptcha/api/siteverify";
+
+    @Value("${recaptcha.secret-key:}")
+    private String secretKey;
+
+    private final RestTemplate restTemplate;
+
+    public GoogleRecaptchaVerifier() {
+        this.restTemplate = new RestTemplate();
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return secretKey != null && !secretKey.isEmpty();
+    }
+
+    @Override
+    public RecaptchaService.RecaptchaResponse verify(String token, String remoteIp) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("secret", secretKey);
+        params.add("response", token);
+        if (remoteIp != null && !remoteIp.isEmpty()) {
+            params.add("remoteip", remoteIp);
+        }
+
+        ResponseEntity<RecaptchaService.RecaptchaResponse> response = restTemplate.postForEntity(
+            RECAPTCHA_VERIFY_URL,
+            new HttpEntity<>(params, headers),
+            RecaptchaService.RecaptchaResponse.class
+        );
+
+        RecaptchaService.RecaptchaResponse body = response.getBody();
+        if (body == null) {
+            throw new IllegalStateException("reCAPTCHA verification returned null response");
+        }
+        return body;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.orthodox_prm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.ClientAuthorizationException;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Google access tokens for work that runs outside the user's request, such as paced sends
+ * and calendar sync. Tokens come from the stored authorization through an
+ * {@link OAuth2AuthorizedClientManager}, which renews an expired token with the refresh
+ * token granted at sign-in. Users who signed in without granting offline access have no
+ * refresh token, so their background work must wait until they sign in again.
+ */
+@Service
+@Slf4j
+public class GoogleTokenService {
+
+    public static final String REGISTRATION_ID = "google";
+
+    // Renew tokens this long before they expire, so a call never starts with a token about to lapse
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private final OAuth2AuthorizedClientService authorizedClientService;
+    private final OAuth2AuthorizedClientManager authorizedClientManager;
+    // One refresh per user at a time, so concurrent workers do not each renew the same token
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public GoogleTokenService(OAuth2AuthorizedClientService authorizedClientService,
+                              ClientRegistrationRepository clientRegistrationRepository) {
+        this.authorizedClientService = authorizedClientService;
+        AuthorizedClientServiceOAuth2AuthorizedClientManager manager =
+                new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrationRepository, authorizedClientService);
+        manager.setAuthorizedClientProvider(OAuth2AuthorizedClientProviderBuilder.builder()
+                .refreshToken(refresh -> refresh.clockSkew(CLOCK_SKEW))
+                .build());
+        this.authorizedClientManager = manager;
+    }
+
+    /**
+     * A current access token for the user, renewed first if it has expired
+     * @throws AuthorizationRequiredException if there is no usable authorization and the user must sign in again
+     * @throws ClientAuthorizationException if renewing failed for another reason, such as a network error
+     */
+    public String getAccessToken(String principalName) {
+        synchronized (locks.computeIfAbsent(principalName, name -> new Object())) {
+            OAuth2AuthorizedClient client;
+            try {
+                client = authorizedClientManager.authorize(OAuth2AuthorizeRequest
+                        .withClientRegistrationId(REGISTRATION_ID)
+                        .principal(principalName)
+                        .build());
+            } catch (ClientAuthorizationException e) {
+                String errorCode = e.getError().getErrorCode();
+                if (OAuth2ErrorCodes.INVALID_GRANT.equals(errorCode) || OAuth2ErrorCodes.INVALID_TOKEN.equals(errorCode)) {
+                    // The manager has already dropped the revoked authorization
+                    throw new AuthorizationRequiredException("Google revoked the access of " + principalName +
+                            " (" + errorCode + "); sign in with Google again");
+                }
+                throw e;
+            }
+
+            if (client == null) {
+                throw new AuthorizationRequiredException("No Google authorization stored for " + principalName +
+                        "; sign in with Google");
+            }
+            if (isExpired(client.getAccessToken())) {
+                throw new AuthorizationRequiredException("Google access of " + principalName +
+                        " expired and cannot be renewed without offline access; sign in with Google again");
+            }
+            return client.getAccessToken().getTokenValue();
+        }
+    }
+
+    /**
+     * Mark a token Google answered with 401 as expired, so the next {@link #getAccessToken} renews it.
+     * Does nothing if the stored token has changed since, e.g. another worker already renewed it.
+     */
+    public void rejectAccessToken(String principalName, String accessToken) {
+        synchronized (locks.computeIfAbsent(principalName, name -> new Object())) {
+            OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient(REGISTRATION_ID, principalName);
+            if (client == null || !client.getAccessToken().getTokenValue().equals(accessToken)) {
+                return;
+            }
+            Instant now = Instant.now();
+            OAuth2AccessToken expired = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, accessToken,
+                    now.minusSeconds(2), now.minusSeconds(1), client.getAccessToken().getScopes());
+            authorizedClientService.saveAuthorizedClient(
+                    new OAuth2AuthorizedClient(client.getClientRegistration(), principalName, expired, client.getRefreshToken()),
+                    UsernamePasswordAuthenticationToken.unauthenticated(principalName, null));
+            log.info("Google rejected the access token of {}; it will be renewed before the next call", principalName);
+        }
+    }
+
+    /**
+     * Until when background work can get a token for the user without them signing in again:
+     * indefinitely with offline access, otherwise until the current access token expires
+     * @throws AuthorizationRequiredException if there is no usable authorization
+     */
+    public Instant getAccessUsableUntil(String principalName) {
+        OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient(REGISTRATION_ID, principalName);
+        if (client == null) {
+            throw new AuthorizationRequiredException("No Google authorization stored for " + principalName +
+                    "; sign in with Google");
+        }
+        if (client.getRefreshToken() != null) {
+            return Instant.MAX;
+        }
+        if (isExpired(client.getAccessToken())) {
+            throw new AuthorizationRequiredException("Google access of " + principalName +
+                    " expired; sign in with Google again");
+        }
+        Instant expiresAt = client.getAccessToken().getExpiresAt();
+        return expiresAt != null ? expiresAt : Instant.MAX;
+    }
+
+    /**
+     * Whether the user has a stored authorization, current or renewable
+     */
+    public boolean hasAuthorization(String principalName) {
+        OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient(REGISTRATION_ID, principalName);
+        return client != null && (client.getRefreshToken() != null || !isExpired(client.getAccessToken()));
+    }
+
+    /**
+     * Whether an authorization is stored for the user at all, even an expired one that cannot be renewed
+     */
+    public boolean hasStoredAuthorization(String principalName) {
+        return authorizedClientService.loadAuthorizedClient(REGISTRATION_ID, principalName) != null;
+    }
+
+    /**
+     * Whether the user granted offline access, so tokens can be renewed without them
+     */
+    public boolean hasOfflineAccess(String principalName) {
+        OAuth2AuthorizedClient client = authorizedClientService.loadAuthorizedClient(REGISTRATION_ID, principalName);
+        return client != null && client.getRefreshToken() != null;
+    }
+
+    private static boolean isExpired(OAuth2AccessToken token) {
+        return token.getExpiresAt() != null && !token.getExpiresAt().isAfter(Instant.now());
+    }
+
+    /**
+     * The user has no usable Google authorization; only signing in again can fix it, so
+     * callers should wait for that rather than retry
+     */
+    public static class AuthorizationRequiredException extends RuntimeException {
+        public AuthorizationRequiredException(String message) {
+            super(message);
+        }
+    }
+}
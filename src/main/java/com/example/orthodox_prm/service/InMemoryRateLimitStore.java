@@ -0,0 +1,166 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.util.ExpiringKeyMap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rate limit state held in this instance's memory: sliding-window counters of per-minute
+ * buckets, in size-capped maps that drop keys once idle, so memory stays bounded even under
+ * a flood of spoofed client addresses. Limits apply per instance.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    // Per limit name; a tracker expires once its window holds no submissions
+    private final Map<String, ExpiringKeyMap<SubmissionTracker>> trackers = new ConcurrentHashMap<>();
+    private final Map<String, ExpiringKeyMap<Long>> blocks = new ConcurrentHashMap<>(); // key -> blocked until (epoch millis)
+
+    @Override
+    public int remaining(Limit limit, String key) {
+        long minute = currentMinute();
+        SubmissionTracker tracker = trackers(limit).get(key, minute);
+        return tracker == null ? limit.capacity() : Math.max(0, limit.capacity() - tracker.getCount(minute));
+    }
+
+    @Override
+    public int record(Limit limit, String key) {
+        long minute = currentMinute();
+        ExpiringKeyMap<SubmissionTracker> map = trackers(limit);
+        SubmissionTracker tracker = map.computeIfAbsent(key, minute, minute + limit.windowMinutes(),
+                k -> new SubmissionTracker(limit.windowMinutes(), minute));
+        tracker.recordSubmission(minute);
+        map.extend(key, minute, minute + limit.windowMinutes());
+        return Math.max(0, limit.capacity() - tracker.getCount(minute));
+    }
+
+    @Override
+    public void block(Limit limit, String key, long untilMillis) {
+        long minute = currentMinute();
+        blocks(limit).put(key, untilMillis, minute, untilMillis / 60_000L + 1);
+    }
+
+    @Override
+    public long blockedUntil(Limit limit, String key) {
+        Long until = blocks(limit).get(key, currentMinute());
+        return until != null ? until : 0;
+    }
+
+    @Override
+    public void cleanup() {
+        long minute = currentMinute();
+        trackers.values().forEach(map -> map.expire(minute));
+        blocks.values().forEach(map -> map.expire(minute));
+    }
+
+    private ExpiringKeyMap<SubmissionTracker> trackers(Limit limit) {
+        return trackers.computeIfAbsent(limit.name(), name -> new ExpiringKeyMap<>(limit.maxTrackedKeys(), currentMinute()));
+    }
+
+    private ExpiringKeyMap<Long> blocks(Limit limit) {
+        return blocks.computeIfAbsent(limit.name(), name -> new ExpiringKeyMap<>(limit.maxTrackedKeys(), currentMinute()));
+    }
+
+    /**
+     * Current time in whole minutes since the epoch, the resolution of the trackers
+     */
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000L;
+    }
+
+    /**
+     * Sliding-window submission counter: a ring of per-minute buckets covering the window.
+     * Each bucket packs its minute (high 32 bits) and count (low 32 bits) into one slot of an
+     * AtomicLongArray, and a running total is kept alongside, so recording and counting are
+     * O(1) (amortized for expiry) and allocate nothing. Buckets leave the total exactly once,
+     * through a CAS on their slot, whether they are expired by a count or reused by a record.
+     */
+    static class SubmissionTracker {
+        private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+        private final int windowMinutes;
+        private final AtomicLongArray buckets;
+        private final AtomicInteger total = new AtomicInteger();
+        // Latest minute recorded or counted; a clock that steps back keeps counting in it
+        private final AtomicLong latestMinute;
+        // Buckets for minutes up to this one have left the total
+        private final AtomicLong expiredThrough;
+
+        SubmissionTracker(int windowMinutes, long createdMinute) {
+            this.windowMinutes = windowMinutes;
+            this.buckets = new AtomicLongArray(windowMinutes);
+            this.latestMinute = new AtomicLong(createdMinute);
+            this.expiredThrough = new AtomicLong(createdMinute - windowMinutes);
+        }
+
+        public void recordSubmission(long minute) {
+            long latest = advance(minute);
+            int slot = (int) (latest % windowMinutes);
+            // Counted before the bucket, so a concurrent expiry never takes the total below zero
+            total.incrementAndGet();
+            while (true) {
+                long bucket = buckets.get(slot);
+                if ((bucket >>> 32) >= latest) {
+                    // Current bucket (or a later one, if another thread has moved on since): add to it
+                    if (buckets.compareAndSet(slot, bucket, bucket + 1)) {
+                        break;
+                    }
+                } else if (buckets.compareAndSet(slot, bucket, (latest << 32) | 1)) {
+                    // Reused a bucket from an earlier lap of the ring: its count leaves the total
+                    total.addAndGet(-(int) (bucket & COUNT_MASK));
+                    break;
+                }
+            }
+        }
+
+        public int getCount(long minute) {
+            expireBuckets(advance(minute) - windowMinutes);
+            return total.get();
+        }
+
+        /**
+         * Move the latest minute up to this one, if it is later
+         * @return The latest minute
+         */
+        private long advance(long minute) {
+            long latest = latestMinute.get();
+            while (minute > latest && !latestMinute.compareAndSet(latest, minute)) {
+                latest = latestMinute.get();
+            }
+            return Math.max(minute, latest);
+        }
+
+        /**
+         * Take the buckets for minutes up to the cutoff out of the total. Only the minutes
+         * since the last expiry are visited, at most one lap of the ring.
+         */
+        private void expireBuckets(long cutoff) {
+            long from = expiredThrough.get();
+            if (from >= cutoff) {
+                return;
+            }
+            for (long minute = Math.max(from + 1, cutoff - windowMinutes + 1); minute <= cutoff; minute++) {
+                int slot = (int) (minute % windowMinutes);
+                while (true) {
+                    long bucket = buckets.get(slot);
+                    int count = (int) (bucket & COUNT_MASK);
+                    if (count == 0 || (bucket >>> 32) > cutoff) {
+                        break;
+                    }
+                    if (buckets.compareAndSet(slot, bucket, bucket & ~COUNT_MASK)) {
+                        total.addAndGet(-count);
+                        break;
+                    }
+                }
+            }
+            expiredThrough.accumulateAndGet(cutoff, Math::max);
+        }
+    }
+}
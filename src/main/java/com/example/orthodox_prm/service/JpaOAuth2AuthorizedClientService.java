@@ -0,0 +1,144 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.model.OAuth2ClientAuthorization;
+import com.example.orthodox_prm.repository.OAuth2ClientAuthorizationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Stores OAuth2 authorizations in the database instead of Spring's default in-memory store,
+ * so background work can use a user's Google authorization after their session ends and
+ * across restarts. Used when {@code app.oauth2.authorization-store} is {@code database};
+ * it then replaces the auto-configured service, so sign-in saves here too.
+ * <p>
+ * Token values are always encrypted, with a key derived from
+ * {@code app.oauth2.token-encryption-key} and {@code app.oauth2.token-encryption-salt};
+ * the application does not start without both. A stored token that cannot be decrypted,
+ * for instance after the key changed, is treated as missing and the user must sign in again.
+ */
+@Service
+@ConditionalOnProperty(name = "app.oauth2.authorization-store", havingValue = "database")
+@Slf4j
+public class JpaOAuth2AuthorizedClientService implements OAuth2AuthorizedClientService {
+
+    private static final Pattern HEX_SALT = Pattern.compile("(?:[0-9a-fA-F]{2}){8,}");
+
+    private final OAuth2ClientAuthorizationRepository authorizationRepository;
+    private final ClientRegistrationRepository clientRegistrationRepository;
+    private final TextEncryptor encryptor;
+
+    public JpaOAuth2AuthorizedClientService(OAuth2ClientAuthorizationRepository authorizationRepository,
+                                            ClientRegistrationRepository clientRegistrationRepository,
+                                            @Value("${app.oauth2.token-encryption-key:}") String encryptionKey,
+                                            @Value("${app.oauth2.token-encryption-salt:}") String encryptionSalt) {
+        this.authorizationRepository = authorizationRepository;
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        if (!StringUtils.hasText(encryptionKey) || !StringUtils.hasText(encryptionSalt)) {
+            throw new IllegalStateException("Storing Google authorizations in the database requires " +
+                    "app.oauth2.token-encryption-key and app.oauth2.token-encryption-salt");
+        }
+        if (!HEX_SALT.matcher(encryptionSalt).matches()) {
+            throw new IllegalStateException("app.oauth2.token-encryption-salt must be at least 8 bytes, hex-encoded");
+        }
+        // Every value also gets a random IV
+        this.encryptor = Encryptors.delux(encryptionKey, encryptionSalt);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId, String principalName) {
+        ClientRegistration registration = clientRegistrationRepository.findByRegistrationId(clientRegistrationId);
+        if (registration == null) {
+            return null;
+        }
+        OAuth2ClientAuthorization stored = authorizationRepository
+                .findByClientRegistrationIdAndPrincipalName(clientRegistrationId, principalName)
+                .orElse(null);
+        if (stored == null) {
+            return null;
+        }
+
+        try {
+            OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                    encryptor.decrypt(stored.getAccessToken()), stored.getAccessTokenIssuedAt(),
+                    stored.getAccessTokenExpiresAt(), scopesOf(stored.getAccessTokenScopes()));
+            OAuth2RefreshToken refreshToken = stored.getRefreshToken() != null
+                    ? new OAuth2RefreshToken(encryptor.decrypt(stored.getRefreshToken()), stored.getRefreshTokenIssuedAt())
+                    : null;
+            return (T) new OAuth2AuthorizedClient(registration, principalName, accessToken, refreshToken);
+        } catch (RuntimeException e) {
+            log.warn("Stored {} authorization of {} could not be read; the user must sign in again: {}",
+                    clientRegistrationId, principalName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the authorization. Google returns a refresh token only when the user grants
+     * offline access, not on every sign-in or refresh, so one already stored is kept.
+     */
+    @Override
+    public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+        String registrationId = authorizedClient.getClientRegistration().getRegistrationId();
+        OAuth2ClientAuthorization stored = authorizationRepository
+                .findByClientRegistrationIdAndPrincipalName(registrationId, principal.getName())
+                .orElseGet(() -> {
+                    OAuth2ClientAuthorization created = new OAuth2ClientAuthorization();
+                    created.setClientRegistrationId(registrationId);
+                    created.setPrincipalName(principal.getName());
+                    return created;
+                });
+
+        OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        stored.setAccessToken(encryptor.encrypt(accessToken.getTokenValue()));
+        stored.setAccessTokenIssuedAt(accessToken.getIssuedAt());
+        stored.setAccessTokenExpiresAt(accessToken.getExpiresAt());
+        Set<String> scopes = accessToken.getScopes();
+        stored.setAccessTokenScopes(scopes.isEmpty() ? null : String.join(" ", scopes));
+
+        OAuth2RefreshToken refreshToken = authorizedClient.getRefreshToken();
+        if (refreshToken != null) {
+            stored.setRefreshToken(encryptor.encrypt(refreshToken.getTokenValue()));
+            stored.setRefreshTokenIssuedAt(refreshToken.getIssuedAt());
+        } else if (stored.getRefreshToken() != null && !isReadable(stored.getRefreshToken())) {
+            // Kept from before a key change; it would make the new authorization unreadable too
+            stored.setRefreshToken(null);
+            stored.setRefreshTokenIssuedAt(null);
+        }
+        authorizationRepository.save(stored);
+    }
+
+    @Override
+    public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        authorizationRepository.deleteAuthorization(clientRegistrationId, principalName);
+    }
+
+    private boolean isReadable(String encrypted) {
+        try {
+            encryptor.decrypt(encrypted);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static Set<String> scopesOf(String scopes) {
+        return scopes != null ? Set.copyOf(Arrays.asList(StringUtils.tokenizeToStringArray(scopes, " "))) : Set.of();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.PersonalizedEmail;
+import com.example.orthodox_prm.model.Parishioner;
+import com.example.orthodox_prm.util.MailMergeTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Renders personalized (mail-merge) emails from compiled subject and body templates.
+ * Field values are extracted from parishioners up front on the calling thread, so the
+ * rendering itself touches no entities and can safely run in parallel.
+ */
+@Service
+@Slf4j
+public class MailMergeService {
+
+    // Below this many recipients the fork/join overhead outweighs the rendering work
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    // Per-thread body buffers are reused across recipients, but not kept if a huge body inflated them
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> RENDER_BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(2048));
+
+    private static final String[] NO_VALUES = new String[MailMergeTemplate.Field.values().length];
+
+    /**
+     * Extract merge field values for a parishioner, indexed by {@link MailMergeTemplate.Field#ordinal()}
+     */
+    public String[] mergeValues(Parishioner p) {
+        String[] values = new String[MailMergeTemplate.Field.values().length];
+
+        String fullName = p.getFirstName() + " " + p.getLastName();
+        if (p.getNameSuffix() != null && !p.getNameSuffix().trim().isEmpty()) {
+            fullName += " " + p.getNameSuffix();
+        }
+
+        values[MailMergeTemplate.Field.FIRST_NAME.ordinal()] = p.getFirstName();
+        values[MailMergeTemplate.Field.LAST_NAME.ordinal()] = p.getLastName();
+        values[MailMergeTemplate.Field.FULL_NAME.ordinal()] = fullName;
+        // Fall back to the legal first name so "Dear {{baptismalName}}" never renders blank
+        values[MailMergeTemplate.Field.BAPTISMAL_NAME.ordinal()] =
+                p.getBaptismalName() != null && !p.getBaptismalName().trim().isEmpty()
+                        ? p.getBaptismalName() : p.getFirstName();
+        values[MailMergeTemplate.Field.PATRON_SAINT.ordinal()] = p.getPatronSaint();
+        values[MailMergeTemplate.Field.HOUSEHOLD_NAME.ordinal()] =
+                p.getHousehold() != null ? p.getHousehold().getFamilyName() : null;
+
+        return values;
+    }
+
+    /**
+     * Render one message per recipient
+     * @param subject Compiled subject template
+     * @param body Compiled body template
+     * @param recipients Recipient email addresses, in send order
+     * @param valuesByEmail Merge values per email (recipients without an entry render with empty fields)
+     * @return Rendered messages in the same order as the recipients
+     */
+    public List<PersonalizedEmail> renderAll(MailMergeTemplate subject, MailMergeTemplate body,
+                                             List<String> recipients, Map<String, String[]> valuesByEmail) {
+        PersonalizedEmail[] rendered = new PersonalizedEmail[recipients.size()];
+        long start = System.nanoTime();
+
+        IntStream indexes = IntStream.range(0, rendered.length);
+        if (rendered.length >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> {
+            String to = recipients.get(i);
+            String[] values = valuesByEmail.getOrDefault(to, NO_VALUES);
+            rendered[i] = new PersonalizedEmail(to, subject.render(values), renderBody(body, values));
+        });
+
+        log.debug("Rendered {} personalized emails in {} us", rendered.length, (System.nanoTime() - start) / 1000);
+        return Arrays.asList(rendered);
+    }
+
+    /**
+     * Render a single message, e.g. for the preview sample
+     */
+    public PersonalizedEmail render(MailMergeTemplate subject, MailMergeTemplate body, String to, String[] values) {
+        return new PersonalizedEmail(to, subject.render(values), renderBody(body, values));
+    }
+
+    private String renderBody(MailMergeTemplate body, String[] values) {
+        if (!body.isPersonalized()) {
+            return body.render(values);
+        }
+
+        StringBuilder buffer = RENDER_BUFFER.get();
+        buffer.setLength(0);
+        body.renderTo(buffer, values);
+        String text = buffer.toString();
+
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            RENDER_BUFFER.remove();
+        }
+        return text;
+    }
+}
@@ -1,51 +1,163 @@
 package com.example.orthodox_prm.service;
 
+import com.example.orthodox_prm.util.ExpiringKeyMap;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
-import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
-import java.util.Base64;
-import javax.imageio.ImageIO;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
 
+/**
+ * QR code images for submission links. An image depends only on its URL, size and format,
+ * so rendered images are cached and shared; callers must not modify the returned bytes.
+ */
 @Service
+@Slf4j
 public class QRCodeService {
 
+    // Sizes used by the link pages, rendered ahead when a link is created
+    public static final int PAGE_SIZE = 300;
+    public static final int PRINT_SIZE = 400;
+    public static final int MIN_SIZE = 100;
+    public static final int MAX_SIZE = 1200;
+
+    public enum Format {
+        PNG("png", MediaType.IMAGE_PNG),
+        SVG("svg", MediaType.valueOf("image/svg+xml"));
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public static Optional<Format> fromExtension(String extension) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(extension)) {
+                    return Optional.of(format);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private final Duration cacheTtl;
+    private final ExpiringKeyMap<byte[]> images;
+
+    public QRCodeService(@Value("${qr-code.cache-ttl:1d}") Duration cacheTtl,
+                         @Value("${qr-code.cache-size:500}") int cacheSize) {
+        this.cacheTtl = cacheTtl;
+        this.images = new ExpiringKeyMap<>(cacheSize, nowMinute());
+    }
+
     /**
-     * Generate a QR code from the given URL and return it as a Base64-encoded PNG
+     * Get a QR code image for the given URL, rendering it only if it is not cached. Each read
+     * keeps the image cached for another {@code qr-code.cache-ttl}.
      * @param url The URL to encode in the QR code
-     * @param width The width of the QR code image
-     * @param height The height of the QR code image
-     * @return Base64-encoded PNG image string with data URI prefix
+     * @param size The width and height of the image, in pixels
+     * @return The encoded image
      * @throws WriterException if QR code generation fails
      */
-    public String generateQRCodeBase64(String url, int width, int height) throws WriterException {
+    public byte[] getQRCode(String url, int size, Format format) throws WriterException {
+        String key = format.name() + ':' + size + ':' + url;
+        long minute = nowMinute();
+        long deadline = minute + Math.max(1, cacheTtl.toMinutes());
+        byte[] image = images.get(key, minute);
+        if (image != null) {
+            images.extend(key, minute, deadline);
+            return image;
+        }
+        image = render(url, size, format);
+        images.put(key, image, minute, deadline);
+        return image;
+    }
+
+    /**
+     * Render and cache the images the link pages show, so the first view is a cache hit
+     */
+    public void precompute(String url) {
         try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(url, BarcodeFormat.QR_CODE, width, height);
-            BufferedImage bufferedImage = MatrixToImageWriter.toBufferedImage(bitMatrix);
+            getQRCode(url, PAGE_SIZE, Format.PNG);
+            getQRCode(url, PRINT_SIZE, Format.SVG);
+        } catch (WriterException e) {
+            log.warn("Could not precompute QR codes for {}: {}", url, e.getMessage());
+        }
+    }
 
-            // Convert BufferedImage to Base64-encoded PNG
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ImageIO.write(bufferedImage, "PNG", outputStream);
-            byte[] imageBytes = outputStream.toByteArray();
-            String base64Image = Base64.getEncoder().encodeToString(imageBytes);
+    /**
+     * Encode the URL at one unit per module, quiet zone included, for drawing at any scale.
+     * Not cached; safe to call from several threads.
+     * @throws WriterException if QR code generation fails
+     */
+    public BitMatrix encodeModules(String url) throws WriterException {
+        return new QRCodeWriter().encode(url, BarcodeFormat.QR_CODE, 0, 0);
+    }
 
-            // Return with data URI prefix for direct use in HTML <img> tags
-            return "data:image/png;base64," + base64Image;
+    private byte[] render(String url, int size, Format format) throws WriterException {
+        try {
+            if (format == Format.SVG) {
+                return toSvg(encodeModules(url), size);
+            }
+            BitMatrix bitMatrix = new QRCodeWriter().encode(url, BarcodeFormat.QR_CODE, size, size);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+            return outputStream.toByteArray();
         } catch (Exception e) {
             throw new WriterException("Failed to generate QR code: " + e.getMessage());
         }
     }
 
     /**
-     * Generate a QR code with default size (300x300)
+     * Draw the matrix as one path, a rectangle per horizontal run of dark modules
      */
-    public String generateQRCodeBase64(String url) throws WriterException {
-        return generateQRCodeBase64(url, 300, 300);
+    private static byte[] toSvg(BitMatrix matrix, int size) {
+        int modules = matrix.getWidth();
+        StringBuilder svg = new StringBuilder(modules * modules + 300);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(size)
+                .append("\" height=\"").append(size)
+                .append("\" viewBox=\"0 0 ").append(modules).append(' ').append(modules)
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        for (int y = 0; y < modules; y++) {
+            int x = 0;
+            while (x < modules) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < modules && matrix.get(x, y)) {
+                    x++;
+                }
+                int run = x - start;
+                svg.append('M').append(start).append(' ').append(y)
+                        .append('h').append(run).append("v1h-").append(run).append('z');
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long nowMinute() {
+        return System.currentTimeMillis() / 60_000L;
     }
 }
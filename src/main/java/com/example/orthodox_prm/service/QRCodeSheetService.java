@@ -0,0 +1,274 @@
+package com.example.orthodox_prm.service;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Printable PDF sheets of QR codes for many submission links at once, such as one per
+ * ministry table at a festival: six labelled codes to a letter page, with cut lines.
+ * <p>
+ * Codes are encoded in parallel on a bounded pool while pages are laid out in link order as
+ * each code is ready. Codes are drawn as vector shapes, so they print sharp and the document
+ * stays small. Text is set in DejaVu Sans, embedded as a subset, so Cyrillic and Greek labels
+ * print as typed. The document is built in memory, at most {@link #MAX_ENTRIES} codes, and
+ * written to the given stream once every page is laid out.
+ */
+@Service
+@Slf4j
+public class QRCodeSheetService {
+
+    public static final int MAX_ENTRIES = 500;
+
+    private static final int COLUMNS = 2;
+    private static final int ROWS = 3;
+    private static final float MARGIN = 36;
+    private static final float HEADER_HEIGHT = 30;
+    private static final float QR_SIZE = 160;
+    private static final Color CUT_LINE_COLOR = new Color(200, 200, 200);
+
+    private final QRCodeService qrCodeService;
+    private final int threads;
+    private ExecutorService pool;
+    // TrueType files, read once; each document embeds the glyphs it uses
+    private byte[] regularFont;
+    private byte[] boldFont;
+
+    /**
+     * One code on the sheet
+     * @param label Shown above the code, such as the link's description
+     * @param url The URL the code encodes, also printed below it
+     * @param note Small print below the URL, or null
+     */
+    public record SheetEntry(String label, String url, String note) {
+    }
+
+    public QRCodeSheetService(QRCodeService qrCodeService,
+                              @Value("${qr-code.sheet-threads:0}") int threads) {
+        this.qrCodeService = qrCodeService;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @PostConstruct
+    void start() {
+        regularFont = readFont("fonts/DejaVuSans.ttf");
+        boldFont = readFont("fonts/DejaVuSans-Bold.ttf");
+        pool = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("qr-code-sheet-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Write a PDF with a labelled QR code for each entry, in order
+     * @throws IllegalArgumentException if there are more than {@link #MAX_ENTRIES} entries
+     */
+    public void writeSheet(String title, List<SheetEntry> entries, OutputStream out) throws IOException {
+        if (entries.size() > MAX_ENTRIES) {
+            throw new IllegalArgumentException("At most " + MAX_ENTRIES + " QR codes fit on one sheet");
+        }
+        List<CompletableFuture<BitMatrix>> codes = new ArrayList<>(entries.size());
+        for (SheetEntry entry : entries) {
+            codes.add(CompletableFuture.supplyAsync(() -> encode(entry.url()), pool));
+        }
+
+        try (PDDocument document = new PDDocument()) {
+            Fonts fonts = new Fonts(PDType0Font.load(document, new ByteArrayInputStream(regularFont)),
+                    PDType0Font.load(document, new ByteArrayInputStream(boldFont)));
+            int perPage = COLUMNS * ROWS;
+            for (int first = 0; first < entries.size(); first += perPage) {
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    drawPage(content, page.getMediaBox(), fonts, title,
+                            entries.subList(first, Math.min(first + perPage, entries.size())),
+                            codes.subList(first, Math.min(first + perPage, entries.size())));
+                }
+            }
+            document.save(out);
+        } finally {
+            codes.forEach(code -> code.cancel(false));
+        }
+    }
+
+    private static byte[] readFont(String path) {
+        try {
+            return new ClassPathResource(path).getContentAsByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read font " + path, e);
+        }
+    }
+
+    private BitMatrix encode(String url) {
+        try {
+            return qrCodeService.encodeModules(url);
+        } catch (WriterException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void drawPage(PDPageContentStream content, PDRectangle box, Fonts fonts, String title,
+                          List<SheetEntry> entries, List<CompletableFuture<BitMatrix>> codes) throws IOException {
+        float top = box.getHeight() - MARGIN;
+        drawCentered(content, fonts.bold(), 14, title, MARGIN, box.getWidth() - 2 * MARGIN, top - 14);
+
+        float cellWidth = (box.getWidth() - 2 * MARGIN) / COLUMNS;
+        float cellHeight = (box.getHeight() - 2 * MARGIN - HEADER_HEIGHT) / ROWS;
+        for (int i = 0; i < entries.size(); i++) {
+            float x = MARGIN + (i % COLUMNS) * cellWidth;
+            float y = top - HEADER_HEIGHT - (i / COLUMNS + 1) * cellHeight;
+            drawCell(content, fonts, entries.get(i), codes.get(i), x, y, cellWidth, cellHeight);
+        }
+    }
+
+    /**
+     * Draw one entry in the cell whose lower left corner is at (x, y)
+     */
+    private void drawCell(PDPageContentStream content, Fonts fonts, SheetEntry entry,
+                          CompletableFuture<BitMatrix> code, float x, float y,
+                          float width, float height) throws IOException {
+        // Dashed cut lines around the cell
+        content.setStrokingColor(CUT_LINE_COLOR);
+        content.setLineWidth(0.5f);
+        content.setLineDashPattern(new float[] {4, 4}, 0);
+        content.addRect(x, y, width, height);
+        content.stroke();
+        content.setLineDashPattern(new float[0], 0);
+
+        float textWidth = width - 16;
+        float labelBaseline = y + height - 24;
+        drawCentered(content, fonts.bold(), 12, entry.label(), x + 8, textWidth, labelBaseline);
+
+        float qrBottom = labelBaseline - 8 - QR_SIZE;
+        BitMatrix modules;
+        try {
+            modules = code.join();
+        } catch (CompletionException | CancellationException e) {
+            log.warn("Could not encode QR code for {}: {}", entry.url(), e.getMessage());
+            modules = null;
+        }
+        if (modules != null) {
+            drawModules(content, modules, x + (width - QR_SIZE) / 2, qrBottom, QR_SIZE);
+        } else {
+            drawCentered(content, fonts.regular(), 10, "QR code unavailable", x + 8, textWidth, qrBottom + QR_SIZE / 2);
+        }
+
+        // The URL in full for typing in, on two lines if need be
+        String url = printable(fonts.regular(), entry.url());
+        int split = fittingLength(fonts.regular(), 7, url, textWidth);
+        drawCentered(content, fonts.regular(), 7, url.substring(0, split), x + 8, textWidth, qrBottom - 10);
+        if (split < url.length()) {
+            drawCentered(content, fonts.regular(), 7, url.substring(split), x + 8, textWidth, qrBottom - 18);
+        }
+        if (entry.note() != null) {
+            drawCentered(content, fonts.regular(), 8, entry.note(), x + 8, textWidth, qrBottom - 29);
+        }
+    }
+
+    /**
+     * Fill one rectangle per horizontal run of dark modules, row 0 at the top
+     */
+    private static void drawModules(PDPageContentStream content, BitMatrix modules,
+                                    float x, float y, float size) throws IOException {
+        int count = modules.getWidth();
+        float module = size / count;
+        content.setNonStrokingColor(Color.BLACK);
+        for (int row = 0; row < count; row++) {
+            float rowBottom = y + (count - 1 - row) * module;
+            int column = 0;
+            while (column < count) {
+                if (!modules.get(column, row)) {
+                    column++;
+                    continue;
+                }
+                int start = column;
+                while (column < count && modules.get(column, row)) {
+                    column++;
+                }
+                content.addRect(x + start * module, rowBottom, (column - start) * module, module);
+            }
+        }
+        content.fill();
+    }
+
+    /**
+     * Draw a line of text centred in the given span, shortened with an ellipsis to fit
+     */
+    private static void drawCentered(PDPageContentStream content, PDFont font, float fontSize,
+                                     String text, float x, float width, float baseline) throws IOException {
+        String line = printable(font, text);
+        float lineWidth = font.getStringWidth(line) / 1000 * fontSize;
+        while (lineWidth > width && line.length() > 1) {
+            line = line.substring(0, line.length() - 2) + "…";
+            lineWidth = font.getStringWidth(line) / 1000 * fontSize;
+        }
+        content.setNonStrokingColor(Color.BLACK);
+        content.beginText();
+        content.setFont(font, fontSize);
+        content.newLineAtOffset(x + (width - lineWidth) / 2, baseline);
+        content.showText(line);
+        content.endText();
+    }
+
+    /**
+     * The length of the longest prefix of the text that fits in the width
+     */
+    private static int fittingLength(PDFont font, float fontSize, String text, float width) throws IOException {
+        float limit = width * 1000 / fontSize;
+        float used = 0;
+        for (int i = 0; i < text.length(); i++) {
+            used += font.getStringWidth(text.substring(i, i + 1));
+            if (used > limit) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * The text on one line, with characters the font has no glyph for replaced by '?'
+     */
+    private static String printable(PDFont font, String text) {
+        StringBuilder line = new StringBuilder(text.length());
+        text.codePoints().forEach(codePoint -> {
+            String character = Character.isWhitespace(codePoint) ? " " : Character.toString(codePoint);
+            try {
+                font.encode(character);
+                line.append(character);
+            } catch (IllegalArgumentException | IOException e) {
+                line.append('?');
+            }
+        });
+        return line.toString();
+    }
+
+    private record Fonts(PDFont regular, PDFont bold) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.orthodox_prm.service;
+
+/**
+ * Storage behind {@link RateLimitingService}: per-key submission allowances and blocks.
+ * The in-memory store suits a single instance; the database store shares limits
+ * between instances. Selected with {@code rate-limit.store} (memory or database).
+ */
+public interface RateLimitStore {
+
+    /**
+     * A limit of {@code capacity} submissions per key in any window of {@code windowMinutes}.
+     * Stores track at most {@code maxTrackedKeys} keys per limit in memory.
+     */
+    record Limit(String name, int capacity, int windowMinutes, int maxTrackedKeys) {
+    }
+
+    /**
+     * Submissions a key may still make under a limit
+     */
+    int remaining(Limit limit, String key);
+
+    /**
+     * Record a submission by a key
+     * @return Submissions the key may still make after this one
+     */
+    int record(Limit limit, String key);
+
+    /**
+     * Block a key under a limit until the given time (epoch millis)
+     */
+    void block(Limit limit, String key, long untilMillis);
+
+    /**
+     * End of a key's block under a limit (epoch millis), or 0 if it was never blocked
+     */
+    long blockedUntil(Limit limit, String key);
+
+    /**
+     * Drop state that no longer affects any limit
+     */
+    void cleanup();
+}
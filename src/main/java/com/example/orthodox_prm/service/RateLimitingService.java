@@ -1,17 +1,19 @@
 package com.example.orthodox_prm.service;
 
+import com.example.orthodox_prm.util.IpPrefixTrie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Instant;
 
 /**
  * Service for rate limiting submissions to prevent spam and DOS attacks.
- * Uses in-memory storage with automatic cleanup of old entries.
+ * Holds the limits and blocking policy; the counting is done by a {@link RateLimitStore},
+ * in memory for a single instance or in the database when several instances share limits.
+ * Addresses are also limited per network block (such as IPv6 /64s), so rotating through
+ * the addresses of one network does not get around the per-address limit.
  */
 @Service
 public class RateLimitingService {
@@ -22,11 +24,23 @@ public class RateLimitingService {
     private static final int MAX_SUBMISSIONS_PER_IP_PER_HOUR = 5;
     private static final int MAX_SUBMISSIONS_PER_TOKEN_PER_DAY = 10;
     private static final int IP_BLOCK_DURATION_MINUTES = 30;
-
-    // Storage for tracking submissions
-    private final Map<String, SubmissionTracker> ipSubmissions = new ConcurrentHashMap<>();
-    private final Map<String, SubmissionTracker> tokenSubmissions = new ConcurrentHashMap<>();
-    private final Map<String, LocalDateTime> blockedIps = new ConcurrentHashMap<>();
+    private static final int MAX_ADDRESS_BLOCK_NODES = 50_000;
+
+    // Caps on keys tracked in memory; past them the entries due to expire soonest are evicted
+    private static final RateLimitStore.Limit IP_LIMIT =
+            new RateLimitStore.Limit("ip", MAX_SUBMISSIONS_PER_IP_PER_HOUR, 60, 10_000);
+    private static final RateLimitStore.Limit TOKEN_LIMIT =
+            new RateLimitStore.Limit("token", MAX_SUBMISSIONS_PER_TOKEN_PER_DAY, 24 * 60, 1_000);
+
+    private final RateLimitStore rateLimitStore;
+    // Limits on address blocks, held by each instance
+    private final IpPrefixTrie addressBlocks;
+
+    public RateLimitingService(RateLimitStore rateLimitStore,
+                               @Value("${rate-limit.ip.block-limits:v4/24=20,v6/64=10,v6/48=30}") String blockLimits) {
+        this.rateLimitStore = rateLimitStore;
+        this.addressBlocks = new IpPrefixTrie(IpPrefixTrie.parseLevels(blockLimits, 60), MAX_ADDRESS_BLOCK_NODES);
+    }
 
     /**
      * Check if an IP address is allowed to submit
@@ -40,26 +54,18 @@ public class RateLimitingService {
         }
 
         // Check if IP is blocked
-        LocalDateTime blockedUntil = blockedIps.get(ipAddress);
-        if (blockedUntil != null) {
-            if (LocalDateTime.now().isBefore(blockedUntil)) {
-                logger.warn("Blocked IP {} attempted submission, blocked until {}", ipAddress, blockedUntil);
-                return false;
-            } else {
-                // Block expired, remove it
-                blockedIps.remove(ipAddress);
-            }
+        long blockedUntil = rateLimitStore.blockedUntil(IP_LIMIT, ipAddress);
+        if (System.currentTimeMillis() < blockedUntil) {
+            logger.warn("Blocked IP {} attempted submission, blocked until {}", ipAddress, Instant.ofEpochMilli(blockedUntil));
+            return false;
         }
 
-        // Check submission count
-        SubmissionTracker tracker = ipSubmissions.get(ipAddress);
-        if (tracker == null) {
-            return true;
+        // Check submission counts for the address and its network blocks
+        if (addressBlocks.remaining(ipAddress, System.currentTimeMillis()) <= 0) {
+            logger.warn("IP {} rate limited by its address block", ipAddress);
+            return false;
         }
-
-        // Clean up old entries and check
-        tracker.cleanupOldEntries(1, ChronoUnit.HOURS);
-        return tracker.getCount() < MAX_SUBMISSIONS_PER_IP_PER_HOUR;
+        return rateLimitStore.remaining(IP_LIMIT, ipAddress) > 0;
     }
 
     /**
@@ -72,14 +78,7 @@ public class RateLimitingService {
             return false;
         }
 
-        SubmissionTracker tracker = tokenSubmissions.get(token);
-        if (tracker == null) {
-            return true;
-        }
-
-        // Clean up entries older than 24 hours
-        tracker.cleanupOldEntries(24, ChronoUnit.HOURS);
-        return tracker.getCount() < MAX_SUBMISSIONS_PER_TOKEN_PER_DAY;
+        return rateLimitStore.remaining(TOKEN_LIMIT, token) > 0;
     }
 
     /**
@@ -91,17 +90,17 @@ public class RateLimitingService {
             return;
         }
 
-        SubmissionTracker tracker = ipSubmissions.computeIfAbsent(ipAddress, k -> new SubmissionTracker());
-        tracker.recordSubmission();
+        int remaining = rateLimitStore.record(IP_LIMIT, ipAddress);
+        addressBlocks.record(ipAddress, System.currentTimeMillis());
 
         // If they've exceeded the limit, block them
-        if (tracker.getCount() >= MAX_SUBMISSIONS_PER_IP_PER_HOUR) {
-            LocalDateTime blockUntil = LocalDateTime.now().plusMinutes(IP_BLOCK_DURATION_MINUTES);
-            blockedIps.put(ipAddress, blockUntil);
-            logger.warn("IP {} blocked until {} for exceeding rate limit", ipAddress, blockUntil);
+        if (remaining <= 0) {
+            long blockUntil = System.currentTimeMillis() + IP_BLOCK_DURATION_MINUTES * 60_000L;
+            rateLimitStore.block(IP_LIMIT, ipAddress, blockUntil);
+            logger.warn("IP {} blocked until {} for exceeding rate limit", ipAddress, Instant.ofEpochMilli(blockUntil));
         }
 
-        logger.debug("Recorded submission from IP {}, count: {}", ipAddress, tracker.getCount());
+        logger.debug("Recorded submission from IP {}, remaining: {}", ipAddress, remaining);
     }
 
     /**
@@ -113,11 +112,10 @@ public class RateLimitingService {
             return;
         }
 
-        SubmissionTracker tracker = tokenSubmissions.computeIfAbsent(token, k -> new SubmissionTracker());
-        tracker.recordSubmission();
+        int remaining = rateLimitStore.record(TOKEN_LIMIT, token);
 
-        logger.debug("Recorded submission for token {}, count: {}",
-            token.substring(0, Math.min(8, token.length())) + "...", tracker.getCount());
+        logger.debug("Recorded submission for token {}, remaining: {}",
+            token.substring(0, Math.min(8, token.length())) + "...", remaining);
     }
 
     /**
@@ -130,17 +128,12 @@ public class RateLimitingService {
             return 0;
         }
 
-        if (blockedIps.containsKey(ipAddress)) {
+        if (System.currentTimeMillis() < rateLimitStore.blockedUntil(IP_LIMIT, ipAddress)) {
             return 0;
         }
 
-        SubmissionTracker tracker = ipSubmissions.get(ipAddress);
-        if (tracker == null) {
-            return MAX_SUBMISSIONS_PER_IP_PER_HOUR;
-        }
-
-        tracker.cleanupOldEntries(1, ChronoUnit.HOURS);
-        return Math.max(0, MAX_SUBMISSIONS_PER_IP_PER_HOUR - tracker.getCount());
+        return Math.min(rateLimitStore.remaining(IP_LIMIT, ipAddress),
+                addressBlocks.remaining(ipAddress, System.currentTimeMillis()));
     }
 
     /**
@@ -153,58 +146,14 @@ public class RateLimitingService {
             return 0;
         }
 
-        SubmissionTracker tracker = tokenSubmissions.get(token);
-        if (tracker == null) {
-            return MAX_SUBMISSIONS_PER_TOKEN_PER_DAY;
-        }
-
-        tracker.cleanupOldEntries(24, ChronoUnit.HOURS);
-        return Math.max(0, MAX_SUBMISSIONS_PER_TOKEN_PER_DAY - tracker.getCount());
+        return rateLimitStore.remaining(TOKEN_LIMIT, token);
     }
 
     /**
-     * Clean up old tracking data (should be called periodically)
+     * Clean up old tracking data now. Not required: stores expire their state as they are used.
      */
     public void cleanupOldData() {
-        LocalDateTime now = LocalDateTime.now();
-
-        // Remove expired IP blocks
-        blockedIps.entrySet().removeIf(entry -> now.isAfter(entry.getValue()));
-
-        // Clean up IP trackers with no recent activity
-        ipSubmissions.entrySet().removeIf(entry -> {
-            entry.getValue().cleanupOldEntries(2, ChronoUnit.HOURS);
-            return entry.getValue().getCount() == 0;
-        });
-
-        // Clean up token trackers with no recent activity
-        tokenSubmissions.entrySet().removeIf(entry -> {
-            entry.getValue().cleanupOldEntries(48, ChronoUnit.HOURS);
-            return entry.getValue().getCount() == 0;
-        });
-
-        logger.debug("Rate limit cleanup complete. Active IP trackers: {}, Token trackers: {}, Blocked IPs: {}",
-            ipSubmissions.size(), tokenSubmissions.size(), blockedIps.size());
-    }
-
-    /**
-     * Inner class to track submission timestamps
-     */
-    private static class SubmissionTracker {
-        private final Map<LocalDateTime, Integer> submissions = new ConcurrentHashMap<>();
-
-        public void recordSubmission() {
-            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
-            submissions.merge(now, 1, Integer::sum);
-        }
-
-        public int getCount() {
-            return submissions.values().stream().mapToInt(Integer::intValue).sum();
-        }
-
-        public void cleanupOldEntries(long amount, ChronoUnit unit) {
-            LocalDateTime cutoff = LocalDateTime.now().minus(amount, unit);
-            submissions.entrySet().removeIf(entry -> entry.getKey().isBefore(cutoff));
-        }
+        rateLimitStore.cleanup();
+        logger.debug("Rate limit cleanup complete");
     }
 }
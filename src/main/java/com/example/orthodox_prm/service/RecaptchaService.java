@@ -1,37 +1,44 @@
 package com.example.orthodox_prm.service;
 
+import com.example.orthodox_prm.util.ExpiringKeyMap;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for verifying Google reCAPTCHA v3 tokens.
  * Provides invisible bot detection without user friction.
+ * <p>
+ * Google accepts a token only once, so a double-submit or retry would otherwise fail its
+ * second verification. Results are kept per token for the token's two-minute validity and
+ * reused for requests from the same IP, and concurrent verifications of one token share a
+ * single call to the {@link RecaptchaVerifier}.
  */
 @Service
 public class RecaptchaService {
 
     private static final Logger logger = LoggerFactory.getLogger(RecaptchaService.class);
 
-    private static final String RECAPTCHA_VERIFY_URL = "https://www.google.com/recaptcha/api/siteverify";
     private static final double MINIMUM_SCORE = 0.5; // Scores below this are considered bots
-
-    @Value("${recaptcha.secret-key:}")
-    private String secretKey;
+    // Tokens are valid for two minutes; kept a minute longer since the map has minute resolution
+    private static final int RESULT_CACHE_MINUTES = 3;
+    private static final int MAX_CACHED_RESULTS = 10_000;
 
     @Value("${recaptcha.enabled:false}")
     private boolean enabled;
 
-    private final RestTemplate restTemplate;
+    private final RecaptchaVerifier verifier;
+    // Token -> verification, pending or done
+    private final ExpiringKeyMap<CompletableFuture<Verification>> results =
+            new ExpiringKeyMap<>(MAX_CACHED_RESULTS, currentMinute());
 
-    public RecaptchaService() {
-        this.restTemplate = new RestTemplate();
+    public RecaptchaService(RecaptchaVerifier verifier) {
+        this.verifier = verifier;
     }
 
     /**
@@ -39,7 +46,7 @@ public class RecaptchaService {
      * @return true if reCAPTCHA verification is enabled
      */
     public boolean isEnabled() {
-        return enabled && secretKey != null && !secretKey.isEmpty();
+        return enabled && verifier.isConfigured();
     }
 
     /**
@@ -59,51 +66,74 @@ public class RecaptchaService {
             return false;
         }
 
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-
-            MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
-            params.add("secret", secretKey);
-            params.add("response", token);
-            if (remoteIp != null && !remoteIp.isEmpty()) {
-                params.add("remoteip", remoteIp);
-            }
-
-            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(params, headers);
-
-            ResponseEntity<RecaptchaResponse> response = restTemplate.postForEntity(
-                RECAPTCHA_VERIFY_URL,
-                request,
-                RecaptchaResponse.class
-            );
-
-            RecaptchaResponse body = response.getBody();
-            if (body == null) {
-                logger.error("reCAPTCHA verification returned null response");
-                return false;
-            }
-
-            if (!body.isSuccess()) {
-                logger.warn("reCAPTCHA verification failed. Error codes: {}", body.getErrorCodes());
-                return false;
-            }
-
-            // Check the score (v3 specific)
-            if (body.getScore() < MINIMUM_SCORE) {
-                logger.warn("reCAPTCHA score {} is below minimum threshold {}", body.getScore(), MINIMUM_SCORE);
-                return false;
+        long minute = currentMinute();
+        CompletableFuture<Verification> created = new CompletableFuture<>();
+        CompletableFuture<Verification> pending = results.computeIfAbsent(token, minute,
+                minute + RESULT_CACHE_MINUTES, key -> created);
+
+        Verification verification;
+        if (pending == created) {
+            verification = callVerifier(token, remoteIp);
+            if (verification == null) {
+                // Not cached, so the next attempt calls Google again
+                results.remove(token, created);
+                verification = new Verification(false, remoteIp);
             }
+            created.complete(verification);
+        } else {
+            verification = pending.join();
+            logger.debug("reCAPTCHA token already verified, reusing result");
+        }
 
-            logger.debug("reCAPTCHA verification passed. Score: {}, Action: {}", body.getScore(), body.getAction());
-            return true;
+        if (verification.passed() && !sameIp(verification.remoteIp(), remoteIp)) {
+            logger.warn("reCAPTCHA token verified for IP {} was replayed from IP {}", verification.remoteIp(), remoteIp);
+            return false;
+        }
+        return verification.passed();
+    }
 
+    /**
+     * Call the verifier and judge its response
+     * @return The verification, or null if the verifier could not be reached
+     */
+    private Verification callVerifier(String token, String remoteIp) {
+        RecaptchaResponse body;
+        try {
+            body = verifier.verify(token, remoteIp);
         } catch (Exception e) {
             logger.error("reCAPTCHA verification error: {}", e.getMessage());
             // In case of error, we might want to allow the submission to prevent blocking legitimate users
             // But for security, we'll reject it
-            return false;
+            return null;
+        }
+
+        if (!body.isSuccess()) {
+            logger.warn("reCAPTCHA verification failed. Error codes: {}", Arrays.toString(body.getErrorCodes()));
+            return new Verification(false, remoteIp);
+        }
+
+        // Check the score (v3 specific)
+        if (body.getScore() < MINIMUM_SCORE) {
+            logger.warn("reCAPTCHA score {} is below minimum threshold {}", body.getScore(), MINIMUM_SCORE);
+            return new Verification(false, remoteIp);
         }
+
+        logger.debug("reCAPTCHA verification passed. Score: {}, Action: {}", body.getScore(), body.getAction());
+        return new Verification(true, remoteIp);
+    }
+
+    private static boolean sameIp(String verifiedIp, String remoteIp) {
+        return verifiedIp == null ? remoteIp == null || remoteIp.isEmpty() : verifiedIp.equals(remoteIp);
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000L;
+    }
+
+    /**
+     * Outcome of verifying a token, and the IP it was verified for
+     */
+    private record Verification(boolean passed, String remoteIp) {
     }
 
     /**
@@ -0,0 +1,21 @@
+package com.example.orthodox_prm.service;
+
+/**
+ * Checks a reCAPTCHA token with the verification endpoint. Chosen by {@code recaptcha.verifier}:
+ * Google's siteverify API, or a local stub for tests and load runs.
+ */
+public interface RecaptchaVerifier {
+
+    /**
+     * Whether the verifier has what it needs to run, such as a secret key
+     */
+    boolean isConfigured();
+
+    /**
+     * Verify a token once
+     * @param remoteIp The client's IP address, or null
+     * @return The endpoint's response, never null
+     * @throws RuntimeException if the endpoint could not be reached
+     */
+    RecaptchaService.RecaptchaResponse verify(String token, String remoteIp);
+}
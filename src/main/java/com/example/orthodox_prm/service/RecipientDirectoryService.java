@@ -0,0 +1,171 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.MembershipStatus;
+import com.example.orthodox_prm.dto.RecipientDTO;
+import com.example.orthodox_prm.repository.ParishionerRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the email recipient list as pre-serialized JSON.
+ * The list is loaded once per registry version; each status filter is serialized
+ * (plain and gzipped) on first use and then reused until the registry changes.
+ */
+@Service
+@Slf4j
+public class RecipientDirectoryService {
+
+    private final ParishionerRepository parishionerRepository;
+    private final RegistryVersionService registryVersionService;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot;
+
+    public RecipientDirectoryService(ParishionerRepository parishionerRepository,
+                                     RegistryVersionService registryVersionService,
+                                     ObjectMapper objectMapper) {
+        this.parishionerRepository = parishionerRepository;
+        this.registryVersionService = registryVersionService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get the serialized recipient list, optionally restricted to the given statuses
+     * @param statuses Statuses to include (null or empty = all non-departed parishioners)
+     * @return Cached payload with its ETags
+     */
+    public RecipientPayload getRecipients(Collection<MembershipStatus> statuses) {
+        Snapshot current = currentSnapshot();
+        EnumSet<MembershipStatus> filter = (statuses == null || statuses.isEmpty())
+                ? EnumSet.noneOf(MembershipStatus.class)
+                : EnumSet.copyOf(statuses);
+        String filterKey = filter.stream().map(Enum::name).collect(Collectors.joining(","));
+
+        return current.payloads.computeIfAbsent(filterKey, key -> buildPayload(current, filter, key));
+    }
+
+    /**
+     * Return the snapshot for the current registry version, reloading it at most once per version
+     */
+    private Snapshot currentSnapshot() {
+        // Read the version before querying: a change during the load leaves the snapshot behind
+        // the counter, so the next request reloads instead of serving stale data as current
+        long version = registryVersionService.currentVersion();
+        Snapshot current = snapshot;
+        if (current != null && current.version == version) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.version != version) {
+                current = new Snapshot(version, loadRecipients());
+                snapshot = current;
+                log.debug("Loaded {} email recipients at registry version {}", current.recipients.size(), version);
+            }
+            return current;
+        }
+    }
+
+    private List<RecipientDTO> loadRecipients() {
+        List<Object[]> rows = parishionerRepository.findRecipientRows();
+        List<RecipientDTO> recipients = new ArrayList<>(rows.size());
+
+        for (Object[] row : rows) {
+            String firstName = (String) row[1];
+            String lastName = (String) row[2];
+            String nameSuffix = (String) row[3];
+            MembershipStatus status = (MembershipStatus) row[4];
+            String email = (String) row[5];
+            String householdName = (String) row[6];
+            String householdEmail = (String) row[7];
+
+            String fullName = firstName + " " + lastName;
+            if (nameSuffix != null && !nameSuffix.trim().isEmpty()) {
+                fullName += " " + nameSuffix;
+            }
+
+            // Use individual email first, fall back to household
+            String recipientEmail = null;
+            if (email != null && !email.trim().isEmpty()) {
+                recipientEmail = email;
+            } else if (householdEmail != null && !householdEmail.trim().isEmpty()) {
+                recipientEmail = householdEmail;
+            }
+
+            recipients.add(new RecipientDTO(
+                    (Long) row[0],
+                    fullName,
+                    recipientEmail,
+                    householdName,
+                    status != null ? status.toString() : ""));
+        }
+        return recipients;
+    }
+
+    private RecipientPayload buildPayload(Snapshot current, EnumSet<MembershipStatus> filter, String filterKey) {
+        List<RecipientDTO> selected = current.recipients;
+        if (!filter.isEmpty()) {
+            List<String> statusNames = filter.stream().map(Enum::toString).collect(Collectors.toList());
+            selected = current.recipients.stream()
+                    .filter(r -> statusNames.contains(r.getStatus()))
+                    .collect(Collectors.toList());
+        }
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(selected);
+            String etag = "\"recipients-" + Long.toHexString(current.version)
+                    + (filterKey.isEmpty() ? "" : "-" + filterKey) + "\"";
+            return new RecipientPayload(json, gzip(json), etag);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize recipient list", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Recipient list loaded at a single registry version, plus its serialized variants by status filter
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final List<RecipientDTO> recipients;
+        private final Map<String, RecipientPayload> payloads = new ConcurrentHashMap<>();
+
+        private Snapshot(long version, List<RecipientDTO> recipients) {
+            this.version = version;
+            this.recipients = recipients;
+        }
+    }
+
+    /**
+     * Pre-serialized recipient JSON in plain and gzip form
+     */
+    public record RecipientPayload(byte[] json, byte[] gzippedJson, String etag) {
+
+        /**
+         * ETag of the gzip-encoded variant (distinct so caches never mix the two encodings)
+         */
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+}
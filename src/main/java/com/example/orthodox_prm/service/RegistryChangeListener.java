@@ -0,0 +1,28 @@
+package com.example.orthodox_prm.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener attached to Parishioner and Household.
+ * Any insert, update or delete bumps the registry version so derived caches
+ * (such as the email recipient list) are invalidated.
+ */
+@Component
+public class RegistryChangeListener {
+
+    private final RegistryVersionService registryVersionService;
+
+    public RegistryChangeListener(RegistryVersionService registryVersionService) {
+        this.registryVersionService = registryVersionService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onRegistryChange(Object entity) {
+        registryVersionService.markChanged();
+    }
+}
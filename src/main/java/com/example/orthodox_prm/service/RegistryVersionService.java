@@ -0,0 +1,58 @@
+package com.example.orthodox_prm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version counter for the parish registry (parishioners and households).
+ * Caches built from registry data remember the version they were built at and
+ * rebuild once it moves on.
+ */
+@Service
+@Slf4j
+public class RegistryVersionService {
+
+    // Seeded from the clock so versions (and the ETags built from them) never repeat across restarts
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Get the current registry version
+     */
+    public long currentVersion() {
+        return version.get();
+    }
+
+    /**
+     * Mark the registry as changed. Inside a transaction the bump is deferred until
+     * after commit, so a cache rebuilt in the meantime cannot capture uncommitted data
+     * under the new version. Repeated changes in one transaction bump only once.
+     */
+    public void markChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(RegistryVersionService.this);
+                if (status == STATUS_COMMITTED) {
+                    bump();
+                }
+            }
+        });
+    }
+
+    private void bump() {
+        long newVersion = version.incrementAndGet();
+        log.debug("Registry version bumped to {}", newVersion);
+    }
+}
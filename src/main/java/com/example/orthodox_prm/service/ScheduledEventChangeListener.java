@@ -0,0 +1,40 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.model.EventParticipant;
+import com.example.orthodox_prm.model.ScheduledEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener attached to ScheduledEvent and EventParticipant.
+ * Any insert, update or delete reindexes the affected event in the
+ * {@link EventIntervalIndex} once the transaction commits, and moves the calendar feeds' ETags on.
+ */
+@Component
+public class ScheduledEventChangeListener {
+
+    private final EventIntervalIndex eventIntervalIndex;
+    private final CalendarFeedService calendarFeedService;
+
+    // Lazy: listeners are created with the entity manager factory, before the repositories the index needs
+    public ScheduledEventChangeListener(@Lazy EventIntervalIndex eventIntervalIndex,
+                                        @Lazy CalendarFeedService calendarFeedService) {
+        this.eventIntervalIndex = eventIntervalIndex;
+        this.calendarFeedService = calendarFeedService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onEventChange(Object entity) {
+        calendarFeedService.markEventsChanged();
+        if (entity instanceof ScheduledEvent event) {
+            eventIntervalIndex.markChanged(event.getId());
+        } else if (entity instanceof EventParticipant participant && participant.getEvent() != null) {
+            eventIntervalIndex.markChanged(participant.getEvent().getId());
+        }
+    }
+}
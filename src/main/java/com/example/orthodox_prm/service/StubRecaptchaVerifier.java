@@ -0,0 +1,62 @@
+package com.example.orthodox_prm.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Local stand-in for Google's verification endpoint, for tests and load runs. Every token
+ * passes with the configured score, except tokens starting with "fail", which are rejected
+ * the way Google rejects a bad token. An optional delay imitates the network round trip.
+ */
+@Component
+@ConditionalOnProperty(name = "recaptcha.verifier", havingValue = "stub")
+public class StubRecaptchaVerifier implements RecaptchaVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubRecaptchaVerifier.class);
+
+    private final double score;
+    private final Duration latency;
+
+    public StubRecaptchaVerifier(@Value("${recaptcha.stub.score:0.9}") double score,
+                                 @Value("${recaptcha.stub.latency:0ms}") Duration latency) {
+        this.score = score;
+        this.latency = latency;
+        logger.warn("reCAPTCHA tokens are checked by a local stub, not Google; do not use in production");
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    @Override
+    public RecaptchaService.RecaptchaResponse verify(String token, String remoteIp) {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during stub reCAPTCHA verification", e);
+            }
+        }
+
+        RecaptchaService.RecaptchaResponse response = new RecaptchaService.RecaptchaResponse();
+        if (token.startsWith("fail")) {
+            response.setSuccess(false);
+            response.setErrorCodes(new String[] {"invalid-input-response"});
+            return response;
+        }
+        response.setSuccess(true);
+        response.setScore(score);
+        response.setAction("submit");
+        response.setChallengeTs(Instant.now().toString());
+        response.setHostname("localhost");
+        return response;
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.FailedIntakeDTO;
+import com.example.orthodox_prm.model.ParishionerSubmission;
+import com.example.orthodox_prm.model.SubmissionIntake;
+import com.example.orthodox_prm.model.SubmissionLink;
+import com.example.orthodox_prm.repository.SubmissionIntakeRepository;
+import com.example.orthodox_prm.repository.SubmissionLinkRepository;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Intake queue for public form submissions, absorbing the burst when a whole congregation
+ * submits at once.
+ * <p>
+ * With {@code submission.intake.mode=queued}, the form appends each sanitized submission to
+ * the submission_intake table and answers with a receipt. Appends arriving together are
+ * written by one thread in a single transaction, so a burst costs a few commits rather than
+ * one per submission; each request still waits until its row is committed. A background
+ * worker then saves queued submissions as {@link ParishionerSubmission}s in batches, deleting
+ * their intake rows in the same transaction, so each is saved exactly once. Rows that keep
+ * failing are listed on the submission review page, to be retried or discarded there.
+ */
+@Service
+@Slf4j
+public class SubmissionIntakeService {
+
+    private static final int APPEND_BATCH_SIZE = 200;
+    private static final int PROCESS_BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration APPEND_TIMEOUT = Duration.ofSeconds(10);
+
+    private final SubmissionIntakeRepository submissionIntakeRepository;
+    private final SubmissionLinkRepository submissionLinkRepository;
+    private final SubmissionService submissionService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean queued;
+    private final Duration pollInterval;
+    // Field-based mapping; relations are stored as ids on the intake row
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .addMixIn(ParishionerSubmission.class, PayloadMixIn.class);
+
+    private final BlockingQueue<PendingAppend> appends = new LinkedBlockingQueue<>();
+    private ExecutorService appender;
+    private ScheduledExecutorService worker;
+    private volatile boolean stopping;
+
+    public SubmissionIntakeService(SubmissionIntakeRepository submissionIntakeRepository,
+                                   SubmissionLinkRepository submissionLinkRepository,
+                                   SubmissionService submissionService,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${submission.intake.mode:direct}") String mode,
+                                   @Value("${submission.intake.poll-interval:1s}") Duration pollInterval) {
+        this.submissionIntakeRepository = submissionIntakeRepository;
+        this.submissionLinkRepository = submissionLinkRepository;
+        this.submissionService = submissionService;
+        this.transactionTemplate = transactionTemplate;
+        this.queued = "queued".equalsIgnoreCase(mode);
+        this.pollInterval = pollInterval;
+    }
+
+    @PostConstruct
+    void start() {
+        appender = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("submission-intake-append").daemon().factory());
+        appender.execute(this::appendLoop);
+        // Runs in either mode, so submissions queued before a switch to direct are still saved
+        worker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("submission-intake-worker").daemon().factory());
+        long period = Math.max(1, pollInterval.toMillis());
+        worker.scheduleWithFixedDelay(this::processQueueSafely, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        stopping = true;
+        appender.shutdownNow();
+        // Let the worker commit its current batch; an interrupt inside a transaction can break the connection
+        worker.shutdown();
+        if (!worker.awaitTermination(APPEND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            worker.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether public submissions go through the queue rather than being saved directly
+     */
+    public boolean isQueued() {
+        return queued;
+    }
+
+    /**
+     * Durably queue a submission for saving
+     * @return The receipt to show the submitter
+     * @throws IllegalStateException if the submission could not be queued
+     */
+    public String enqueue(ParishionerSubmission submission) {
+        SubmissionIntake intake = new SubmissionIntake();
+        intake.setReceipt(UUID.randomUUID().toString());
+        intake.setSubmissionLinkId(submission.getSubmissionLink().getId());
+        intake.setReceivedAt(LocalDateTime.now());
+        try {
+            intake.setPayload(objectMapper.writeValueAsString(submission));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize submission", e);
+        }
+
+        PendingAppend append = new PendingAppend(intake, new CompletableFuture<>());
+        appends.add(append);
+        try {
+            append.done().get(APPEND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing submission", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Could not queue submission", e);
+        }
+        return intake.getReceipt();
+    }
+
+    /**
+     * Write waiting appends, all that have arrived together in one transaction
+     */
+    private void appendLoop() {
+        List<PendingAppend> batch = new ArrayList<>(APPEND_BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(appends.take());
+                appends.drainTo(batch, APPEND_BATCH_SIZE - 1);
+                List<SubmissionIntake> rows = batch.stream().map(PendingAppend::intake).toList();
+                transactionTemplate.executeWithoutResult(status -> submissionIntakeRepository.saveAll(rows));
+                batch.forEach(append -> append.done().complete(null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Error appending {} submissions to the intake queue", batch.size(), e);
+                batch.forEach(append -> append.done().completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Save queued submissions until the queue is empty
+     */
+    public void processQueue() {
+        List<SubmissionIntake> batch;
+        do {
+            batch = submissionIntakeRepository.findByAttemptsLessThanOrderByIdAsc(MAX_ATTEMPTS,
+                    PageRequest.of(0, PROCESS_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                List<SubmissionIntake> rows = batch;
+                transactionTemplate.executeWithoutResult(status -> save(rows));
+                log.debug("Saved {} queued submissions", batch.size());
+            } catch (Exception e) {
+                // Retry one by one, so one bad row does not hold back the rest
+                log.warn("Error saving {} queued submissions, retrying individually: {}", batch.size(), e.getMessage());
+                batch.forEach(this::saveOne);
+            }
+        } while (batch.size() == PROCESS_BATCH_SIZE && !stopping);
+    }
+
+    /**
+     * Get queued submissions the worker stopped retrying, oldest first
+     */
+    public List<FailedIntakeDTO> getFailedIntakes() {
+        return submissionIntakeRepository.findByAttemptsGreaterThanEqualOrderByIdAsc(MAX_ATTEMPTS).stream()
+                .map(this::toFailedIntake)
+                .toList();
+    }
+
+    /**
+     * Give a failed queued submission a fresh set of attempts on the worker's next run
+     * @return Whether the row was still queued and had failed
+     */
+    public boolean retryFailedIntake(Long id) {
+        boolean reset = submissionIntakeRepository.resetAttempts(id, MAX_ATTEMPTS) > 0;
+        if (reset) {
+            log.info("Failed queued submission {} will be retried", id);
+        }
+        return reset;
+    }
+
+    /**
+     * Delete a failed queued submission without saving it
+     * @return Whether the row was still queued and had failed
+     */
+    public boolean discardFailedIntake(Long id) {
+        boolean deleted = submissionIntakeRepository.deleteFailed(id, MAX_ATTEMPTS) > 0;
+        if (deleted) {
+            log.info("Failed queued submission {} was discarded", id);
+        }
+        return deleted;
+    }
+
+    private FailedIntakeDTO toFailedIntake(SubmissionIntake intake) {
+        String name = null;
+        String email = null;
+        try {
+            ParishionerSubmission submission = objectMapper.readValue(intake.getPayload(), ParishionerSubmission.class);
+            name = (Objects.toString(submission.getFirstName(), "") + " "
+                    + Objects.toString(submission.getLastName(), "")).trim();
+            email = submission.getEmail();
+        } catch (JsonProcessingException e) {
+            log.debug("Unreadable queued submission {}", intake.getReceipt());
+        }
+        return new FailedIntakeDTO(intake.getId(), intake.getReceipt(), intake.getReceivedAt(), name, email,
+                intake.getAttempts(), intake.getLastError());
+    }
+
+    private void processQueueSafely() {
+        try {
+            processQueue();
+        } catch (Exception e) {
+            log.error("Error processing the submission intake queue", e);
+        }
+    }
+
+    private void saveOne(SubmissionIntake intake) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(List.of(intake)));
+        } catch (Exception e) {
+            log.error("Error saving queued submission {}", intake.getReceipt(), e);
+            intake.setAttempts(intake.getAttempts() + 1);
+            String message = String.valueOf(e.getMessage());
+            intake.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+            try {
+                submissionIntakeRepository.save(intake);
+            } catch (Exception saveError) {
+                log.error("Error recording failure of queued submission {}", intake.getReceipt(), saveError);
+            }
+        }
+    }
+
+    /**
+     * Save the rows' submissions and delete the rows. Caller holds a transaction; if another
+     * instance already deleted a row, the delete fails and the transaction rolls back.
+     */
+    private void save(List<SubmissionIntake> rows) {
+        for (SubmissionIntake intake : rows) {
+            ParishionerSubmission submission;
+            try {
+                submission = objectMapper.readValue(intake.getPayload(), ParishionerSubmission.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unreadable queued submission " + intake.getReceipt(), e);
+            }
+            SubmissionLink link = submissionLinkRepository.getReferenceById(intake.getSubmissionLinkId());
+            submission.setSubmissionLink(link);
+            submissionService.saveSubmission(submission);
+        }
+        submissionIntakeRepository.deleteAll(rows);
+    }
+
+    private record PendingAppend(SubmissionIntake intake, CompletableFuture<Void> done) {
+    }
+
+    // Relations and database-assigned fields are not part of the payload
+    @JsonIgnoreProperties({"id", "version", "submissionLink", "targetParishioner"})
+    private abstract static class PayloadMixIn {
+    }
+}
@@ -2,19 +2,84 @@ package com.example.orthodox_prm.service;
 
 import com.example.orthodox_prm.model.SubmissionLink;
 import com.example.orthodox_prm.repository.SubmissionLinkRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.example.orthodox_prm.util.ExpiringKeyMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Submission links, looked up by token on every public form request.
+ * <p>
+ * When a QR code is shown to a whole congregation, many phones open the same link at once.
+ * Lookups by token are served from a short-lived cache, and access and submission counts
+ * are added to striped counters that a background worker flushes to the database as atomic
+ * increments every {@code submission-link.flush-interval}, instead of each request updating
+ * the same row. Links returned by {@link #findByToken} include counts not yet flushed;
+ * the management pages read the database and may lag by up to one flush interval.
+ */
 @Service
+@Slf4j
 public class SubmissionLinkService {
 
-    @Autowired
-    private SubmissionLinkRepository submissionLinkRepository;
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
+    private final SubmissionLinkRepository submissionLinkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration cacheTtl;
+    private final Duration flushInterval;
+
+    // Token -> link as last read; entries from an older generation are stale
+    private final ExpiringKeyMap<CachedLink> linksByToken =
+            new ExpiringKeyMap<>(MAX_CACHED_TOKENS, System.currentTimeMillis() / 60_000L);
+    private final AtomicLong generation = new AtomicLong();
+    // Link id -> counts not yet flushed
+    private final Map<Long, PendingCounts> pendingCounts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService worker;
+
+    public SubmissionLinkService(SubmissionLinkRepository submissionLinkRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${submission-link.cache-ttl:30s}") Duration cacheTtl,
+                                 @Value("${submission-link.flush-interval:5s}") Duration flushInterval) {
+        this.submissionLinkRepository = submissionLinkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheTtl = cacheTtl;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    void start() {
+        worker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("submission-link-counts").daemon().factory());
+        long period = Math.max(1, flushInterval.toMillis());
+        worker.scheduleWithFixedDelay(this::flushCountsSafely, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        worker.shutdownNow();
+        flushCountsSafely();
+    }
 
     /**
      * Create a new submission link
@@ -39,14 +104,37 @@ public class SubmissionLinkService {
      */
     @Transactional
     public SubmissionLink saveLink(SubmissionLink link) {
-        return submissionLinkRepository.save(link);
+        SubmissionLink saved = submissionLinkRepository.save(link);
+        invalidateCache();
+        return saved;
     }
 
     /**
-     * Find a link by token
+     * Find a link by token, from the cache if read within the last {@code submission-link.cache-ttl}.
+     * The link returned is a copy, with counts not yet flushed included.
      */
     public Optional<SubmissionLink> findByToken(String token) {
-        return submissionLinkRepository.findByToken(token);
+        long now = System.nanoTime();
+        long minute = System.currentTimeMillis() / 60_000L;
+        CachedLink cached = linksByToken.get(token, minute);
+        if (cached == null || cached.generation() != generation.get() || now - cached.loadedAt() > cacheTtl.toNanos()) {
+            // Read the generation first, so an invalidation during the read marks this entry stale
+            long loadGeneration = generation.get();
+            SubmissionLink link = submissionLinkRepository.findByToken(token).map(SubmissionLinkService::copy).orElse(null);
+            cached = new CachedLink(loadGeneration, now, link);
+            linksByToken.put(token, cached, minute, minute + cacheTtl.toMinutes() + 1);
+        }
+        if (cached.link() == null) {
+            return Optional.empty();
+        }
+
+        SubmissionLink link = copy(cached.link());
+        PendingCounts pending = pendingCounts.get(link.getId());
+        if (pending != null) {
+            link.setAccessCount(link.getAccessCount() + (int) pending.accesses.sum());
+            link.setSubmissionCount(link.getSubmissionCount() + (int) pending.submissions.sum());
+        }
+        return Optional.of(link);
     }
 
     /**
@@ -58,15 +146,59 @@ public class SubmissionLinkService {
     }
 
     /**
-     * Increment access count for a link
+     * Increment access count for a link; written to the database by the next flush
      */
-    @Transactional
     public void incrementAccessCount(Long linkId) {
-        Optional<SubmissionLink> linkOpt = submissionLinkRepository.findById(linkId);
-        if (linkOpt.isPresent()) {
-            SubmissionLink link = linkOpt.get();
-            link.setAccessCount(link.getAccessCount() + 1);
-            submissionLinkRepository.save(link);
+        pendingCounts.computeIfAbsent(linkId, id -> new PendingCounts()).accesses.increment();
+    }
+
+    /**
+     * Increment submission count for a link; written to the database by the next flush
+     */
+    public void incrementSubmissionCount(Long linkId) {
+        pendingCounts.computeIfAbsent(linkId, id -> new PendingCounts()).submissions.increment();
+    }
+
+    /**
+     * Write pending access and submission counts to the database as atomic increments,
+     * all in one transaction
+     */
+    public void flushCounts() {
+        List<Long> linkIds = new ArrayList<>();
+        List<long[]> deltas = new ArrayList<>();
+        pendingCounts.forEach((linkId, pending) -> {
+            long accesses = pending.accesses.sum();
+            long submissions = pending.submissions.sum();
+            if (accesses != 0 || submissions != 0) {
+                linkIds.add(linkId);
+                deltas.add(new long[] {accesses, submissions});
+            }
+        });
+        if (linkIds.isEmpty()) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < linkIds.size(); i++) {
+                submissionLinkRepository.incrementCounts(linkIds.get(i), (int) deltas.get(i)[0], (int) deltas.get(i)[1]);
+            }
+        });
+        // Cached links now lag the database; until the counters are reduced, reads overcount, never undercount
+        invalidateCache();
+        for (int i = 0; i < linkIds.size(); i++) {
+            PendingCounts pending = pendingCounts.get(linkIds.get(i));
+            pending.accesses.add(-deltas.get(i)[0]);
+            pending.submissions.add(-deltas.get(i)[1]);
+        }
+        log.debug("Flushed access and submission counts for {} submission links", linkIds.size());
+    }
+
+    private void flushCountsSafely() {
+        try {
+            flushCounts();
+        } catch (Exception e) {
+            // Counts stay pending and are retried on the next flush
+            log.error("Error flushing submission link counts", e);
         }
     }
 
@@ -81,6 +213,7 @@ public class SubmissionLinkService {
             link.setIsActive(false);
             submissionLinkRepository.save(link);
         }
+        invalidateCache();
     }
 
     /**
@@ -103,4 +236,58 @@ public class SubmissionLinkService {
     public Optional<SubmissionLink> getLinkById(Long linkId) {
         return submissionLinkRepository.findById(linkId);
     }
+
+    /**
+     * Get the links with the given IDs, in the order given; unknown IDs are skipped
+     */
+    public List<SubmissionLink> getLinksByIds(List<Long> linkIds) {
+        Map<Long, SubmissionLink> found = new HashMap<>();
+        submissionLinkRepository.findAllById(linkIds).forEach(link -> found.put(link.getId(), link));
+        return linkIds.stream().distinct().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Mark cached links stale, once the current transaction (if any) has committed
+     */
+    private void invalidateCache() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            generation.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                generation.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Detached copy of a link, so cached links are never shared with callers or the persistence context
+     */
+    private static SubmissionLink copy(SubmissionLink link) {
+        SubmissionLink copy = new SubmissionLink();
+        copy.setId(link.getId());
+        copy.setToken(link.getToken());
+        copy.setCreatedBy(link.getCreatedBy());
+        copy.setCreatedAt(link.getCreatedAt());
+        copy.setExpiresAt(link.getExpiresAt());
+        copy.setIsActive(link.getIsActive());
+        copy.setAccessCount(link.getAccessCount());
+        copy.setDescription(link.getDescription());
+        copy.setMaxSubmissions(link.getMaxSubmissions());
+        copy.setSubmissionCount(link.getSubmissionCount());
+        return copy;
+    }
+
+    /**
+     * A token's link as read from the database, or null if there is none
+     */
+    private record CachedLink(long generation, long loadedAt, SubmissionLink link) {
+    }
+
+    private static final class PendingCounts {
+        private final LongAdder accesses = new LongAdder();
+        private final LongAdder submissions = new LongAdder();
+    }
 }
@@ -0,0 +1,246 @@
+package com.example.orthodox_prm.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Concurrent map whose keys expire at a deadline (in epoch minutes) and whose size is capped.
+ * <p>
+ * Expiry is driven by a two-level hierarchical timing wheel: 64 one-minute slots, and 64
+ * slots of 64 minutes each (about 68 hours; later deadlines park in the furthest slot).
+ * The wheel is advanced by the map's own callers, one tick per elapsed minute, so cleanup
+ * is spread over normal use and costs only the entries actually due. Pushing a deadline
+ * later is a single volatile write; the entry is moved when its old slot comes due.
+ * <p>
+ * When a new key would exceed the cap, the entry due soonest (to the minute within the hour,
+ * to the block beyond it) is evicted, so memory stays bounded even if callers are fed an
+ * unbounded set of keys.
+ */
+public class ExpiringKeyMap<V> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    // Wheel state; guarded by this
+    private final List<List<Entry<V>>> minuteSlots = newSlots();
+    private final List<List<Entry<V>>> hourSlots = newSlots();
+    // Last minute whose slot has been processed
+    private volatile long currentTick;
+
+    public ExpiringKeyMap(int maxKeys, long nowMinute) {
+        this.maxKeys = maxKeys;
+        this.currentTick = nowMinute;
+    }
+
+    /**
+     * Get a key's value, or null if it is absent or has expired
+     */
+    public V get(String key, long nowMinute) {
+        advance(nowMinute);
+        Entry<V> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Get a key's value, creating it with the given deadline if absent
+     */
+    public V computeIfAbsent(String key, long nowMinute, long deadlineMinute, Function<String, V> factory) {
+        advance(nowMinute);
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            return entry.value;
+        }
+        Entry<V> created = new Entry<>(key, factory.apply(key), deadlineMinute);
+        entry = entries.putIfAbsent(key, created);
+        if (entry != null) {
+            return entry.value;
+        }
+        synchronized (this) {
+            schedule(created);
+            if (entries.size() > maxKeys) {
+                evictSoonest();
+            }
+        }
+        return created.value;
+    }
+
+    /**
+     * Set a key's value, replacing any current one. An existing key keeps its deadline if that is later.
+     */
+    public void put(String key, V value, long nowMinute, long deadlineMinute) {
+        if (computeIfAbsent(key, nowMinute, deadlineMinute, k -> value) == value) {
+            return;
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            entry.value = value;
+            extend(key, nowMinute, deadlineMinute);
+        }
+    }
+
+    /**
+     * Push a key's deadline later; earlier deadlines are ignored
+     */
+    public void extend(String key, long nowMinute, long deadlineMinute) {
+        advance(nowMinute);
+        Entry<V> entry = entries.get(key);
+        if (entry != null && deadlineMinute > entry.deadline) {
+            entry.deadline = deadlineMinute;
+        }
+    }
+
+    /**
+     * Remove a key if it still maps to the given value
+     */
+    public boolean remove(String key, V value) {
+        Entry<V> entry = entries.get(key);
+        // The wheel slot keeps the entry until it comes due, then finds it already gone
+        return entry != null && entry.value == value && entries.remove(key, entry);
+    }
+
+    /**
+     * Remove every entry whose deadline has passed
+     */
+    public void expire(long nowMinute) {
+        advance(nowMinute);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Process the wheel up to the given minute. Callers in the same minute return at once;
+     * only one thread processes elapsed ticks at a time.
+     */
+    private void advance(long nowMinute) {
+        if (nowMinute <= currentTick) {
+            return;
+        }
+        synchronized (this) {
+            // After a long idle gap every entry is in a slot at most one full lap away
+            long tick = Math.max(currentTick, nowMinute - ((long) WHEEL_SIZE << WHEEL_BITS));
+            while (tick < nowMinute) {
+                tick++;
+                currentTick = tick;
+                if ((tick & WHEEL_MASK) == 0) {
+                    // Start of a 64-minute block: spread its entries over the minute slots
+                    List<Entry<V>> block = drain(hourSlots, (int) ((tick >>> WHEEL_BITS) & WHEEL_MASK));
+                    for (Entry<V> entry : block) {
+                        if (entry.deadline > tick) {
+                            schedule(entry);
+                        } else {
+                            // Only after an idle gap: the block came due late
+                            entries.remove(entry.key, entry);
+                        }
+                    }
+                }
+                for (Entry<V> entry : drain(minuteSlots, (int) (tick & WHEEL_MASK))) {
+                    if (entry.deadline > tick) {
+                        // Deadline was extended since it was scheduled
+                        schedule(entry);
+                    } else {
+                        entries.remove(entry.key, entry);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Place an entry in the slot for its deadline relative to the current tick. Caller holds the lock.
+     */
+    private void schedule(Entry<V> entry) {
+        long tick = currentTick;
+        long deadline = Math.max(entry.deadline, tick + 1);
+        long delta = deadline - tick;
+        if (delta < WHEEL_SIZE) {
+            minuteSlots.get((int) (deadline & WHEEL_MASK)).add(entry);
+        } else {
+            // Beyond the horizon: park in the furthest block and reschedule from there
+            long block = Math.min(deadline >>> WHEEL_BITS, (tick >>> WHEEL_BITS) + WHEEL_MASK);
+            hourSlots.get((int) (block & WHEEL_MASK)).add(entry);
+        }
+    }
+
+    /**
+     * Evict the entry due soonest, searching minute slots and then blocks in time order. Entries
+     * whose deadline was pushed past their slot are moved on instead. Caller holds the lock.
+     */
+    private void evictSoonest() {
+        long tick = currentTick;
+        List<Entry<V>> extended = new ArrayList<>();
+        try {
+            for (int i = 1; i <= WHEEL_SIZE; i++) {
+                if (evictFrom(minuteSlots.get((int) ((tick + i) & WHEEL_MASK)), tick + i + 1, extended)) {
+                    return;
+                }
+            }
+            long currentBlock = tick >>> WHEEL_BITS;
+            for (int i = 1; i <= WHEEL_SIZE; i++) {
+                long block = currentBlock + i;
+                // The furthest block also holds every deadline beyond the horizon
+                long blockEnd = i < WHEEL_MASK ? (block + 1) << WHEEL_BITS : Long.MAX_VALUE;
+                if (evictFrom(hourSlots.get((int) (block & WHEEL_MASK)), blockEnd, extended)) {
+                    return;
+                }
+            }
+        } finally {
+            extended.forEach(this::schedule);
+        }
+    }
+
+    /**
+     * Evict the most recently scheduled live entry of a slot that is still due before slotEnd.
+     * Extended entries are taken out into the given list for rescheduling.
+     */
+    private boolean evictFrom(List<Entry<V>> slot, long slotEnd, List<Entry<V>> extended) {
+        while (!slot.isEmpty()) {
+            Entry<V> entry = slot.remove(slot.size() - 1);
+            if (entries.get(entry.key) != entry) {
+                // Removed or replaced; the slot no longer needs it
+                continue;
+            }
+            if (entry.deadline >= slotEnd) {
+                extended.add(entry);
+            } else if (entries.remove(entry.key, entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Entry<V>> drain(List<List<Entry<V>>> slots, int index) {
+        List<Entry<V>> slot = slots.get(index);
+        if (slot.isEmpty()) {
+            return List.of();
+        }
+        slots.set(index, new ArrayList<>());
+        return slot;
+    }
+
+    private static <V> List<List<Entry<V>>> newSlots() {
+        List<List<Entry<V>>> slots = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            slots.add(new ArrayList<>());
+        }
+        return slots;
+    }
+
+    private static final class Entry<V> {
+        private final String key;
+        private volatile V value;
+        private volatile long deadline;
+
+        private Entry(String key, V value, long deadline) {
+            this.key = key;
+            this.value = value;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -2,39 +2,22 @@ package com.example.orthodox_prm.util;
 
 import org.springframework.stereotype.Component;
 
-import java.util.regex.Pattern;
+import java.util.Locale;
 
 /**
  * Utility class for sanitizing and validating user input.
  * Prevents XSS attacks and ensures data quality.
+ * <p>
+ * Each field is cleaned in one walk over a char array rather than a chain of regex
+ * replacements: script blocks, {@code javascript:} and inline handlers ({@code onxxx=}) are
+ * dropped, then HTML tags are dropped and whitespace collapsed in place, so a field costs one
+ * buffer and the resulting string. Results are the same as the regexes
+ * {@code (?i)<script[^>]*>.*?</script>|javascript:|on\w+\s*=} and then {@code <[^>]*>}
+ * applied in turn, including text that only forms a tag once a script block is removed.
  */
 @Component
 public class InputSanitizer {
 
-    // Patterns for validation
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(
-        "^[a-zA-Z0-9.!#$%&'*+/=?^_`{|}~-]+@[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?(?:\\.[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?)+$"
-    );
-
-    private static final Pattern PHONE_PATTERN = Pattern.compile(
-        "^[\\d\\s\\-\\(\\)\\+\\.]{7,20}$"
-    );
-
-    private static final Pattern ZIP_CODE_PATTERN = Pattern.compile(
-        "^[a-zA-Z0-9\\s\\-]{3,10}$"
-    );
-
-    private static final Pattern NAME_PATTERN = Pattern.compile(
-        "^[a-zA-Z\\s\\-'\\.,]+$"
-    );
-
-    // HTML/Script tags to remove
-    private static final Pattern HTML_TAGS = Pattern.compile("<[^>]*>");
-    private static final Pattern SCRIPT_PATTERN = Pattern.compile(
-        "(?i)<script[^>]*>.*?</script>|javascript:|on\\w+\\s*=",
-        Pattern.DOTALL
-    );
-
     // Max lengths for fields
     public static final int MAX_NAME_LENGTH = 100;
     public static final int MAX_EMAIL_LENGTH = 100;
@@ -55,18 +38,9 @@ public class InputSanitizer {
             return null;
         }
 
-        String sanitized = input.trim();
-
-        // Remove script tags and javascript
-        sanitized = SCRIPT_PATTERN.matcher(sanitized).replaceAll("");
-
-        // Remove HTML tags
-        sanitized = HTML_TAGS.matcher(sanitized).replaceAll("");
-
-        // Replace multiple spaces with single space
-        sanitized = sanitized.replaceAll("\\s+", " ");
-
-        return sanitized.isEmpty() ? null : sanitized;
+        char[] buffer = new char[input.length()];
+        int length = clean(input, buffer, true);
+        return length == 0 ? null : new String(buffer, 0, length);
     }
 
     /**
@@ -76,17 +50,7 @@ public class InputSanitizer {
      * @return Sanitized name, or null if invalid/empty
      */
     public String sanitizeName(String name, int maxLength) {
-        String sanitized = sanitize(name);
-        if (sanitized == null) {
-            return null;
-        }
-
-        // Truncate if too long
-        if (sanitized.length() > maxLength) {
-            sanitized = sanitized.substring(0, maxLength).trim();
-        }
-
-        return sanitized;
+        return sanitizeCapped(name, maxLength);
     }
 
     /**
@@ -99,23 +63,18 @@ public class InputSanitizer {
             return null;
         }
 
-        String sanitized = email.trim().toLowerCase();
+        String lower = email.trim().toLowerCase();
 
         // Remove any HTML/script content
-        sanitized = SCRIPT_PATTERN.matcher(sanitized).replaceAll("");
-        sanitized = HTML_TAGS.matcher(sanitized).replaceAll("");
-
-        // Truncate if too long
-        if (sanitized.length() > MAX_EMAIL_LENGTH) {
-            return null; // Invalid - too long
-        }
+        char[] buffer = new char[lower.length()];
+        int length = clean(lower, buffer, false);
 
-        // Validate format
-        if (!EMAIL_PATTERN.matcher(sanitized).matches()) {
+        // Too long is invalid rather than truncated
+        if (length > MAX_EMAIL_LENGTH || !isEmailFormat(buffer, 0, length)) {
             return null;
         }
 
-        return sanitized;
+        return new String(buffer, 0, length);
     }
 
     /**
@@ -128,23 +87,16 @@ public class InputSanitizer {
             return null;
         }
 
-        String sanitized = phone.trim();
-
         // Remove any HTML/script content
-        sanitized = SCRIPT_PATTERN.matcher(sanitized).replaceAll("");
-        sanitized = HTML_TAGS.matcher(sanitized).replaceAll("");
-
-        // Truncate if too long
-        if (sanitized.length() > MAX_PHONE_LENGTH) {
-            sanitized = sanitized.substring(0, MAX_PHONE_LENGTH);
-        }
+        char[] buffer = new char[phone.length()];
+        int length = Math.min(clean(phone, buffer, false), MAX_PHONE_LENGTH);
 
         // Validate format (digits, spaces, dashes, parentheses, plus, dots)
-        if (!PHONE_PATTERN.matcher(sanitized).matches()) {
+        if (!isPhoneFormat(buffer, 0, length)) {
             return null;
         }
 
-        return sanitized;
+        return new String(buffer, 0, length);
     }
 
     /**
@@ -157,23 +109,24 @@ public class InputSanitizer {
             return null;
         }
 
-        String sanitized = zipCode.trim().toUpperCase();
+        String upper = zipCode.trim().toUpperCase();
 
         // Remove any HTML/script content
-        sanitized = SCRIPT_PATTERN.matcher(sanitized).replaceAll("");
-        sanitized = HTML_TAGS.matcher(sanitized).replaceAll("");
-
-        // Truncate if too long
-        if (sanitized.length() > MAX_ZIP_LENGTH) {
-            sanitized = sanitized.substring(0, MAX_ZIP_LENGTH);
-        }
+        char[] buffer = new char[upper.length()];
+        int length = Math.min(clean(upper, buffer, false), MAX_ZIP_LENGTH);
 
-        // Basic validation
-        if (!ZIP_CODE_PATTERN.matcher(sanitized).matches()) {
+        // Basic validation: letters, digits, whitespace and dashes, 3 to 10 characters
+        if (length < 3 || length > 10) {
             return null;
         }
+        for (int i = 0; i < length; i++) {
+            char c = buffer[i];
+            if (!isAsciiLetterOrDigit(c) && !isSpace(c) && c != '-') {
+                return null;
+            }
+        }
 
-        return sanitized;
+        return new String(buffer, 0, length);
     }
 
     /**
@@ -182,16 +135,7 @@ public class InputSanitizer {
      * @return Sanitized address
      */
     public String sanitizeAddress(String address) {
-        String sanitized = sanitize(address);
-        if (sanitized == null) {
-            return null;
-        }
-
-        if (sanitized.length() > MAX_ADDRESS_LENGTH) {
-            sanitized = sanitized.substring(0, MAX_ADDRESS_LENGTH).trim();
-        }
-
-        return sanitized;
+        return sanitizeCapped(address, MAX_ADDRESS_LENGTH);
     }
 
     /**
@@ -213,24 +157,30 @@ public class InputSanitizer {
             return false;
         }
 
-        String lower = input.toLowerCase();
-
-        // Check for script injection attempts
-        if (lower.contains("<script") ||
-            lower.contains("javascript:") ||
-            lower.contains("onerror=") ||
-            lower.contains("onclick=") ||
-            lower.contains("onload=") ||
-            lower.contains("onmouseover=")) {
-            return true;
-        }
-
-        // Check for SQL injection attempts
-        if (lower.contains("'; drop") ||
-            lower.contains("1=1") ||
-            lower.contains("union select") ||
-            lower.contains("--")) {
-            return true;
+        // ASCII case folding matches toLowerCase() unless other characters or locale rules could
+        // lower-case into a marker, such as the Kelvin sign into 'k'
+        String text = isAscii(input) && hasPlainAsciiCasing() ? input : input.toLowerCase();
+
+        // One walk, checking only the markers that can start at each character
+        for (int i = 0, end = text.length(); i < end; i++) {
+            boolean found = switch (text.charAt(i) | 0x20) {
+                // Script injection attempts
+                case '<' -> regionMatchesLower(text, i, end, "<script");
+                case 'j' -> regionMatchesLower(text, i, end, "javascript:");
+                case 'o' -> regionMatchesLower(text, i, end, "onerror=")
+                        || regionMatchesLower(text, i, end, "onclick=")
+                        || regionMatchesLower(text, i, end, "onload=")
+                        || regionMatchesLower(text, i, end, "onmouseover=");
+                // SQL injection attempts
+                case '\'' -> regionMatchesLower(text, i, end, "'; drop");
+                case '1' -> regionMatchesLower(text, i, end, "1=1");
+                case 'u' -> regionMatchesLower(text, i, end, "union select");
+                case '-' -> regionMatchesLower(text, i, end, "--");
+                default -> false;
+            };
+            if (found) {
+                return true;
+            }
         }
 
         return false;
@@ -245,7 +195,14 @@ public class InputSanitizer {
         if (name == null || name.trim().isEmpty()) {
             return false;
         }
-        return NAME_PATTERN.matcher(name.trim()).matches();
+        String trimmed = name.trim();
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (!isAsciiLetter(c) && !isSpace(c) && c != '-' && c != '\'' && c != '.' && c != ',') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -257,7 +214,8 @@ public class InputSanitizer {
         if (email == null || email.trim().isEmpty()) {
             return true; // Empty is valid (optional field)
         }
-        return EMAIL_PATTERN.matcher(email.trim()).matches();
+        char[] trimmed = email.trim().toCharArray();
+        return isEmailFormat(trimmed, 0, trimmed.length);
     }
 
     /**
@@ -269,6 +227,229 @@ public class InputSanitizer {
         if (phone == null || phone.trim().isEmpty()) {
             return true; // Empty is valid (optional field)
         }
-        return PHONE_PATTERN.matcher(phone.trim()).matches();
+        char[] trimmed = phone.trim().toCharArray();
+        return isPhoneFormat(trimmed, 0, trimmed.length);
+    }
+
+    /**
+     * Sanitize, then cut to the maximum length and trim what remains
+     */
+    private String sanitizeCapped(String input, int maxLength) {
+        if (input == null) {
+            return null;
+        }
+        char[] buffer = new char[input.length()];
+        int end = clean(input, buffer, true);
+        if (end == 0) {
+            return null;
+        }
+        int start = 0;
+        if (end > maxLength) {
+            end = maxLength;
+            while (start < end && buffer[start] <= ' ') {
+                start++;
+            }
+            while (end > start && buffer[end - 1] <= ' ') {
+                end--;
+            }
+        }
+        return new String(buffer, start, end - start);
+    }
+
+    /**
+     * Trim the input and write it to the buffer without script blocks, javascript: and inline
+     * handlers, then drop HTML tags and optionally collapse whitespace runs in place.
+     * @param buffer At least as long as the input
+     * @return The number of characters written
+     */
+    private static int clean(String input, char[] buffer, boolean collapseWhitespace) {
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        // Script pass, into the buffer. Once a block finds no '>' or no closing tag, neither
+        // can any later one, so the searches stop there and hostile input stays linear.
+        int length = 0;
+        boolean blocksPossible = true;
+        int lastGt = -1;
+        int i = start;
+        while (i < end) {
+            char c = input.charAt(i);
+            if (c == '<' && blocksPossible && regionMatchesLower(input, i, end, "<script")) {
+                int gt = input.indexOf('>', i + 7);
+                int close = gt >= 0 && gt < end ? indexOfLower(input, "</script>", gt + 1, end) : -1;
+                if (close >= 0) {
+                    i = close + 9;
+                    continue;
+                }
+                blocksPossible = false;
+            } else if ((c | 0x20) == 'j' && regionMatchesLower(input, i, end, "javascript:")) {
+                i += 11;
+                continue;
+            } else if ((c | 0x20) == 'o' && i + 1 < end && (input.charAt(i + 1) | 0x20) == 'n') {
+                // on\w+\s*= : the three parts cannot overlap, so greedy matching is exact
+                int j = i + 2;
+                while (j < end && isWordChar(input.charAt(j))) {
+                    j++;
+                }
+                if (j > i + 2) {
+                    while (j < end && isSpace(input.charAt(j))) {
+                        j++;
+                    }
+                    if (j < end && input.charAt(j) == '=') {
+                        i = j + 1;
+                        continue;
+                    }
+                }
+            }
+            if (c == '>') {
+                lastGt = length;
+            }
+            buffer[length++] = c;
+            i++;
+        }
+
+        // Tag and whitespace pass, in place. A '<' starts a tag only if a '>' follows somewhere;
+        // runs of whitespace join across removed tags, as they would after a separate replacement.
+        int written = 0;
+        boolean inSpaceRun = false;
+        int r = 0;
+        while (r < length) {
+            char c = buffer[r];
+            if (c == '<' && lastGt > r) {
+                r++;
+                while (buffer[r] != '>') {
+                    r++;
+                }
+                r++;
+            } else if (collapseWhitespace && isSpace(c)) {
+                if (!inSpaceRun) {
+                    buffer[written++] = ' ';
+                    inSpaceRun = true;
+                }
+                r++;
+            } else {
+                buffer[written++] = c;
+                inSpaceRun = false;
+                r++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Whether the text at the offset matches a lower-case marker, ignoring ASCII case only
+     */
+    private static boolean regionMatchesLower(String text, int offset, int end, String marker) {
+        if (offset + marker.length() > end) {
+            return false;
+        }
+        for (int k = 0; k < marker.length(); k++) {
+            char m = marker.charAt(k);
+            char c = text.charAt(offset + k);
+            if (c != m && !(m >= 'a' && m <= 'z' && (c | 0x20) == m)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOfLower(String text, String marker, int from, int end) {
+        for (int i = from; i + marker.length() <= end; i++) {
+            if (text.charAt(i) == '<' && regionMatchesLower(text, i, end, marker)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The local part, an '@', and two or more dot-separated labels of 1 to 63 letters, digits
+     * and inner hyphens
+     */
+    private static boolean isEmailFormat(char[] text, int from, int to) {
+        int at = from;
+        while (at < to && text[at] != '@') {
+            if (!isAsciiLetterOrDigit(text[at]) && ".!#$%&'*+/=?^_`{|}~-".indexOf(text[at]) < 0) {
+                return false;
+            }
+            at++;
+        }
+        if (at == from || at == to) {
+            return false;
+        }
+        int labels = 0;
+        int labelStart = at + 1;
+        for (int i = at + 1; i <= to; i++) {
+            if (i < to && text[i] != '.') {
+                if (!isAsciiLetterOrDigit(text[i]) && text[i] != '-') {
+                    return false;
+                }
+                continue;
+            }
+            int labelLength = i - labelStart;
+            if (labelLength < 1 || labelLength > 63
+                    || !isAsciiLetterOrDigit(text[labelStart]) || !isAsciiLetterOrDigit(text[i - 1])) {
+                return false;
+            }
+            labels++;
+            labelStart = i + 1;
+        }
+        return labels >= 2;
+    }
+
+    /**
+     * 7 to 20 digits, whitespace, dashes, parentheses, plus signs and dots
+     */
+    private static boolean isPhoneFormat(char[] text, int from, int to) {
+        int length = to - from;
+        if (length < 7 || length > 20) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = text[i];
+            if (!(c >= '0' && c <= '9') && !isSpace(c) && "-()+.".indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Regex \s: ASCII whitespace only
+    private static boolean isSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    // Regex \w: ASCII letters, digits and underscore
+    private static boolean isWordChar(char c) {
+        return isAsciiLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isAsciiLetter(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Turkish, Azeri and Lithuanian lower-case some ASCII letters differently
+    private static boolean hasPlainAsciiCasing() {
+        String language = Locale.getDefault().getLanguage();
+        return !language.equals("tr") && !language.equals("az") && !language.equals("lt");
     }
 }
@@ -0,0 +1,516 @@
+package com.example.orthodox_prm.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Submission limits on address blocks (such as IPv4 /24s and IPv6 /64s), so that rotating
+ * through the addresses of one network does not get around a per-address limit.
+ * <p>
+ * Blocks are nodes of a path-compressed binary trie over address bits, one trie per address
+ * family. The first bits (up to 12, and no more than the shortest limited prefix) index a
+ * table of subtries directly; below that, only branch points and limited blocks are stored,
+ * so a lookup visits a handful of nodes rather than one per bit. Each node is four adjacent
+ * longs (key, length and level, children), so a step costs at most one cache miss. Each limited block holds a token bucket:
+ * a submission costs one window length in milliseconds, and the bucket refills by the level's
+ * capacity every millisecond. When the nodes reach the cap, the trie is rebuilt with only the
+ * blocks that are not full, the busiest first.
+ */
+public class IpPrefixTrie {
+
+    // Address families, as returned by parse
+    static final int NONE = -1;
+    static final int V4 = 0;
+    static final int V6 = 1;
+    private static final int MAX_TABLE_BITS = 12;
+
+    // Longs per node: key high bits, key low bits, length | (level + 1) << 8, child0 << 32 | child1
+    private static final int STRIDE = 4;
+    private static final int HI = 0;
+    private static final int LO = 1;
+    private static final int META = 2;
+    private static final int CHILDREN = 3;
+
+    /**
+     * A limited block size: at most capacity submissions per window from one block
+     */
+    public record Level(boolean ipv6, int prefixLength, int capacity, int windowMinutes) {
+
+        long windowMillis() {
+            return windowMinutes * 60_000L;
+        }
+
+        long fullUnits() {
+            return capacity * windowMillis();
+        }
+    }
+
+    private final Level[] levels;
+    // Indexes into levels per family, shallowest first
+    private final int[] v4Levels;
+    private final int[] v6Levels;
+    private final int[] tableBits = new int[2]; // per family
+    private final int maxNodes;
+
+    // Guarded by this. Keys are left-aligned in 128 bits and masked to the node's length.
+    private int size;
+    private long[] nodes;
+    private long[] tokenUnits;
+    private long[] refilledAt;
+    // Per family, subtrie node per value of the first tableBits bits, or NONE
+    private final int[][] tables = new int[2][];
+    // Parser output, reused between calls
+    private final long[] key = new long[2];
+    private final int[] groups = new int[8];
+
+    public IpPrefixTrie(List<Level> levels, int maxNodes) {
+        this.levels = levels.toArray(Level[]::new);
+        this.v4Levels = familyLevels(false);
+        this.v6Levels = familyLevels(true);
+        this.tableBits[V4] = v4Levels.length == 0 ? 0 : Math.min(MAX_TABLE_BITS, levels.get(v4Levels[0]).prefixLength());
+        this.tableBits[V6] = v6Levels.length == 0 ? 0 : Math.min(MAX_TABLE_BITS, levels.get(v6Levels[0]).prefixLength());
+        this.tables[V4] = new int[1 << tableBits[V4]];
+        this.tables[V6] = new int[1 << tableBits[V6]];
+        this.maxNodes = Math.max(maxNodes, 4 * levels.size());
+        reset(Math.min(this.maxNodes, 1024));
+    }
+
+    /**
+     * Parse levels from a list such as {@code v4/24=20,v6/64=10}, all with the given window
+     */
+    public static List<Level> parseLevels(String spec, int windowMinutes) {
+        List<Level> levels = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String entry = part.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            try {
+                int slash = entry.indexOf('/');
+                int equals = entry.indexOf('=');
+                String family = entry.substring(0, slash);
+                int prefixLength = Integer.parseInt(entry.substring(slash + 1, equals).trim());
+                int capacity = Integer.parseInt(entry.substring(equals + 1).trim());
+                boolean ipv6 = family.equalsIgnoreCase("v6");
+                if (!ipv6 && !family.equalsIgnoreCase("v4")
+                        || prefixLength < 1 || prefixLength > (ipv6 ? 128 : 32) || capacity < 1) {
+                    throw new IllegalArgumentException();
+                }
+                levels.add(new Level(ipv6, prefixLength, capacity, windowMinutes));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid address block limit '" + entry + "', expected e.g. v6/64=10");
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Fewest submissions any of the address's blocks still allows, or Integer.MAX_VALUE if
+     * no limit applies (including when the address cannot be parsed)
+     */
+    public synchronized int remaining(String address, long nowMillis) {
+        int f = parse(address, groups, key);
+        int[] family = f == V6 ? v6Levels : v4Levels;
+        if (f == NONE || family.length == 0) {
+            return Integer.MAX_VALUE;
+        }
+        long hi = key[0];
+        long lo = key[1];
+        // Blocks without a node yet are full
+        int remaining = Integer.MAX_VALUE;
+        for (int i : family) {
+            remaining = Math.min(remaining, levels[i].capacity());
+        }
+        int n = tables[f][tableIndex(f, hi)];
+        if (n == NONE) {
+            return remaining;
+        }
+        int maxLength = levels[family[family.length - 1]].prefixLength();
+        while (true) {
+            long meta = nodes[n * STRIDE + META];
+            int length = (int) (meta & 0xFF);
+            int level = (int) (meta >>> 8) - 1;
+            if (level != NONE) {
+                Level l = levels[level];
+                remaining = Math.min(remaining, (int) (units(n, l, nowMillis) / l.windowMillis()));
+            }
+            if (length >= maxLength) {
+                return remaining;
+            }
+            int c = child(n, bit(hi, lo, length));
+            if (c == NONE) {
+                return remaining;
+            }
+            int childLength = (int) (nodes[c * STRIDE + META] & 0xFF);
+            if (commonPrefix(hi, lo, nodes[c * STRIDE + HI], nodes[c * STRIDE + LO], childLength) < childLength) {
+                return remaining;
+            }
+            n = c;
+        }
+    }
+
+    /**
+     * Take one submission from each of the address's blocks
+     * @return Fewest submissions any of them still allows, as for {@link #remaining}
+     */
+    public synchronized int record(String address, long nowMillis) {
+        int f = parse(address, groups, key);
+        int[] family = f == V6 ? v6Levels : v4Levels;
+        if (f == NONE || family.length == 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (size + 1 + 2 * levels.length > maxNodes) {
+            compact(nowMillis);
+        }
+        int remaining = Integer.MAX_VALUE;
+        // Levels are inserted shallowest first, each continuing from the one before
+        int n = subtrie(f, key[0], key[1]);
+        for (int i : family) {
+            Level l = levels[i];
+            n = insert(n, key[0], key[1], l.prefixLength());
+            if (level(n) == NONE) {
+                setLevel(n, i);
+                tokenUnits[n] = l.fullUnits();
+                refilledAt[n] = nowMillis;
+            }
+            long units = Math.max(0, units(n, l, nowMillis) - l.windowMillis());
+            tokenUnits[n] = units;
+            refilledAt[n] = Math.max(refilledAt[n], nowMillis);
+            remaining = Math.min(remaining, (int) (units / l.windowMillis()));
+        }
+        return remaining;
+    }
+
+    /**
+     * Number of nodes in use, branch points included
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Find or create the node for a prefix below node n, which must cover it
+     */
+    private int insert(int n, long hi, long lo, int prefixLength) {
+        while (length(n) < prefixLength) {
+            int b = bit(hi, lo, length(n));
+            int c = child(n, b);
+            if (c == NONE) {
+                int leaf = newNode(hi, lo, prefixLength);
+                setChild(n, b, leaf);
+                return leaf;
+            }
+            long childHi = nodes[c * STRIDE + HI];
+            long childLo = nodes[c * STRIDE + LO];
+            int common = commonPrefix(hi, lo, childHi, childLo, Math.min(prefixLength, length(c)));
+            if (common == length(c)) {
+                n = c;
+                continue;
+            }
+            // The prefix diverges from the child's, or ends inside it: split the edge
+            int split = newNode(hi, lo, common);
+            setChild(split, bit(childHi, childLo, common), c);
+            setChild(n, b, split);
+            if (common == prefixLength) {
+                return split;
+            }
+            int leaf = newNode(hi, lo, prefixLength);
+            setChild(split, bit(hi, lo, common), leaf);
+            return leaf;
+        }
+        return n;
+    }
+
+    /**
+     * Rebuild with only the blocks still holding recent submissions, keeping the emptiest
+     * buckets if there are too many of those as well
+     */
+    private void compact(long nowMillis) {
+        List<long[]> kept = new ArrayList<>();
+        for (int n = 0; n < size; n++) {
+            int level = level(n);
+            if (level == NONE) {
+                continue;
+            }
+            Level l = levels[level];
+            long units = units(n, l, nowMillis);
+            if (units < l.fullUnits()) {
+                // hi, lo, level, units, fill fraction in parts per million
+                kept.add(new long[] {nodes[n * STRIDE + HI], nodes[n * STRIDE + LO], level, units,
+                        units * 1_000_000L / l.fullUnits()});
+            }
+        }
+        // Each kept block may need a branch point and a subtrie node as well
+        int room = maxNodes / 4;
+        if (kept.size() > room) {
+            kept.sort(Comparator.comparingLong(entry -> entry[4]));
+            kept = kept.subList(0, room);
+        }
+        reset(tokenUnits.length);
+        for (long[] entry : kept) {
+            Level l = levels[(int) entry[2]];
+            int n = insert(subtrie(l.ipv6() ? V6 : V4, entry[0], entry[1]), entry[0], entry[1], l.prefixLength());
+            setLevel(n, (int) entry[2]);
+            tokenUnits[n] = entry[3];
+            refilledAt[n] = nowMillis;
+        }
+    }
+
+    /**
+     * The node for the first tableBits bits of a key, created if needed
+     */
+    private int subtrie(int family, long hi, long lo) {
+        int index = tableIndex(family, hi);
+        if (tables[family][index] == NONE) {
+            tables[family][index] = newNode(hi, lo, tableBits[family]);
+        }
+        return tables[family][index];
+    }
+
+    private int tableIndex(int family, long hi) {
+        return tableBits[family] == 0 ? 0 : (int) (hi >>> (64 - tableBits[family]));
+    }
+
+    private int[] familyLevels(boolean ipv6) {
+        return IntStream.range(0, levels.length)
+                .filter(i -> levels[i].ipv6() == ipv6)
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> levels[i].prefixLength()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private long units(int n, Level l, long nowMillis) {
+        long elapsed = Math.max(0, nowMillis - refilledAt[n]);
+        // Capped before multiplying so long idle gaps cannot overflow
+        return Math.min(l.fullUnits(), tokenUnits[n] + Math.min(elapsed, l.windowMillis()) * l.capacity());
+    }
+
+    private int newNode(long hi, long lo, int prefixLength) {
+        if (size == tokenUnits.length) {
+            int capacity = Math.min(maxNodes, size * 2);
+            nodes = Arrays.copyOf(nodes, capacity * STRIDE);
+            tokenUnits = Arrays.copyOf(tokenUnits, capacity);
+            refilledAt = Arrays.copyOf(refilledAt, capacity);
+        }
+        int n = size++;
+        nodes[n * STRIDE + HI] = maskHi(hi, prefixLength);
+        nodes[n * STRIDE + LO] = maskLo(lo, prefixLength);
+        nodes[n * STRIDE + META] = prefixLength;
+        nodes[n * STRIDE + CHILDREN] = -1L; // Both children NONE
+        tokenUnits[n] = 0;
+        refilledAt[n] = 0;
+        return n;
+    }
+
+    private int length(int n) {
+        return (int) (nodes[n * STRIDE + META] & 0xFF);
+    }
+
+    private int level(int n) {
+        return (int) (nodes[n * STRIDE + META] >>> 8) - 1;
+    }
+
+    private void setLevel(int n, int level) {
+        nodes[n * STRIDE + META] = length(n) | (long) (level + 1) << 8;
+    }
+
+    private int child(int n, int bit) {
+        long children = nodes[n * STRIDE + CHILDREN];
+        return bit == 0 ? (int) (children >> 32) : (int) children;
+    }
+
+    private void setChild(int n, int bit, int c) {
+        long children = nodes[n * STRIDE + CHILDREN];
+        nodes[n * STRIDE + CHILDREN] = bit == 0
+                ? (long) c << 32 | (children & 0xFFFFFFFFL)
+                : (children & 0xFFFFFFFF00000000L) | (c & 0xFFFFFFFFL);
+    }
+
+    private void reset(int capacity) {
+        nodes = new long[capacity * STRIDE];
+        tokenUnits = new long[capacity];
+        refilledAt = new long[capacity];
+        size = 0;
+        Arrays.fill(tables[V4], NONE);
+        Arrays.fill(tables[V6], NONE);
+    }
+
+    private static int bit(long hi, long lo, int index) {
+        return (int) (index < 64 ? hi >>> (63 - index) : lo >>> (127 - index)) & 1;
+    }
+
+    /**
+     * Number of leading bits two keys share, up to max
+     */
+    private static int commonPrefix(long hi1, long lo1, long hi2, long lo2, int max) {
+        long diff = hi1 ^ hi2;
+        int common = diff != 0 ? Long.numberOfLeadingZeros(diff) : 64 + Long.numberOfLeadingZeros(lo1 ^ lo2);
+        return Math.min(common, max);
+    }
+
+    private static long maskHi(long hi, int prefixLength) {
+        return prefixLength >= 64 ? hi : prefixLength == 0 ? 0 : hi & (-1L << (64 - prefixLength));
+    }
+
+    private static long maskLo(long lo, int prefixLength) {
+        return prefixLength <= 64 ? 0 : prefixLength == 128 ? lo : lo & (-1L << (128 - prefixLength));
+    }
+
+    /**
+     * Parse an IPv4 or IPv6 address literal in one pass, without allocating or any DNS lookup.
+     * The address is written to key left-aligned; IPv4-mapped IPv6 addresses count as IPv4.
+     * @param groups Scratch space for eight 16-bit groups
+     * @return The address family, V4 or V6, or NONE if invalid
+     */
+    static int parse(String address, int[] groups, long[] key) {
+        if (address == null) {
+            return NONE;
+        }
+        int start = 0;
+        int end = address.length();
+        while (start < end && address.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && address.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end - start > 2 && address.charAt(start) == '[' && address.charAt(end - 1) == ']') {
+            start++;
+            end--;
+        }
+        boolean ipv6 = false;
+        for (int i = start; i < end; i++) {
+            char ch = address.charAt(i);
+            if (ch == ':') {
+                ipv6 = true;
+            } else if (ch == '%') {
+                end = i; // Zone id
+            }
+        }
+        if (!ipv6) {
+            long v4 = parseIpv4(address, start, end);
+            key[0] = v4 << 32;
+            key[1] = 0;
+            return v4 < 0 ? NONE : V4;
+        }
+        if (!parseIpv6(address, start, end, groups)) {
+            return NONE;
+        }
+        long hi = 0;
+        long lo = 0;
+        for (int i = 0; i < 4; i++) {
+            hi = (hi << 16) | groups[i];
+            lo = (lo << 16) | groups[i + 4];
+        }
+        if (hi == 0 && (lo >>> 32) == 0xFFFFL) {
+            key[0] = lo << 32;
+            key[1] = 0;
+            return V4;
+        }
+        key[0] = hi;
+        key[1] = lo;
+        return V6;
+    }
+
+    /**
+     * @return The dotted address between start and end as an unsigned 32-bit value, or -1 if invalid
+     */
+    private static long parseIpv4(String text, int start, int end) {
+        long value = 0;
+        int parts = 0;
+        int i = start;
+        while (true) {
+            int octet = 0;
+            int digits = 0;
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                octet = octet * 10 + (text.charAt(i++) - '0');
+                digits++;
+            }
+            if (digits == 0 || digits > 3 || octet > 255 || ++parts > 4) {
+                return -1;
+            }
+            value = (value << 8) | octet;
+            if (i == end) {
+                return parts == 4 ? value : -1;
+            }
+            if (text.charAt(i++) != '.') {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Parse the address between start and end into eight 16-bit groups
+     * @return false if invalid
+     */
+    private static boolean parseIpv6(String text, int start, int end, int[] groups) {
+        int count = 0;
+        int gap = -1; // group count where "::" stands
+        int i = start;
+        if (text.startsWith("::", i)) {
+            gap = 0;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            int digit;
+            while (i < end && (digit = hexDigit(text.charAt(i))) >= 0) {
+                value = (value << 4) | digit;
+                i++;
+            }
+            if (i < end && text.charAt(i) == '.') {
+                // Trailing dotted IPv4 part
+                long v4 = parseIpv4(text, groupStart, end);
+                if (v4 < 0 || count > 6) {
+                    return false;
+                }
+                groups[count++] = (int) (v4 >>> 16);
+                groups[count++] = (int) (v4 & 0xFFFF);
+                break;
+            }
+            if (i == groupStart || i - groupStart > 4 || count == 8) {
+                return false;
+            }
+            groups[count++] = value;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':') {
+                return false;
+            }
+            if (i + 1 < end && text.charAt(i + 1) == ':') {
+                if (gap >= 0) {
+                    return false;
+                }
+                gap = count;
+                i += 2;
+            } else if (++i == end) {
+                return false;
+            }
+        }
+        if (gap < 0) {
+            return count == 8;
+        }
+        if (count > 7) {
+            return false;
+        }
+        // Move the groups after "::" to the end
+        int tail = count - gap;
+        System.arraycopy(groups, gap, groups, 8 - tail, tail);
+        Arrays.fill(groups, gap, 8 - tail, 0);
+        return true;
+    }
+
+    private static int hexDigit(char ch) {
+        if (ch >= '0' && ch <= '9') {
+            return ch - '0';
+        }
+        int lower = ch | 0x20;
+        return lower >= 'a' && lower <= 'f' ? lower - 'a' + 10 : -1;
+    }
+}
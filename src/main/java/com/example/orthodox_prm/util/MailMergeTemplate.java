@@ -0,0 +1,159 @@
+package com.example.orthodox_prm.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A mail-merge template compiled once into alternating literal and field segments.
+ * Placeholders use double braces, e.g. "Dear {{baptismalName}}," - names are
+ * case-insensitive and may be padded with spaces. Unknown placeholders are kept
+ * as literal text so a typo is visible in the preview instead of vanishing.
+ */
+public final class MailMergeTemplate {
+
+    /**
+     * Parishioner fields that can be merged into a template
+     */
+    public enum Field {
+        FIRST_NAME("firstName"),
+        LAST_NAME("lastName"),
+        FULL_NAME("fullName"),
+        BAPTISMAL_NAME("baptismalName"),
+        PATRON_SAINT("patronSaint"),
+        HOUSEHOLD_NAME("householdName");
+
+        private final String token;
+
+        Field(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        static Field fromToken(String token) {
+            for (Field field : values()) {
+                if (field.token.equalsIgnoreCase(token)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    // literals[i] precedes fields[i]; the final literal follows the last field
+    private final String[] literals;
+    private final Field[] fields;
+    private final int literalLength;
+
+    private MailMergeTemplate(String[] literals, Field[] fields) {
+        this.literals = literals;
+        this.fields = fields;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parse template source into segments
+     * @param source Template text (null is treated as empty)
+     * @return Compiled template
+     */
+    public static MailMergeTemplate compile(String source) {
+        if (source == null) {
+            source = "";
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int pos = 0;
+        while (pos < source.length()) {
+            int open = source.indexOf(OPEN, pos);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                break;
+            }
+
+            Field field = Field.fromToken(source.substring(open + OPEN.length(), close).trim());
+            if (field == null) {
+                // Not a merge field - keep the braces and text as-is
+                literal.append(source, pos, close + CLOSE.length());
+            } else {
+                literal.append(source, pos, open);
+                literals.add(literal.toString());
+                fields.add(field);
+                literal.setLength(0);
+            }
+            pos = close + CLOSE.length();
+        }
+        literal.append(source, pos, source.length());
+        literals.add(literal.toString());
+
+        return new MailMergeTemplate(literals.toArray(new String[0]), fields.toArray(new Field[0]));
+    }
+
+    /**
+     * Check whether the template contains any merge fields
+     */
+    public boolean isPersonalized() {
+        return fields.length > 0;
+    }
+
+    /**
+     * Append the rendered template to a buffer
+     * @param out Buffer to append to
+     * @param values Field values indexed by {@link Field#ordinal()}; null values render as empty
+     */
+    public void renderTo(StringBuilder out, String[] values) {
+        for (int i = 0; i < fields.length; i++) {
+            out.append(literals[i]);
+            String value = values[fields[i].ordinal()];
+            if (value != null) {
+                out.append(value);
+            }
+        }
+        out.append(literals[fields.length]);
+    }
+
+    /**
+     * Render the template to a new string
+     */
+    public String render(String[] values) {
+        if (fields.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(literalLength + fields.length * 16);
+        renderTo(out, values);
+        return out.toString();
+    }
+
+    /**
+     * Human-readable list of the supported placeholders, e.g. for help text
+     */
+    public static String supportedPlaceholders() {
+        StringBuilder out = new StringBuilder();
+        for (Field field : Field.values()) {
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(OPEN).append(field.getToken()).append(CLOSE);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "MailMergeTemplate[fields=" + fields.length + ", literalLength=" + literalLength + "]";
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.orthodox_prm.util;
+
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * RFC 2822 message that is written straight to an output stream instead of being
+ * assembled as a String. For the Gmail API the MIME text is UTF-8 encoded and
+ * base64url encoded on the fly into the JSON request body, so a send never holds
+ * the full message, its bytes and its encoding in memory at the same time.
+ * Attachments are read from disk in fixed-size chunks while the message is written,
+ * so memory per send does not grow with attachment size.
+ */
+public final class StreamingMimeMessage {
+
+    private static final String CRLF = "\r\n";
+    private static final int WRITE_BUFFER_CHARS = 4096;
+    private static final int FILE_CHUNK_BYTES = 8192;
+    // RFC 2045 limits base64 lines to 76 characters
+    private static final int MIME_LINE_LENGTH = 76;
+    private static final byte[] GMAIL_JSON_PREFIX = "{\"raw\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GMAIL_JSON_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private final List<Header> headers = new ArrayList<>();
+    private final String body;
+    private final List<Attachment> attachments = new ArrayList<>();
+    private final String boundary = "=_prm_" + UUID.randomUUID().toString().replace("-", "");
+
+    private StreamingMimeMessage(String body) {
+        this.body = body != null ? body : "";
+    }
+
+    /**
+     * Plain-text message for a single recipient
+     */
+    public static StreamingMimeMessage to(String to, String subject, String body) {
+        StreamingMimeMessage message = new StreamingMimeMessage(body);
+        message.headers.add(new Header("To", List.of(sanitizeHeader(to))));
+        message.headers.add(new Header("Subject", List.of(sanitizeHeader(subject))));
+        return message;
+    }
+
+    /**
+     * Plain-text message with all recipients in BCC
+     */
+    public static StreamingMimeMessage bcc(List<String> bccRecipients, String subject, String body) {
+        StreamingMimeMessage message = new StreamingMimeMessage(body);
+        // Sanitize each BCC recipient to prevent header injection
+        List<String> sanitizedBcc = new ArrayList<>(bccRecipients.size());
+        for (String recipient : bccRecipients) {
+            sanitizedBcc.add(sanitizeHeader(recipient));
+        }
+        message.headers.add(new Header("Bcc", sanitizedBcc));
+        message.headers.add(new Header("Subject", List.of(sanitizeHeader(subject))));
+        return message;
+    }
+
+    /**
+     * Attach files; the message becomes multipart/mixed with the text as its first part
+     * @param files Files to attach, read from disk each time the message is written
+     * @return This message
+     */
+    public StreamingMimeMessage attach(List<Attachment> files) {
+        attachments.addAll(files);
+        return this;
+    }
+
+    public boolean hasAttachments() {
+        return !attachments.isEmpty();
+    }
+
+    /**
+     * Sanitize email header values to prevent header injection attacks.
+     * Removes CR and LF characters that could be used to inject additional headers.
+     */
+    public static String sanitizeHeader(String value) {
+        if (value == null) {
+            return "";
+        }
+        // Remove carriage return and line feed characters to prevent header injection
+        return value.replace("\r", "").replace("\n", "");
+    }
+
+    /**
+     * Write the raw MIME message as UTF-8, e.g. for Gmail's media upload endpoint
+     */
+    public void writeRaw(OutputStream out) throws IOException {
+        OutputStream target = StreamUtils.nonClosing(out);
+        Writer writer = utf8Writer(target);
+        writeMime(new StreamSink(writer, target));
+        // Closing, unlike flushing, also writes a trailing unpaired surrogate as '?'; the stream stays open
+        writer.close();
+    }
+
+    /**
+     * Write the Gmail API send payload, {"raw":"&lt;base64url message&gt;"}.
+     * Base64url output needs no JSON escaping, so it is streamed between the fixed prefix and suffix.
+     */
+    public void writeGmailJson(OutputStream out) throws IOException {
+        out.write(GMAIL_JSON_PREFIX);
+        OutputStream base64 = Base64.getUrlEncoder().withoutPadding().wrap(StreamUtils.nonClosing(out));
+        Writer writer = utf8Writer(base64);
+        writeMime(new StreamSink(writer, base64));
+        // Closing flushes the final partial base64 group; the underlying stream stays open
+        writer.close();
+        out.write(GMAIL_JSON_SUFFIX);
+    }
+
+    /**
+     * The buffer copies strings in place; writing them to the encoder directly would first
+     * copy every header value and the whole body into char arrays of their own
+     */
+    private static Writer utf8Writer(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+    }
+
+    /**
+     * Size of the raw MIME message in bytes, computed without encoding it
+     */
+    public long rawLength() {
+        LengthSink sink = new LengthSink();
+        try {
+            writeMime(sink);
+        } catch (IOException e) {
+            // LengthSink does no I/O
+            throw new IllegalStateException(e);
+        }
+        return sink.length;
+    }
+
+    /**
+     * Size of the Gmail API JSON payload in bytes, so the request can use a fixed Content-Length
+     */
+    public long gmailJsonLength() {
+        long raw = rawLength();
+        // Unpadded base64: 4 chars per 3 bytes, plus 2 or 3 chars for a trailing partial group
+        long encoded = (raw / 3) * 4 + (raw % 3 == 0 ? 0 : raw % 3 + 1);
+        return GMAIL_JSON_PREFIX.length + encoded + GMAIL_JSON_SUFFIX.length;
+    }
+
+    /**
+     * Emit the message once; the same walk produces both the bytes and their length
+     */
+    private void writeMime(Sink sink) throws IOException {
+        for (Header header : headers) {
+            sink.text(header.name);
+            sink.text(": ");
+            for (int i = 0; i < header.values.size(); i++) {
+                if (i > 0) {
+                    sink.text(",");
+                }
+                sink.text(header.values.get(i));
+            }
+            sink.text(CRLF);
+        }
+
+        if (attachments.isEmpty()) {
+            sink.text("Content-Type: text/plain; charset=UTF-8" + CRLF + CRLF);
+            sink.text(body);
+            return;
+        }
+
+        sink.text("MIME-Version: 1.0" + CRLF);
+        sink.text("Content-Type: multipart/mixed; boundary=\"" + boundary + "\"" + CRLF + CRLF);
+        sink.text("--" + boundary + CRLF);
+        sink.text("Content-Type: text/plain; charset=UTF-8" + CRLF + CRLF);
+        sink.text(body);
+        sink.text(CRLF);
+
+        for (Attachment attachment : attachments) {
+            String filename = encodeFilename(attachment.filename());
+            sink.text("--" + boundary + CRLF);
+            sink.text("Content-Type: " + sanitizeHeader(attachment.contentType()) + "; name=\"" + filename + "\"" + CRLF);
+            sink.text("Content-Disposition: attachment; filename=\"" + filename + "\"" + CRLF);
+            sink.text("Content-Transfer-Encoding: base64" + CRLF + CRLF);
+            sink.file(attachment);
+            sink.text(CRLF);
+        }
+        sink.text("--" + boundary + "--" + CRLF);
+    }
+
+    /**
+     * Quote-safe filename for a MIME header, using an RFC 2047 encoded word when it is not plain ASCII
+     */
+    static String encodeFilename(String filename) {
+        String clean = sanitizeHeader(filename);
+        boolean plain = true;
+        for (int i = 0; i < clean.length() && plain; i++) {
+            char c = clean.charAt(i);
+            plain = c >= 0x20 && c < 0x7F && c != '"' && c != '\\';
+        }
+        if (plain) {
+            return clean;
+        }
+        return "=?UTF-8?B?" + Base64.getEncoder().encodeToString(clean.getBytes(StandardCharsets.UTF_8)) + "?=";
+    }
+
+    /**
+     * Length of a file after MIME base64 encoding: 4 chars per 3 bytes, CRLF between 76-char lines
+     */
+    static long mimeBase64Length(long size) {
+        long encoded = ((size + 2) / 3) * 4;
+        long lineBreaks = encoded == 0 ? 0 : (encoded - 1) / MIME_LINE_LENGTH;
+        return encoded + lineBreaks * CRLF.length();
+    }
+
+    /**
+     * Number of bytes the UTF-8 encoder will produce for a string.
+     * Unpaired surrogates count as one byte, matching the encoder's '?' replacement.
+     */
+    static long utf8Length(String s) {
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * File to attach
+     * @param filename Name shown to the recipient
+     * @param contentType MIME type, e.g. application/pdf
+     * @param path File on disk; it must not change while messages referencing it are sent
+     * @param size File size in bytes, used to precompute the message length
+     */
+    public record Attachment(String filename, String contentType, Path path, long size) {
+    }
+
+    private record Header(String name, List<String> values) {
+    }
+
+    private interface Sink {
+        void text(String text) throws IOException;
+
+        void file(Attachment attachment) throws IOException;
+    }
+
+    private static final class LengthSink implements Sink {
+        private long length;
+
+        @Override
+        public void text(String text) {
+            length += utf8Length(text);
+        }
+
+        @Override
+        public void file(Attachment attachment) {
+            length += mimeBase64Length(attachment.size());
+        }
+    }
+
+    /**
+     * Writes text through the buffered UTF-8 writer and file contents as MIME base64 onto the
+     * same byte stream; the writer is flushed first so the two never interleave
+     */
+    private static final class StreamSink implements Sink {
+        private final Writer writer;
+        private final OutputStream bytes;
+
+        private StreamSink(Writer writer, OutputStream bytes) {
+            this.writer = writer;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void text(String text) throws IOException {
+            writer.write(text);
+        }
+
+        @Override
+        public void file(Attachment attachment) throws IOException {
+            writer.flush();
+            OutputStream encoder = Base64.getMimeEncoder().wrap(StreamUtils.nonClosing(bytes));
+            long copied = 0;
+            try (InputStream in = Files.newInputStream(attachment.path())) {
+                byte[] chunk = new byte[FILE_CHUNK_BYTES];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    encoder.write(chunk, 0, read);
+                    copied += read;
+                }
+            }
+            // Closing writes the final padded group without closing the message stream
+            encoder.close();
+            if (copied != attachment.size()) {
+                throw new IOException("Attachment " + attachment.filename() + " changed size while sending");
+            }
+        }
+    }
+}
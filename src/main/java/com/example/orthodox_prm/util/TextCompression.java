@@ -0,0 +1,84 @@
+package com.example.orthodox_prm.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression and content hashing for stored text, such as sent email bodies
+ */
+public final class TextCompression {
+
+    private TextCompression() {
+    }
+
+    /**
+     * Compress UTF-8 text with raw deflate at the best compression level
+     */
+    public static byte[] deflate(String text) {
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 3));
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompress text produced by {@link #deflate(String)}
+     */
+    public static String inflate(byte[] compressed) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] chunk = new byte[4096];
+            boolean paddedInput = false;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && inflater.needsInput() && !paddedInput) {
+                    // Raw inflate may need one byte past the end to see the final block, e.g. of empty text
+                    inflater.setInput(new byte[1]);
+                    paddedInput = true;
+                    continue;
+                }
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed text");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException | IOException e) {
+            throw new UncheckedIOException(new IOException("Corrupt compressed text", e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * SHA-256 of the UTF-8 text as lower-case hex
+     */
+    public static String sha256Hex(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
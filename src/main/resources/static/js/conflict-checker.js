@@ -40,6 +40,15 @@ function checkConflicts(parishionerId, formType = 'regular') {
     if (endTime) params.append('endTime', endTime);
     if (additionalParticipants) params.append('additionalParticipants', additionalParticipants);
 
+    // A repeating event is checked on each of its occurrences
+    const recurrenceFrequency = document.getElementById(formType + 'RecurrenceFrequency')?.value || 'NONE';
+    if (recurrenceFrequency !== 'NONE') {
+        params.append('recurrenceFrequency', recurrenceFrequency);
+        params.append('recurrenceInterval', document.getElementById(formType + 'RecurrenceInterval')?.value || '1');
+        const recurrenceUntil = document.getElementById(formType + 'RecurrenceUntil')?.value || '';
+        if (recurrenceUntil) params.append('recurrenceUntil', recurrenceUntil);
+    }
+
     // Call AJAX endpoint
     fetch(`/parishioners/view/${parishionerId}/check-conflicts?${params.toString()}`, {
         method: 'POST',
@@ -83,8 +92,24 @@ function displayConflictWarning(data, warningId = 'regularEventConflictWarning')
             <button type="button" class="btn-close" data-bs-dismiss="alert" aria-label="Close"></button>
     `;
 
-    // Add database conflicts
-    if (data.databaseConflicts && data.databaseConflicts.length > 0) {
+    // Add database conflicts, grouped by participant when the server provides the grouping
+    if (data.conflictsByParticipant && data.conflictsByParticipant.length > 0) {
+        warningHtml += '<div class="mt-2"><strong>In Local Calendar:</strong><ul class="mb-0">';
+        data.conflictsByParticipant.forEach(group => {
+            warningHtml += `<li><strong>${group.parishionerName}</strong><ul class="mb-0">`;
+            group.conflicts.forEach(conflict => {
+                warningHtml += `
+                    <li>
+                        ${conflict.eventTitle}
+                        on ${conflict.eventDate}
+                        ${conflict.eventTime ? `at ${conflict.eventTime}` : '(all-day)'}
+                    </li>
+                `;
+            });
+            warningHtml += '</ul></li>';
+        });
+        warningHtml += '</ul></div>';
+    } else if (data.databaseConflicts && data.databaseConflicts.length > 0) {
         warningHtml += '<div class="mt-2"><strong>In Local Calendar:</strong><ul class="mb-0">';
         data.databaseConflicts.forEach(conflict => {
             warningHtml += `
@@ -158,6 +183,12 @@ function setupConflictCheckingForForm(parishionerId, formType = 'regular') {
     if (participantsSelect) {
         participantsSelect.addEventListener('change', () => checkConflicts(parishionerId, formType));
     }
+    ['RecurrenceFrequency', 'RecurrenceInterval', 'RecurrenceUntil'].forEach(field => {
+        const input = document.getElementById(formType + field);
+        if (input) {
+            input.addEventListener('change', () => checkConflicts(parishionerId, formType));
+        }
+    });
 }
 
 /**
@@ -0,0 +1,119 @@
+/**
+ * Free slot finder for event scheduling
+ * Asks the server for the earliest times all selected participants are free
+ * and fills the event form when a slot is picked
+ */
+
+/**
+ * Search for free slots for a form
+ * @param {number} parishionerId - The primary parishioner ID
+ * @param {string} formType - 'sacrament' or 'regular' to identify which form
+ */
+function findFreeSlots(parishionerId, formType = 'regular') {
+    const resultsDiv = document.getElementById(`${formType}FreeSlots`);
+    const eventDate = document.getElementById(`${formType}EventDate`)?.value || '';
+    const participantsSelect = document.getElementById(`${formType}AdditionalParticipants`);
+    const googleCheckbox = document.getElementById(`${formType}SlotGoogle`);
+
+    const params = new URLSearchParams();
+    params.append('durationMinutes', document.getElementById(`${formType}SlotDuration`).value);
+    params.append('earliestTime', document.getElementById(`${formType}SlotEarliest`).value);
+    params.append('latestTime', document.getElementById(`${formType}SlotLatest`).value);
+    params.append('windowDays', '365');
+    if (eventDate) params.append('fromDate', eventDate);
+    if (googleCheckbox && googleCheckbox.checked) params.append('includeGoogleCalendar', 'true');
+    if (participantsSelect) {
+        const selected = Array.from(participantsSelect.selectedOptions).map(option => option.value);
+        if (selected.length > 0) params.append('additionalParticipants', selected.join(','));
+    }
+
+    resultsDiv.innerHTML = '<small class="text-muted">Searching...</small>';
+
+    fetch(`/parishioners/view/${parishionerId}/free-slots?${params.toString()}`, {
+        headers: {
+            'Accept': 'application/json',
+            'X-Requested-With': 'XMLHttpRequest'
+        }
+    })
+    .then(response => {
+        if (!response.ok) throw new Error('Network response was not ok');
+        return response.json();
+    })
+    .then(data => displayFreeSlots(data, parishionerId, formType))
+    .catch(error => {
+        console.error('Error finding free slots:', error);
+        resultsDiv.innerHTML = '<small class="text-danger">Could not search for free slots.</small>';
+    });
+}
+
+/**
+ * Show the slots as buttons that fill in the form
+ */
+function displayFreeSlots(data, parishionerId, formType) {
+    const resultsDiv = document.getElementById(`${formType}FreeSlots`);
+    resultsDiv.innerHTML = '';
+
+    if (data.error) {
+        resultsDiv.innerHTML = `<small class="text-danger">${data.error}</small>`;
+        return;
+    }
+    if (!data.slots || data.slots.length === 0) {
+        resultsDiv.innerHTML = '<small class="text-muted">No free slot found in the next year.</small>';
+        return;
+    }
+
+    data.slots.forEach(slot => {
+        const start = slot.startTime.substring(0, 5);
+        const end = slot.endTime.substring(0, 5);
+        const label = new Date(slot.date + 'T00:00:00').toLocaleDateString(undefined,
+            {weekday: 'short', month: 'short', day: 'numeric', year: 'numeric'});
+
+        const button = document.createElement('button');
+        button.type = 'button';
+        button.className = 'btn btn-sm btn-outline-success me-1 mb-1';
+        button.textContent = `${label}, ${formatTime12Hour(start)} - ${formatTime12Hour(end)}`;
+        button.addEventListener('click', () => applyFreeSlot(parishionerId, formType, slot.date, start, end));
+        resultsDiv.appendChild(button);
+    });
+}
+
+/**
+ * Copy a slot into the form and re-run the conflict check
+ */
+function applyFreeSlot(parishionerId, formType, date, start, end) {
+    document.getElementById(`${formType}EventDate`).value = date;
+    document.getElementById(`${formType}StartTime`).value = start;
+    document.getElementById(`${formType}EndTime`).value = end;
+    checkConflicts(parishionerId, formType);
+}
+
+/**
+ * Fill the allowed-hours selects and wire up the search button for a form
+ */
+function setupFreeSlotFinderForForm(parishionerId, formType) {
+    const button = document.getElementById(`${formType}SlotSearch`);
+    if (!button) return;
+
+    [[`${formType}SlotEarliest`, '09:00'], [`${formType}SlotLatest`, '17:00']].forEach(([selectId, defaultValue]) => {
+        const select = document.getElementById(selectId);
+        generateTimeOptions().filter(option => option.value).forEach(option => {
+            const optElement = document.createElement('option');
+            optElement.value = option.value;
+            optElement.textContent = option.label;
+            select.appendChild(optElement);
+        });
+        select.value = defaultValue;
+    });
+
+    button.addEventListener('click', () => findFreeSlots(parishionerId, formType));
+}
+
+// Initialize when DOM is ready
+document.addEventListener('DOMContentLoaded', function() {
+    const pageElement = document.querySelector('[data-parishioner-id]');
+    if (pageElement) {
+        const parishionerId = pageElement.getAttribute('data-parishioner-id');
+        setupFreeSlotFinderForForm(parishionerId, 'sacrament');
+        setupFreeSlotFinderForForm(parishionerId, 'regular');
+    }
+});
@@ -0,0 +1,191 @@
+package com.example.orthodox_prm.model;
+
+import com.example.orthodox_prm.Enum.RecurrenceFrequency;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static com.example.orthodox_prm.Enum.RecurrenceFrequency.MONTHLY_BY_WEEKDAY;
+import static com.example.orthodox_prm.Enum.RecurrenceFrequency.WEEKLY;
+import static com.example.orthodox_prm.Enum.RecurrenceFrequency.YEARLY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Occurrence dates of repeat rules, the jump into windows far from the series start, and the
+ * rule's RRULE and text forms
+ */
+class RecurrenceRuleTest {
+
+    @Test
+    void fifthWeekdayMeansTheLastOneEveryMonth() {
+        // January 29, 2026 is the fifth Thursday of the month
+        LocalDate start = LocalDate.of(2026, 1, 29);
+        RecurrenceRule rule = new RecurrenceRule(MONTHLY_BY_WEEKDAY, 1, null);
+
+        assertThat(occurrences(rule, start, start, LocalDate.of(2026, 6, 30))).containsExactly(
+                LocalDate.of(2026, 1, 29), LocalDate.of(2026, 2, 26), LocalDate.of(2026, 3, 26),
+                LocalDate.of(2026, 4, 30), LocalDate.of(2026, 5, 28), LocalDate.of(2026, 6, 25));
+        assertThat(rule.toRRule(start, false, ZoneId.of("UTC"))).isEqualTo("RRULE:FREQ=MONTHLY;BYDAY=-1TH;INTERVAL=1");
+        assertThat(rule.describe(start)).isEqualTo("Monthly on the last Thursday");
+    }
+
+    @Test
+    void fourthWeekdayStaysTheFourth() {
+        // April 30 is a fifth Thursday, but a series on the fourth keeps the 23rd
+        LocalDate start = LocalDate.of(2026, 1, 22);
+        RecurrenceRule rule = new RecurrenceRule(MONTHLY_BY_WEEKDAY, 3, null);
+
+        assertThat(occurrences(rule, start, start, LocalDate.of(2026, 12, 31))).containsExactly(
+                LocalDate.of(2026, 1, 22), LocalDate.of(2026, 4, 23), LocalDate.of(2026, 7, 23), LocalDate.of(2026, 10, 22));
+        assertThat(rule.toRRule(start, false, ZoneId.of("UTC"))).isEqualTo("RRULE:FREQ=MONTHLY;BYDAY=4TH;INTERVAL=3");
+        assertThat(rule.describe(start)).isEqualTo("Every 3 months on the fourth Thursday");
+    }
+
+    @Test
+    void february29OccursOnlyInLeapYears() {
+        LocalDate start = LocalDate.of(2024, 2, 29);
+
+        assertThat(occurrences(new RecurrenceRule(YEARLY, 1, null), start, LocalDate.of(2024, 1, 1), LocalDate.of(2036, 12, 31)))
+                .containsExactly(LocalDate.of(2024, 2, 29), LocalDate.of(2028, 2, 29), LocalDate.of(2032, 2, 29),
+                        LocalDate.of(2036, 2, 29));
+        // Every third year lands on a leap year only every twelve
+        assertThat(occurrences(new RecurrenceRule(YEARLY, 3, null), start, LocalDate.of(2025, 1, 1), LocalDate.of(2050, 12, 31)))
+                .containsExactly(LocalDate.of(2036, 2, 29), LocalDate.of(2048, 2, 29));
+        // A window holding only common years has none
+        assertThat(occurrences(new RecurrenceRule(YEARLY, 1, null), start, LocalDate.of(2029, 1, 1), LocalDate.of(2031, 12, 31)))
+                .isEmpty();
+    }
+
+    @Test
+    void intervalsSeekIntoWindowsFarFromTheStart() {
+        // Every third week from a Saturday in 2000
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        RecurrenceRule weekly = new RecurrenceRule(WEEKLY, 3, null);
+        List<LocalDate> expected = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(LocalDate.of(2026, 8, 31)); date = date.plusWeeks(3)) {
+            if (!date.isBefore(LocalDate.of(2026, 6, 1))) {
+                expected.add(date);
+            }
+        }
+        assertThat(expected).hasSize(4);
+        assertThat(occurrences(weekly, start, LocalDate.of(2026, 6, 1), LocalDate.of(2026, 8, 31))).isEqualTo(expected);
+
+        // A window shorter than the interval may fall between occurrences
+        LocalDate first = expected.get(0);
+        assertThat(occurrences(weekly, start, first.plusDays(1), first.plusDays(20))).isEmpty();
+        assertThat(occurrences(weekly, start, first, first)).containsExactly(first);
+    }
+
+    @Test
+    void untilClipsTheSeries() {
+        LocalDate start = LocalDate.of(2026, 3, 7);
+        LocalDate lastSaturday = LocalDate.of(2026, 4, 4);
+
+        assertThat(occurrences(new RecurrenceRule(WEEKLY, 1, lastSaturday), start, start, LocalDate.of(2026, 12, 31)))
+                .containsExactly(start, start.plusWeeks(1), start.plusWeeks(2), start.plusWeeks(3), lastSaturday);
+        assertThat(occurrences(new RecurrenceRule(WEEKLY, 1, lastSaturday.minusDays(1)), start, start, LocalDate.of(2026, 12, 31)))
+                .last().isEqualTo(start.plusWeeks(3));
+        // A window after the end, and an end before the start
+        assertThat(occurrences(new RecurrenceRule(WEEKLY, 1, lastSaturday), start, LocalDate.of(2026, 5, 1), LocalDate.of(2026, 12, 31)))
+                .isEmpty();
+        assertThat(occurrences(new RecurrenceRule(WEEKLY, 1, start.minusDays(1)), start, start, LocalDate.of(2026, 12, 31)))
+                .isEmpty();
+    }
+
+    @Test
+    void windowsBeforeTheStartBeginAtTheStart() {
+        LocalDate start = LocalDate.of(2026, 8, 15);
+        RecurrenceRule rule = new RecurrenceRule(YEARLY, null, null);
+
+        assertThat(occurrences(rule, start, LocalDate.of(2020, 1, 1), LocalDate.of(2027, 12, 31)))
+                .containsExactly(start, LocalDate.of(2027, 8, 15));
+        assertThat(occurrences(rule, start, LocalDate.of(2020, 1, 1), LocalDate.of(2026, 8, 14))).isEmpty();
+    }
+
+    @Test
+    void iteratorEndsWithNoSuchElement() {
+        LocalDate start = LocalDate.of(2026, 1, 4);
+        Iterator<LocalDate> iterator = new RecurrenceRule(WEEKLY, 1, null).occurrences(start, start, start);
+
+        assertThat(iterator.next()).isEqualTo(start);
+        assertThat(iterator.hasNext()).isFalse();
+        assertThatThrownBy(iterator::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void randomRulesMatchADayByDayScan() {
+        Random random = new Random(39);
+        for (int i = 0; i < 2_000; i++) {
+            RecurrenceFrequency frequency = RecurrenceFrequency.values()[random.nextInt(RecurrenceFrequency.values().length)];
+            // Ends of months, including February 29, are the interesting starts
+            LocalDate start = random.nextBoolean()
+                    ? LocalDate.of(1990, 1, 1).plusDays(random.nextInt(20_000))
+                    : YearMonth.of(1990 + random.nextInt(50), 1 + random.nextInt(12)).atEndOfMonth().minusDays(random.nextInt(7));
+            Integer interval = random.nextInt(10) == 0 ? null : 1 + random.nextInt(frequency == YEARLY ? 5 : 13);
+            LocalDate until = random.nextInt(3) == 0 ? null : start.plusDays(random.nextInt(30_000) - 300);
+            LocalDate from = start.plusDays(random.nextInt(30_000) - 1_000);
+            LocalDate to = from.plusDays(random.nextInt(frequency == YEARLY ? 4_000 : 800));
+            RecurrenceRule rule = new RecurrenceRule(frequency, interval, until);
+
+            assertThat(occurrences(rule, start, from, to)).as("%s from %s, window %s..%s", rule, start, from, to)
+                    .isEqualTo(scan(rule, start, from, to));
+        }
+    }
+
+    @Test
+    void rRuleEndsAtTheEndOfTheLastDayInUtc() {
+        LocalDate start = LocalDate.of(2026, 3, 7);
+        RecurrenceRule rule = new RecurrenceRule(WEEKLY, 2, LocalDate.of(2026, 6, 27));
+
+        assertThat(rule.toRRule(start, true, ZoneId.of("America/New_York")))
+                .isEqualTo("RRULE:FREQ=WEEKLY;INTERVAL=2;UNTIL=20260628T035959Z");
+        assertThat(rule.toRRule(start, false, ZoneId.of("America/New_York")))
+                .isEqualTo("RRULE:FREQ=WEEKLY;INTERVAL=2;UNTIL=20260627");
+        assertThat(rule.describe(start)).isEqualTo("Every 2 weeks on Saturday until Jun 27, 2026");
+    }
+
+    private static List<LocalDate> occurrences(RecurrenceRule rule, LocalDate start, LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        rule.occurrencesBetween(start, from, to).forEach(dates::add);
+        return dates;
+    }
+
+    /**
+     * Test every date of the window against the rule's definition
+     */
+    private static List<LocalDate> scan(RecurrenceRule rule, LocalDate start, LocalDate from, LocalDate to) {
+        int step = rule.getRepeatInterval() != null && rule.getRepeatInterval() > 0 ? rule.getRepeatInterval() : 1;
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (date.isBefore(start) || (rule.getUntil() != null && date.isAfter(rule.getUntil()))) {
+                continue;
+            }
+            boolean matches = switch (rule.getFrequency()) {
+                case WEEKLY -> ChronoUnit.DAYS.between(start, date) % (7L * step) == 0;
+                case MONTHLY_BY_WEEKDAY -> {
+                    long months = ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(date));
+                    int week = (start.getDayOfMonth() - 1) / 7 + 1;
+                    boolean last = date.plusWeeks(1).getMonth() != date.getMonth();
+                    yield months % step == 0 && date.getDayOfWeek() == start.getDayOfWeek()
+                            && (week == 5 ? last : (date.getDayOfMonth() - 1) / 7 + 1 == week);
+                }
+                case YEARLY -> MonthDay.from(date).equals(MonthDay.from(start))
+                        && (date.getYear() - start.getYear()) % step == 0;
+            };
+            if (matches) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.EmailHistoryPageDTO;
+import com.example.orthodox_prm.dto.SentEmailDetailDTO;
+import com.example.orthodox_prm.dto.SentEmailSummaryDTO;
+import com.example.orthodox_prm.model.SentEmail;
+import com.example.orthodox_prm.repository.EmailBodyRepository;
+import com.example.orthodox_prm.repository.SentEmailRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * History storage against the database: shared bodies, keyset pages, recipient search
+ * and the migration of rows from the old denormalized columns
+ */
+@DataJpaTest(showSql = false)
+// RegistryVersionService is needed by the registry entity listener
+@Import({EmailHistoryService.class, EmailHistoryMigration.class, RegistryVersionService.class})
+class EmailHistoryServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 4, 12, 9, 0);
+
+    @Autowired
+    private EmailHistoryService emailHistoryService;
+    @Autowired
+    private EmailHistoryMigration emailHistoryMigration;
+    @Autowired
+    private SentEmailRepository sentEmailRepository;
+    @Autowired
+    private EmailBodyRepository emailBodyRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void identicalBodiesAreStoredOnce() {
+        SentEmail sent = emailHistoryService.saveSentEmail("Pascha", "Christ is risen!", List.of("a@x.org"), "INDIVIDUAL", null);
+        SentEmail resent = emailHistoryService.saveSentEmail("Pascha again", "Christ is risen!", List.of("b@x.org"), "INDIVIDUAL", null);
+        SentEmail failed = emailHistoryService.saveFailedEmail("Pascha", "Christ is risen!", List.of("c@x.org"), "GROUP_BCC", "quota");
+        SentEmail other = emailHistoryService.saveSentEmail("Nativity", "Christ is born!", List.of("a@x.org"), "INDIVIDUAL", null);
+        SentEmail empty = emailHistoryService.saveSentEmail("Empty", null, List.of("a@x.org"), "INDIVIDUAL", null);
+
+        assertThat(emailBodyRepository.count()).isEqualTo(3);
+        assertThat(resent.getEmailBody().getId()).isEqualTo(sent.getEmailBody().getId());
+        assertThat(failed.getEmailBody().getId()).isEqualTo(sent.getEmailBody().getId());
+        assertThat(other.getEmailBody().getId()).isNotEqualTo(sent.getEmailBody().getId());
+
+        assertThat(detail(failed).getBody()).isEqualTo("Christ is risen!");
+        assertThat(detail(failed).getSummary().getSuccess()).isFalse();
+        assertThat(detail(other).getBody()).isEqualTo("Christ is born!");
+        assertThat(detail(empty).getBody()).isEmpty();
+    }
+
+    @Test
+    void recipientsAreNormalized() {
+        SentEmail email = emailHistoryService.saveSentEmail("Vespers", "See you tonight",
+                List.of(" Anna@Example.ORG", "anna@example.org", "", "  ", "john@example.org"), "GROUP_BCC", null);
+
+        SentEmailDetailDTO detail = detail(email);
+        assertThat(detail.getRecipients()).containsExactly("anna@example.org", "john@example.org");
+        // The count is of the addresses the send was given
+        assertThat(detail.getSummary().getRecipientCount()).isEqualTo(5);
+    }
+
+    @Test
+    void pagesChainThroughTiesNewestFirst() {
+        List<SentEmail> emails = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            // Seven emails share each timestamp, so the id decides within a minute
+            emails.add(saveAt("Email " + i, List.of("p" + i + "@x.org"), BASE.plusMinutes(i / 7)));
+        }
+        List<Long> expected = emails.stream()
+                .sorted(Comparator.comparing(SentEmail::getSentAt).thenComparing(SentEmail::getId).reversed())
+                .map(SentEmail::getId)
+                .toList();
+
+        List<List<Long>> pages = walk(cursor -> emailHistoryService.getHistoryPage(cursor, null, 25));
+
+        assertThat(pages).extracting(List::size).containsExactly(25, 25, 10);
+        assertThat(pages.stream().flatMap(List::stream).toList()).isEqualTo(expected);
+    }
+
+    @Test
+    void recipientSearchPagesChainToo() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            List<String> recipients = i % 2 == 0 ? List.of("p" + i + "@x.org", "choir@x.org") : List.of("p" + i + "@x.org");
+            SentEmail email = saveAt("Email " + i, recipients, BASE.plusMinutes(i / 4));
+            if (i % 2 == 0) {
+                expected.add(0, email.getId());
+            }
+        }
+
+        List<List<Long>> pages = walk(cursor -> emailHistoryService.getHistoryPage(cursor, " CHOIR", 12));
+
+        assertThat(pages).extracting(List::size).containsExactly(12, 12, 6);
+        assertThat(pages.stream().flatMap(List::stream).toList()).isEqualTo(expected);
+    }
+
+    @Test
+    void recipientSearchTreatsWildcardsLiterally() {
+        SentEmail underscore = saveAt("1", List.of("a_b@x.org"), BASE);
+        SentEmail letter = saveAt("2", List.of("axb@x.org"), BASE.plusMinutes(1));
+        SentEmail percent = saveAt("3", List.of("50%off@x.org"), BASE.plusMinutes(2));
+        SentEmail digits = saveAt("4", List.of("5000@x.org"), BASE.plusMinutes(3));
+        SentEmail backslash = saveAt("5", List.of("back\\slash@x.org"), BASE.plusMinutes(4));
+        saveAt("6", List.of("backslash@x.org"), BASE.plusMinutes(5));
+
+        assertThat(search("A_B")).containsExactly(underscore.getId());
+        assertThat(search("a")).containsExactly(letter.getId(), underscore.getId());
+        assertThat(search("50%")).containsExactly(percent.getId());
+        assertThat(search("50")).containsExactly(digits.getId(), percent.getId());
+        assertThat(search("back\\")).containsExactly(backslash.getId());
+        assertThat(search("%")).isEmpty();
+        assertThat(search("_")).isEmpty();
+    }
+
+    @Test
+    void legacyRowsMoveToSharedBodiesAndRecipientRows() {
+        emailHistoryService.saveSentEmail("Current", "Body 1", List.of("a@x.org"), "INDIVIDUAL", null);
+        List<SentEmail> legacy = new ArrayList<>();
+        // More than two migration batches
+        for (int i = 0; i < 230; i++) {
+            SentEmail email = new SentEmail();
+            email.setSubject("Legacy " + i);
+            email.setLegacyBody("Body " + i % 3);
+            email.setLegacyRecipients(" Anna@X.org,p" + i + "@x.org,,anna@x.org");
+            email.setRecipientCount(3);
+            email.setSendMode("INDIVIDUAL");
+            email.setSentBy("priest@x.org");
+            legacy.add(sentEmailRepository.save(email));
+        }
+
+        // Readable before the migration from the old columns
+        assertThat(detail(legacy.get(4)).getBody()).isEqualTo("Body 1");
+        assertThat(detail(legacy.get(4)).getRecipients()).containsExactly("anna@x.org", "p4@x.org");
+
+        emailHistoryMigration.migrateLegacyRows();
+
+        assertThat(sentEmailRepository.findByEmailBodyIsNullOrderByIdAsc(Limit.of(1))).isEmpty();
+        // "Body 1" was already stored by the current send
+        assertThat(emailBodyRepository.count()).isEqualTo(3);
+        for (int i = 0; i < legacy.size(); i++) {
+            SentEmail migrated = sentEmailRepository.findById(legacy.get(i).getId()).orElseThrow();
+            assertThat(migrated.getLegacyBody()).isEmpty();
+            assertThat(migrated.getLegacyRecipients()).isEmpty();
+            SentEmailDetailDTO detail = detail(migrated);
+            assertThat(detail.getBody()).isEqualTo("Body " + i % 3);
+            assertThat(detail.getRecipients()).containsExactly("anna@x.org", "p" + i + "@x.org");
+        }
+        assertThat(search("p229@")).containsExactly(legacy.get(229).getId());
+
+        // Nothing left to do on the next start
+        emailHistoryMigration.migrateLegacyRows();
+        assertThat(emailBodyRepository.count()).isEqualTo(3);
+    }
+
+    private SentEmail saveAt(String subject, List<String> recipients, LocalDateTime sentAt) {
+        SentEmail email = emailHistoryService.saveSentEmail(subject, subject, recipients, "INDIVIDUAL", null);
+        // sentAt is set on insert, so move it afterwards
+        jdbcTemplate.update("UPDATE sent_email SET sent_at = ? WHERE sent_email_id = ?", sentAt, email.getId());
+        email.setSentAt(sentAt);
+        return email;
+    }
+
+    private List<Long> search(String recipient) {
+        return emailHistoryService.getHistoryPage(null, recipient, 100).getEmails().stream()
+                .map(SentEmailSummaryDTO::getId)
+                .toList();
+    }
+
+    private SentEmailDetailDTO detail(SentEmail email) {
+        return emailHistoryService.getEmailDetail(email.getId()).orElseThrow();
+    }
+
+    private static List<List<Long>> walk(Function<String, EmailHistoryPageDTO> pageAfter) {
+        List<List<Long>> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            EmailHistoryPageDTO page = pageAfter.apply(cursor);
+            pages.add(page.getEmails().stream().map(SentEmailSummaryDTO::getId).toList());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return pages;
+    }
+}
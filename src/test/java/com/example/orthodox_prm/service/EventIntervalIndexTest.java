@@ -0,0 +1,299 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.RecurrenceFrequency;
+import com.example.orthodox_prm.dto.ConflictingEventDTO;
+import com.example.orthodox_prm.model.RecurrenceRule;
+import com.example.orthodox_prm.repository.EventParticipantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Conflict queries against the index must return exactly what a scan of every booking
+ * returns, after the initial load and after events change in committed or rolled back
+ * transactions
+ */
+class EventIntervalIndexTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 3, 1);
+    private static final int DAYS = 21;
+    private static final int PARTICIPANTS = 6;
+
+    // Same order as the index promises; ties between bookings of one participant on one date are not ordered
+    private static final Comparator<ConflictingEventDTO> RESULT_ORDER = Comparator
+            .comparing(ConflictingEventDTO::getLastName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ConflictingEventDTO::getFirstName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ConflictingEventDTO::getParishionerId)
+            .thenComparing(ConflictingEventDTO::getEventDate);
+
+    // The "database": booking rows per event id
+    private final Map<Long, List<ConflictingEventDTO>> bookings = new LinkedHashMap<>();
+    private final String[][] names = new String[PARTICIPANTS + 1][];
+    private final EventParticipantRepository repository = mock(EventParticipantRepository.class);
+    private final RegistryVersionService registryVersionService = new RegistryVersionService();
+    private final EventIntervalIndex index = new EventIntervalIndex(repository, registryVersionService);
+    private long nextEventId = 1;
+
+    @BeforeEach
+    void setUp() {
+        for (int id = 1; id <= PARTICIPANTS; id++) {
+            // Two participants share a family name, so ties fall through to the first name and id
+            names[id] = new String[] {id % 3 == 0 ? "Maria" : "Name" + id, id <= 2 ? "Ivanov" : "Family" + id};
+        }
+        when(repository.findAllBookings()).thenAnswer(call -> bookings.values().stream().flatMap(List::stream).toList());
+        when(repository.findBookingsForEvents(anyCollection())).thenAnswer(call -> {
+            Collection<Long> eventIds = call.getArgument(0);
+            return eventIds.stream().flatMap(id -> bookings.getOrDefault(id, List.of()).stream()).toList();
+        });
+    }
+
+    @Test
+    void longEventIsFoundBehindShortOnesThatEndEarlier() {
+        LocalDate day = FIRST_DAY;
+        put(nextEventId++, List.of(1L), day, LocalTime.of(8, 0), LocalTime.of(18, 0), null);
+        for (int i = 0; i < 20; i++) {
+            LocalTime start = LocalTime.of(8, 15).plusMinutes(20L * i);
+            put(nextEventId++, List.of(1L), day, start, start.plusMinutes(15), null);
+        }
+
+        List<ConflictingEventDTO> conflicts = index.findConflicts(List.of(1L), day, LocalTime.of(17, 0), LocalTime.of(17, 30));
+
+        assertThat(conflicts).extracting(ConflictingEventDTO::getEventId).containsExactly(1L);
+        assertMatchesScan(List.of(1L), day, day, LocalTime.of(12, 0), LocalTime.of(12, 5));
+    }
+
+    @Test
+    void randomQueriesMatchAScanOfEveryBooking() {
+        Random random = new Random(33);
+        for (int i = 0; i < 400; i++) {
+            putRandom(nextEventId++, random);
+        }
+
+        for (int i = 0; i < 3_000; i++) {
+            randomQuery(random);
+        }
+        verify(repository, times(1)).findAllBookings();
+    }
+
+    @Test
+    void committedChangesAreReindexedAndRolledBackOnesAreNot() {
+        Random random = new Random(3333);
+        for (int i = 0; i < 200; i++) {
+            putRandom(nextEventId++, random);
+        }
+        randomQuery(random);
+
+        for (int round = 0; round < 150; round++) {
+            Map<Long, List<ConflictingEventDTO>> before = new LinkedHashMap<>(bookings);
+            boolean commit = random.nextInt(4) > 0;
+
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                for (int change = 1 + random.nextInt(4); change > 0; change--) {
+                    long eventId = changeRandomEvent(random);
+                    index.markChanged(eventId);
+                    // Marking an event twice in one transaction reindexes it once
+                    if (random.nextInt(4) == 0) {
+                        index.markChanged(eventId);
+                    }
+                }
+                if (!commit) {
+                    bookings.clear();
+                    bookings.putAll(before);
+                }
+                for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                    synchronization.afterCompletion(commit
+                            ? TransactionSynchronization.STATUS_COMMITTED
+                            : TransactionSynchronization.STATUS_ROLLED_BACK);
+                }
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+
+            for (int i = 0; i < 20; i++) {
+                randomQuery(random);
+            }
+        }
+        // Every change was applied to the loaded index, never by reloading it
+        verify(repository, times(1)).findAllBookings();
+    }
+
+    @Test
+    void changesOutsideATransactionAreReindexedAtOnce() {
+        Random random = new Random(333);
+        for (int i = 0; i < 50; i++) {
+            putRandom(nextEventId++, random);
+        }
+        randomQuery(random);
+
+        for (int i = 0; i < 100; i++) {
+            index.markChanged(changeRandomEvent(random));
+            randomQuery(random);
+        }
+        verify(repository, times(1)).findAllBookings();
+    }
+
+    @Test
+    void registryChangesReloadTheIndex() {
+        put(nextEventId++, List.of(1L, 2L), FIRST_DAY, null, null, null);
+        assertThat(index.findConflicts(List.of(1L), FIRST_DAY, null, null))
+                .extracting(ConflictingEventDTO::getFirstName).containsExactly("Name1");
+
+        names[1][0] = "Anastasia";
+        bookings.replaceAll((eventId, rows) -> rows.stream()
+                .map(row -> booking(row.getParishionerId(), eventId, row.getEventDate(), row.getStartTime(),
+                        row.getEndTime(), row.getRecurrence()))
+                .toList());
+        registryVersionService.markChanged();
+
+        assertThat(index.findConflicts(List.of(1L), FIRST_DAY, null, null))
+                .extracting(ConflictingEventDTO::getFirstName).containsExactly("Anastasia");
+        verify(repository, times(2)).findAllBookings();
+    }
+
+    private void randomQuery(Random random) {
+        List<Long> parishionerIds = new ArrayList<>();
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            // Id 0 has no bookings
+            parishionerIds.add((long) random.nextInt(PARTICIPANTS + 1));
+        }
+        LocalDate from = FIRST_DAY.plusDays(random.nextInt(DAYS + 10) - 5);
+        LocalDate to = random.nextInt(3) == 0 ? from : from.plusDays(random.nextInt(10));
+        LocalTime start = null;
+        LocalTime end = null;
+        if (random.nextInt(8) > 0) {
+            start = LocalTime.of(5, 0).plusMinutes(5L * random.nextInt(200));
+            end = random.nextInt(20) == 0 ? start : start.plusMinutes(5L + 5L * random.nextInt(60));
+        }
+        assertMatchesScan(parishionerIds, from, to, start, end);
+    }
+
+    private void assertMatchesScan(List<Long> parishionerIds, LocalDate from, LocalDate to, LocalTime start, LocalTime end) {
+        List<ConflictingEventDTO> found = from.equals(to)
+                ? index.findConflicts(parishionerIds, from, start, end)
+                : index.findConflicts(parishionerIds, from, to, start, end);
+
+        List<ConflictingEventDTO> expected = new ArrayList<>();
+        boolean wholeDay = start == null || end == null;
+        for (Long parishionerId : new LinkedHashSet<>(parishionerIds)) {
+            for (List<ConflictingEventDTO> rows : bookings.values()) {
+                for (ConflictingEventDTO row : rows) {
+                    if (!row.getParishionerId().equals(parishionerId) || !(wholeDay || overlaps(row, start, end))) {
+                        continue;
+                    }
+                    if (row.getRecurrence() == null) {
+                        if (!row.getEventDate().isBefore(from) && !row.getEventDate().isAfter(to)) {
+                            expected.add(row);
+                        }
+                    } else {
+                        for (LocalDate date : row.getRecurrence().occurrencesBetween(row.getEventDate(), from, to)) {
+                            expected.add(row.occurrenceOn(date));
+                        }
+                    }
+                }
+            }
+        }
+
+        String query = parishionerIds + " " + from + ".." + to + " " + start + "-" + end;
+        assertThat(found).as(query).containsExactlyInAnyOrderElementsOf(expected);
+        for (int i = 1; i < found.size(); i++) {
+            assertThat(RESULT_ORDER.compare(found.get(i - 1), found.get(i))).as(query).isLessThanOrEqualTo(0);
+        }
+    }
+
+    private static boolean overlaps(ConflictingEventDTO row, LocalTime start, LocalTime end) {
+        if (row.getStartTime() == null || row.getEndTime() == null) {
+            return true;
+        }
+        return row.getStartTime().isBefore(end) && row.getEndTime().isAfter(start);
+    }
+
+    /**
+     * Add, delete, move or re-book a random event in the database, returning its id
+     */
+    private long changeRandomEvent(Random random) {
+        List<Long> eventIds = new ArrayList<>(bookings.keySet());
+        int kind = random.nextInt(4);
+        if (kind == 0 || eventIds.isEmpty()) {
+            long eventId = nextEventId++;
+            putRandom(eventId, random);
+            return eventId;
+        }
+        long eventId = eventIds.get(random.nextInt(eventIds.size()));
+        if (kind == 1) {
+            bookings.remove(eventId);
+        } else {
+            // A new date, time, recurrence and set of participants
+            putRandom(eventId, random);
+        }
+        return eventId;
+    }
+
+    private void putRandom(long eventId, Random random) {
+        LocalDate date = FIRST_DAY.plusDays(random.nextInt(DAYS));
+        LocalTime start = null;
+        LocalTime end = null;
+        int shape = random.nextInt(20);
+        if (shape == 0) {
+            // Start without an end, which conflicts like an all-day event
+            start = LocalTime.of(9, 0);
+        } else if (shape > 2) {
+            start = LocalTime.of(6, 0).plusMinutes(15L * random.nextInt(56));
+            int minutes = switch (shape) {
+                case 3, 4, 5 -> 240 + 15 * random.nextInt(33); // Reaches far past later, shorter events
+                case 6 -> -15 * random.nextInt(4);             // Ends at or before its start
+                default -> 15 + 15 * random.nextInt(8);
+            };
+            end = minutes > 0 && start.plusMinutes(minutes).isBefore(start)
+                    ? LocalTime.of(23, 59)
+                    : start.plusMinutes(minutes);
+        }
+        RecurrenceRule recurrence = null;
+        if (random.nextInt(10) == 0) {
+            RecurrenceFrequency frequency = RecurrenceFrequency.values()[random.nextInt(RecurrenceFrequency.values().length)];
+            LocalDate until = random.nextBoolean() ? null : date.plusDays(random.nextInt(400));
+            recurrence = new RecurrenceRule(frequency, 1 + random.nextInt(3), until);
+            date = date.minusYears(random.nextInt(2));
+        }
+        List<Long> participants = new ArrayList<>();
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            long parishionerId = 1 + random.nextInt(PARTICIPANTS);
+            if (!participants.contains(parishionerId)) {
+                participants.add(parishionerId);
+            }
+        }
+        put(eventId, participants, date, start, end, recurrence);
+    }
+
+    private void put(long eventId, List<Long> participants, LocalDate date, LocalTime start, LocalTime end,
+                     RecurrenceRule recurrence) {
+        bookings.put(eventId, participants.stream()
+                .map(parishionerId -> booking(parishionerId, eventId, date, start, end, recurrence))
+                .toList());
+    }
+
+    private ConflictingEventDTO booking(long parishionerId, long eventId, LocalDate date, LocalTime start, LocalTime end,
+                                        RecurrenceRule recurrence) {
+        return new ConflictingEventDTO(parishionerId, names[(int) parishionerId][0], names[(int) parishionerId][1],
+                eventId, "Event " + eventId, date, start, end, recurrence);
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.ConflictingEventDTO;
+import com.example.orthodox_prm.dto.FreeSlotDTO;
+import com.example.orthodox_prm.service.GoogleCalendarService.BusyPeriod;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The sweep over sorted busy intervals must find the same slots as marking every busy
+ * minute of the window and reading off the first half-hour start in each free gap
+ */
+class FreeSlotServiceTest {
+
+    private static final List<Long> PARTICIPANTS = List.of(1L, 2L, 3L);
+    private static final LocalDate START = LocalDate.of(2026, 1, 1);
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final EventIntervalIndex eventIntervalIndex = mock(EventIntervalIndex.class);
+    private final GoogleCalendarService googleCalendarService = mock(GoogleCalendarService.class);
+    private final FreeSlotService freeSlotService = new FreeSlotService(eventIntervalIndex, googleCalendarService);
+
+    @Test
+    void allDayBlockersMoveTheSlotToTheNextFreeDay() {
+        LocalDate from = START;
+        book(List.of(booking(from, null, null), booking(from.plusDays(1), LocalTime.of(9, 0), null)), List.of());
+
+        List<FreeSlotDTO> slots = freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ofHours(1),
+                from, from.plusDays(2), LocalTime.of(8, 0), LocalTime.of(17, 0), 5, false);
+
+        assertThat(slots).containsExactly(new FreeSlotDTO(from.plusDays(2), LocalTime.of(8, 0), LocalTime.of(9, 0)));
+    }
+
+    @Test
+    void slotsMayTouchBookingsAndTheEdgesOfTheAllowedHours() {
+        LocalDate from = START;
+        book(List.of(
+                booking(from, LocalTime.of(7, 0), LocalTime.of(8, 0)),
+                booking(from, LocalTime.of(9, 0), LocalTime.of(16, 0)),
+                booking(from, LocalTime.of(17, 0), LocalTime.of(18, 0))), List.of());
+
+        List<FreeSlotDTO> slots = freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ofHours(1),
+                from, from, LocalTime.of(8, 0), LocalTime.of(17, 0), 5, false);
+
+        assertThat(slots).containsExactly(
+                new FreeSlotDTO(from, LocalTime.of(8, 0), LocalTime.of(9, 0)),
+                new FreeSlotDTO(from, LocalTime.of(16, 0), LocalTime.of(17, 0)));
+    }
+
+    @Test
+    void windowIsCappedAtMaxWindowDays() {
+        LocalDate lastAllowed = START.plusDays(FreeSlotService.MAX_WINDOW_DAYS - 1);
+        // Every day is taken but the last one of the longest window
+        List<ConflictingEventDTO> bookings = new ArrayList<>();
+        for (LocalDate date = START; date.isBefore(lastAllowed); date = date.plusDays(1)) {
+            bookings.add(booking(date, null, null));
+        }
+        book(bookings, List.of());
+
+        assertThat(freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ofHours(1), START, lastAllowed,
+                LocalTime.of(9, 0), LocalTime.of(17, 0), 3, false))
+                .containsExactly(new FreeSlotDTO(lastAllowed, LocalTime.of(9, 0), LocalTime.of(10, 0)));
+        assertThatThrownBy(() -> freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ofHours(1), START,
+                lastAllowed.plusDays(1), LocalTime.of(9, 0), LocalTime.of(17, 0), 1, false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsImpossibleSearches() {
+        book(List.of(), List.of());
+
+        assertThatThrownBy(() -> freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ZERO, START, START,
+                LocalTime.of(9, 0), LocalTime.of(17, 0), 1, false)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ofHours(1), START, START.minusDays(1),
+                LocalTime.of(9, 0), LocalTime.of(17, 0), 1, false)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ofHours(2), START, START,
+                LocalTime.of(9, 0), LocalTime.of(10, 30), 1, false)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void randomSearchesMatchAMinuteGrid() {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            // Mostly short windows; some up to the cap
+            int days = random.nextInt(10) == 0 ? 1 + random.nextInt(FreeSlotService.MAX_WINDOW_DAYS) : 1 + random.nextInt(30);
+            LocalDate from = START.plusDays(random.nextInt(400));
+            LocalDate to = from.plusDays(days - 1);
+            int durationMinutes = 5 * (1 + random.nextInt(48));
+            int earliest = random.nextInt(4) == 0 ? 0 : 5 * random.nextInt(12 * 12);
+            int latest = random.nextInt(4) == 0
+                    ? MINUTES_PER_DAY - 1
+                    : Math.min(MINUTES_PER_DAY - 1, earliest + durationMinutes + 5 * random.nextInt(12 * 12));
+            int limit = random.nextInt(60);
+            boolean includeGoogle = random.nextBoolean();
+
+            List<ConflictingEventDTO> bookings = randomBookings(random, from, days, earliest, latest);
+            List<BusyPeriod> googleBusy = includeGoogle ? randomBusyPeriods(random, from, days) : List.of();
+            book(bookings, googleBusy);
+
+            List<FreeSlotDTO> found = freeSlotService.findFreeSlots(PARTICIPANTS, Duration.ofMinutes(durationMinutes),
+                    from, to, time(earliest), time(latest), limit, includeGoogle);
+
+            assertThat(found).as("seed %d", seed)
+                    .containsExactlyElementsOf(slotsOnMinuteGrid(bookings, googleBusy, from, days,
+                            durationMinutes, earliest, latest, limit));
+        }
+    }
+
+    private void book(List<ConflictingEventDTO> bookings, List<BusyPeriod> googleBusy) {
+        when(eventIntervalIndex.findConflicts(anyCollection(), any(), any(), any(), any())).thenReturn(bookings);
+        when(googleCalendarService.findBusyPeriods(any(), any())).thenReturn(googleBusy);
+    }
+
+    /**
+     * Bookings on random days, many around the allowed hours' edges, some all day or with a missing
+     * or inverted end time
+     */
+    private static List<ConflictingEventDTO> randomBookings(Random random, LocalDate from, int days, int earliest, int latest) {
+        List<ConflictingEventDTO> bookings = new ArrayList<>();
+        int count = random.nextInt(Math.min(days * 4, 400) + 1);
+        for (int i = 0; i < count; i++) {
+            LocalDate date = from.plusDays(random.nextInt(days));
+            int shape = random.nextInt(20);
+            if (shape == 0) {
+                bookings.add(booking(date, null, null));
+            } else if (shape == 1) {
+                bookings.add(booking(date, time(5 * random.nextInt(288)), null));
+            } else {
+                int start = switch (shape) {
+                    case 2, 3 -> Math.max(0, earliest - 5 * random.nextInt(12));
+                    case 4, 5 -> Math.min(MINUTES_PER_DAY - 1, latest - 5 * random.nextInt(12));
+                    default -> 5 * random.nextInt(288);
+                };
+                // Inverted or zero-length ends run to midnight
+                int end = shape == 6 ? 5 * random.nextInt(start / 5 + 1) : start + 5 * (1 + random.nextInt(36));
+                bookings.add(booking(date, time(start), time(Math.min(end, MINUTES_PER_DAY - 1))));
+            }
+        }
+        return bookings;
+    }
+
+    /**
+     * Busy periods of whole minutes, some starting before or ending after the window and some spanning days
+     */
+    private static List<BusyPeriod> randomBusyPeriods(Random random, LocalDate from, int days) {
+        List<BusyPeriod> periods = new ArrayList<>();
+        LocalDateTime windowStart = from.atStartOfDay().minusDays(2);
+        for (int i = random.nextInt(Math.min(days * 2, 200) + 1); i > 0; i--) {
+            LocalDateTime start = windowStart.plusMinutes(5L * random.nextInt((days + 4) * 288));
+            long minutes = random.nextInt(10) == 0 ? 5L * random.nextInt(3 * 288) : 5L * (1 + random.nextInt(24));
+            periods.add(new BusyPeriod(start, start.plusMinutes(minutes)));
+        }
+        return periods;
+    }
+
+    /**
+     * Mark each busy minute, then take the first half-hour start that fits in each free run
+     * inside the allowed hours
+     */
+    private static List<FreeSlotDTO> slotsOnMinuteGrid(List<ConflictingEventDTO> bookings, List<BusyPeriod> googleBusy,
+                                                       LocalDate from, int days, int durationMinutes,
+                                                       int earliest, int latest, int limit) {
+        boolean[] busy = new boolean[days * MINUTES_PER_DAY];
+        for (ConflictingEventDTO booking : bookings) {
+            int dayStart = (int) ChronoUnit.DAYS.between(from, booking.getEventDate()) * MINUTES_PER_DAY;
+            int start = 0;
+            int end = MINUTES_PER_DAY;
+            if (booking.getStartTime() != null && booking.getEndTime() != null) {
+                start = minuteOf(booking.getStartTime());
+                end = minuteOf(booking.getEndTime()) > start ? minuteOf(booking.getEndTime()) : MINUTES_PER_DAY;
+            }
+            for (int minute = start; minute < end; minute++) {
+                busy[dayStart + minute] = true;
+            }
+        }
+        LocalDateTime windowStart = from.atStartOfDay();
+        for (BusyPeriod period : googleBusy) {
+            long start = ChronoUnit.MINUTES.between(windowStart, period.start());
+            long end = ChronoUnit.MINUTES.between(windowStart, period.end());
+            for (long minute = Math.max(0, start); minute < Math.min(busy.length, end); minute++) {
+                busy[(int) minute] = true;
+            }
+        }
+
+        int maxSlots = Math.max(1, Math.min(limit, FreeSlotService.MAX_SLOTS));
+        List<FreeSlotDTO> slots = new ArrayList<>();
+        for (int day = 0; day < days && slots.size() < maxSlots; day++) {
+            int windowEnd = day * MINUTES_PER_DAY + latest;
+            int minute = day * MINUTES_PER_DAY + earliest;
+            while (minute < windowEnd && slots.size() < maxSlots) {
+                if (busy[minute]) {
+                    minute++;
+                    continue;
+                }
+                int gapEnd = minute;
+                while (gapEnd < windowEnd && !busy[gapEnd]) {
+                    gapEnd++;
+                }
+                int slotStart = (minute + 29) / 30 * 30;
+                if (slotStart + durationMinutes <= gapEnd) {
+                    LocalTime startTime = time(slotStart % MINUTES_PER_DAY);
+                    slots.add(new FreeSlotDTO(from.plusDays(day), startTime, startTime.plusMinutes(durationMinutes)));
+                }
+                minute = gapEnd;
+            }
+        }
+        return slots;
+    }
+
+    private static ConflictingEventDTO booking(LocalDate date, LocalTime start, LocalTime end) {
+        return new ConflictingEventDTO(1L, "Anna", "Petrova", 1L, "Vespers", date, start, end, null);
+    }
+
+    private static LocalTime time(int minute) {
+        return LocalTime.of(minute / 60, minute % 60);
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.toSecondOfDay() / 60;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.util.StreamingMimeMessage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sends through a local stub of the Gmail endpoints and checks what arrives
+ */
+class GmailApiClientTest {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private enum SessionMode {
+        // Keeps every chunk
+        NORMAL,
+        // Keeps only the first half of each chunk
+        PARTIAL,
+        // Fails the first chunk with 503, then behaves normally
+        FAIL_ONCE,
+        // Answers 308 without ever keeping anything
+        STALL
+    }
+
+    private HttpServer server;
+    private GmailApiClient client;
+    private SessionMode mode = SessionMode.NORMAL;
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final AtomicInteger chunkRequests = new AtomicInteger();
+    private boolean failed;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/gmail/v1/users/me/messages/send", exchange -> {
+            received.write(exchange.getRequestBody().readAllBytes());
+            respond(exchange, 200);
+        });
+        server.createContext("/upload/gmail/v1/users/me/messages/send", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Location", baseUrl() + "/session/1");
+            respond(exchange, 200);
+        });
+        server.createContext("/session/1", this::handleChunk);
+        server.start();
+
+        client = new GmailApiClient(new RestTemplate(), baseUrl(), DataSize.ofKilobytes(1), DataSize.ofKilobytes(256));
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void smallMessageIsSentAsJson() throws IOException {
+        StreamingMimeMessage message = StreamingMimeMessage.to("anna@example.org", "Hello", "Short note");
+
+        client.send("token", message);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        message.writeGmailJson(expected);
+        assertThat(received.toByteArray()).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    void largeMessageIsUploadedInChunks(@TempDir Path dir) throws IOException {
+        StreamingMimeMessage message = largeMessage(dir);
+
+        client.send("token", message);
+
+        assertThat(received.toByteArray()).isEqualTo(raw(message));
+        assertThat(chunkRequests.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void partiallyKeptChunksAreResent(@TempDir Path dir) throws IOException {
+        mode = SessionMode.PARTIAL;
+        StreamingMimeMessage message = largeMessage(dir);
+
+        client.send("token", message);
+
+        assertThat(received.toByteArray()).isEqualTo(raw(message));
+    }
+
+    @Test
+    void failedChunkIsRetriedFromTheCommittedOffset(@TempDir Path dir) throws IOException {
+        mode = SessionMode.FAIL_ONCE;
+        StreamingMimeMessage message = largeMessage(dir);
+
+        client.send("token", message);
+
+        assertThat(received.toByteArray()).isEqualTo(raw(message));
+    }
+
+    @Test
+    void sessionThatMakesNoProgressFailsTheUpload(@TempDir Path dir) throws IOException {
+        mode = SessionMode.STALL;
+        StreamingMimeMessage message = largeMessage(dir);
+
+        assertThatThrownBy(() -> client.send("token", message))
+                .isInstanceOf(RestClientException.class)
+                .hasMessageContaining("no progress");
+        assertThat(chunkRequests.get()).isLessThanOrEqualTo(4);
+    }
+
+    private void handleChunk(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String range = exchange.getRequestHeaders().getFirst("Content-Range");
+        Matcher matcher = CONTENT_RANGE.matcher(range);
+        if (!matcher.matches()) {
+            // "bytes */total": report what the session has
+            respondCommitted(exchange);
+            return;
+        }
+
+        chunkRequests.incrementAndGet();
+        long start = Long.parseLong(matcher.group(1));
+        long total = Long.parseLong(matcher.group(3));
+        assertThat(start).isEqualTo(received.size());
+        assertThat(body.length).isEqualTo(Long.parseLong(matcher.group(2)) - start + 1);
+
+        switch (mode) {
+            case STALL -> {
+                respondCommitted(exchange);
+                return;
+            }
+            case FAIL_ONCE -> {
+                if (!failed) {
+                    failed = true;
+                    // Keep part of the chunk, as a connection dropped mid-request would
+                    received.write(body, 0, body.length / 3);
+                    respond(exchange, 503);
+                    return;
+                }
+                received.write(body);
+            }
+            case PARTIAL -> received.write(body, 0, Math.max(1, body.length / 2));
+            default -> received.write(body);
+        }
+        if (received.size() == total) {
+            respond(exchange, 200);
+        } else {
+            respondCommitted(exchange);
+        }
+    }
+
+    private void respondCommitted(HttpExchange exchange) throws IOException {
+        if (received.size() > 0) {
+            exchange.getResponseHeaders().set("Range", "bytes=0-" + (received.size() - 1));
+        }
+        respond(exchange, 308);
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * A message of about 1 MB, four upload chunks
+     */
+    private static StreamingMimeMessage largeMessage(Path dir) throws IOException {
+        byte[] content = new byte[700_000];
+        new Random(1).nextBytes(content);
+        Path file = dir.resolve("bulletin.pdf");
+        Files.write(file, content);
+        return StreamingMimeMessage.to("anna@example.org", "Bulletin", "Attached")
+                .attach(List.of(new StreamingMimeMessage.Attachment("bulletin.pdf", "application/pdf", file, content.length)));
+    }
+
+    private static byte[] raw(StreamingMimeMessage message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeRaw(out);
+        return out.toByteArray();
+    }
+}
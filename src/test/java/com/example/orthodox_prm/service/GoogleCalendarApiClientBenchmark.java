@@ -0,0 +1,99 @@
+package com.example.orthodox_prm.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading one events.list page, the streaming reader against the JsonNode tree
+ * the client used before. Pages repeat the items of the recorded fixture
+ * events-full-page1.json under fresh ids. Run with the GC profiler to compare allocation:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=GoogleCalendarApiClientBenchmark -Dbenchmark.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GoogleCalendarApiClientBenchmark {
+
+    // Items per page: a small incremental listing, and a full page at maxResults
+    @Param({"50", "2500"})
+    int items;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] page;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonNode recorded;
+        try (InputStream in = GoogleCalendarApiClientTest.fixture("events-full-page1.json")) {
+            recorded = objectMapper.readTree(in);
+        }
+        ObjectNode body = recorded.deepCopy();
+        ArrayNode listed = body.putArray("items");
+        JsonNode samples = recorded.path("items");
+        for (int i = 0; i < items; i++) {
+            ObjectNode item = samples.get(i % samples.size()).deepCopy();
+            item.put("id", item.path("id").asText() + i);
+            listed.add(item);
+        }
+        page = objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteArrayInputStream(page))) {
+            blackhole.consume(GoogleCalendarApiClient.readPage(parser, blackhole::consume));
+        }
+    }
+
+    /**
+     * The page read whole as a String and a tree, then each item's fields picked out of it
+     */
+    @Benchmark
+    public void tree(Blackhole blackhole) throws IOException {
+        JsonNode body = objectMapper.readTree(new String(page, StandardCharsets.UTF_8));
+        for (JsonNode item : body.path("items")) {
+            blackhole.consume(item.path("id").asText(null));
+            blackhole.consume("cancelled".equals(item.path("status").asText()));
+            blackhole.consume(item.path("summary").asText(null));
+            blackhole.consume(item.path("description").asText(null));
+            blackhole.consume(!"transparent".equals(item.path("transparency").asText()));
+            for (JsonNode time : new JsonNode[]{item.path("start"), item.path("end")}) {
+                if (time.hasNonNull("dateTime")) {
+                    blackhole.consume(OffsetDateTime.parse(time.get("dateTime").asText()));
+                } else if (time.hasNonNull("date")) {
+                    blackhole.consume(LocalDate.parse(time.get("date").asText()));
+                }
+            }
+        }
+        blackhole.consume(body.path("nextPageToken").asText(null));
+        blackhole.consume(body.path("nextSyncToken").asText(null));
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.service.GoogleCalendarApiClient.CalendarItem;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reads recorded events.list responses (src/test/resources/google-calendar) and pages
+ * through a local stub of the Calendar API
+ */
+class GoogleCalendarApiClientTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void readsTimedAllDayAndRecurringItems() throws IOException {
+        List<CalendarItem> items = new ArrayList<>();
+        GoogleCalendarApiClient.Page page = readFixture("events-full-page1.json", items::add);
+
+        assertThat(page.nextPageToken()).startsWith("CigKGjRr");
+        assertThat(page.nextSyncToken()).isNull();
+        assertThat(items).hasSize(3);
+
+        CalendarItem vespers = items.get(0);
+        assertThat(vespers.id()).isEqualTo("4k2igbfklf7ogic0evrjgea6d4");
+        assertThat(vespers.cancelled()).isFalse();
+        assertThat(vespers.summary()).isEqualTo("Vespers");
+        assertThat(vespers.description()).isEqualTo("Great Vespers with Litiya\nConfessions afterwards");
+        assertThat(vespers.busy()).isTrue();
+        assertThat(vespers.start().dateTime()).isEqualTo(OffsetDateTime.parse("2026-10-24T18:00:00-04:00"));
+        assertThat(vespers.end().dateTime()).isEqualTo(OffsetDateTime.parse("2026-10-24T19:30:00-04:00"));
+        assertThat(vespers.start().date()).isNull();
+
+        CalendarItem retreat = items.get(1);
+        assertThat(retreat.busy()).isFalse();
+        assertThat(retreat.description()).isNull();
+        assertThat(retreat.start().dateTime()).isNull();
+        assertThat(retreat.start().date()).isEqualTo(LocalDate.of(2026, 11, 3));
+        assertThat(retreat.end().date()).isEqualTo(LocalDate.of(2026, 11, 6));
+
+        // An instance of a recurring event, in UTC with fractional seconds
+        CalendarItem liturgy = items.get(2);
+        assertThat(liturgy.id()).isEqualTo("1v5ofmh8ps3o2rkj6c0tq7b8gd_20261025T133000Z");
+        assertThat(liturgy.start().dateTime()).isEqualTo(OffsetDateTime.of(2026, 10, 25, 13, 30, 0, 0, ZoneOffset.UTC));
+        assertThat(liturgy.end().dateTime()).isEqualTo(OffsetDateTime.of(2026, 10, 25, 15, 30, 0, 0, ZoneOffset.UTC));
+    }
+
+    @Test
+    void readsLastPageWithSyncToken() throws IOException {
+        List<CalendarItem> items = new ArrayList<>();
+        GoogleCalendarApiClient.Page page = readFixture("events-full-page2.json", items::add);
+
+        assertThat(page.nextPageToken()).isNull();
+        assertThat(page.nextSyncToken()).isEqualTo("CPDAlvWDx70CEPDAlvWDx70CGAU=");
+        assertThat(items).extracting(CalendarItem::id)
+                .containsExactly("5c9m0ah3k1tgrv2o8d7pfq4e6b", "0d8rbv1jmgc5o3q9s2h6t4k7ua");
+
+        CalendarItem vigil = items.get(0);
+        assertThat(vigil.start().dateTime()).isEqualTo(OffsetDateTime.parse("2026-12-24T22:00:00-05:00"));
+        assertThat(vigil.end().dateTime()).isEqualTo(OffsetDateTime.parse("2026-12-25T02:30:00-05:00"));
+
+        // No summary, and nested objects the reader skips
+        CalendarItem focusTime = items.get(1);
+        assertThat(focusTime.summary()).isNull();
+        assertThat(focusTime.start().dateTime().getOffset()).isEqualTo(ZoneOffset.ofHours(2));
+    }
+
+    @Test
+    void readsCancelledItemsOfIncrementalListing() throws IOException {
+        List<CalendarItem> items = new ArrayList<>();
+        GoogleCalendarApiClient.Page page = readFixture("events-incremental.json", items::add);
+
+        assertThat(page.nextSyncToken()).isEqualTo("CKiq2OmXx70CEKiq2OmXx70CGAU=");
+        assertThat(items).extracting(CalendarItem::cancelled).containsExactly(true, true, false);
+
+        // Cancelled items carry only their id, or for instances the original start
+        assertThat(items.get(0).start()).isNull();
+        assertThat(items.get(0).summary()).isNull();
+        assertThat(items.get(1).id()).isEqualTo("1v5ofmh8ps3o2rkj6c0tq7b8gd_20261101T143000Z");
+
+        CalendarItem moved = items.get(2);
+        assertThat(moved.summary()).isEqualTo("Diocesan clergy retreat (moved)");
+        assertThat(moved.busy()).isTrue();
+        assertThat(moved.start().date()).isEqualTo(LocalDate.of(2026, 11, 10));
+    }
+
+    @Test
+    void fastTimestampParserMatchesIsoParser() throws IOException {
+        Random random = new Random(38);
+        for (int i = 0; i < 2000; i++) {
+            OffsetDateTime expected = OffsetDateTime.of(2000 + random.nextInt(100), 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60),
+                    random.nextBoolean() ? 0 : random.nextInt(1_000_000_000),
+                    random.nextInt(4) == 0 ? ZoneOffset.UTC : ZoneOffset.ofTotalSeconds(60 * (random.nextInt(28 * 60) - 14 * 60)));
+            // Always with seconds, as Google writes them; fractions and offsets vary
+            String text = DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(expected);
+            if (random.nextBoolean() && expected.getOffset().equals(ZoneOffset.UTC)) {
+                text = text.replace("Z", "+00:00");
+            }
+            String json = "{\"items\":[{\"id\":\"e\",\"start\":{\"dateTime\":\"" + text + "\"},\"end\":{\"date\":\"" +
+                    expected.toLocalDate() + "\"}}]}";
+
+            List<CalendarItem> items = new ArrayList<>();
+            try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(json)) {
+                GoogleCalendarApiClient.readPage(parser, items::add);
+            }
+
+            assertThat(items.get(0).start().dateTime()).as(text).isEqualTo(OffsetDateTime.parse(text));
+            assertThat(items.get(0).end().date()).isEqualTo(expected.toLocalDate());
+        }
+    }
+
+    @Test
+    void listingFollowsPagesAndBoundsOnlyFullListings() throws IOException {
+        List<Map<String, String>> requests = new ArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/calendar/v3/calendars/primary/events", exchange -> {
+            Map<String, String> query = query(exchange);
+            requests.add(query);
+            String fixture = query.containsKey("syncToken") ? "events-incremental.json"
+                    : query.containsKey("pageToken") ? "events-full-page2.json"
+                    : "events-full-page1.json";
+            respond(exchange, fixture);
+        });
+        server.start();
+        try {
+            GoogleCalendarApiClient client = new GoogleCalendarApiClient(new RestTemplate(), OBJECT_MAPPER,
+                    "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/");
+            Instant timeMin = Instant.parse("2026-09-18T04:00:00Z");
+            Instant timeMax = Instant.parse("2028-10-20T04:00:00Z");
+
+            List<CalendarItem> items = new ArrayList<>();
+            String syncToken = client.listEvents("token", null, timeMin, timeMax, items::add);
+
+            assertThat(syncToken).isEqualTo("CPDAlvWDx70CEPDAlvWDx70CGAU=");
+            assertThat(items).hasSize(5);
+            assertThat(requests).hasSize(2);
+            assertThat(requests.get(0)).containsEntry("timeMin", "2026-09-18T04:00:00Z")
+                    .containsEntry("timeMax", "2028-10-20T04:00:00Z")
+                    .containsEntry("singleEvents", "true")
+                    .doesNotContainKey("pageToken");
+            assertThat(requests.get(1)).containsKey("pageToken").containsEntry("timeMin", "2026-09-18T04:00:00Z");
+
+            items.clear();
+            requests.clear();
+            String nextSyncToken = client.listEvents("token", syncToken, timeMin, timeMax, items::add);
+
+            assertThat(nextSyncToken).isEqualTo("CKiq2OmXx70CEKiq2OmXx70CGAU=");
+            assertThat(items).hasSize(3);
+            // Google rejects a time window together with a sync token
+            assertThat(requests.get(0)).containsEntry("syncToken", syncToken)
+                    .doesNotContainKeys("timeMin", "timeMax");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static GoogleCalendarApiClient.Page readFixture(String name,
+                                                            Consumer<CalendarItem> onItem) throws IOException {
+        try (InputStream in = fixture(name);
+             JsonParser parser = OBJECT_MAPPER.getFactory().createParser(in)) {
+            return GoogleCalendarApiClient.readPage(parser, onItem);
+        }
+    }
+
+    static InputStream fixture(String name) {
+        InputStream in = GoogleCalendarApiClientTest.class.getResourceAsStream("/google-calendar/" + name);
+        if (in == null) {
+            throw new IllegalStateException("Missing fixture " + name);
+        }
+        return in;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new LinkedHashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int separator = pair.indexOf('=');
+                query.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, String fixture) throws IOException {
+        byte[] body;
+        try (InputStream in = fixture(fixture)) {
+            body = in.readAllBytes();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
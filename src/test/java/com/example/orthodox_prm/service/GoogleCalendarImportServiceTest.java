@@ -0,0 +1,176 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.SacramentType;
+import com.example.orthodox_prm.model.GoogleCalendarImportState;
+import com.example.orthodox_prm.model.Parishioner;
+import com.example.orthodox_prm.model.ScheduledEvent;
+import com.example.orthodox_prm.repository.GoogleCalendarImportStateRepository;
+import com.example.orthodox_prm.repository.ParishionerRepository;
+import com.example.orthodox_prm.repository.ScheduledEventRepository;
+import com.example.orthodox_prm.service.GoogleCalendarApiClient.CalendarItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Google changes must delete only rows the import created: events created in the app carry
+ * participants and sacrament records, and only lose their link to the Google copy
+ */
+@DataJpaTest(showSql = false)
+@Import({GoogleCalendarImportService.class, RegistryVersionService.class})
+class GoogleCalendarImportServiceTest {
+
+    private static final String PRIEST = "priest@example.org";
+    private static final LocalDate DATE = LocalDate.now(ZoneId.of("America/New_York")).plusDays(3);
+
+    @MockitoBean
+    private GoogleCalendarApiClient googleCalendarApiClient;
+    @MockitoBean
+    private GoogleTokenService googleTokenService;
+    // Needed by the scheduled event entity listener
+    @MockitoBean
+    private EventIntervalIndex eventIntervalIndex;
+    @MockitoBean
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private GoogleCalendarImportService importService;
+    @Autowired
+    private ScheduledEventRepository scheduledEventRepository;
+    @Autowired
+    private ParishionerRepository parishionerRepository;
+    @Autowired
+    private GoogleCalendarImportStateRepository importStateRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Parishioner parishioner;
+
+    @BeforeEach
+    void setUp() {
+        when(googleTokenService.getAccessToken(PRIEST)).thenReturn("token");
+        parishioner = new Parishioner();
+        parishioner.setFirstName("Anna");
+        parishioner.setLastName("Petrova");
+        parishioner = parishionerRepository.save(parishioner);
+    }
+
+    @Test
+    void cancelledInGoogleDeletesImportedRowsAndUnlinksAppEvents() {
+        ScheduledEvent baptism = appEvent("appbaptism1", LocalDateTime.now().minusDays(1));
+        ScheduledEvent imported = importedEvent("imported1");
+        ScheduledEvent otherDay = importedEvent("imported1@" + DATE.plusDays(1));
+        otherDay.setGoogleSpanEventId("imported1");
+        scheduledEventRepository.save(otherDay);
+        incrementalSync(cancelled("appbaptism1"), cancelled("imported1"));
+
+        importService.importCalendar(PRIEST);
+        entityManager.flush();
+        entityManager.clear();
+
+        ScheduledEvent kept = scheduledEventRepository.findById(baptism.getId()).orElseThrow();
+        assertThat(kept.getGoogleEventId()).isNull();
+        assertThat(kept.getGoogleSyncedAt()).isNull();
+        assertThat(kept.getGoogleCalendarOwner()).isEqualTo(PRIEST);
+        assertThat(kept.getSacramentType()).isEqualTo(SacramentType.BAPTISM);
+        assertThat(kept.getParticipants()).extracting(participant -> participant.getParishioner().getId())
+                .containsExactly(parishioner.getId());
+        assertThat(scheduledEventRepository.findById(imported.getId())).isEmpty();
+        assertThat(scheduledEventRepository.findById(otherDay.getId())).isEmpty();
+    }
+
+    @Test
+    void cancelledSeriesUnlinksAppEventsAmongItsInstances() {
+        // Rows of older versions carry no import flag and were created in the app
+        ScheduledEvent legacy = appEvent("series1_20261019T100000Z", LocalDateTime.now().minusDays(1));
+        legacy.setImportedFromGoogle(null);
+        scheduledEventRepository.save(legacy);
+        ScheduledEvent instance = importedEvent("series1_20261026T100000Z");
+        incrementalSync(cancelled("series1"));
+
+        importService.importCalendar(PRIEST);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(scheduledEventRepository.findById(legacy.getId()).orElseThrow().getGoogleEventId()).isNull();
+        assertThat(scheduledEventRepository.findById(legacy.getId()).orElseThrow().getParticipants()).hasSize(1);
+        assertThat(scheduledEventRepository.findById(instance.getId())).isEmpty();
+    }
+
+    @Test
+    void fullListingDeletesUnseenImportedRowsAndUnlinksUnseenAppEvents() {
+        ScheduledEvent baptism = appEvent("appbaptism2", LocalDateTime.now().minusDays(1));
+        // Pushed but not yet seen by the import: left alone
+        ScheduledEvent queued = appEvent("appqueued", null);
+        ScheduledEvent imported = importedEvent("imported2");
+        when(googleCalendarApiClient.listEvents(anyString(), any(), any(), any(), any())).thenReturn("sync-1");
+
+        importService.importCalendar(PRIEST);
+        entityManager.flush();
+        entityManager.clear();
+
+        ScheduledEvent kept = scheduledEventRepository.findById(baptism.getId()).orElseThrow();
+        assertThat(kept.getGoogleEventId()).isNull();
+        assertThat(kept.getParticipants()).hasSize(1);
+        assertThat(scheduledEventRepository.findById(queued.getId()).orElseThrow().getGoogleEventId()).isEqualTo("appqueued");
+        assertThat(scheduledEventRepository.findById(imported.getId())).isEmpty();
+        assertThat(importStateRepository.findByPrincipalName(PRIEST).orElseThrow().getSyncToken()).isEqualTo("sync-1");
+    }
+
+    private void incrementalSync(CalendarItem... items) {
+        GoogleCalendarImportState state = new GoogleCalendarImportState();
+        state.setPrincipalName(PRIEST);
+        state.setSyncToken("sync-0");
+        importStateRepository.save(state);
+        when(googleCalendarApiClient.listEvents(anyString(), any(), any(), any(), any())).thenAnswer(call -> {
+            Consumer<CalendarItem> onItem = call.getArgument(4);
+            for (CalendarItem item : items) {
+                onItem.accept(item);
+            }
+            return "sync-1";
+        });
+    }
+
+    private ScheduledEvent appEvent(String googleEventId, LocalDateTime syncedAt) {
+        ScheduledEvent event = new ScheduledEvent();
+        event.setEventTitle("Baptism");
+        event.setEventDate(DATE);
+        event.setSacramentType(SacramentType.BAPTISM);
+        event.setGoogleEventId(googleEventId);
+        event.setGoogleCalendarOwner(PRIEST);
+        event.setImportedFromGoogle(false);
+        event.setGoogleSyncedAt(syncedAt);
+        event.addParticipant(parishioner);
+        return scheduledEventRepository.save(event);
+    }
+
+    private ScheduledEvent importedEvent(String googleEventId) {
+        ScheduledEvent event = new ScheduledEvent();
+        event.setEventTitle("Clergy meeting");
+        event.setEventDate(DATE);
+        event.setGoogleEventId(googleEventId);
+        event.setGoogleCalendarOwner(PRIEST);
+        event.setImportedFromGoogle(true);
+        event.setGoogleSyncedAt(LocalDateTime.now().minusDays(1));
+        return scheduledEventRepository.save(event);
+    }
+
+    private static CalendarItem cancelled(String id) {
+        return new CalendarItem(id, true, null, null, true, null, null);
+    }
+}
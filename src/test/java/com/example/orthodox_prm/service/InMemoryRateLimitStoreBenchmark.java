@@ -0,0 +1,69 @@
+package com.example.orthodox_prm.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording and checking submissions on the in-memory store with eight threads at
+ * once, all on one key (a single address flooding the form) or spread over many. Threads
+ * can be changed with -t:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=InMemoryRateLimitStoreBenchmark -Dbenchmark.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class InMemoryRateLimitStoreBenchmark {
+
+    // Distinct keys the threads submit under
+    @Param({"1", "5000"})
+    int keys;
+
+    private static final RateLimitStore.Limit LIMIT =
+            new RateLimitStore.Limit("benchmark", Integer.MAX_VALUE, 60, 10_000);
+
+    private InMemoryRateLimitStore store;
+    private String[] keyNames;
+
+    @Setup
+    public void setUp() {
+        store = new InMemoryRateLimitStore();
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "203.0.113." + i;
+            store.record(LIMIT, keyNames[i]);
+        }
+    }
+
+    @Benchmark
+    public int record() {
+        return store.record(LIMIT, nextKey());
+    }
+
+    @Benchmark
+    public int remaining() {
+        return store.remaining(LIMIT, nextKey());
+    }
+
+    private String nextKey() {
+        return keyNames[keys == 1 ? 0 : ThreadLocalRandom.current().nextInt(keys)];
+    }
+}
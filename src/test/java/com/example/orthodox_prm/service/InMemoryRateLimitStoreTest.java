@@ -0,0 +1,166 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.service.InMemoryRateLimitStore.SubmissionTracker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts of the sliding-window tracker with many threads recording and counting at once,
+ * as the minute rolls over and when the clock steps back
+ */
+class InMemoryRateLimitStoreTest {
+
+    private static final int THREADS = 8;
+    private static final int WINDOW = 5;
+    private static final long START = 1_000;
+
+    @Test
+    void concurrentRecordsInOneMinuteAreAllCounted() throws Exception {
+        SubmissionTracker tracker = new SubmissionTracker(WINDOW, START);
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                tracker.recordSubmission(START);
+                if (i % 64 == 0) {
+                    assertThat(tracker.getCount(START)).isBetween(1, THREADS * 20_000);
+                }
+            }
+        });
+
+        assertThat(tracker.getCount(START)).isEqualTo(THREADS * 20_000);
+    }
+
+    @Test
+    void countsStayExactAsMinutesRollOverUnderContention() throws Exception {
+        SubmissionTracker tracker = new SubmissionTracker(WINDOW, START);
+        long[] recorded = new long[4 * WINDOW];
+        Random random = new Random(41);
+
+        for (int step = 0; step < recorded.length; step++) {
+            long minute = START + step;
+            int perThread = 1 + random.nextInt(2_000);
+            recorded[step] = (long) perThread * THREADS;
+            // Records in the new minute reuse the slot that counts in the same minute expire
+            runConcurrently(thread -> {
+                for (int i = 0; i < perThread; i++) {
+                    if (thread % 2 == 0 || i % 4 == 0) {
+                        tracker.getCount(minute);
+                    }
+                    tracker.recordSubmission(minute);
+                }
+            });
+
+            long inWindow = 0;
+            for (int earlier = Math.max(0, step - WINDOW + 1); earlier <= step; earlier++) {
+                inWindow += recorded[earlier];
+            }
+            assertThat(tracker.getCount(minute)).as("minute %d", minute).isEqualTo(inWindow);
+        }
+    }
+
+    @Test
+    void countsNeverGoNegativeWhileExpiringConcurrently() throws Exception {
+        SubmissionTracker tracker = new SubmissionTracker(WINDOW, START);
+        AtomicBoolean negative = new AtomicBoolean();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                long minute = START + i / 500;
+                if (thread < THREADS / 2) {
+                    tracker.recordSubmission(minute);
+                } else if (tracker.getCount(minute) < 0) {
+                    negative.set(true);
+                }
+            }
+        });
+
+        assertThat(negative).isFalse();
+        // The last minute recorded was START + 39; once the window has passed it nothing is left
+        assertThat(tracker.getCount(START + 39 + WINDOW)).isZero();
+    }
+
+    @Test
+    void steppedBackClockCountsInTheLatestMinute() {
+        SubmissionTracker tracker = new SubmissionTracker(WINDOW, START);
+        record(tracker, START, 2);
+        record(tracker, START + 1, 3);
+        assertThat(tracker.getCount(START + 1)).isEqualTo(5);
+
+        // Back within the window: counted with the latest minute, and expires with it
+        record(tracker, START - 3, 1);
+        assertThat(tracker.getCount(START - 3)).isEqualTo(6);
+        assertThat(tracker.getCount(START + WINDOW)).isEqualTo(4);
+        assertThat(tracker.getCount(START + 1 + WINDOW)).isZero();
+
+        // Back by more than the window, behind buckets already expired: still counted
+        record(tracker, START - 2 * WINDOW, 4);
+        assertThat(tracker.getCount(START - 2 * WINDOW)).isEqualTo(4);
+        assertThat(tracker.getCount(START + 2 * WINDOW)).isEqualTo(4);
+        assertThat(tracker.getCount(START + 1 + 2 * WINDOW)).isZero();
+    }
+
+    @Test
+    void concurrentRecordsFromASteppedBackClockAreAllCountedThenExpire() throws Exception {
+        SubmissionTracker tracker = new SubmissionTracker(WINDOW, START);
+        long latest = START + 3 * WINDOW;
+        record(tracker, latest - 1, 7);
+        assertThat(tracker.getCount(latest)).isEqualTo(7);
+
+        // Some threads still read the clock before it stepped back, others after
+        runConcurrently(thread -> {
+            for (int i = 0; i < 10_000; i++) {
+                long minute = latest - ThreadLocalRandom.current().nextInt(3 * WINDOW);
+                tracker.recordSubmission(minute);
+                tracker.getCount(thread % 2 == 0 ? latest : minute);
+            }
+        });
+
+        assertThat(tracker.getCount(latest)).isEqualTo(7 + THREADS * 10_000);
+        assertThat(tracker.getCount(latest + WINDOW)).isZero();
+    }
+
+    private static void record(SubmissionTracker tracker, long minute, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.recordSubmission(minute);
+        }
+    }
+
+    /**
+     * Run the task on THREADS threads released together, rethrowing the first failure
+     */
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CyclicBarrier start = new CyclicBarrier(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int index = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(index);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
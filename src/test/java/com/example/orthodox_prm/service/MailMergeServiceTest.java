@@ -0,0 +1,105 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.dto.PersonalizedEmail;
+import com.example.orthodox_prm.model.Household;
+import com.example.orthodox_prm.model.Parishioner;
+import com.example.orthodox_prm.util.MailMergeTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Merge values and rendering for many recipients, on both sides of the parallel threshold
+ */
+class MailMergeServiceTest {
+
+    private final MailMergeService service = new MailMergeService();
+
+    private final MailMergeTemplate subject = MailMergeTemplate.compile("Blessed name day, {{baptismalName}}");
+    private final MailMergeTemplate body = MailMergeTemplate.compile(
+            "Dear {{fullName}},\r\n\r\nMay {{patronSaint}} pray for the {{householdName}} family.");
+
+    @Test
+    void mergeValuesFallBackToTheFirstName() {
+        Parishioner parishioner = parishioner(1);
+        parishioner.setBaptismalName(" ");
+        parishioner.setNameSuffix("Jr.");
+        parishioner.setHousehold(null);
+
+        String[] values = service.mergeValues(parishioner);
+
+        assertThat(values[MailMergeTemplate.Field.BAPTISMAL_NAME.ordinal()]).isEqualTo("First1");
+        assertThat(values[MailMergeTemplate.Field.FULL_NAME.ordinal()]).isEqualTo("First1 Last1 Jr.");
+        assertThat(values[MailMergeTemplate.Field.HOUSEHOLD_NAME.ordinal()]).isNull();
+    }
+
+    @Test
+    void rendersEachRecipientInOrderBelowAndAboveTheParallelThreshold() {
+        for (int count : new int[] {1, 63, 64, 65, 1000}) {
+            List<String> recipients = new ArrayList<>();
+            Map<String, String[]> valuesByEmail = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                Parishioner parishioner = parishioner(i);
+                recipients.add(parishioner.getEmail());
+                // Every tenth recipient has no parishioner behind the address
+                if (i % 10 != 9) {
+                    valuesByEmail.put(parishioner.getEmail(), service.mergeValues(parishioner));
+                }
+            }
+
+            List<PersonalizedEmail> rendered = service.renderAll(subject, body, recipients, valuesByEmail);
+
+            assertThat(rendered).hasSize(count);
+            for (int i = 0; i < count; i++) {
+                PersonalizedEmail email = rendered.get(i);
+                assertThat(email.getTo()).isEqualTo("p" + i + "@example.org");
+                if (i % 10 == 9) {
+                    assertThat(email.getSubject()).isEqualTo("Blessed name day, ");
+                    assertThat(email.getBody()).isEqualTo("Dear ,\r\n\r\nMay  pray for the  family.");
+                } else {
+                    assertThat(email.getSubject()).isEqualTo("Blessed name day, Name" + i);
+                    assertThat(email.getBody()).isEqualTo(
+                            "Dear First" + i + " Last" + i + ",\r\n\r\nMay St. Saint" + i + " pray for the Family" + i + " family.");
+                }
+            }
+        }
+    }
+
+    @Test
+    void largeBodiesRenderWhole() {
+        // Larger than the per-thread buffer kept between renders
+        MailMergeTemplate large = MailMergeTemplate.compile("{{firstName}}\n" + "x".repeat(100_000) + "\n{{lastName}}");
+        List<String> recipients = new ArrayList<>();
+        Map<String, String[]> valuesByEmail = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            Parishioner parishioner = parishioner(i);
+            recipients.add(parishioner.getEmail());
+            valuesByEmail.put(parishioner.getEmail(), service.mergeValues(parishioner));
+        }
+
+        List<PersonalizedEmail> rendered = service.renderAll(subject, large, recipients, valuesByEmail);
+
+        for (int i = 0; i < rendered.size(); i++) {
+            assertThat(rendered.get(i).getBody()).hasSize(100_002 + ("First" + i + "Last" + i).length())
+                    .startsWith("First" + i + "\n").endsWith("\nLast" + i);
+        }
+    }
+
+    private static Parishioner parishioner(int i) {
+        Parishioner parishioner = new Parishioner();
+        parishioner.setFirstName("First" + i);
+        parishioner.setLastName("Last" + i);
+        parishioner.setBaptismalName("Name" + i);
+        parishioner.setPatronSaint("St. Saint" + i);
+        parishioner.setEmail("p" + i + "@example.org");
+        Household household = new Household();
+        household.setFamilyName("Family" + i);
+        parishioner.setHousehold(household);
+        return parishioner;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.service.QRCodeSheetService.SheetEntry;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sheets print labels in any European script with the embedded font, and fall back to '?'
+ * only for characters the font has no glyph for
+ */
+class QRCodeSheetServiceTest {
+
+    private final QRCodeSheetService sheetService = new QRCodeSheetService(new QRCodeService(Duration.ofDays(1), 50), 2);
+
+    @BeforeEach
+    void setUp() {
+        sheetService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sheetService.stop();
+    }
+
+    @Test
+    void cyrillicAndGreekLabelsPrintAsTyped() throws IOException {
+        List<SheetEntry> entries = new ArrayList<>(List.of(
+                new SheetEntry("Воскресная школа", "https://example.org/submit/a", "Приход святого Николая"),
+                new SheetEntry("Άγιος Νικόλαος", "https://example.org/submit/b", null),
+                new SheetEntry("Choir – Ελληνικά", "https://example.org/submit/c", "Spring festival")));
+        for (int i = 0; i < 4; i++) {
+            entries.add(new SheetEntry("Table " + i, "https://example.org/submit/t" + i, null));
+        }
+
+        try (PDDocument document = Loader.loadPDF(write("Свята Троица", entries))) {
+            assertThat(document.getNumberOfPages()).isEqualTo(2);
+            String text = new PDFTextStripper().getText(document);
+            assertThat(text).contains("Свята Троица", "Воскресная школа", "Приход святого Николая",
+                    "Άγιος Νικόλαος", "Choir – Ελληνικά", "https://example.org/submit/a", "Table 3");
+            assertThat(text).doesNotContain("?");
+
+            Set<String> fonts = new HashSet<>();
+            for (PDPage page : document.getPages()) {
+                for (COSName name : page.getResources().getFontNames()) {
+                    PDFont font = page.getResources().getFont(name);
+                    assertThat(font.isEmbedded()).isTrue();
+                    // Subsets are named with a six-letter tag, e.g. ABCDEF+DejaVuSans
+                    fonts.add(font.getName().substring(font.getName().indexOf('+') + 1));
+                }
+            }
+            assertThat(fonts).containsExactlyInAnyOrder("DejaVuSans", "DejaVuSans-Bold");
+        }
+    }
+
+    @Test
+    void charactersWithoutAGlyphBecomeQuestionMarks() throws IOException {
+        List<SheetEntry> entries = List.of(new SheetEntry("Choir 聖歌隊", "https://example.org/submit/a", null));
+
+        try (PDDocument document = Loader.loadPDF(write("Parish", entries))) {
+            assertThat(new PDFTextStripper().getText(document)).contains("Choir ???");
+        }
+    }
+
+    private byte[] write(String title, List<SheetEntry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sheetService.writeSheet(title, entries, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.SubmissionType;
+import com.example.orthodox_prm.OrthodoxPrmApplication;
+import com.example.orthodox_prm.model.ParishionerSubmission;
+import com.example.orthodox_prm.model.SubmissionIntake;
+import com.example.orthodox_prm.model.SubmissionLink;
+import com.example.orthodox_prm.repository.SubmissionIntakeRepository;
+import com.example.orthodox_prm.repository.SubmissionLinkRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of public form submissions, as when a whole congregation fills in the form after an
+ * announcement: 100 threads submitting at once, each saved directly or appended to the intake
+ * queue, and the background worker's time to save a queued backlog. Runs the application
+ * against an H2 file database under target/, so every commit reaches the disk. Sample time
+ * gives the latency percentiles:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SubmissionIntakeBenchmark
+ * </pre>
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubmissionIntakeBenchmark {
+
+    private static final int BACKLOG = 1000;
+
+    @Benchmark
+    @Threads(100)
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String submit(Burst burst) {
+        ParishionerSubmission submission = submission(burst.link);
+        // As the public form does
+        if (burst.intakeService.isQueued()) {
+            return burst.intakeService.enqueue(submission);
+        }
+        burst.submissionService.saveSubmission(submission);
+        return null;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @OperationsPerInvocation(BACKLOG)
+    public void drain(Backlog backlog) {
+        backlog.intakeService.processQueue();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Burst {
+
+        @Param({"direct", "queued"})
+        String mode;
+
+        private ConfigurableApplicationContext context;
+        private SubmissionIntakeService intakeService;
+        private SubmissionService submissionService;
+        private SubmissionLink link;
+
+        @Setup
+        public void setUp() throws IOException {
+            // The worker saves queued submissions alongside the burst, as in production
+            context = start("burst-" + mode, "submission.intake.mode=" + mode);
+            intakeService = context.getBean(SubmissionIntakeService.class);
+            submissionService = context.getBean(SubmissionService.class);
+            link = createLink(context);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Backlog {
+
+        private ConfigurableApplicationContext context;
+        private SubmissionIntakeService intakeService;
+        private SubmissionIntakeRepository intakeRepository;
+        private List<String> payloads;
+        private Long linkId;
+
+        @Setup
+        public void setUp() throws IOException {
+            // Only the benchmark drains the queue
+            context = start("backlog", "submission.intake.mode=queued", "submission.intake.poll-interval=1d");
+            intakeService = context.getBean(SubmissionIntakeService.class);
+            intakeRepository = context.getBean(SubmissionIntakeRepository.class);
+            SubmissionLink link = createLink(context);
+            linkId = link.getId();
+            // Payloads as the form queues them
+            intakeService.enqueue(submission(link));
+            String payload = intakeRepository.findAll().get(0).getPayload();
+            intakeService.processQueue();
+            payloads = new ArrayList<>();
+            for (int i = 0; i < BACKLOG; i++) {
+                payloads.add(payload.replace("Petrova", "Petrova" + i));
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void queueBacklog() {
+            List<SubmissionIntake> rows = new ArrayList<>(BACKLOG);
+            for (String payload : payloads) {
+                SubmissionIntake intake = new SubmissionIntake();
+                intake.setReceipt(UUID.randomUUID().toString());
+                intake.setSubmissionLinkId(linkId);
+                intake.setPayload(payload);
+                intake.setReceivedAt(LocalDateTime.now());
+                rows.add(intake);
+            }
+            intakeRepository.saveAll(rows);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String database, String... properties) throws IOException {
+        Path directory = Path.of("target", "submission-intake-benchmark", database);
+        FileSystemUtils.deleteRecursively(directory);
+        List<String> args = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:file:" + directory.toAbsolutePath().resolve("db"),
+                "spring.datasource.hikari.maximum-pool-size=20",
+                "logging.level.root=WARN"));
+        args.addAll(List.of(properties));
+        // As command-line arguments, so they override application.properties
+        return new SpringApplicationBuilder(OrthodoxPrmApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(args.stream().map(arg -> "--" + arg).toArray(String[]::new));
+    }
+
+    private static SubmissionLink createLink(ConfigurableApplicationContext context) {
+        return context.getBean(SubmissionLinkRepository.class)
+                .save(new SubmissionLink("priest@example.org", null, "Parish census"));
+    }
+
+    /**
+     * A typical new-member form: contact details, sacraments and two children
+     */
+    private static ParishionerSubmission submission(SubmissionLink link) {
+        int n = ThreadLocalRandom.current().nextInt(1_000_000);
+        ParishionerSubmission submission = new ParishionerSubmission(SubmissionType.NEW, link);
+        submission.setFirstName("Anna");
+        submission.setLastName("Petrova");
+        submission.setEmail("anna" + n + "@example.org");
+        submission.setPhoneNumber("555-010-" + n % 10_000);
+        submission.setAddress(n + " Church Street");
+        submission.setCity("Springfield");
+        submission.setZipCode("12345");
+        submission.setBirthday(LocalDate.of(1985, 3, 12));
+        submission.setIsOrthodox(true);
+        submission.setBaptismalName("Anna");
+        submission.setPatronSaint("Saint Anna");
+        submission.setBaptismDate(LocalDate.of(1985, 5, 1));
+        submission.setChildrenList(List.of(
+                new ParishionerSubmission.ChildData("Maria Petrova", LocalDate.of(2015, 6, 2)),
+                new ParishionerSubmission.ChildData("Nikolai Petrova", LocalDate.of(2018, 12, 6))));
+        return submission;
+    }
+}
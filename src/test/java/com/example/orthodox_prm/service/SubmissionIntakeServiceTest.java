@@ -0,0 +1,153 @@
+package com.example.orthodox_prm.service;
+
+import com.example.orthodox_prm.Enum.SubmissionType;
+import com.example.orthodox_prm.dto.FailedIntakeDTO;
+import com.example.orthodox_prm.model.ParishionerSubmission;
+import com.example.orthodox_prm.model.SubmissionIntake;
+import com.example.orthodox_prm.model.SubmissionLink;
+import com.example.orthodox_prm.repository.ParishionerSubmissionRepository;
+import com.example.orthodox_prm.repository.SubmissionIntakeRepository;
+import com.example.orthodox_prm.repository.SubmissionLinkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Queued submissions are saved once, and rows the worker gives up on stay listed for review
+ * until they are retried or discarded
+ */
+// The worker is only run by the test, and each save commits as it does in the application
+@DataJpaTest(showSql = false, properties = "submission.intake.poll-interval=1h")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SubmissionIntakeService.class, SubmissionService.class, RegistryVersionService.class})
+class SubmissionIntakeServiceTest {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    @Autowired
+    private SubmissionIntakeService intakeService;
+    @Autowired
+    private SubmissionIntakeRepository intakeRepository;
+    @Autowired
+    private SubmissionLinkRepository linkRepository;
+    @Autowired
+    private ParishionerSubmissionRepository submissionRepository;
+
+    private SubmissionLink link;
+
+    @BeforeEach
+    void setUp() {
+        link = linkRepository.save(new SubmissionLink("priest@example.org", null, "Parish census"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        intakeRepository.deleteAll();
+        submissionRepository.deleteAll();
+        linkRepository.deleteAll();
+    }
+
+    @Test
+    void queuedSubmissionsAreSavedOnce() {
+        String receipt = intakeService.enqueue(submission("Anna", "Petrova"));
+        intakeService.enqueue(submission("John", "Smith"));
+        assertThat(receipt).hasSize(36);
+        assertThat(intakeRepository.count()).isEqualTo(2);
+
+        intakeService.processQueue();
+        intakeService.processQueue();
+
+        assertThat(intakeRepository.count()).isZero();
+        assertThat(submissionRepository.findAll()).extracting(ParishionerSubmission::getFirstName)
+                .containsExactlyInAnyOrder("Anna", "John");
+        assertThat(submissionRepository.findAll()).allSatisfy(saved ->
+                assertThat(saved.getSubmissionLink().getId()).isEqualTo(link.getId()));
+        assertThat(intakeService.getFailedIntakes()).isEmpty();
+    }
+
+    @Test
+    void rowsThatKeepFailingAreListedAfterTheLastAttempt() {
+        intakeService.enqueue(submission("Anna", "Petrova"));
+        SubmissionIntake unreadable = intake(link.getId(), "{not json");
+        // Readable, but its link is gone by the time the worker saves it
+        SubmissionIntake orphaned = intake(-1L, intakeRepository.findAll().get(0).getPayload().replace("Anna", "Maria"));
+
+        for (int run = 1; run < MAX_ATTEMPTS; run++) {
+            intakeService.processQueue();
+            assertThat(intakeService.getFailedIntakes()).as("run %d", run).isEmpty();
+        }
+        // The good row was saved on the first run, beside the failing ones
+        assertThat(submissionRepository.findAll()).extracting(ParishionerSubmission::getFirstName).containsExactly("Anna");
+
+        intakeService.processQueue();
+        List<FailedIntakeDTO> failed = intakeService.getFailedIntakes();
+        assertThat(failed).extracting(FailedIntakeDTO::getId).containsExactly(unreadable.getId(), orphaned.getId());
+        assertThat(failed.get(0).getName()).isNull();
+        assertThat(failed.get(0).getLastError()).contains("Unreadable queued submission");
+        assertThat(failed.get(1).getName()).isEqualTo("Maria Petrova");
+        assertThat(failed.get(1).getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(failed.get(1).getLastError()).isNotBlank();
+
+        // No further attempts once listed
+        intakeService.processQueue();
+        assertThat(intakeService.getFailedIntakes()).extracting(FailedIntakeDTO::getAttempts)
+                .containsExactly(MAX_ATTEMPTS, MAX_ATTEMPTS);
+    }
+
+    @Test
+    void failedRowsCanBeRetriedOrDiscarded() {
+        SubmissionIntake unreadable = intake(link.getId(), "{not json");
+        intakeService.enqueue(submission("Anna", "Petrova"));
+        SubmissionIntake queued = intakeRepository.findAll().get(1);
+        // Rows still being worked on are left alone
+        assertThat(intakeService.retryFailedIntake(queued.getId())).isFalse();
+        assertThat(intakeService.discardFailedIntake(queued.getId())).isFalse();
+
+        for (int run = 0; run < MAX_ATTEMPTS; run++) {
+            intakeService.processQueue();
+        }
+        assertThat(intakeService.getFailedIntakes()).hasSize(1);
+
+        assertThat(intakeService.retryFailedIntake(unreadable.getId())).isTrue();
+        assertThat(intakeService.getFailedIntakes()).isEmpty();
+        assertThat(intakeRepository.findById(unreadable.getId()).orElseThrow().getAttempts()).isZero();
+
+        for (int run = 0; run < MAX_ATTEMPTS; run++) {
+            intakeService.processQueue();
+        }
+        assertThat(intakeService.getFailedIntakes()).hasSize(1);
+
+        assertThat(intakeService.discardFailedIntake(unreadable.getId())).isTrue();
+        assertThat(intakeService.discardFailedIntake(unreadable.getId())).isFalse();
+        assertThat(intakeRepository.count()).isZero();
+        assertThat(submissionRepository.count()).isEqualTo(1);
+    }
+
+    private ParishionerSubmission submission(String firstName, String lastName) {
+        ParishionerSubmission submission = new ParishionerSubmission(SubmissionType.NEW, link);
+        submission.setFirstName(firstName);
+        submission.setLastName(lastName);
+        submission.setEmail(firstName.toLowerCase() + "@example.org");
+        return submission;
+    }
+
+    private SubmissionIntake intake(Long linkId, String payload) {
+        SubmissionIntake intake = new SubmissionIntake();
+        intake.setReceipt(UUID.randomUUID().toString());
+        intake.setSubmissionLinkId(linkId);
+        intake.setPayload(payload);
+        intake.setReceivedAt(LocalDateTime.now());
+        return intakeRepository.save(intake);
+    }
+}
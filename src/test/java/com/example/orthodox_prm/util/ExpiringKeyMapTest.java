@@ -0,0 +1,203 @@
+package com.example.orthodox_prm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The timing wheel must expire each key in the first minute past its deadline, however far
+ * the deadline or the next call lies beyond the wheel's 64 x 64-minute horizon
+ */
+class ExpiringKeyMapTest {
+
+    private static final long HORIZON = 64 * 64;
+    private static final long START = 29_000_000;
+
+    @Test
+    void idleGapsLongerThanTheHorizonExpireOnlyWhatIsDue() {
+        ExpiringKeyMap<String> map = new ExpiringKeyMap<>(100, START);
+        map.put("soon", "a", START, START + 10);
+        map.put("block", "b", START, START + 500);
+        map.put("horizon", "c", START, START + HORIZON + 100);
+        map.put("far", "d", START, START + 3 * HORIZON + 7);
+
+        long now = START + HORIZON + 99;
+        assertThat(map.get("soon", now)).isNull();
+        assertThat(map.get("block", now)).isNull();
+        assertThat(map.get("horizon", now)).isEqualTo("c");
+        assertThat(map.size()).isEqualTo(2);
+
+        assertThat(map.get("horizon", now + 1)).isNull();
+        // One more gap past the horizon, stopping a minute short of the last deadline
+        assertThat(map.get("far", START + 3 * HORIZON + 6)).isEqualTo("d");
+        map.expire(START + 3 * HORIZON + 7);
+        assertThat(map.size()).isZero();
+    }
+
+    @Test
+    void extendingPastTheHorizonReslotsTheEntry() {
+        ExpiringKeyMap<String> map = new ExpiringKeyMap<>(100, START);
+        map.put("key", "value", START, START + 5);
+        map.extend("key", START + 1, START + 2 * HORIZON + 30);
+        // Earlier deadlines are ignored
+        map.extend("key", START + 2, START + 10);
+
+        // The entry passes through its old minute slot and the furthest block on the way
+        for (long now = START + 3; now < START + 2 * HORIZON + 30; now += 17) {
+            assertThat(map.get("key", now)).as("minute %d", now - START).isEqualTo("value");
+        }
+        assertThat(map.get("key", START + 2 * HORIZON + 29)).isEqualTo("value");
+        assertThat(map.get("key", START + 2 * HORIZON + 30)).isNull();
+    }
+
+    @Test
+    void capEvictsTheEntryDueSoonest() {
+        ExpiringKeyMap<String> map = new ExpiringKeyMap<>(3, START);
+        map.put("minutes", "a", START, START + 50);
+        map.put("block", "b", START, START + 300);
+        map.put("extended", "c", START, START + 10);
+        // Still in the slot for minute 10, but now due after both others
+        map.extend("extended", START, START + 900);
+
+        map.put("new1", "d", START, START + 200);
+        assertThat(map.get("minutes", START)).isNull();
+        assertThat(map.size()).isEqualTo(3);
+
+        map.put("new2", "e", START, START + 2 * HORIZON);
+        assertThat(map.get("new1", START)).isNull();
+
+        map.put("new3", "f", START, START + 3 * HORIZON);
+        assertThat(map.get("block", START)).isNull();
+        assertThat(map.get("extended", START)).isEqualTo("c");
+
+        // The extended entry was moved to its new slot, and is due before the two parked ones
+        map.put("new4", "g", START, START + 4 * HORIZON);
+        assertThat(map.get("extended", START)).isNull();
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    void removeThenReinsertInTheSameMinuteKeepsTheNewDeadline() {
+        ExpiringKeyMap<String> map = new ExpiringKeyMap<>(2, START);
+        String first = "first";
+        map.put("key", first, START, START + 5);
+        assertThat(map.remove("key", "other")).isFalse();
+        assertThat(map.remove("key", first)).isTrue();
+        map.put("key", "second", START, START + 100);
+
+        // The removed entry's slot comes due first and must leave the new one alone
+        assertThat(map.get("key", START + 5)).isEqualTo("second");
+        assertThat(map.get("key", START + 99)).isEqualTo("second");
+        assertThat(map.get("key", START + 100)).isNull();
+
+        // Shorter the second time: the stale later slot must not keep it alive
+        map.put("key", first, START + 100, START + 200);
+        map.remove("key", first);
+        map.put("key", "third", START + 100, START + 110);
+        assertThat(map.get("key", START + 110)).isNull();
+        assertThat(map.size()).isZero();
+
+        // Eviction skips the removed entry and takes the soonest live one
+        map.put("gone", first, START + 110, START + 111);
+        map.remove("gone", first);
+        map.put("a", "a", START + 110, START + 150);
+        map.put("b", "b", START + 110, START + 160);
+        map.put("c", "c", START + 110, START + 170);
+        assertThat(map.get("a", START + 110)).isNull();
+        assertThat(map.get("b", START + 110)).isEqualTo("b");
+        assertThat(map.get("c", START + 110)).isEqualTo("c");
+    }
+
+    @Test
+    void randomUseMatchesAMapOfDeadlines() {
+        for (int seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            ExpiringKeyMap<String> map = new ExpiringKeyMap<>(Integer.MAX_VALUE, START);
+            Map<String, String> values = new HashMap<>();
+            Map<String, Long> deadlines = new HashMap<>();
+            Map<String, Long> expiries = new HashMap<>();
+            long now = START;
+
+            for (int step = 0; step < 3_000; step++) {
+                int gap = random.nextInt(100);
+                now += gap < 60 ? 0 : gap < 97 ? random.nextInt(30) : gap < 99 ? random.nextInt(1_000) : random.nextInt(10_000);
+                expire(values, deadlines, expiries, now);
+                String key = "k" + random.nextInt(200);
+                long deadline = now + randomDelta(random);
+
+                switch (random.nextInt(5)) {
+                    case 0, 1 -> {
+                        // A fresh object, so the map's identity checks see a new value
+                        String value = new String("v" + step);
+                        map.put(key, value, now, deadline);
+                        if (values.containsKey(key)) {
+                            extend(deadlines, expiries, key, deadline);
+                        } else {
+                            deadlines.put(key, deadline);
+                            expiries.put(key, Math.max(deadline, now + 1));
+                        }
+                        values.put(key, value);
+                    }
+                    case 2 -> {
+                        map.extend(key, now, deadline);
+                        if (values.containsKey(key)) {
+                            extend(deadlines, expiries, key, deadline);
+                        }
+                    }
+                    case 3 -> {
+                        String value = values.get(key);
+                        assertThat(map.remove(key, value)).isEqualTo(value != null);
+                        values.remove(key);
+                        deadlines.remove(key);
+                        expiries.remove(key);
+                    }
+                    default -> assertThat(map.get(key, now)).as("seed %d step %d", seed, step).isSameAs(values.get(key));
+                }
+                map.expire(now);
+                assertThat(map.size()).as("seed %d step %d", seed, step).isEqualTo(values.size());
+            }
+        }
+    }
+
+    /**
+     * Mostly within the minute wheel, some in the block wheel, a few past the horizon or already due
+     */
+    private static long randomDelta(Random random) {
+        return switch (random.nextInt(10)) {
+            case 0 -> -random.nextInt(5);
+            case 1, 2 -> 64 + random.nextInt((int) HORIZON);
+            case 3 -> HORIZON + random.nextInt(3 * (int) HORIZON);
+            default -> 1 + random.nextInt(64);
+        };
+    }
+
+    /**
+     * Deadlines are only pushed later; a key added already due still lasts out its minute
+     */
+    private static void extend(Map<String, Long> deadlines, Map<String, Long> expiries, String key, long deadline) {
+        if (deadline > deadlines.get(key)) {
+            deadlines.put(key, deadline);
+            expiries.put(key, Math.max(expiries.get(key), deadline));
+        }
+    }
+
+    private static void expire(Map<String, String> values, Map<String, Long> deadlines, Map<String, Long> expiries, long now) {
+        List<String> due = new ArrayList<>();
+        expiries.forEach((key, expiry) -> {
+            if (expiry <= now) {
+                due.add(key);
+            }
+        });
+        due.forEach(key -> {
+            values.remove(key);
+            deadlines.remove(key);
+            expiries.remove(key);
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.orthodox_prm.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sanitizing one public submission form as PublicSubmissionController does (four
+ * suspicious-content checks and nine field sanitizers), the old regex chain against the
+ * single pass. Run with the GC profiler to compare allocation:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=InputSanitizerBenchmark -Dbenchmark.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputSanitizerBenchmark {
+
+    // What a parishioner types, or a form stuffed with markup
+    @Param({"plain", "hostile"})
+    String form;
+
+    private final InputSanitizer sanitizer = new InputSanitizer();
+    private final LegacyInputSanitizer legacy = new LegacyInputSanitizer();
+
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+    private String address;
+    private String city;
+    private String zipCode;
+    private String baptismalName;
+    private String patronSaint;
+
+    @Setup
+    public void setUp() {
+        if (form.equals("plain")) {
+            firstName = "  Anna ";
+            lastName = "Petrova-Smith";
+            email = " Anna.Petrova@Example.org ";
+            phone = "(555) 123-4567";
+            address = "1200  Holy Trinity Lane,\tApt 4";
+            city = "Saint Paul";
+            zipCode = "55101-2301";
+            baptismalName = "Anastasia";
+            patronSaint = "St. Anastasia the Deliverer from Potions";
+        } else {
+            firstName = "<script>alert(1)</script>Anna<b>";
+            lastName = "<img src=x onerror=alert(1)>Petrova";
+            email = "anna@example.org<script src=//evil.example>";
+            phone = "<a href='javascript:x'>555</a> 123 4567";
+            address = "<div onclick = steal()>1200 Holy Trinity Lane</div>".repeat(4);
+            city = "<scr<script>x</script>ipt>Saint Paul";
+            zipCode = "<i>55101</i>";
+            baptismalName = "<<<<<<<<<<Anastasia";
+            patronSaint = "<script>".repeat(20) + "St. Anastasia";
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        blackhole.consume(sanitizer.containsSuspiciousContent(firstName));
+        blackhole.consume(sanitizer.containsSuspiciousContent(lastName));
+        blackhole.consume(sanitizer.containsSuspiciousContent(email));
+        blackhole.consume(sanitizer.containsSuspiciousContent(address));
+        blackhole.consume(sanitizer.sanitizeName(firstName, InputSanitizer.MAX_NAME_LENGTH));
+        blackhole.consume(sanitizer.sanitizeName(lastName, InputSanitizer.MAX_NAME_LENGTH));
+        blackhole.consume(sanitizer.sanitizeEmail(email));
+        blackhole.consume(sanitizer.sanitizePhone(phone));
+        blackhole.consume(sanitizer.sanitizeAddress(address));
+        blackhole.consume(sanitizer.sanitizeCity(city));
+        blackhole.consume(sanitizer.sanitizeZipCode(zipCode));
+        blackhole.consume(sanitizer.sanitizeName(baptismalName, InputSanitizer.MAX_NAME_LENGTH));
+        blackhole.consume(sanitizer.sanitizeName(patronSaint, InputSanitizer.MAX_GENERAL_LENGTH));
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        blackhole.consume(legacy.containsSuspiciousContent(firstName));
+        blackhole.consume(legacy.containsSuspiciousContent(lastName));
+        blackhole.consume(legacy.containsSuspiciousContent(email));
+        blackhole.consume(legacy.containsSuspiciousContent(address));
+        blackhole.consume(legacy.sanitizeName(firstName, InputSanitizer.MAX_NAME_LENGTH));
+        blackhole.consume(legacy.sanitizeName(lastName, InputSanitizer.MAX_NAME_LENGTH));
+        blackhole.consume(legacy.sanitizeEmail(email));
+        blackhole.consume(legacy.sanitizePhone(phone));
+        blackhole.consume(legacy.sanitizeAddress(address));
+        blackhole.consume(legacy.sanitizeCity(city));
+        blackhole.consume(legacy.sanitizeZipCode(zipCode));
+        blackhole.consume(legacy.sanitizeName(baptismalName, InputSanitizer.MAX_NAME_LENGTH));
+        blackhole.consume(legacy.sanitizeName(patronSaint, InputSanitizer.MAX_GENERAL_LENGTH));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.orthodox_prm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The single-pass sanitizer must give exactly the results of the old regex-based one
+ */
+class InputSanitizerTest {
+
+    // Fragments that steer the regexes: script blocks, tags, handlers, whitespace and control
+    // characters, and characters whose case mapping is unusual or depends on the locale
+    private static final List<String> TOKENS = List.of(
+            "<script>", "<SCRIPT src=x>", "<script", "</script>", "</ScRiPt>", "</script >", "<", ">", "<b>", "</b>",
+            "<a href='x'>", "javascript:", "JavaScript:", "java", "script:", "on", "ON", "onclick", "onerror", "onload=",
+            "onmouseover =", "on_x", "=", " ", "  ", "\t", "\n", "\r\n", "\u000B", "\u001F", "\u0000", "\u00A0", "\u2003",
+            "\u212A", "İ", "ı", "I", "i", "ſ", "ß", "é", "🕊",
+            "'; DROP", "'; drop", "1=1", "UNION SELECT", "union select", "--", "-", "'", ".", ",", "@", "(", ")", "+",
+            "a", "Z", "k", "0", "7", "_", "Anna", "example.org", "Main St.");
+
+    private static final String[] LOCALES = {"en-US", "tr", "de"};
+
+    private final InputSanitizer sanitizer = new InputSanitizer();
+    private final LegacyInputSanitizer legacy = new LegacyInputSanitizer();
+
+    @Test
+    void matchesLegacyOnExamples() {
+        String[] examples = {
+                null, "", "   ", "Anna", "  Mary   Magdalene  ", "<b>Bold</b> name", "<script>alert(1)</script>John",
+                "<scr<script>x</script>ipt>alert(1)</script>", "x<script>never closed", "a < b > c",
+                "javascript:alert(1)", "<img src=x onerror=alert(1)>", "onclick = steal()", "O'Brien-Smith, Jr.",
+                "anna@example.org", " Anna@Example.ORG ", "a@b", "a@-b.org", "(555) 123-4567", "+1 555.123.4567 ext",
+                "sw1a 1aa", "12345-6789-0000", "1=1 --", "'; DROP TABLE parishioner", "Kelvin", "İstanbul"};
+        for (String locale : LOCALES) {
+            withLocale(locale, () -> {
+                for (String example : examples) {
+                    assertSame(example, 100);
+                }
+            });
+        }
+    }
+
+    @Test
+    void matchesLegacyOnRandomInputs() {
+        Random random = new Random(48);
+        for (String locale : LOCALES) {
+            withLocale(locale, () -> {
+                for (int i = 0; i < 30_000; i++) {
+                    StringBuilder input = new StringBuilder();
+                    for (int t = random.nextInt(12); t >= 0; t--) {
+                        input.append(TOKENS.get(random.nextInt(TOKENS.size())));
+                    }
+                    assertSame(input.toString(), 1 + random.nextInt(30));
+                }
+            });
+        }
+    }
+
+    @Test
+    void matchesLegacyOnEmailPhoneAndZipCandidates() {
+        Random random = new Random(48);
+        String local = "abcXYZ019.!#$%&'*+/=?^_`{|}~-";
+        String domain = "abz09-.";
+        String phone = "0123456789 -()+.x\t";
+        String zip = "AZaz09 -_";
+        for (int i = 0; i < 30_000; i++) {
+            String email = randomText(random, local, 1 + random.nextInt(12)) + (random.nextInt(10) > 0 ? "@" : "")
+                    + randomText(random, domain, random.nextInt(80));
+            assertSame(email, 100);
+            assertSame(" " + randomText(random, phone, random.nextInt(25)) + " ", 20);
+            assertSame(randomText(random, zip, random.nextInt(14)), 10);
+        }
+        // Labels on either side of 63 characters
+        for (int length = 60; length <= 66; length++) {
+            assertSame("a@" + "b".repeat(length) + ".org", 100);
+        }
+    }
+
+    private void assertSame(String input, int maxLength) {
+        assertThat(sanitizer.sanitize(input)).as("sanitize %s", input).isEqualTo(legacy.sanitize(input));
+        assertThat(sanitizer.sanitizeName(input, maxLength)).as("sanitizeName %s, %d", input, maxLength)
+                .isEqualTo(legacy.sanitizeName(input, maxLength));
+        assertThat(sanitizer.sanitizeEmail(input)).as("sanitizeEmail %s", input).isEqualTo(legacy.sanitizeEmail(input));
+        assertThat(sanitizer.sanitizePhone(input)).as("sanitizePhone %s", input).isEqualTo(legacy.sanitizePhone(input));
+        assertThat(sanitizer.sanitizeZipCode(input)).as("sanitizeZipCode %s", input)
+                .isEqualTo(legacy.sanitizeZipCode(input));
+        assertThat(sanitizer.sanitizeAddress(input)).as("sanitizeAddress %s", input)
+                .isEqualTo(legacy.sanitizeAddress(input));
+        assertThat(sanitizer.sanitizeCity(input)).as("sanitizeCity %s", input).isEqualTo(legacy.sanitizeCity(input));
+        assertThat(sanitizer.containsSuspiciousContent(input)).as("containsSuspiciousContent %s", input)
+                .isEqualTo(legacy.containsSuspiciousContent(input));
+        assertThat(sanitizer.isValidName(input)).as("isValidName %s", input).isEqualTo(legacy.isValidName(input));
+        assertThat(sanitizer.isValidEmail(input)).as("isValidEmail %s", input).isEqualTo(legacy.isValidEmail(input));
+        assertThat(sanitizer.isValidPhone(input)).as("isValidPhone %s", input).isEqualTo(legacy.isValidPhone(input));
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    private static void withLocale(String languageTag, Runnable check) {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag(languageTag));
+        try {
+            check.run();
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+}
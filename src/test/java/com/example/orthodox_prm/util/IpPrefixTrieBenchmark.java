@@ -0,0 +1,91 @@
+package com.example.orthodox_prm.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of checking and recording one address against the default block limits, and of
+ * parsing it alone against InetAddress.getByName on the same literal. Addresses are half
+ * IPv4, half IPv6; at 100000 distinct addresses the node cap is reached and the trie is
+ * compacted as it would be under a flood:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=IpPrefixTrieBenchmark -Dbenchmark.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IpPrefixTrieBenchmark {
+
+    // Distinct addresses submitting
+    @Param({"16", "4096", "100000"})
+    int addresses;
+
+    private IpPrefixTrie trie;
+    private String[] literals;
+    private final int[] groups = new int[8];
+    private final long[] key = new long[2];
+    private int next;
+    private long now = 1_000_000;
+
+    @Setup
+    public void setUp() {
+        // As RateLimitingService builds it
+        trie = new IpPrefixTrie(IpPrefixTrie.parseLevels("v4/24=20,v6/64=10,v6/48=30", 60), 50_000);
+        Random random = new Random(44);
+        literals = new String[addresses];
+        for (int i = 0; i < addresses; i++) {
+            literals[i] = i % 2 == 0
+                    ? "198." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256)
+                    : String.format("2001:db8:%x:%x::%x", random.nextInt(0x10000), random.nextInt(0x10000),
+                    random.nextInt(0x10000));
+        }
+        for (String literal : literals) {
+            trie.record(literal, now);
+        }
+    }
+
+    @Benchmark
+    public int remaining() {
+        return trie.remaining(nextLiteral(), now++);
+    }
+
+    @Benchmark
+    public int record() {
+        return trie.record(nextLiteral(), now++);
+    }
+
+    @Benchmark
+    public long parse() {
+        IpPrefixTrie.parse(nextLiteral(), groups, key);
+        return key[0] ^ key[1];
+    }
+
+    @Benchmark
+    public InetAddress parseInetAddress() throws UnknownHostException {
+        return InetAddress.getByName(nextLiteral());
+    }
+
+    private String nextLiteral() {
+        String literal = literals[next];
+        next = next + 1 == literals.length ? 0 : next + 1;
+        return literal;
+    }
+}
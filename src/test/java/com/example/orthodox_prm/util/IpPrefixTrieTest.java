@@ -0,0 +1,372 @@
+package com.example.orthodox_prm.util;
+
+import com.example.orthodox_prm.util.IpPrefixTrie.Level;
+import org.junit.jupiter.api.Test;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The address parser against java.net.InetAddress, and the trie's limits against a plain
+ * map of per-block buckets
+ */
+class IpPrefixTrieTest {
+
+    private static final long WINDOW_MILLIS = 60_000;
+    // Groups of five or more hex digits, octets of four or more decimal ones
+    private static final Pattern OVERLONG = Pattern.compile("[0-9a-fA-F]{5}|[0-9]{4}\\.|\\.[0-9]{4}");
+
+    @Test
+    void parsesIpv6Forms() throws UnknownHostException {
+        assertParses("::", IpPrefixTrie.V6, "0:0:0:0:0:0:0:0");
+        assertParses("::1", IpPrefixTrie.V6, "0:0:0:0:0:0:0:1");
+        assertParses("1::", IpPrefixTrie.V6, "1:0:0:0:0:0:0:0");
+        assertParses("2001:db8::8a2e:370:7334", IpPrefixTrie.V6, "2001:db8:0:0:0:8a2e:370:7334");
+        assertParses("2001:DB8:0:0:8A2E:370:7334:0", IpPrefixTrie.V6, "2001:db8:0:0:8a2e:370:7334:0");
+        assertParses("1:2:3:4:5:6:7::", IpPrefixTrie.V6, "1:2:3:4:5:6:7:0");
+        assertParses("::2:3:4:5:6:7:8", IpPrefixTrie.V6, "0:2:3:4:5:6:7:8");
+        assertParses("[2001:db8::1]", IpPrefixTrie.V6, "2001:db8:0:0:0:0:0:1");
+        assertParses(" 2001:db8::1 ", IpPrefixTrie.V6, "2001:db8:0:0:0:0:0:1");
+    }
+
+    @Test
+    void parsesEmbeddedIpv4() throws UnknownHostException {
+        assertParses("1:2:3:4:5:6:192.0.2.1", IpPrefixTrie.V6, "1:2:3:4:5:6:c000:201");
+        assertParses("64:ff9b::192.0.2.1", IpPrefixTrie.V6, "64:ff9b:0:0:0:0:c000:201");
+        // IPv4-compatible addresses stay IPv6; only mapped ones count as IPv4
+        assertParses("::192.0.2.1", IpPrefixTrie.V6, "0:0:0:0:0:0:c000:201");
+        assertParses("::ffff:192.0.2.1", IpPrefixTrie.V4, "192.0.2.1");
+        assertParses("::FFFF:c000:0201", IpPrefixTrie.V4, "192.0.2.1");
+        assertParses("0:0:0:0:0:ffff:192.0.2.1", IpPrefixTrie.V4, "192.0.2.1");
+        assertParses("[::ffff:203.0.113.9]", IpPrefixTrie.V4, "203.0.113.9");
+    }
+
+    @Test
+    void dropsZoneIds() throws UnknownHostException {
+        assertParses("fe80::1%eth0", IpPrefixTrie.V6, "fe80:0:0:0:0:0:0:1");
+        assertParses("fe80::1%3", IpPrefixTrie.V6, "fe80:0:0:0:0:0:0:1");
+        assertParses("[fe80::a:b%25en0]", IpPrefixTrie.V6, "fe80:0:0:0:0:0:a:b");
+        assertParses("fe80::1%", IpPrefixTrie.V6, "fe80:0:0:0:0:0:0:1");
+    }
+
+    @Test
+    void parsesIpv4() throws UnknownHostException {
+        assertParses("192.0.2.1", IpPrefixTrie.V4, "192.0.2.1");
+        assertParses("0.0.0.0", IpPrefixTrie.V4, "0.0.0.0");
+        assertParses("255.255.255.255", IpPrefixTrie.V4, "255.255.255.255");
+        assertParses("  10.0.0.7 ", IpPrefixTrie.V4, "10.0.0.7");
+    }
+
+    @Test
+    void rejectsInvalidAddresses() {
+        String[] invalid = {
+                null, "", " ", "[]", "[::1", "%eth0", "localhost", "example.org",
+                "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.4.", ".1.2.3.4", "1.2.3.-4", "1234.1.1.1",
+                "1.2.3.4:80", ":1", "1:", ":::", "1:::2", "1::2::3", "12345::", "g::1", "::1 ::2",
+                "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::", "::1:2:3:4:5:6:7:8",
+                "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3", "::1.2.3.4:5", "::1.2.3.4.5", "::ffff:1a.2.3.4",
+                "::ffff:256.0.0.1", "1.2.3.4::"};
+        for (String address : invalid) {
+            assertThat(IpPrefixTrie.parse(address, new int[8], new long[2])).as(address).isEqualTo(IpPrefixTrie.NONE);
+        }
+    }
+
+    @Test
+    void parserMatchesInetAddressOnRandomAndMutatedLiterals() throws UnknownHostException {
+        Random random = new Random(44);
+        String alphabet = "0123456789abcdefABCDEF:.";
+        int checked = 0;
+        for (int i = 0; i < 20_000; i++) {
+            byte[] bytes = new byte[16];
+            random.nextBytes(bytes);
+            // Runs of zero groups for "::" to stand for, and some mapped addresses
+            for (int g = random.nextInt(8); g < 8 && random.nextInt(3) > 0; g++) {
+                bytes[2 * g] = 0;
+                bytes[2 * g + 1] = 0;
+            }
+            if (random.nextInt(10) == 0) {
+                System.arraycopy(new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1}, 0, bytes, 0, 12);
+            }
+            String literal = format(bytes, random);
+            assertMatchesInetAddress(literal);
+
+            StringBuilder mutated = new StringBuilder(literal);
+            for (int m = 1 + random.nextInt(3); m > 0 && !mutated.isEmpty(); m--) {
+                int at = random.nextInt(mutated.length());
+                switch (random.nextInt(3)) {
+                    case 0 -> mutated.deleteCharAt(at);
+                    case 1 -> mutated.insert(at, alphabet.charAt(random.nextInt(alphabet.length())));
+                    default -> mutated.setCharAt(at, alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+            // InetAddress resolves anything but IPv6 literals through DNS, so only those are compared.
+            // It also takes groups and octets padded with leading zeros past four and three digits.
+            String text = mutated.toString();
+            if (text.indexOf(':') >= 0 && (text.charAt(0) == ':' || Character.digit(text.charAt(0), 16) >= 0)
+                    && !OVERLONG.matcher(text).find()) {
+                assertMatchesInetAddress(text);
+                checked++;
+            }
+        }
+        assertThat(checked).isGreaterThan(5_000);
+    }
+
+    @Test
+    void limitsEachLevelOfAnAddress() {
+        IpPrefixTrie trie = new IpPrefixTrie(IpPrefixTrie.parseLevels("v4/24=3,v4/16=5,v6/64=2,v6/48=4", 1), 1000);
+        long now = 1_000_000;
+
+        assertThat(trie.remaining("10.1.1.1", now)).isEqualTo(3);
+        assertThat(trie.record("10.1.1.1", now)).isEqualTo(2);
+        assertThat(trie.record("10.1.1.2", now)).isEqualTo(1);
+        assertThat(trie.record("10.1.1.3", now)).isZero();
+        assertThat(trie.remaining("10.1.1.200", now)).isZero();
+        // Another /24 of the same /16 has only the /16's last two
+        assertThat(trie.remaining("10.1.2.1", now)).isEqualTo(2);
+        assertThat(trie.record("10.1.2.1", now)).isEqualTo(1);
+        assertThat(trie.remaining("10.2.0.1", now)).isEqualTo(3);
+
+        assertThat(trie.record("2001:db8:0:1::1", now)).isEqualTo(1);
+        assertThat(trie.record("2001:db8:0:1::2", now)).isZero();
+        assertThat(trie.remaining("2001:db8:0:2::1", now)).isEqualTo(2);
+        // Mapped addresses count against the IPv4 blocks
+        assertThat(trie.remaining("::ffff:10.1.1.9", now)).isZero();
+
+        // Refills by capacity per window, here one minute
+        assertThat(trie.remaining("10.1.1.1", now + WINDOW_MILLIS / 3)).isEqualTo(1);
+        assertThat(trie.remaining("10.1.1.1", now + WINDOW_MILLIS)).isEqualTo(3);
+        assertThat(trie.remaining("2001:db8:0:1::1", now + WINDOW_MILLIS)).isEqualTo(2);
+    }
+
+    @Test
+    void unlimitedFamiliesAndInvalidAddressesAreNotLimited() {
+        IpPrefixTrie trie = new IpPrefixTrie(IpPrefixTrie.parseLevels("v4/24=1", 1), 1000);
+
+        assertThat(trie.record("2001:db8::1", 0)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(trie.record("not an address", 0)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(trie.remaining(null, 0)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(trie.size()).isZero();
+    }
+
+    @Test
+    void matchesPlainBucketsWhileSplittingEdges() {
+        List<Level> levels = IpPrefixTrie.parseLevels("v4/16=7,v4/24=3,v4/32=2,v6/48=9,v6/56=6,v6/64=4,v6/128=2", 1);
+        IpPrefixTrie trie = new IpPrefixTrie(levels, 100_000);
+        Model model = new Model(levels);
+        Random random = new Random(44);
+        long now = 0;
+        for (int i = 0; i < 50_000; i++) {
+            now += random.nextInt(2_000);
+            byte[] bytes = randomAddress(random);
+            String literal = format(bytes, random);
+            if (random.nextInt(3) == 0) {
+                assertThat(trie.remaining(literal, now)).as(literal).isEqualTo(model.remaining(bytes, now));
+            } else {
+                assertThat(trie.record(literal, now)).as(literal).isEqualTo(model.record(bytes, now));
+            }
+        }
+    }
+
+    @Test
+    void compactsAtMaxNodesKeepingTheBusiestBlocks() {
+        IpPrefixTrie trie = new IpPrefixTrie(IpPrefixTrie.parseLevels("v4/24=5", 1), 64);
+        long now = 1_000_000;
+        for (int i = 0; i < 5; i++) {
+            trie.record("198.51.100." + i, now);
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            trie.record("10." + (i >> 8) + "." + (i & 0xFF) + ".1", now);
+            assertThat(trie.size()).isLessThanOrEqualTo(64);
+        }
+
+        assertThat(trie.remaining("198.51.100.77", now)).isZero();
+        // Dropped blocks are treated as full again
+        assertThat(trie.remaining("10.3.232.1", now)).isEqualTo(5);
+        assertThat(trie.remaining("10.7.207.1", now)).isEqualTo(4);
+    }
+
+    @Test
+    void compactionKeepsNestedBlocksInsertedDeepestFirst() {
+        // The exhausted /64 sorts before its /48, so rebuilding splits the /64's edge for the /48
+        IpPrefixTrie trie = new IpPrefixTrie(IpPrefixTrie.parseLevels("v6/48=3,v6/64=2", 1), 40);
+        long now = 1_000_000;
+        trie.record("2001:db8:ffff:1::1", now);
+        trie.record("2001:db8:ffff:1::2", now);
+
+        int largest = 0;
+        for (int i = 0; i < 100; i++) {
+            trie.record("2001:db8:" + Integer.toHexString(i) + "::1", now);
+            largest = Math.max(largest, trie.size());
+        }
+
+        assertThat(largest).isLessThanOrEqualTo(40);
+        assertThat(trie.remaining("2001:db8:ffff:1::3", now)).isZero();
+        assertThat(trie.remaining("2001:db8:ffff:2::1", now)).isEqualTo(1);
+    }
+
+    private static void assertParses(String address, int family, String expected) throws UnknownHostException {
+        long[] key = new long[2];
+        assertThat(IpPrefixTrie.parse(address, new int[8], key)).as(address).isEqualTo(family);
+        assertThat(key).as(address).containsExactly(key(InetAddress.getByName(expected).getAddress()));
+    }
+
+    private static void assertMatchesInetAddress(String literal) {
+        long[] key = new long[2];
+        int family = IpPrefixTrie.parse(literal, new int[8], key);
+        InetAddress expected;
+        try {
+            expected = InetAddress.getByName(literal);
+        } catch (UnknownHostException e) {
+            assertThat(family).as(literal).isEqualTo(IpPrefixTrie.NONE);
+            return;
+        }
+        assertThat(family).as(literal).isEqualTo(expected instanceof Inet4Address ? IpPrefixTrie.V4 : IpPrefixTrie.V6);
+        assertThat(key).as(literal).containsExactly(key(expected.getAddress()));
+    }
+
+    /**
+     * The trie's key for 4 or 16 address bytes: left-aligned in 128 bits
+     */
+    private static long[] key(byte[] bytes) {
+        long hi = 0;
+        long lo = 0;
+        for (int i = 0; i < 16; i++) {
+            long b = i < bytes.length ? bytes[i] & 0xFF : 0;
+            if (i < 8) {
+                hi = (hi << 8) | b;
+            } else {
+                lo = (lo << 8) | b;
+            }
+        }
+        return new long[] {hi, lo};
+    }
+
+    /**
+     * IPv6 bytes as text, in random case with the longest zero run (if any) randomly
+     * compressed and a mapped address randomly written dotted; IPv4 bytes dotted
+     */
+    private static String format(byte[] bytes, Random random) {
+        if (bytes.length == 4) {
+            return (bytes[0] & 0xFF) + "." + (bytes[1] & 0xFF) + "." + (bytes[2] & 0xFF) + "." + (bytes[3] & 0xFF);
+        }
+        int[] groups = new int[8];
+        for (int g = 0; g < 8; g++) {
+            groups[g] = (bytes[2 * g] & 0xFF) << 8 | bytes[2 * g + 1] & 0xFF;
+        }
+        boolean dotted = random.nextBoolean();
+        int last = dotted ? 6 : 8;
+        int runStart = -1;
+        int runLength = 0;
+        for (int g = 0; g < last; g++) {
+            int length = 0;
+            while (g + length < last && groups[g + length] == 0) {
+                length++;
+            }
+            if (length > runLength) {
+                runStart = g;
+                runLength = length;
+            }
+        }
+        boolean compress = runLength > 0 && random.nextBoolean();
+        StringBuilder text = new StringBuilder();
+        for (int g = 0; g < last; g++) {
+            if (compress && g == runStart) {
+                text.append("::");
+                g += runLength - 1;
+                continue;
+            }
+            if (!text.isEmpty() && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            String hex = Integer.toHexString(groups[g]);
+            text.append(random.nextBoolean() ? hex : hex.toUpperCase());
+        }
+        if (dotted) {
+            if (!text.isEmpty() && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(bytes[12] & 0xFF).append('.').append(bytes[13] & 0xFF).append('.')
+                    .append(bytes[14] & 0xFF).append('.').append(bytes[15] & 0xFF);
+        }
+        return text.toString();
+    }
+
+    /**
+     * An address from a few small networks, so that blocks are shared and their edges split
+     */
+    private static byte[] randomAddress(Random random) {
+        if (random.nextBoolean()) {
+            return new byte[] {10, (byte) random.nextInt(2), (byte) random.nextInt(4), (byte) random.nextInt(8)};
+        }
+        byte[] bytes = {0x20, 0x01, 0x0d, (byte) 0xb8, 0, (byte) random.nextInt(2), 0, (byte) random.nextInt(4),
+                0, 0, 0, 0, 0, 0, 0, (byte) random.nextInt(8)};
+        bytes[6] = (byte) (random.nextInt(3) << 6);
+        return bytes;
+    }
+
+    /**
+     * The same token buckets in a map keyed by level and block
+     */
+    private static final class Model {
+        private final List<Level> levels;
+        private final Map<String, long[]> buckets = new HashMap<>(); // {units, refilledAt}
+
+        Model(List<Level> levels) {
+            this.levels = levels;
+        }
+
+        int remaining(byte[] address, long now) {
+            int remaining = Integer.MAX_VALUE;
+            for (Level level : applying(address)) {
+                long[] bucket = buckets.get(block(level, address));
+                remaining = Math.min(remaining,
+                        bucket == null ? level.capacity() : (int) (units(level, bucket, now) / level.windowMillis()));
+            }
+            return remaining;
+        }
+
+        int record(byte[] address, long now) {
+            int remaining = Integer.MAX_VALUE;
+            for (Level level : applying(address)) {
+                long[] bucket = buckets.computeIfAbsent(block(level, address), k -> new long[] {level.fullUnits(), now});
+                bucket[0] = Math.max(0, units(level, bucket, now) - level.windowMillis());
+                bucket[1] = Math.max(bucket[1], now);
+                remaining = Math.min(remaining, (int) (bucket[0] / level.windowMillis()));
+            }
+            return remaining;
+        }
+
+        private List<Level> applying(byte[] address) {
+            List<Level> applying = new ArrayList<>();
+            for (Level level : levels) {
+                if (level.ipv6() == (address.length == 16)) {
+                    applying.add(level);
+                }
+            }
+            return applying;
+        }
+
+        private static long units(Level level, long[] bucket, long now) {
+            long elapsed = Math.max(0, now - bucket[1]);
+            return Math.min(level.fullUnits(), bucket[0] + Math.min(elapsed, level.windowMillis()) * level.capacity());
+        }
+
+        private static String block(Level level, byte[] address) {
+            StringBuilder block = new StringBuilder().append(level.prefixLength()).append('/');
+            for (int bit = 0; bit < level.prefixLength(); bit++) {
+                block.append((address[bit / 8] >>> (7 - bit % 8)) & 1);
+            }
+            return block.toString();
+        }
+    }
+}
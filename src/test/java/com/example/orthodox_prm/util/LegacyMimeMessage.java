@@ -0,0 +1,65 @@
+package com.example.orthodox_prm.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The String-based message building GmailService used before {@link StreamingMimeMessage},
+ * kept as the reference the streaming writer must match byte for byte
+ */
+final class LegacyMimeMessage {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private LegacyMimeMessage() {
+    }
+
+    static String to(String to, String subject, String body) {
+        StringBuilder message = new StringBuilder();
+        message.append("To: ").append(sanitizeHeader(to)).append("\r\n");
+        message.append("Subject: ").append(sanitizeHeader(subject)).append("\r\n");
+        message.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        message.append("\r\n");
+        message.append(body);
+        return message.toString();
+    }
+
+    static String bcc(String subject, String body, List<String> bccRecipients) {
+        StringBuilder message = new StringBuilder();
+        String sanitizedBcc = bccRecipients.stream()
+                .map(LegacyMimeMessage::sanitizeHeader)
+                .reduce((a, b) -> a + "," + b)
+                .orElse("");
+        message.append("Bcc: ").append(sanitizedBcc).append("\r\n");
+        message.append("Subject: ").append(sanitizeHeader(subject)).append("\r\n");
+        message.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        message.append("\r\n");
+        message.append(body);
+        return message.toString();
+    }
+
+    /**
+     * The send request body as RestTemplate serialized it: a map holding the base64url message
+     */
+    static byte[] gmailJson(String mimeMessage) throws JsonProcessingException {
+        String encoded = Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(mimeMessage.getBytes(StandardCharsets.UTF_8));
+        Map<String, String> payload = new HashMap<>();
+        payload.put("raw", encoded);
+        return OBJECT_MAPPER.writeValueAsBytes(payload);
+    }
+
+    private static String sanitizeHeader(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\r", "").replace("\n", "");
+    }
+}
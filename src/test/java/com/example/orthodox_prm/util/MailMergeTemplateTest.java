@@ -0,0 +1,100 @@
+package com.example.orthodox_prm.util;
+
+import com.example.orthodox_prm.util.MailMergeTemplate.Field;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compilation of templates into segments, and how unknown or malformed placeholders are kept
+ */
+class MailMergeTemplateTest {
+
+    // Indexed by Field ordinal
+    private static final String[] ANNA = {"Anna", "Petrova", "Anna Petrova", "Anastasia", "St. Anastasia", "Petrov"};
+
+    @Test
+    void rendersFieldsBetweenLiterals() {
+        MailMergeTemplate template = MailMergeTemplate.compile("Dear {{baptismalName}}, on the feast of {{patronSaint}}.");
+
+        assertThat(template.isPersonalized()).isTrue();
+        assertThat(template.render(ANNA)).isEqualTo("Dear Anastasia, on the feast of St. Anastasia.");
+    }
+
+    @Test
+    void namesAreCaseInsensitiveAndMayBePadded() {
+        MailMergeTemplate template = MailMergeTemplate.compile("{{ FIRSTNAME }} {{lastname}} / {{  householdName\t}}");
+
+        assertThat(template.render(ANNA)).isEqualTo("Anna Petrova / Petrov");
+    }
+
+    @Test
+    void fieldsAtTheEdgesAndSideBySide() {
+        assertThat(MailMergeTemplate.compile("{{firstName}}{{lastName}}").render(ANNA)).isEqualTo("AnnaPetrova");
+        assertThat(MailMergeTemplate.compile("{{fullName}}").render(ANNA)).isEqualTo("Anna Petrova");
+        assertThat(MailMergeTemplate.compile("{{firstName}}!").render(ANNA)).isEqualTo("Anna!");
+        assertThat(MailMergeTemplate.compile("Hi {{firstName}}").render(ANNA)).isEqualTo("Hi Anna");
+    }
+
+    @Test
+    void unknownPlaceholdersStayAsText() {
+        MailMergeTemplate template = MailMergeTemplate.compile("Dear {{nickname}} {{firstName}}, {{ }}{{}}");
+
+        assertThat(template.render(ANNA)).isEqualTo("Dear {{nickname}} Anna, {{ }}{{}}");
+    }
+
+    @Test
+    void malformedPlaceholdersStayAsText() {
+        String[] sources = {
+                "Dear {{firstName", "Dear firstName}}", "}}{{firstName", "{ {firstName} }", "{firstName}",
+                "{{first Name}}", "{{ {firstName} }}"};
+        for (String source : sources) {
+            MailMergeTemplate template = MailMergeTemplate.compile(source);
+            assertThat(template.isPersonalized()).as(source).isFalse();
+            assertThat(template.render(ANNA)).as(source).isEqualTo(source);
+        }
+    }
+
+    @Test
+    void bracesAroundAFieldAreKept() {
+        // The first "}}" closes the placeholder, so the extra braces stay on either side
+        assertThat(MailMergeTemplate.compile("{{{firstName}}}").render(ANNA)).isEqualTo("{{{firstName}}}");
+        assertThat(MailMergeTemplate.compile("{ {{firstName}} }").render(ANNA)).isEqualTo("{ Anna }");
+        // An unclosed placeholder before a real one swallows it up to its "}}"
+        assertThat(MailMergeTemplate.compile("{{oops {{firstName}} and {{lastName}}").render(ANNA))
+                .isEqualTo("{{oops {{firstName}} and Petrova");
+    }
+
+    @Test
+    void missingValuesRenderEmpty() {
+        String[] values = new String[Field.values().length];
+        values[Field.FIRST_NAME.ordinal()] = "Anna";
+
+        assertThat(MailMergeTemplate.compile("{{firstName}} of {{householdName}}.").render(values))
+                .isEqualTo("Anna of .");
+    }
+
+    @Test
+    void plainTemplatesRenderAsWritten() {
+        assertThat(MailMergeTemplate.compile(null).render(ANNA)).isEmpty();
+        assertThat(MailMergeTemplate.compile("").isPersonalized()).isFalse();
+
+        MailMergeTemplate template = MailMergeTemplate.compile("Christ is risen!");
+        assertThat(template.isPersonalized()).isFalse();
+        assertThat(template.render(ANNA)).isEqualTo("Christ is risen!");
+    }
+
+    @Test
+    void rendersIntoAnExistingBuffer() {
+        StringBuilder out = new StringBuilder("> ");
+        MailMergeTemplate.compile("{{firstName}} {{lastName}}").renderTo(out, ANNA);
+
+        assertThat(out).hasToString("> Anna Petrova");
+    }
+
+    @Test
+    void listsEveryField() {
+        assertThat(MailMergeTemplate.supportedPlaceholders()).isEqualTo(
+                "{{firstName}}, {{lastName}}, {{fullName}}, {{baptismalName}}, {{patronSaint}}, {{householdName}}");
+    }
+}
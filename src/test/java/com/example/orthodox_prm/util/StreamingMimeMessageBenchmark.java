@@ -0,0 +1,89 @@
+package com.example.orthodox_prm.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the Gmail send payload for one message, old String path against the
+ * streaming writer. Allocation per message is the figure of interest, so run with the GC
+ * profiler and compare gc.alloc.rate.norm:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StreamingMimeMessageBenchmark -Dbenchmark.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingMimeMessageBenchmark {
+
+    // Characters in the body: a short notice, a newsletter, a long mail-merged letter
+    @Param({"1000", "20000", "200000"})
+    int bodyLength;
+
+    private String subject;
+    private String body;
+    private List<String> recipients;
+
+    @Setup
+    public void setUp() {
+        subject = "Parish bulletin — Sunday of the Holy Fathers";
+        StringBuilder text = new StringBuilder(bodyLength);
+        String paragraph = "Glory to Jesus Christ! The feast day liturgy begins at 9:30, followed by the parish meal. Χριστὸς ἀνέστη!\r\n";
+        while (text.length() < bodyLength) {
+            text.append(paragraph);
+        }
+        body = text.substring(0, bodyLength);
+        recipients = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            recipients.add("parishioner" + i + "@example.org");
+        }
+    }
+
+    @Benchmark
+    public byte[] legacyString() throws IOException {
+        return LegacyMimeMessage.gmailJson(LegacyMimeMessage.bcc(subject, body, recipients));
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        StreamingMimeMessage message = StreamingMimeMessage.bcc(recipients, subject, body);
+        CountingStream out = new CountingStream();
+        message.writeGmailJson(out);
+        return out.count + message.gmailJsonLength();
+    }
+
+    /**
+     * Stands in for the HTTP request body, which the client hands straight to the socket
+     */
+    private static final class CountingStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
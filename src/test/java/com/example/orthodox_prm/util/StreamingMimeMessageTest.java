@@ -0,0 +1,139 @@
+package com.example.orthodox_prm.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The streaming writer must produce exactly the bytes the old String-based path sent
+ */
+class StreamingMimeMessageTest {
+
+    private static final List<String> BODIES = List.of(
+            "",
+            "Christ is risen!",
+            "Line one\r\nLine two\nLine three\r",
+            "Χριστὸς ἀνέστη! Христос воскресе! 基督复活了",
+            "Emoji outside the BMP: 🕊️ and 🌿",
+            "Unpaired surrogates \uD800 and \uDC00 become '?'",
+            "x".repeat(5000) + "é".repeat(5000));
+
+    @Test
+    void singleRecipientMatchesLegacyMessage() throws IOException {
+        for (String body : BODIES) {
+            assertMatches(StreamingMimeMessage.to("anna@example.org", "Parish news", body),
+                    LegacyMimeMessage.to("anna@example.org", "Parish news", body));
+        }
+    }
+
+    @Test
+    void bccMatchesLegacyMessage() throws IOException {
+        List<String> recipients = List.of("anna@example.org", "b\r\nBcc: injected@example.org", "ölaf@example.org");
+        for (String body : BODIES) {
+            assertMatches(StreamingMimeMessage.bcc(recipients, "Feast\nday", body),
+                    LegacyMimeMessage.bcc("Feast\nday", body, recipients));
+        }
+        assertMatches(StreamingMimeMessage.bcc(List.of(), "Empty", "body"),
+                LegacyMimeMessage.bcc("Empty", "body", List.of()));
+    }
+
+    @Test
+    void randomTextMatchesLegacyMessage() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            String to = randomText(random, 40);
+            String subject = randomText(random, 80);
+            String body = randomText(random, 3000);
+            assertMatches(StreamingMimeMessage.to(to, subject, body), LegacyMimeMessage.to(to, subject, body));
+
+            List<String> recipients = List.of(randomText(random, 20), randomText(random, 20));
+            assertMatches(StreamingMimeMessage.bcc(recipients, subject, body),
+                    LegacyMimeMessage.bcc(subject, body, recipients));
+        }
+    }
+
+    @Test
+    void attachmentsAreEncodedAndLengthsPrecomputed(@TempDir Path dir) throws IOException {
+        Random random = new Random(7);
+        List<StreamingMimeMessage.Attachment> attachments = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        // Sizes around the 3-byte base64 group and the 57-byte MIME line
+        for (int size : new int[] {0, 1, 2, 3, 56, 57, 58, 10_000}) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            Path file = dir.resolve("file" + size);
+            Files.write(file, content);
+            attachments.add(new StreamingMimeMessage.Attachment("Бюлетень " + size + ".pdf", "application/pdf", file, size));
+            contents.add(content);
+        }
+        StreamingMimeMessage message = StreamingMimeMessage.to("anna@example.org", "Files", "See attached").attach(attachments);
+
+        byte[] raw = raw(message);
+        byte[] json = gmailJson(message);
+        assertThat(message.rawLength()).isEqualTo(raw.length);
+        assertThat(message.gmailJsonLength()).isEqualTo(json.length);
+        String jsonText = new String(json, StandardCharsets.US_ASCII);
+        assertThat(Base64.getUrlDecoder().decode(jsonText.substring(8, jsonText.length() - 2))).isEqualTo(raw);
+
+        // Each part's body decodes back to the file
+        String text = new String(raw, StandardCharsets.UTF_8);
+        String[] parts = text.split("--=_prm_[0-9a-f]+");
+        assertThat(parts).hasSize(attachments.size() + 3);
+        for (int i = 0; i < contents.size(); i++) {
+            String part = parts[i + 2];
+            String encoded = part.substring(part.indexOf("\r\n\r\n") + 4, part.length() - 2);
+            assertThat(Base64.getMimeDecoder().decode(encoded)).isEqualTo(contents.get(i));
+        }
+    }
+
+    private static void assertMatches(StreamingMimeMessage message, String legacy) throws IOException {
+        byte[] raw = raw(message);
+        byte[] json = gmailJson(message);
+        assertThat(raw).isEqualTo(legacy.getBytes(StandardCharsets.UTF_8));
+        assertThat(json).isEqualTo(LegacyMimeMessage.gmailJson(legacy));
+        assertThat(message.rawLength()).isEqualTo(raw.length);
+        assertThat(message.gmailJsonLength()).isEqualTo(json.length);
+    }
+
+    private static byte[] raw(StreamingMimeMessage message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeRaw(out);
+        return out.toByteArray();
+    }
+
+    private static byte[] gmailJson(StreamingMimeMessage message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeGmailJson(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Text mixing ASCII, line breaks, two- and three-byte characters, surrogate pairs and lone surrogates
+     */
+    private static String randomText(Random random, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            switch (random.nextInt(6)) {
+                case 0 -> text.append(random.nextBoolean() ? '\r' : '\n');
+                case 1 -> text.append((char) (0x80 + random.nextInt(0x780)));
+                case 2 -> text.append((char) (0x800 + random.nextInt(0xD000)));
+                case 3 -> text.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                case 4 -> text.append((char) (0xD800 + random.nextInt(0x800)));
+                default -> text.append((char) (0x20 + random.nextInt(0x5F)));
+            }
+        }
+        return text.toString();
+    }
+}